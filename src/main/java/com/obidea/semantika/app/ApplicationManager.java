@@ -30,6 +30,9 @@ import com.obidea.semantika.knowledgebase.processor.KnowledgeBaseProcessorRegist
 import com.obidea.semantika.mapping.IMappingSet;
 import com.obidea.semantika.materializer.IMaterializerEngineFactory;
 import com.obidea.semantika.materializer.RdfMaterializerEngine;
+import com.obidea.semantika.metrics.IMetrics;
+import com.obidea.semantika.metrics.JmxMetrics;
+import com.obidea.semantika.metrics.MetricsFactory;
 import com.obidea.semantika.ontology.IOntology;
 import com.obidea.semantika.queryanswer.IQueryEngineFactory;
 import com.obidea.semantika.queryanswer.SparqlQueryEngine;
@@ -42,6 +45,8 @@ public class ApplicationManager implements IApplicationManager, IQueryEngineFact
 
    private KnowledgeBase mKnowledgeBase;
 
+   private IMetrics mMetrics;
+
    private static final Logger LOG = LogUtils.createLogger("semantika.application"); //$NON-NLS-1$
 
    public ApplicationManager(final Settings settings)
@@ -69,6 +74,8 @@ public class ApplicationManager implements IApplicationManager, IQueryEngineFact
        */
       mKnowledgeBase = new KnowledgeBase(masterKb);
       
+      mMetrics = MetricsFactory.buildMetrics(getSystemProperties().getMetrics(), getApplicationName());
+      
       LOG.debug("ApplicationManager is ready to use."); //$NON-NLS-1$
    }
 
@@ -102,6 +109,33 @@ public class ApplicationManager implements IApplicationManager, IQueryEngineFact
       return mSettings.getSystemProperties();
    }
 
+   /**
+    * Returns the metrics that receive the timings and the counts of the query engines
+    * and the materializer engines created by this manager.
+    */
+   public IMetrics getMetrics()
+   {
+      return mMetrics;
+   }
+
+   /**
+    * Exposes the metrics through JMX, if enabled, while an engine is started. Each call
+    * must be paired with {@link #unregisterMetrics()} when the engine stops.
+    */
+   public void registerMetrics()
+   {
+      if (mMetrics instanceof JmxMetrics) {
+         ((JmxMetrics) mMetrics).register();
+      }
+   }
+
+   public void unregisterMetrics()
+   {
+      if (mMetrics instanceof JmxMetrics) {
+         ((JmxMetrics) mMetrics).unregister();
+      }
+   }
+
    @Override
    public List<IKnowledgeBaseProcessor> getKnowledgeBaseProcessors()
    {
@@ -53,9 +53,23 @@ public class DefaultSettingFactory extends SettingFactory
       settings.addSystemProperties(Environment.POOL_MIN_SIZE, properties.getString(Environment.POOL_MIN_SIZE, "-1"));
       settings.addSystemProperties(Environment.POOL_MAX_SIZE, properties.getString(Environment.POOL_MAX_SIZE, "-1"));
       settings.addSystemProperties(Environment.POOL_TIMEOUT, properties.getString(Environment.POOL_TIMEOUT, "-1"));
+      settings.addSystemProperties(Environment.CONNECTION_LEASE_PER_QUERY, properties.getString(Environment.CONNECTION_LEASE_PER_QUERY, "false"));
       settings.addSystemProperties(Environment.TRANSACTION_TIMEOUT, properties.getString(Environment.TRANSACTION_TIMEOUT, "-1"));
       settings.addSystemProperties(Environment.TRANSACTION_FETCH_SIZE, properties.getString(Environment.TRANSACTION_FETCH_SIZE, "-1"));
       settings.addSystemProperties(Environment.TRANSACTION_MAX_ROWS, properties.getString(Environment.TRANSACTION_MAX_ROWS, "-1"));
+      settings.addSystemProperties(Environment.QUERY_EXECUTOR_THREADS, properties.getString(Environment.QUERY_EXECUTOR_THREADS, "-1"));
+      settings.addSystemProperties(Environment.QUERY_EXECUTOR_QUEUE_SIZE, properties.getString(Environment.QUERY_EXECUTOR_QUEUE_SIZE, "-1"));
+      settings.addSystemProperties(Environment.QUERY_EXECUTOR_UNION_PARALLELISM, properties.getString(Environment.QUERY_EXECUTOR_UNION_PARALLELISM, "-1"));
+      settings.addSystemProperties(Environment.QUERY_PLAN_CACHE_MAX_WEIGHT, properties.getString(Environment.QUERY_PLAN_CACHE_MAX_WEIGHT, "-1"));
+      settings.addSystemProperties(Environment.QUERY_PLAN_CACHE_DIRECTORY, properties.getString(Environment.QUERY_PLAN_CACHE_DIRECTORY, ""));
+      settings.addSystemProperties(Environment.QUERY_ANSWER_CACHE_MAX_WEIGHT, properties.getString(Environment.QUERY_ANSWER_CACHE_MAX_WEIGHT, "-1"));
+      settings.addSystemProperties(Environment.QUERY_ANSWER_CACHE_TTL, properties.getString(Environment.QUERY_ANSWER_CACHE_TTL, "-1"));
+      settings.addSystemProperties(Environment.QUERY_DEFERRED_URI_CONSTRUCTION, properties.getString(Environment.QUERY_DEFERRED_URI_CONSTRUCTION, "false"));
+      settings.addSystemProperties(Environment.SLOW_QUERY_LOG_THRESHOLD, properties.getString(Environment.SLOW_QUERY_LOG_THRESHOLD, "-1"));
+      settings.addSystemProperties(Environment.SLOW_QUERY_LOG_FILE, properties.getString(Environment.SLOW_QUERY_LOG_FILE, ""));
+      settings.addSystemProperties(Environment.SLOW_QUERY_LOG_MAX_SIZE, properties.getString(Environment.SLOW_QUERY_LOG_MAX_SIZE, "10485760"));
+      settings.addSystemProperties(Environment.SLOW_QUERY_LOG_MAX_FILES, properties.getString(Environment.SLOW_QUERY_LOG_MAX_FILES, "5"));
+      settings.addSystemProperties(Environment.METRICS, properties.getString(Environment.METRICS, ""));
       settings.addSystemProperties(Environment.ONTOLOGY_SOURCE, properties.getString(Environment.ONTOLOGY_SOURCE));
       settings.addSystemProperties(Environment.MAPPING_SOURCE, Arrays.asList(properties.getStringArray(Environment.MAPPING_SOURCE))+"");
    }
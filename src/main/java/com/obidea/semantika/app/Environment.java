@@ -86,6 +86,81 @@ public final class Environment
     */
    public static final String TRANSACTION_MAX_ROWS = "transaction.max_rows"; //$NON-NLS-1$
 
+   /**
+    * Lease a connection from the connection provider for each query evaluation instead
+    * of sharing a single connection, which allows concurrent queries on one engine
+    */
+   public static final String CONNECTION_LEASE_PER_QUERY = "connection.lease_per_query"; //$NON-NLS-1$
+
+   /**
+    * Number of threads that evaluate the asynchronous queries
+    */
+   public static final String QUERY_EXECUTOR_THREADS = "query_executor.threads"; //$NON-NLS-1$
+
+   /**
+    * Maximum number of asynchronous queries that can wait for a free executor thread
+    */
+   public static final String QUERY_EXECUTOR_QUEUE_SIZE = "query_executor.queue_size"; //$NON-NLS-1$
+
+   /**
+    * Number of concurrent SQL queries that evaluate the UNION branches of one query
+    */
+   public static final String QUERY_EXECUTOR_UNION_PARALLELISM = "query_executor.union_parallelism"; //$NON-NLS-1$
+
+   /**
+    * Maximum total weight of the cached query plans, where the weight of a plan is
+    * estimated from its SQL length and its number of UNION branches
+    */
+   public static final String QUERY_PLAN_CACHE_MAX_WEIGHT = "query_plan_cache.max_weight"; //$NON-NLS-1$
+
+   /**
+    * Maximum total size in bytes of the cached query answers. The answer cache is
+    * disabled when this value is not set
+    */
+   public static final String QUERY_ANSWER_CACHE_MAX_WEIGHT = "query_answer_cache.max_weight"; //$NON-NLS-1$
+
+   /**
+    * Time in seconds after which a cached query answer expires
+    */
+   public static final String QUERY_ANSWER_CACHE_TTL = "query_answer_cache.ttl"; //$NON-NLS-1$
+
+   /**
+    * Directory where the translated query plans are stored to survive application restarts
+    */
+   public static final String QUERY_PLAN_CACHE_DIRECTORY = "query_plan_cache.directory"; //$NON-NLS-1$
+
+   /**
+    * Let the SQL query project the URI template arguments instead of concatenating the
+    * URI strings, such that the URIs are constructed by the engine when they are read
+    */
+   public static final String QUERY_DEFERRED_URI_CONSTRUCTION = "query.deferred_uri_construction"; //$NON-NLS-1$
+
+   /**
+    * Time in milliseconds above which a query evaluation is written to the slow query
+    * log. The log is disabled when this value is not set
+    */
+   public static final String SLOW_QUERY_LOG_THRESHOLD = "slow_query_log.threshold"; //$NON-NLS-1$
+
+   /**
+    * Path of the slow query log file
+    */
+   public static final String SLOW_QUERY_LOG_FILE = "slow_query_log.file"; //$NON-NLS-1$
+
+   /**
+    * Size in bytes at which the slow query log file is rolled over
+    */
+   public static final String SLOW_QUERY_LOG_MAX_SIZE = "slow_query_log.max_size"; //$NON-NLS-1$
+
+   /**
+    * Number of rolled-over slow query log files to keep
+    */
+   public static final String SLOW_QUERY_LOG_MAX_FILES = "slow_query_log.max_files"; //$NON-NLS-1$
+
+   /**
+    * Metrics implementation, either "jmx" or the name of a class implementing IMetrics
+    */
+   public static final String METRICS = "metrics"; //$NON-NLS-1$
+
    /**
     * SQL dialect class
     */
@@ -82,6 +82,16 @@ public class SystemProperties extends Properties
       return Integer.parseInt(getProperty(Environment.POOL_TIMEOUT));
    }
 
+   /**
+    * Returns <code>true</code> if each query evaluation leases its own connection from
+    * the connection provider. If users don't specify this value then this method will
+    * return <code>false</code>.
+    */
+   public boolean isConnectionLeasePerQuery()
+   {
+      return Boolean.parseBoolean(getProperty(Environment.CONNECTION_LEASE_PER_QUERY, "false")); //$NON-NLS-1$
+   }
+
    /**
     * Returns the transaction timeout for the underlying database system. If users
     * don't specify this value then this method will return -1.
@@ -109,6 +119,137 @@ public class SystemProperties extends Properties
       return Integer.parseInt(getProperty(Environment.TRANSACTION_MAX_ROWS));
    }
 
+   /**
+    * Returns the number of threads that evaluate the asynchronous queries. If users
+    * don't specify this value then this method will return -1.
+    */
+   public int getQueryExecutorThreads()
+   {
+      return Integer.parseInt(getProperty(Environment.QUERY_EXECUTOR_THREADS, "-1")); //$NON-NLS-1$
+   }
+
+   /**
+    * Returns the maximum number of asynchronous queries waiting for an executor
+    * thread. If users don't specify this value then this method will return -1.
+    */
+   public int getQueryExecutorQueueSize()
+   {
+      return Integer.parseInt(getProperty(Environment.QUERY_EXECUTOR_QUEUE_SIZE, "-1")); //$NON-NLS-1$
+   }
+
+   /**
+    * Returns the number of concurrent SQL queries that evaluate the UNION branches of
+    * one query. A value less than 2 disables the parallel evaluation, and so does
+    * turning off the connection leasing. Only the UNION ALL queries are evaluated in
+    * parallel. If users don't specify this value then this method will return -1.
+    */
+   public int getQueryExecutorUnionParallelism()
+   {
+      return Integer.parseInt(getProperty(Environment.QUERY_EXECUTOR_UNION_PARALLELISM, "-1")); //$NON-NLS-1$
+   }
+
+   /**
+    * Returns the maximum total weight of the query plan cache. If users don't specify
+    * this value then this method will return -1.
+    */
+   public long getQueryPlanCacheMaxWeight()
+   {
+      return Long.parseLong(getProperty(Environment.QUERY_PLAN_CACHE_MAX_WEIGHT, "-1")); //$NON-NLS-1$
+   }
+
+   /**
+    * Returns the maximum total size in bytes of the query answer cache. If users don't
+    * specify this value then this method will return -1 and the answers are not cached.
+    */
+   public long getQueryAnswerCacheMaxWeight()
+   {
+      return Long.parseLong(getProperty(Environment.QUERY_ANSWER_CACHE_MAX_WEIGHT, "-1")); //$NON-NLS-1$
+   }
+
+   /**
+    * Returns the time in seconds after which a cached query answer expires. If users
+    * don't specify this value then this method will return -1 and the answers stay in
+    * the cache until they are evicted or invalidated.
+    */
+   public int getQueryAnswerCacheTtl()
+   {
+      return Integer.parseInt(getProperty(Environment.QUERY_ANSWER_CACHE_TTL, "-1")); //$NON-NLS-1$
+   }
+
+   /**
+    * Returns the directory where the query plans are persisted. If users don't specify
+    * this value then this method will return <code>null</code> and the query plans
+    * are kept in memory only.
+    */
+   public File getQueryPlanCacheDirectory()
+   {
+      String directory = getProperty(Environment.QUERY_PLAN_CACHE_DIRECTORY);
+      if (StringUtils.isEmpty(directory)) {
+         return null;
+      }
+      return new File(directory);
+   }
+
+   /**
+    * Returns <code>true</code> if the URIs in the query answer are constructed from the
+    * template arguments that the SQL query projects. If users don't specify this value
+    * then this method will return <code>false</code>.
+    */
+   public boolean isDeferredUriConstruction()
+   {
+      return Boolean.parseBoolean(getProperty(Environment.QUERY_DEFERRED_URI_CONSTRUCTION, "false")); //$NON-NLS-1$
+   }
+
+   /**
+    * Returns the time in milliseconds above which a query evaluation is written to the
+    * slow query log. If users don't specify this value then this method will return
+    * -1 and the slow query log is disabled.
+    */
+   public long getSlowQueryLogThreshold()
+   {
+      return Long.parseLong(getProperty(Environment.SLOW_QUERY_LOG_THRESHOLD, "-1")); //$NON-NLS-1$
+   }
+
+   /**
+    * Returns the slow query log file. If users don't specify this value then the log is
+    * written to <code>slow-queries.log</code> in the working directory.
+    */
+   public File getSlowQueryLogFile()
+   {
+      String file = getProperty(Environment.SLOW_QUERY_LOG_FILE);
+      if (StringUtils.isEmpty(file)) {
+         return new File("slow-queries.log"); //$NON-NLS-1$
+      }
+      return new File(file);
+   }
+
+   /**
+    * Returns the size in bytes at which the slow query log file is rolled over. If users
+    * don't specify this value then this method will return 10 MB.
+    */
+   public long getSlowQueryLogMaxSize()
+   {
+      return Long.parseLong(getProperty(Environment.SLOW_QUERY_LOG_MAX_SIZE, "10485760")); //$NON-NLS-1$
+   }
+
+   /**
+    * Returns the number of rolled-over slow query log files to keep. If users don't
+    * specify this value then this method will return 5.
+    */
+   public int getSlowQueryLogMaxFiles()
+   {
+      return Integer.parseInt(getProperty(Environment.SLOW_QUERY_LOG_MAX_FILES, "5")); //$NON-NLS-1$
+   }
+
+   /**
+    * Returns the name of the metrics implementation. If users don't specify this value
+    * then this method will return an empty string and no metrics are collected.
+    */
+   public String getMetrics()
+   {
+      return getProperty(Environment.METRICS, ""); //$NON-NLS-1$
+   }
+
    /**
     * Returns the file object of the input ontology resource.
     */
@@ -148,12 +289,40 @@ public class SystemProperties extends Properties
       sb.append("\n"); //$NON-NLS-1$
       sb.append(Environment.POOL_TIMEOUT).append("=").append(getPoolTimeout()); //$NON-NLS-1$
       sb.append("\n"); //$NON-NLS-1$
+      sb.append(Environment.CONNECTION_LEASE_PER_QUERY).append("=").append(isConnectionLeasePerQuery()); //$NON-NLS-1$
+      sb.append("\n"); //$NON-NLS-1$
+      sb.append(Environment.QUERY_EXECUTOR_THREADS).append("=").append(getQueryExecutorThreads()); //$NON-NLS-1$
+      sb.append("\n"); //$NON-NLS-1$
+      sb.append(Environment.QUERY_EXECUTOR_QUEUE_SIZE).append("=").append(getQueryExecutorQueueSize()); //$NON-NLS-1$
+      sb.append("\n"); //$NON-NLS-1$
+      sb.append(Environment.QUERY_EXECUTOR_UNION_PARALLELISM).append("=").append(getQueryExecutorUnionParallelism()); //$NON-NLS-1$
+      sb.append("\n"); //$NON-NLS-1$
       sb.append(Environment.TRANSACTION_TIMEOUT).append("=").append(getTransactionTimeout()); //$NON-NLS-1$
       sb.append("\n"); //$NON-NLS-1$
       sb.append(Environment.TRANSACTION_FETCH_SIZE).append("=").append(getTransactionFetchSize()); //$NON-NLS-1$
       sb.append("\n"); //$NON-NLS-1$
       sb.append(Environment.TRANSACTION_MAX_ROWS).append("=").append(getTransactionMaxRows()); //$NON-NLS-1$
       sb.append("\n"); //$NON-NLS-1$
+      sb.append(Environment.QUERY_PLAN_CACHE_MAX_WEIGHT).append("=").append(getQueryPlanCacheMaxWeight()); //$NON-NLS-1$
+      sb.append("\n"); //$NON-NLS-1$
+      sb.append(Environment.QUERY_PLAN_CACHE_DIRECTORY).append("=").append(getProperty(Environment.QUERY_PLAN_CACHE_DIRECTORY, "")); //$NON-NLS-1$ //$NON-NLS-2$
+      sb.append("\n"); //$NON-NLS-1$
+      sb.append(Environment.QUERY_ANSWER_CACHE_MAX_WEIGHT).append("=").append(getQueryAnswerCacheMaxWeight()); //$NON-NLS-1$
+      sb.append("\n"); //$NON-NLS-1$
+      sb.append(Environment.QUERY_ANSWER_CACHE_TTL).append("=").append(getQueryAnswerCacheTtl()); //$NON-NLS-1$
+      sb.append("\n"); //$NON-NLS-1$
+      sb.append(Environment.QUERY_DEFERRED_URI_CONSTRUCTION).append("=").append(isDeferredUriConstruction()); //$NON-NLS-1$
+      sb.append("\n"); //$NON-NLS-1$
+      sb.append(Environment.SLOW_QUERY_LOG_THRESHOLD).append("=").append(getSlowQueryLogThreshold()); //$NON-NLS-1$
+      sb.append("\n"); //$NON-NLS-1$
+      sb.append(Environment.SLOW_QUERY_LOG_FILE).append("=").append(getSlowQueryLogFile().getPath()); //$NON-NLS-1$
+      sb.append("\n"); //$NON-NLS-1$
+      sb.append(Environment.SLOW_QUERY_LOG_MAX_SIZE).append("=").append(getSlowQueryLogMaxSize()); //$NON-NLS-1$
+      sb.append("\n"); //$NON-NLS-1$
+      sb.append(Environment.SLOW_QUERY_LOG_MAX_FILES).append("=").append(getSlowQueryLogMaxFiles()); //$NON-NLS-1$
+      sb.append("\n"); //$NON-NLS-1$
+      sb.append(Environment.METRICS).append("=").append(getMetrics()); //$NON-NLS-1$
+      sb.append("\n"); //$NON-NLS-1$
       sb.append(Environment.ONTOLOGY_SOURCE).append("=").append(getOntologySource().getPath()); //$NON-NLS-1$
       sb.append("\n"); //$NON-NLS-1$
       
@@ -22,6 +22,11 @@ public class SqlJoinCondition implements ISqlObject
    private ISqlColumn mLeftColumn;
    private ISqlColumn mRighColumn;
 
+   protected SqlJoinCondition()
+   {
+      // for ObjectCopier
+   }
+
    public SqlJoinCondition(ISqlColumn leftColumn, ISqlColumn rightColumn)
    {
       mLeftColumn = leftColumn;
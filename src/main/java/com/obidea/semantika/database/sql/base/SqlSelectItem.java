@@ -25,6 +25,11 @@ public class SqlSelectItem implements ISqlObject
    private ISqlExpression mExpression;
    private String mAliasName = ""; //$NON-NLS-1$
 
+   protected SqlSelectItem()
+   {
+      // for ObjectCopier
+   }
+
    public SqlSelectItem(ISqlExpression expression)
    {
       mExpression = expression;
@@ -20,9 +20,16 @@ public class Sql99
    public static final String SELECT = "SELECT";
    public static final String FROM = "FROM";
    public static final String WHERE = "WHERE";
+   public static final String GROUP_BY = "GROUP BY";
 
    public static final String DISTINCT = "DISTINCT";
 
+   public static final String COUNT = "COUNT";
+   public static final String SUM = "SUM";
+   public static final String MIN = "MIN";
+   public static final String MAX = "MAX";
+   public static final String AVG = "AVG";
+
    public static final String INNER_JOIN = "JOIN";
    public static final String LEFT_JOIN = "LEFT JOIN";
 
@@ -53,6 +60,8 @@ public class Sql99
    public static final String LTE = "<=";
 
    public static final String CONCAT = "||";
+
+   public static final String PARAMETER = "?";
    
    public static final String LPAREN = "(";
    public static final String RPAREN = ")";
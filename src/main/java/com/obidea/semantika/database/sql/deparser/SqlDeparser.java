@@ -17,8 +17,11 @@ package com.obidea.semantika.database.sql.deparser;
 
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.obidea.semantika.database.sql.base.ISqlBinaryFunction;
@@ -53,6 +56,7 @@ import com.obidea.semantika.mapping.base.sql.SqlLessThanEquals;
 import com.obidea.semantika.mapping.base.sql.SqlMultiply;
 import com.obidea.semantika.mapping.base.sql.SqlNotEqualsTo;
 import com.obidea.semantika.mapping.base.sql.SqlOr;
+import com.obidea.semantika.mapping.base.sql.SqlParameter;
 import com.obidea.semantika.mapping.base.sql.SqlRegex;
 import com.obidea.semantika.mapping.base.sql.SqlStr;
 import com.obidea.semantika.mapping.base.sql.SqlSubtract;
@@ -65,6 +69,16 @@ public class SqlDeparser extends TextFormatter implements ISqlDeparser, ISqlExpr
 
    private String mExpressionString = ""; //$NON-NLS-1$
 
+   private List<String> mParameterNames = new ArrayList<String>();
+
+   /*
+    * The deferred URI construction projects the template id and the template arguments
+    * of the URI select items whose labels are in the arity map.
+    */
+   private Map<String, Integer> mUriTemplateIds;
+   private Map<String, Integer> mUriArities;
+   private boolean mCastUriArguments;
+
    public SqlDeparser(IDialect dialect)
    {
       mDialect = dialect;
@@ -74,17 +88,47 @@ public class SqlDeparser extends TextFormatter implements ISqlDeparser, ISqlExpr
    {
       mDialect = parent.mDialect;
       mTabCounter = parent.mTabCounter;
+      mParameterNames = parent.mParameterNames;
+   }
+
+   /**
+    * Returns the names of the query parameters following the order of their
+    * <code>?</code> markers in the last produced SQL string.
+    */
+   public List<String> getParameterNames()
+   {
+      return Collections.unmodifiableList(mParameterNames);
+   }
+
+   /**
+    * Sets the deparser to produce the URI select items as a template id followed by the
+    * template arguments instead of the URI template construction. The id of a template
+    * is given by <code>templateIds</code> and the number of argument columns of a select
+    * label is given by <code>arities</code>, where the missing arguments are filled with
+    * <code>NULL</code>. Only the select items whose label is in <code>arities</code>
+    * are deferred. The arguments are cast to <code>VARCHAR</code> if
+    * <code>castArguments</code> is <code>true</code>, such that the UNION branches
+    * have compatible column types.
+    */
+   public void setDeferredUriConstruction(Map<String, Integer> templateIds, Map<String, Integer> arities,
+         boolean castArguments)
+   {
+      mUriTemplateIds = templateIds;
+      mUriArities = arities;
+      mCastUriArguments = castArguments;
    }
 
    @Override
    public String deparse(QuerySet<? extends ISqlQuery> querySet)
    {
+      mParameterNames.clear();
+      String unionOperator = isUnionAll(querySet) ? Sql99.UNION_ALL : Sql99.UNION;
       StringBuilder unions = new StringBuilder();
       boolean needUnion = false;
       for (ISqlQuery query : querySet.getAll()) {
          if (needUnion) {
             unions.append("\n");
-            unions.append(Sql99.UNION);
+            unions.append(unionOperator);
             unions.append("\n");
          }
          unions.append(deparse(query));
@@ -93,6 +137,63 @@ public class SqlDeparser extends TextFormatter implements ISqlDeparser, ISqlExpr
       return unions.toString();
    }
 
+   /**
+    * Returns <code>true</code> if the given queries can be joined by UNION ALL, i.e.,
+    * no two queries can produce the same row. The duplicate elimination of UNION is
+    * needed otherwise, even for non-DISTINCT queries, because a triple that is derived
+    * by two mappings must appear once in the virtual graph. Two queries are disjoint
+    * when they construct the URIs of the same select label using templates that differ
+    * before the first template argument.
+    */
+   public static boolean isUnionAll(QuerySet<? extends ISqlQuery> querySet)
+   {
+      List<ISqlQuery> queries = new ArrayList<ISqlQuery>(querySet.getAll());
+      for (int i = 0; i < queries.size(); i++) {
+         for (int j = i + 1; j < queries.size(); j++) {
+            if (!isDisjoint(queries.get(i), queries.get(j))) {
+               return false;
+            }
+         }
+      }
+      return true;
+   }
+
+   private static boolean isDisjoint(ISqlQuery q1, ISqlQuery q2)
+   {
+      Map<String, String> uriTemplates = new HashMap<String, String>();
+      for (SqlSelectItem selectItem : q1.getSelectItems()) {
+         String uriTemplate = getUriTemplate(selectItem.getExpression());
+         if (uriTemplate != null) {
+            uriTemplates.put(selectItem.getLabelName(), uriTemplate);
+         }
+      }
+      for (SqlSelectItem selectItem : q2.getSelectItems()) {
+         String t1 = uriTemplates.get(selectItem.getLabelName());
+         String t2 = getUriTemplate(selectItem.getExpression());
+         if (t1 != null && t2 != null) {
+            /*
+             * The URI select item starts with the template string, so the values can
+             * only be equal when one template is a prefix of the other.
+             */
+            if (!t1.startsWith(t2) && !t2.startsWith(t1)) {
+               return true;
+            }
+         }
+      }
+      return false;
+   }
+
+   private static String getUriTemplate(ISqlExpression expression)
+   {
+      if (expression instanceof SqlUriConcat) {
+         ISqlExpression template = ((SqlUriConcat) expression).getParameterExpressions().get(0);
+         if (template instanceof ISqlValue) {
+            return ((ISqlValue) template).getValue();
+         }
+      }
+      return null;
+   }
+
    @Override
    public String deparse(ISqlQuery query)
    {
@@ -105,6 +206,15 @@ public class SqlDeparser extends TextFormatter implements ISqlDeparser, ISqlExpr
       return flushStringBuilder();
    }
 
+   /**
+    * Returns the SQL string of the given select item expression as it appears in the
+    * SELECT clause, without its alias name.
+    */
+   public String deparseSelectExpression(ISqlExpression expression)
+   {
+      return str(expression, new SelectItemVisitor());
+   }
+
    private void visitSelect(List<SqlSelectItem> selectItemList, boolean isDistinct)
    {
       append(Sql99.SELECT);
@@ -125,10 +235,15 @@ public class SqlDeparser extends TextFormatter implements ISqlDeparser, ISqlExpr
             }
             needShift = false;
          }
-         append(str(selectItem.getExpression(), selectItemVisitor));
-         if (selectItem.hasAliasName()) {
-            space();
-            append(mDialect.alias(selectItem.getAliasName()));
+         if (isDeferredUri(selectItem)) {
+            visitDeferredUri(selectItem, selectItemVisitor);
+         }
+         else {
+            append(str(selectItem.getExpression(), selectItemVisitor));
+            if (selectItem.hasAliasName()) {
+               space();
+               append(mDialect.alias(selectItem.getAliasName()));
+            }
          }
          needComma = true;
       }
@@ -136,6 +251,45 @@ public class SqlDeparser extends TextFormatter implements ISqlDeparser, ISqlExpr
       shiftLeft();
    }
 
+   private boolean isDeferredUri(SqlSelectItem selectItem)
+   {
+      return mUriArities != null
+            && selectItem.getExpression() instanceof SqlUriConcat
+            && mUriArities.containsKey(selectItem.getLabelName());
+   }
+
+   /*
+    * Produces the template id under the select label, followed by the argument columns
+    * labeled with the select label and the argument number, e.g., "x", "x$1", "x$2".
+    */
+   private void visitDeferredUri(SqlSelectItem selectItem, SelectItemVisitor selectItemVisitor)
+   {
+      SqlUriConcat uriConcat = (SqlUriConcat) selectItem.getExpression();
+      Iterator<ISqlExpression> iter = uriConcat.getParameterExpressions().iterator();
+      ISqlValue stringTemplateValue = (ISqlValue) iter.next(); // must be a value
+      append(String.valueOf(mUriTemplateIds.get(stringTemplateValue.getValue())));
+      appendDeferredAlias(selectItem, 0);
+      int arity = mUriArities.get(selectItem.getLabelName());
+      for (int i = 1; i <= arity; i++) {
+         String argument = iter.hasNext() ? str(iter.next(), selectItemVisitor) : "NULL"; //$NON-NLS-1$
+         if (mCastUriArguments) {
+            argument = mDialect.cast(argument, Types.VARCHAR);
+         }
+         append(", "); //$NON-NLS-1$
+         append(argument);
+         appendDeferredAlias(selectItem, i);
+      }
+   }
+
+   private void appendDeferredAlias(SqlSelectItem selectItem, int argument)
+   {
+      if (selectItem.hasAliasName()) {
+         space();
+         String aliasName = selectItem.getAliasName();
+         append(mDialect.alias((argument == 0) ? aliasName : aliasName + "$" + argument)); //$NON-NLS-1$
+      }
+   }
+
    private void visitFrom(ISqlExpression fromExpression)
    {
       append(Sql99.FROM);
@@ -317,6 +471,11 @@ public class SqlDeparser extends TextFormatter implements ISqlDeparser, ISqlExpr
 
    private void visitLiteral(ISqlValue value)
    {
+      if (value instanceof SqlParameter) {
+         mParameterNames.add(((SqlParameter) value).getParameterName());
+         mExpressionString = Sql99.PARAMETER;
+         return;
+      }
       String lexicalValue = value.getValue();
       String datatype = value.getDatatype();
       if (DataType.NUMERIC_TYPES.contains(datatype)) {
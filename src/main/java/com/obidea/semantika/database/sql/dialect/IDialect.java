@@ -54,4 +54,6 @@ public interface IDialect
    String lang(String text);
 
    String cast(String text, int targetDatatype);
+
+   String explain(String sql);
 }
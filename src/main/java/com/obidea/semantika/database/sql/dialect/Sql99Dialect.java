@@ -192,6 +192,12 @@ public abstract class Sql99Dialect implements IDialect
       return column + " LIKE " + pattern; //$NON-NLS-1$
    }
 
+   @Override
+   public String explain(String sql)
+   {
+      return "EXPLAIN " + sql; //$NON-NLS-1$
+   }
+
    private String parenthesis(String expr)
    {
       return Sql99.LPAREN + expr + Sql99.RPAREN;
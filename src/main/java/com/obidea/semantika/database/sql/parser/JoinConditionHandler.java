@@ -21,7 +21,7 @@ import java.util.Set;
 import com.obidea.semantika.database.sql.base.SqlJoinCondition;
 import com.obidea.semantika.exception.IllegalOperationException;
 import com.obidea.semantika.mapping.base.sql.SqlColumn;
-import com.obidea.semantika.util.Serializer;
+import com.obidea.semantika.util.ObjectCopier;
 
 import net.sf.jsqlparser.expression.AllComparisonExpression;
 import net.sf.jsqlparser.expression.AnalyticExpression;
@@ -117,7 +117,7 @@ public class JoinConditionHandler implements ExpressionVisitor
 
    private SqlColumn copy(SqlColumn column)
    {
-      return (SqlColumn) Serializer.copy(column);
+      return ObjectCopier.copy(column);
    }
 
    @Override
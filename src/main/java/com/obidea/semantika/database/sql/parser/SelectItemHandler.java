@@ -26,7 +26,7 @@ import com.obidea.semantika.exception.SemantikaRuntimeException;
 import com.obidea.semantika.mapping.base.sql.SqlColumn;
 import com.obidea.semantika.mapping.base.sql.SqlMappingFactory;
 import com.obidea.semantika.mapping.base.sql.SqlTable;
-import com.obidea.semantika.util.Serializer;
+import com.obidea.semantika.util.ObjectCopier;
 
 import net.sf.jsqlparser.expression.Alias;
 import net.sf.jsqlparser.expression.AllComparisonExpression;
@@ -488,7 +488,7 @@ import net.sf.jsqlparser.statement.select.SubSelect;
 
    private ISqlExpression getExpression()
    {
-      return (ISqlExpression) Serializer.copy(mExpression);
+      return ObjectCopier.copy(mExpression);
    }
 
    private void increaseOpenParenthesisCount()
@@ -97,7 +97,7 @@ import com.obidea.semantika.mapping.base.sql.SqlMappingFactory;
 import com.obidea.semantika.mapping.base.sql.SqlQuery;
 import com.obidea.semantika.mapping.base.sql.SqlSelectQuery;
 import com.obidea.semantika.mapping.base.sql.SqlTable;
-import com.obidea.semantika.util.Serializer;
+import com.obidea.semantika.util.ObjectCopier;
 
 public class SelectStatementHandler implements SelectVisitor, FromItemVisitor, ItemsListVisitor, ExpressionVisitor
 {
@@ -682,7 +682,7 @@ public class SelectStatementHandler implements SelectVisitor, FromItemVisitor, I
 
    private ISqlExpression getExpression()
    {
-      return (ISqlExpression) Serializer.copy(mExpression);
+      return ObjectCopier.copy(mExpression);
    }
 
    private void increaseOpenParenthesisCount()
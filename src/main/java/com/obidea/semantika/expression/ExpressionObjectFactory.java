@@ -15,12 +15,15 @@
  */
 package com.obidea.semantika.expression;
 
+import java.lang.ref.WeakReference;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import javax.xml.datatype.DatatypeConstants;
 import javax.xml.datatype.XMLGregorianCalendar;
@@ -35,6 +38,7 @@ import com.obidea.semantika.expression.base.IPredicate;
 import com.obidea.semantika.expression.base.ITerm;
 import com.obidea.semantika.expression.base.IVariable;
 import com.obidea.semantika.expression.base.Literal;
+import com.obidea.semantika.expression.base.Parameter;
 import com.obidea.semantika.expression.base.Predicate;
 import com.obidea.semantika.expression.base.Query;
 import com.obidea.semantika.expression.base.Rule;
@@ -47,6 +51,15 @@ public class ExpressionObjectFactory implements IExpressionObjectFactory
 {
    private static ExpressionObjectFactory sInstance;
 
+   /**
+    * Predicates are immutable and drawn from the ontology and database
+    * vocabulary, so each name is created once and shared by every atom. The
+    * map holds the predicates weakly, keyed by the name string of the predicate
+    * itself, so a predicate that no atom uses any more is released together
+    * with its entry.
+    */
+   private static final Map<String, WeakReference<Predicate>> sPredicates = new WeakHashMap<String, WeakReference<Predicate>>();
+
    public static ExpressionObjectFactory getInstance()
    {
       if (sInstance == null) {
@@ -120,7 +133,15 @@ public class ExpressionObjectFactory implements IExpressionObjectFactory
    @Override
    public Predicate getPredicate(String name)
    {
-      return new Predicate(name);
+      synchronized (sPredicates) {
+         WeakReference<Predicate> reference = sPredicates.get(name);
+         Predicate predicate = (reference == null) ? null : reference.get();
+         if (predicate == null) {
+            predicate = new Predicate(name);
+            sPredicates.put(predicate.getName(), new WeakReference<Predicate>(predicate));
+         }
+         return predicate;
+      }
    }
 
    @Override
@@ -249,6 +270,12 @@ public class ExpressionObjectFactory implements IExpressionObjectFactory
       return (UriReference) TermUtils.makeUriReference(uri.toString());
    }
 
+   @Override
+   public Parameter getParameter(String name)
+   {
+      return new Parameter(name);
+   }
+
    @Override
    public Function getFunction(FunctionSymbol functionSymbol, List<? extends ITerm> parameters)
    {
@@ -260,6 +260,16 @@ public interface IExpressionObjectFactory
     */
    IUriReference getUriReference(URI uri);
 
+   /**
+    * Creates a query parameter object with the given name. A query parameter is a
+    * placeholder for a literal value that is bound at the query evaluation.
+    * 
+    * @param name
+    *           the parameter name.
+    * @return a literal object representing the parameter.
+    */
+   ILiteral getParameter(String name);
+
    /**
     * Creates a function with the given function symbol and its parameters.
     * 
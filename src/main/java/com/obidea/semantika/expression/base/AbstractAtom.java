@@ -40,6 +40,17 @@ public abstract class AbstractAtom implements IAtom
 
    private boolean mGround;
 
+   /**
+    * The cached hash code of a ground atom, whose predicate and constants
+    * cannot change. Zero means it has not been computed yet.
+    */
+   private transient int mHashCode = 0;
+
+   protected AbstractAtom()
+   {
+      mPredicate = null; // for ObjectCopier
+   }
+
    public AbstractAtom(final IPredicate predicate, final List<? extends ITerm> terms)
    {
       if (predicate == null) {
@@ -100,10 +111,16 @@ public abstract class AbstractAtom implements IAtom
    @Override
    public int hashCode()
    {
+      if (mHashCode != 0) {
+         return mHashCode;
+      }
       final int prime = 31;
       int result = 1;
       result = prime * result + getPredicate().hashCode();
-      result = prime * result + getTerms().hashCode();
+      result = prime * result + mTerms.hashCode();
+      if (isGround()) {
+         mHashCode = result;
+      }
       return result;
    }
 
@@ -118,7 +135,8 @@ public abstract class AbstractAtom implements IAtom
       }
       if (obj instanceof AbstractAtom) {
          final AbstractAtom other = (AbstractAtom) obj;
-         return getPredicate().equals(other.getPredicate()) && getTerms().equals(other.getTerms());
+         return getPredicate().equals(other.getPredicate()) && getArity() == other.getArity()
+               && mTerms.equals(other.mTerms);
       }
       return false;
    }
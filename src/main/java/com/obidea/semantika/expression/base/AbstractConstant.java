@@ -23,6 +23,11 @@ public abstract class AbstractConstant extends Term implements IConstant
 
    private String mValue = "";
 
+   protected AbstractConstant()
+   {
+      // for ObjectCopier
+   }
+
    public AbstractConstant(final String value, final String datatype)
    {
       super(null, datatype);
@@ -50,11 +55,14 @@ public abstract class AbstractConstant extends Term implements IConstant
    @Override
    public int hashCode()
    {
-      final int prime = 31;
-      int result = 1;
-      result = prime * result + getLexicalValue().hashCode();
-      result = prime * result + getDatatype().hashCode();
-      return result;
+      if (mHashCode == 0) {
+         final int prime = 31;
+         int result = 1;
+         result = prime * result + getLexicalValue().hashCode();
+         result = prime * result + getDatatype().hashCode();
+         mHashCode = result;
+      }
+      return mHashCode;
    }
 
    @Override
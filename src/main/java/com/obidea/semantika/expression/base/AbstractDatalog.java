@@ -39,6 +39,11 @@ public abstract class AbstractDatalog implements IDatalog
 
    protected boolean mGround = false;
 
+   protected AbstractDatalog()
+   {
+      // for ObjectCopier
+   }
+
    public AbstractDatalog(final IPredicate headSymbol)
    {
       mHeadSymbol = headSymbol;
@@ -27,6 +27,11 @@ public abstract class AbstractFunction extends Term implements IFunction
 
    protected List<ITerm> mParameters;
 
+   protected AbstractFunction()
+   {
+      // for ObjectCopier
+   }
+
    public AbstractFunction(String name, String returnType, final List<? extends ITerm> parameters)
    {
       super(name, returnType);
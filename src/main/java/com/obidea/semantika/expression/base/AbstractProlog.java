@@ -33,6 +33,11 @@ public abstract class AbstractProlog implements IProlog
 
    protected boolean mGround = false;
 
+   protected AbstractProlog()
+   {
+      // for ObjectCopier
+   }
+
    public AbstractProlog(final Predicate headSymbol)
    {
       mHeadSymbol = headSymbol;
@@ -19,6 +19,11 @@ public abstract class AbstractVariable extends Term implements IVariable
 {
    private static final long serialVersionUID = 629451L;
 
+   protected AbstractVariable()
+   {
+      // for ObjectCopier
+   }
+
    public AbstractVariable(String name, String datatype)
    {
       super(name, datatype);
@@ -27,11 +32,14 @@ public abstract class AbstractVariable extends Term implements IVariable
    @Override
    public int hashCode()
    {
-      final int prime = 31;
-      int result = 1;
-      result = prime * result + getName().hashCode();
-      result = prime * result + getDatatype().hashCode();
-      return result;
+      if (mHashCode == 0) {
+         final int prime = 31;
+         int result = 1;
+         result = prime * result + getName().hashCode();
+         result = prime * result + getDatatype().hashCode();
+         mHashCode = result;
+      }
+      return mHashCode;
    }
 
    @Override
@@ -24,6 +24,11 @@ public class Atom extends AbstractAtom
 {
    private static final long serialVersionUID = 629451L;
 
+   protected Atom()
+   {
+      // for ObjectCopier
+   }
+
    public Atom(final IPredicate predicate, final ITerm... terms)
    {
       super(predicate, Arrays.asList(terms));
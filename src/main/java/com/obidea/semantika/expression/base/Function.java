@@ -26,6 +26,11 @@ public class Function extends AbstractFunction
 
    private FunctionSymbol mFunctionSymbol;
 
+   protected Function()
+   {
+      // for ObjectCopier
+   }
+
    /**
     * Construct a function given the function symbol and the parameters. The
     * function symbol defines the function operation in which this function can
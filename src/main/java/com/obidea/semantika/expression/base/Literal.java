@@ -24,6 +24,11 @@ public class Literal extends AbstractConstant implements ILiteral
 
    private String mLang;
 
+   protected Literal()
+   {
+      // for ObjectCopier
+   }
+
    public Literal(String value, String lang, String datatype)
    {
       super(value, datatype);
@@ -50,12 +55,15 @@ public class Literal extends AbstractConstant implements ILiteral
    @Override
    public int hashCode()
    {
-      final int prime = 31;
-      int result = 1;
-      result = prime * result + getValue().hashCode();
-      result = prime * result + getLanguageTag().hashCode();
-      result = prime * result + getDatatype().hashCode();
-      return result;
+      if (mHashCode == 0) {
+         final int prime = 31;
+         int result = 1;
+         result = prime * result + getValue().hashCode();
+         result = prime * result + getLanguageTag().hashCode();
+         result = prime * result + getDatatype().hashCode();
+         mHashCode = result;
+      }
+      return mHashCode;
    }
 
    @Override
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.expression.base;
+
+import com.obidea.semantika.datatype.DataType;
+
+/**
+ * Represents a named placeholder for a literal constant whose value is given only
+ * when the query is evaluated. During query unfolding the placeholder is treated
+ * like any other literal constant and it will be rendered as a JDBC bind variable
+ * in the final SQL string.
+ */
+public class Parameter extends Literal
+{
+   private static final long serialVersionUID = 629451L;
+
+   protected Parameter()
+   {
+      // for ObjectCopier
+   }
+
+   public Parameter(String name)
+   {
+      super(name, "", DataType.STRING); //$NON-NLS-1$
+   }
+
+   /**
+    * Returns the parameter name.
+    */
+   public String getParameterName()
+   {
+      return getLexicalValue();
+   }
+
+   /*
+    * Internal use only for debugging.
+    */
+
+   @Override
+   public String toString()
+   {
+      return "$" + getParameterName(); //$NON-NLS-1$
+   }
+}
@@ -21,7 +21,7 @@ public class Predicate implements IPredicate
 {
    private static final long serialVersionUID = 629451L;
 
-   private String mName;
+   private final String mName;
 
    /**
     * Creates a logic predicate.
@@ -21,6 +21,11 @@ public class Rule extends AbstractDatalog implements IRule
 {
    private static final long serialVersionUID = 629451L;
 
+   protected Rule()
+   {
+      // for ObjectCopier
+   }
+
    public Rule(final IPredicate consequent)
    {
       super(consequent);
@@ -24,6 +24,18 @@ public abstract class Term implements ITerm
    private String mName;
    private String mDatatype;
 
+   /**
+    * The hash code cached by subclasses whose hash code depends only on the
+    * term name, datatype and constructor arguments. Zero means it has not been
+    * computed yet, and it is cleared whenever the name or datatype changes.
+    */
+   protected transient int mHashCode = 0;
+
+   protected Term()
+   {
+      // for ObjectCopier
+   }
+
    public Term(String name, String datatype)
    {
       setName(name);
@@ -33,6 +45,7 @@ public abstract class Term implements ITerm
    protected void setName(String name)
    {
       mName = name;
+      mHashCode = 0;
    }
 
    @Override
@@ -44,6 +57,7 @@ public abstract class Term implements ITerm
    protected void setDatatype(String datatype)
    {
       mDatatype = datatype;
+      mHashCode = 0;
    }
 
    @Override
@@ -18,7 +18,7 @@ package com.obidea.semantika.expression.base;
 import java.util.List;
 
 import com.obidea.semantika.datatype.DataType;
-import com.obidea.semantika.util.Serializer;
+import com.obidea.semantika.util.ObjectCopier;
 import com.obidea.semantika.util.StringUtils;
 
 /**
@@ -191,27 +191,27 @@ public final class TermUtils
 
    public static ITerm copy(ITerm term)
    {
-      return (ITerm) Serializer.copy(term);
+      return ObjectCopier.copy(term);
    }
 
    public static IVariable copy(IVariable variable)
    {
-      return (IVariable) Serializer.copy(variable);
+      return ObjectCopier.copy(variable);
    }
 
    public static ILiteral copy(ILiteral literal)
    {
-      return (ILiteral) Serializer.copy(literal);
+      return ObjectCopier.copy(literal);
    }
 
    public static IUriReference copy(IUriReference uriReference)
    {
-      return (IUriReference) Serializer.copy(uriReference);
+      return ObjectCopier.copy(uriReference);
    }
 
    public static IFunction copy(IFunction function)
    {
-      return (IFunction) Serializer.copy(function);
+      return ObjectCopier.copy(function);
    }
 
    public static IVariable asVariable(ITerm term)
@@ -26,6 +26,11 @@ public class UriReference extends AbstractConstant implements IUriReference
 {
    private static final long serialVersionUID = 629451L;
 
+   protected UriReference()
+   {
+      // for ObjectCopier
+   }
+
    /**
     * Constructs a URI reference which is built from a valid URI string input.
     * 
@@ -73,11 +78,14 @@ public class UriReference extends AbstractConstant implements IUriReference
    @Override
    public int hashCode()
    {
-      final int prime = 31;
-      int result = 1;
-      result = prime * result + toUri().hashCode();
-      result = prime * result + getDatatype().hashCode();
-      return result;
+      if (mHashCode == 0) {
+         final int prime = 31;
+         int result = 1;
+         result = prime * result + toUri().hashCode();
+         result = prime * result + getDatatype().hashCode();
+         mHashCode = result;
+      }
+      return mHashCode;
    }
 
    @Override
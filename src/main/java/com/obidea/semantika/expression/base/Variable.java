@@ -21,6 +21,11 @@ public class Variable extends AbstractVariable
 {
    private static final long serialVersionUID = 629451L;
 
+   protected Variable()
+   {
+      // for ObjectCopier
+   }
+
    /**
     * Creates a new variable with name and datatype. The specified datatype must
     * be written using its full URI based on XSD namespace. {@link http
@@ -39,11 +44,14 @@ public class Variable extends AbstractVariable
    @Override
    public int hashCode()
    {
-      final int prime = 31;
-      int result = 1;
-      result = prime * result + getName().hashCode();
-      result = prime * result + ((!isTyped()) ? 0 : getDatatype().hashCode());
-      return result;
+      if (mHashCode == 0) {
+         final int prime = 31;
+         int result = 1;
+         result = prime * result + getName().hashCode();
+         result = prime * result + ((!isTyped()) ? 0 : getDatatype().hashCode());
+         mHashCode = result;
+      }
+      return mHashCode;
    }
 
    @Override
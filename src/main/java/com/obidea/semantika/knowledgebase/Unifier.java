@@ -31,7 +31,7 @@ import com.obidea.semantika.expression.base.IVariable;
 import com.obidea.semantika.expression.base.TermUtils;
 import com.obidea.semantika.mapping.IUriTemplate;
 import com.obidea.semantika.mapping.MappingObjectFactory;
-import com.obidea.semantika.util.Serializer;
+import com.obidea.semantika.util.ObjectCopier;
 
 public class Unifier
 {
@@ -167,6 +167,6 @@ public class Unifier
 
    private static IAtom copy(IAtom atom)
    {
-      return (IAtom) Serializer.copy(atom);
+      return ObjectCopier.copy(atom);
    }
 }
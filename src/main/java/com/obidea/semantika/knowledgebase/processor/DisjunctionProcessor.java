@@ -29,7 +29,7 @@ import com.obidea.semantika.mapping.base.TripleAtom;
 import com.obidea.semantika.mapping.base.sql.SqlAnd;
 import com.obidea.semantika.mapping.base.sql.SqlOr;
 import com.obidea.semantika.mapping.base.sql.SqlQuery;
-import com.obidea.semantika.util.Serializer;
+import com.obidea.semantika.util.ObjectCopier;
 
 /**
  * A mapping optimization processor that "merge" similar mappings' query using
@@ -169,7 +169,7 @@ public class DisjunctionProcessor implements IKnowledgeBaseProcessor
    {
       List<IMapping> toReturn = new ArrayList<IMapping>();
       for (IMapping mapping : candidateMappings) {
-         toReturn.add((IMapping) Serializer.copy(mapping));
+         toReturn.add(ObjectCopier.copy(mapping));
       }
       return toReturn;
    }
@@ -41,7 +41,7 @@ import com.obidea.semantika.mapping.base.TripleAtom;
 import com.obidea.semantika.mapping.base.sql.SqlJoin;
 import com.obidea.semantika.mapping.base.sql.SqlQuery;
 import com.obidea.semantika.mapping.base.sql.SqlSubQuery;
-import com.obidea.semantika.util.Serializer;
+import com.obidea.semantika.util.ObjectCopier;
 
 public class MappingContainmentChecker
 {
@@ -63,7 +63,7 @@ public class MappingContainmentChecker
       
       for (IRule rule : constraintRules) {
          try {
-            TripleAtom mappingHead = (TripleAtom) Serializer.copy(targetMapping.getHead());
+            TripleAtom mappingHead = (TripleAtom) ObjectCopier.copy(targetMapping.getHead());
             TermSubstitutionBinding theta = TermSubstitutionBinding.createEmptyBinding();
             Unifier.findSubstitution(tableFact, rule.getBody().get(0), theta);
             mappingHead.apply(theta);
@@ -29,7 +29,7 @@ import org.semanticweb.owlapi.util.OWLObjectVisitorAdapter;
 
 import com.obidea.semantika.mapping.MutableMappingSet;
 import com.obidea.semantika.mapping.base.IMapping;
-import com.obidea.semantika.util.Serializer;
+import com.obidea.semantika.util.ObjectCopier;
 
 public abstract class OwlObjectHandler extends OWLObjectVisitorAdapter
 {
@@ -54,7 +54,7 @@ public abstract class OwlObjectHandler extends OWLObjectVisitorAdapter
       Set<IMapping> toReturn = new HashSet<IMapping>();
       if (mMappingSet.contains(mSignature)) {
          for (IMapping mapping : mMappingSet.get(mSignature)) {
-            toReturn.add((IMapping) Serializer.copy(mapping));
+            toReturn.add(ObjectCopier.copy(mapping));
          }
       }
       return toReturn;
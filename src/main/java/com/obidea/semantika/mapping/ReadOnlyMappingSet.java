@@ -26,7 +26,7 @@ import java.util.Set;
 import com.obidea.semantika.mapping.base.IClassMapping;
 import com.obidea.semantika.mapping.base.IMapping;
 import com.obidea.semantika.mapping.base.IPropertyMapping;
-import com.obidea.semantika.util.Serializer;
+import com.obidea.semantika.util.ObjectCopier;
 
 /**
  * This class implements an immutable mapping set. An instance of
@@ -40,9 +40,14 @@ public final class ReadOnlyMappingSet extends ImmutableMappingSet
 
    private InternalMapping mInternal = new InternalMapping();
 
+   private ReadOnlyMappingSet()
+   {
+      // for ObjectCopier
+   }
+
    public ReadOnlyMappingSet(MutableMappingSet mutableProgram)
    {
-      MappingSet copySet = (MappingSet) Serializer.copy(mutableProgram);
+      MappingSet copySet = (MappingSet) ObjectCopier.copy(mutableProgram);
       for (IMapping mapping : copySet.getAll()) {
          mInternal.addMapping(mapping);
       }
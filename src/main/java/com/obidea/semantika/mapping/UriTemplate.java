@@ -15,6 +15,7 @@
  */
 package com.obidea.semantika.mapping;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -28,7 +29,7 @@ import com.obidea.semantika.expression.base.IUriReference;
 import com.obidea.semantika.expression.base.IVariable;
 import com.obidea.semantika.expression.base.TermUtils;
 import com.obidea.semantika.knowledgebase.TermSubstitutionBinding;
-import com.obidea.semantika.util.StringUtils;
+import com.obidea.semantika.util.CompiledUriTemplate;
 
 public class UriTemplate extends AbstractFunction implements IUriTemplate
 {
@@ -36,6 +37,13 @@ public class UriTemplate extends AbstractFunction implements IUriTemplate
 
    private String mTemplateString;
 
+   private transient CompiledUriTemplate mCompiledTemplate;
+
+   protected UriTemplate()
+   {
+      // for ObjectCopier
+   }
+
    public UriTemplate(String templateString, ITerm... parameters)
    {
       this(templateString, Arrays.asList(parameters));
@@ -111,18 +119,19 @@ public class UriTemplate extends AbstractFunction implements IUriTemplate
    @Override
    public IUriReference execute(List<? extends IConstant> arguments)
    {
-      String toReturn = mTemplateString;
-      for (int i = 0; i < arguments.size(); i++) {
-         String value = arguments.get(i).getLexicalValue();
-         String str = StringUtils.useUnderscore(value);
-         toReturn = toReturn.replace(holder(i+1), str);
+      List<String> values = new ArrayList<String>(arguments.size());
+      for (IConstant argument : arguments) {
+         values.add(argument.getLexicalValue());
       }
-      return TermUtils.makeUriReference(toReturn);
+      return TermUtils.makeUriReference(getCompiledTemplate().expand(values));
    }
 
-   private String holder(int index)
+   private CompiledUriTemplate getCompiledTemplate()
    {
-      return String.format("{%d}", index); //$NON-NLS-1$
+      if (mCompiledTemplate == null) {
+         mCompiledTemplate = CompiledUriTemplate.compile(mTemplateString);
+      }
+      return mCompiledTemplate;
    }
 
    @Override
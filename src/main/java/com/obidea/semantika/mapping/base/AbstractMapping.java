@@ -19,10 +19,10 @@ import java.net.URI;
 import java.util.List;
 import java.util.Set;
 
+import com.obidea.semantika.expression.ExpressionObjectFactory;
 import com.obidea.semantika.expression.base.IAtom;
 import com.obidea.semantika.expression.base.IFunction;
 import com.obidea.semantika.expression.base.IPredicate;
-import com.obidea.semantika.expression.base.Predicate;
 
 /**
  * Provides a skeletal implementation of the <code>IMapping</code> interface.
@@ -33,6 +33,11 @@ public abstract class AbstractMapping implements IMapping
 
    protected URI mSignature;
 
+   protected AbstractMapping()
+   {
+      // for ObjectCopier
+   }
+
    public AbstractMapping(URI signature)
    {
       mSignature = signature;
@@ -47,7 +52,7 @@ public abstract class AbstractMapping implements IMapping
    @Override
    public IPredicate getHeadSymbol()
    {
-      return new Predicate(mSignature);
+      return ExpressionObjectFactory.getInstance().getPredicate(mSignature.toString());
    }
 
    @Override
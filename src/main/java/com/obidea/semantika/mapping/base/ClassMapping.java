@@ -33,6 +33,11 @@ public class ClassMapping extends AbstractMapping implements IClassMapping
 
    private SqlQuery mSourceQuery;
 
+   protected ClassMapping()
+   {
+      // for ObjectCopier
+   }
+
    /**
     * Constructs a class mapping for a concept entity named in class signature such that each
     * instances of this concept is coming from the data in the database, represented by the source
@@ -34,6 +34,11 @@ public class PropertyMapping extends AbstractMapping implements IPropertyMapping
 
    private SqlQuery mSourceQuery;
 
+   protected PropertyMapping()
+   {
+      // for ObjectCopier
+   }
+
    /**
     * Constructs a property mapping for a named role/attribute in property signature such that each
     * instances of this role/attribute is coming from the data in the database, represented by the
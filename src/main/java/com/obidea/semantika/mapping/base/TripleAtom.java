@@ -38,6 +38,11 @@ public class TripleAtom extends AbstractAtom
 
    public static final IPredicate TRIPLE_PREDICATE = new Predicate("Triple"); //$NON-NLS-1$
 
+   protected TripleAtom()
+   {
+      // for ObjectCopier
+   }
+
    /**
     * Constructs a triple atom with the specified <code>subject</code>,
     * <code>predicate</code> and <code>object</code>. The subject and
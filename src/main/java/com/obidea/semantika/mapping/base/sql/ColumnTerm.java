@@ -29,6 +29,11 @@ public abstract class ColumnTerm extends AbstractVariable implements IMappingTer
 
    private int mTermType = TermType.LITERAL_TYPE; // by default
 
+   protected ColumnTerm()
+   {
+      // for ObjectCopier
+   }
+
    public ColumnTerm(IColumn column)
    {
       super(getColumnVariableName(column), getColumnVariableType(column));
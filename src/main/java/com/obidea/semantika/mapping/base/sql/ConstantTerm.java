@@ -26,6 +26,11 @@ public abstract class ConstantTerm extends AbstractConstant implements IMappingT
 
    private int mTermType = TermType.LITERAL_TYPE; // by default
 
+   protected ConstantTerm()
+   {
+      // for ObjectCopier
+   }
+
    public ConstantTerm(String value, String datatype)
    {
       super(value, datatype);
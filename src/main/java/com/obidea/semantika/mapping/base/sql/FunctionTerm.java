@@ -37,6 +37,11 @@ public abstract class FunctionTerm extends AbstractFunction implements IMappingT
 
    private int mTermType = TermType.LITERAL_TYPE; // by default
 
+   protected FunctionTerm()
+   {
+      // for ObjectCopier
+   }
+
    public FunctionTerm(String name, String returnType, ISqlExpression... expressions)
    {
       this(name, returnType, Arrays.asList(expressions));
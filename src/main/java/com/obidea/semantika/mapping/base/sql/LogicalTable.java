@@ -22,6 +22,7 @@ import com.obidea.semantika.database.NamingUtils;
 import com.obidea.semantika.database.base.IColumn;
 import com.obidea.semantika.database.base.ITable;
 import com.obidea.semantika.database.datatype.SqlTypeToXmlType;
+import com.obidea.semantika.expression.ExpressionObjectFactory;
 import com.obidea.semantika.expression.base.AbstractAtom;
 import com.obidea.semantika.expression.base.IAtomVisitor;
 import com.obidea.semantika.expression.base.Predicate;
@@ -31,6 +32,11 @@ public abstract class LogicalTable extends AbstractAtom
 {
    private static final long serialVersionUID = 629451L;
 
+   protected LogicalTable()
+   {
+      // for ObjectCopier
+   }
+
    public LogicalTable(ITable table)
    {
       super(getPredicateFromTable(table), getVariablesFromTable(table));
@@ -46,7 +52,8 @@ public abstract class LogicalTable extends AbstractAtom
    {
       String tableSchema = table.getSchemaName();
       String tableName = table.getLocalName();
-      return new Predicate(NamingUtils.constructExpressionObjectLabel(tableSchema, tableName));
+      return ExpressionObjectFactory.getInstance().getPredicate(
+            NamingUtils.constructExpressionObjectLabel(tableSchema, tableName));
    }
 
    private static List<Variable> getVariablesFromTable(ITable table)
@@ -23,6 +23,11 @@ public class SqlAddition extends SqlBinaryFunction
 {
    private static final long serialVersionUID = 629451L;
 
+   protected SqlAddition()
+   {
+      // for ObjectCopier
+   }
+
    public SqlAddition(ISqlExpression leftExpression, ISqlExpression rightExpression)
    {
       super("ADD", DataType.DECIMAL, leftExpression, rightExpression); //$NON-NLS-1$
@@ -23,6 +23,11 @@ public class SqlAnd extends SqlBinaryFunction
 {
    private static final long serialVersionUID = 629451L;
 
+   protected SqlAnd()
+   {
+      // for ObjectCopier
+   }
+
    public SqlAnd(ISqlExpression leftExpression, ISqlExpression rightExpression)
    {
       super("AND", DataType.BOOLEAN, leftExpression, rightExpression); //$NON-NLS-1$
@@ -30,6 +30,11 @@ public abstract class SqlBinaryFunction extends SqlFunction implements ISqlBinar
    protected ISqlExpression mLeftParameter;
    protected ISqlExpression mRightParameter;
 
+   protected SqlBinaryFunction()
+   {
+      // for ObjectCopier
+   }
+
    public SqlBinaryFunction(String name, String returnType, ISqlExpression leftParameter, ISqlExpression rightParameter)
    {
       super(name, returnType, leftParameter, rightParameter);
@@ -47,6 +47,11 @@ public class SqlColumn extends ColumnTerm implements ISqlColumn, IContainDatabas
 
    private boolean bTypeOverriden = false;
 
+   protected SqlColumn()
+   {
+      // for ObjectCopier
+   }
+
    /**
     * Constructs a SQL column variable with input <code>column</code> as its
     * meta-information.
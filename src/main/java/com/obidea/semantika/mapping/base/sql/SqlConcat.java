@@ -25,6 +25,11 @@ public class SqlConcat extends SqlFunction
 {
    private static final long serialVersionUID = 629451L;
 
+   protected SqlConcat()
+   {
+      // for ObjectCopier
+   }
+
    public SqlConcat(List<ISqlExpression> expressions)
    {
       super("CONCAT", DataType.STRING, expressions); //$NON-NLS-1$
@@ -23,6 +23,11 @@ public class SqlDivide extends SqlBinaryFunction
 {
    private static final long serialVersionUID = 629451L;
 
+   protected SqlDivide()
+   {
+      // for ObjectCopier
+   }
+
    public SqlDivide(ISqlExpression leftExpression, ISqlExpression rightExpression)
    {
       super("DIV", DataType.DECIMAL, leftExpression, rightExpression); //$NON-NLS-1$
@@ -23,6 +23,11 @@ public class SqlEqualsTo extends SqlBinaryFunction
 {
    private static final long serialVersionUID = 629451L;
 
+   protected SqlEqualsTo()
+   {
+      // for ObjectCopier
+   }
+
    public SqlEqualsTo(ISqlExpression leftExpression, ISqlExpression rightExpression)
    {
       super("EQ", DataType.BOOLEAN, leftExpression, rightExpression); //$NON-NLS-1$
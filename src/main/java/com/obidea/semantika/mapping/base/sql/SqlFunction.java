@@ -30,6 +30,11 @@ public abstract class SqlFunction extends FunctionTerm implements ISqlFunction
 
    private List<ISqlExpression> mParameters;
 
+   protected SqlFunction()
+   {
+      // for ObjectCopier
+   }
+
    public SqlFunction(String name, String returnType, List<ISqlExpression> parameters)
    {
       super(name, returnType, parameters);
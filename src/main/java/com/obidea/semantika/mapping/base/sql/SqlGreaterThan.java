@@ -23,6 +23,11 @@ public class SqlGreaterThan extends SqlBinaryFunction
 {
    private static final long serialVersionUID = 629451L;
 
+   protected SqlGreaterThan()
+   {
+      // for ObjectCopier
+   }
+
    public SqlGreaterThan(ISqlExpression leftExpression, ISqlExpression rightExpression)
    {
       super("GT", DataType.BOOLEAN, leftExpression, rightExpression); //$NON-NLS-1$
@@ -23,6 +23,11 @@ public class SqlGreaterThanEquals extends SqlBinaryFunction
 {
    private static final long serialVersionUID = 629451L;
 
+   protected SqlGreaterThanEquals()
+   {
+      // for ObjectCopier
+   }
+
    public SqlGreaterThanEquals(ISqlExpression leftExpression, ISqlExpression rightExpression)
    {
       super("GTE", DataType.BOOLEAN, leftExpression, rightExpression); //$NON-NLS-1$
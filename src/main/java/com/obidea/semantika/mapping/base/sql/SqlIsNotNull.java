@@ -23,6 +23,11 @@ public class SqlIsNotNull extends SqlUnaryFunction
 {
    private static final long serialVersionUID = 629451L;
 
+   protected SqlIsNotNull()
+   {
+      // for ObjectCopier
+   }
+
    public SqlIsNotNull(ISqlExpression expression)
    {
       super("NOT_NULL", DataType.BOOLEAN, expression); //$NON-NLS-1$
@@ -23,6 +23,11 @@ public class SqlIsNull extends SqlUnaryFunction
 {
    private static final long serialVersionUID = 629451L;
 
+   protected SqlIsNull()
+   {
+      // for ObjectCopier
+   }
+
    public SqlIsNull(ISqlExpression expression)
    {
       super("NULL", DataType.BOOLEAN, expression); //$NON-NLS-1$
@@ -23,6 +23,11 @@ public class SqlLang extends SqlUnaryFunction
 {
    private static final long serialVersionUID = 629451L;
 
+   protected SqlLang()
+   {
+      // for ObjectCopier
+   }
+
    public SqlLang(ISqlExpression expression)
    {
       super("LANG", DataType.STRING, expression); //$NON-NLS-1$
@@ -23,6 +23,11 @@ public class SqlLessThan extends SqlBinaryFunction
 {
    private static final long serialVersionUID = 629451L;
 
+   protected SqlLessThan()
+   {
+      // for ObjectCopier
+   }
+
    public SqlLessThan(ISqlExpression leftExpression, ISqlExpression rightExpression)
    {
       super("LT", DataType.BOOLEAN, leftExpression, rightExpression); //$NON-NLS-1$
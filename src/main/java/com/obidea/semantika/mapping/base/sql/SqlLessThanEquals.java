@@ -23,6 +23,11 @@ public class SqlLessThanEquals extends SqlBinaryFunction
 {
    private static final long serialVersionUID = 629451L;
 
+   protected SqlLessThanEquals()
+   {
+      // for ObjectCopier
+   }
+
    public SqlLessThanEquals(ISqlExpression leftExpression, ISqlExpression rightExpression)
    {
       super("LTE", DataType.BOOLEAN, leftExpression, rightExpression); //$NON-NLS-1$
@@ -76,6 +76,11 @@ public class SqlMappingFactory
       return new SqlValue(String.valueOf(value), DataType.BOOLEAN);
    }
 
+   public SqlParameter createParameterExpression(String name)
+   {
+      return new SqlParameter(name);
+   }
+
    public SqlUriValue createUriValueExpression(URI value)
    {
       return new SqlUriValue(String.valueOf(value));
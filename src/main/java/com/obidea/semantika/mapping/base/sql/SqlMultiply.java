@@ -23,6 +23,11 @@ public class SqlMultiply extends SqlBinaryFunction
 {
    private static final long serialVersionUID = 629451L;
 
+   protected SqlMultiply()
+   {
+      // for ObjectCopier
+   }
+
    public SqlMultiply(ISqlExpression leftExpression, ISqlExpression rightExpression)
    {
       super("MULT", DataType.DECIMAL, leftExpression, rightExpression); //$NON-NLS-1$
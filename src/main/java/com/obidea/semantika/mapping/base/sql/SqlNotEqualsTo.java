@@ -23,6 +23,11 @@ public class SqlNotEqualsTo extends SqlBinaryFunction
 {
    private static final long serialVersionUID = 629451L;
 
+   protected SqlNotEqualsTo()
+   {
+      // for ObjectCopier
+   }
+
    public SqlNotEqualsTo(ISqlExpression leftExpression, ISqlExpression rightExpression)
    {
       super("NE", DataType.BOOLEAN, leftExpression, rightExpression); //$NON-NLS-1$
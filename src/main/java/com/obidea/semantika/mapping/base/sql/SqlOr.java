@@ -23,6 +23,11 @@ public class SqlOr extends SqlBinaryFunction
 {
    private static final long serialVersionUID = 629451L;
 
+   protected SqlOr()
+   {
+      // for ObjectCopier
+   }
+
    public SqlOr(ISqlExpression leftExpression, ISqlExpression rightExpression)
    {
       super("OR", DataType.BOOLEAN, leftExpression, rightExpression); //$NON-NLS-1$
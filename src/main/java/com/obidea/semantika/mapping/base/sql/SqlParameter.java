@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.mapping.base.sql;
+
+import com.obidea.semantika.datatype.DataType;
+
+/**
+ * Represents a JDBC bind variable (i.e., the <code>?</code> marker) in the SQL
+ * expression. The parameter name is used to look up the value at the evaluation time.
+ */
+public class SqlParameter extends SqlValue
+{
+   private static final long serialVersionUID = 629451L;
+
+   protected SqlParameter()
+   {
+      // for ObjectCopier
+   }
+
+   public SqlParameter(String name)
+   {
+      super(name, DataType.STRING);
+   }
+
+   /**
+    * Returns the parameter name.
+    */
+   public String getParameterName()
+   {
+      return getValue();
+   }
+
+   @Override
+   public int hashCode()
+   {
+      return 31 * super.hashCode() + SqlParameter.class.hashCode();
+   }
+
+   @Override
+   public String toString()
+   {
+      return "?" + getParameterName(); //$NON-NLS-1$
+   }
+}
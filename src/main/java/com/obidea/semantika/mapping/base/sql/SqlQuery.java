@@ -15,20 +15,50 @@
  */
 package com.obidea.semantika.mapping.base.sql;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import com.obidea.semantika.database.sql.base.ISqlExpression;
 import com.obidea.semantika.database.sql.base.ISqlQuery;
+import com.obidea.semantika.mapping.base.IMapping;
 
 public abstract class SqlQuery extends PrologMediator implements ISqlQuery
 {
    private static final long serialVersionUID = 629451L;
 
+   private transient List<IMapping> mSourceMappings;
+
    public SqlQuery()
    {
       super();
    }
 
+   /**
+    * Adds the mappings whose source queries were unfolded into this query. The source
+    * mappings are kept for diagnostics only and they are not serialized.
+    */
+   public void addSourceMappings(Collection<IMapping> mappings)
+   {
+      if (mSourceMappings == null) {
+         mSourceMappings = new ArrayList<IMapping>();
+      }
+      mSourceMappings.addAll(mappings);
+   }
+
+   /**
+    * Returns the mappings whose source queries were unfolded into this query, or an
+    * empty list if they are unknown.
+    */
+   public List<IMapping> getSourceMappings()
+   {
+      if (mSourceMappings == null) {
+         return Collections.emptyList();
+      }
+      return Collections.unmodifiableList(mSourceMappings);
+   }
+
    public abstract List<SqlColumn> getAllColumns();
 
    public abstract List<SqlTable> getAllTables();
@@ -23,6 +23,11 @@ public class SqlRegex extends SqlFunction
 {
    private static final long serialVersionUID = 629451L;
 
+   protected SqlRegex()
+   {
+      // for ObjectCopier
+   }
+
    public SqlRegex(ISqlExpression text, ISqlExpression pattern, ISqlExpression flag)
    {
       super("REGEX", DataType.BOOLEAN, text, pattern, flag); //$NON-NLS-1$
@@ -24,6 +24,11 @@ public class SqlStr extends SqlUnaryFunction
 {
    private static final long serialVersionUID = 629451L;
 
+   protected SqlStr()
+   {
+      // for ObjectCopier
+   }
+
    public SqlStr(ISqlExpression expression)
    {
       super("STR", DataType.STRING, expression); //$NON-NLS-1$
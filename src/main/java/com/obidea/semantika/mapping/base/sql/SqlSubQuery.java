@@ -26,6 +26,11 @@ public class SqlSubQuery extends SyntacticSugarMediator implements ISqlSubQuery
    private ISqlQuery mSelectQuery;
    private String mViewName = ""; //$NON-NLS-1$
 
+   protected SqlSubQuery()
+   {
+      // for ObjectCopier
+   }
+
    public SqlSubQuery(ISqlQuery query, String viewName)
    {
       mSelectQuery = query;
@@ -23,6 +23,11 @@ public class SqlSubtract extends SqlBinaryFunction
 {
    private static final long serialVersionUID = 629451L;
 
+   protected SqlSubtract()
+   {
+      // for ObjectCopier
+   }
+
    public SqlSubtract(ISqlExpression leftExpression, ISqlExpression rightExpression)
    {
       super("SUB", DataType.DECIMAL, leftExpression, rightExpression); //$NON-NLS-1$
@@ -41,6 +41,11 @@ public class SqlTable extends LogicalTable implements ISqlTable, IContainDatabas
 
    private List<SqlColumn> mTableColumns = new ArrayList<SqlColumn>();
 
+   protected SqlTable()
+   {
+      // for ObjectCopier
+   }
+
    /**
     * Constructs a SQL table atom with input <code>table</code> as its meta-information.
     * 
@@ -29,6 +29,11 @@ public abstract class SqlUnaryFunction extends SqlFunction implements ISqlUnaryF
 
    private ISqlExpression mParameter;
 
+   protected SqlUnaryFunction()
+   {
+      // for ObjectCopier
+   }
+
    public SqlUnaryFunction(String name, String returnType, ISqlExpression parameter)
    {
       super(name, returnType, parameter);
@@ -26,6 +26,11 @@ public class SqlUriConcat extends SqlFunction
 {
    private static final long serialVersionUID = 629451L;
 
+   protected SqlUriConcat()
+   {
+      // for ObjectCopier
+   }
+
    public SqlUriConcat(List<ISqlExpression> expressions)
    {
       /*
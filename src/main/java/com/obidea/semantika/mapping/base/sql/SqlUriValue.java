@@ -24,6 +24,11 @@ public class SqlUriValue extends ConstantTerm implements ISqlValue
 {
    private static final long serialVersionUID = 629451L;
 
+   protected SqlUriValue()
+   {
+      // for ObjectCopier
+   }
+
    public SqlUriValue(String value)
    {
       /*
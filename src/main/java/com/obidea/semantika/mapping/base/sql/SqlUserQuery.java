@@ -27,6 +27,11 @@ public class SqlUserQuery extends SyntacticSugarMediator implements ISqlSubQuery
    private String mSqlString;
    private String mViewName = ""; //$NON-NLS-1$
 
+   protected SqlUserQuery()
+   {
+      // for ObjectCopier
+   }
+
    public SqlUserQuery(String sqlString, String viewName)
    {
       mSqlString = sqlString;
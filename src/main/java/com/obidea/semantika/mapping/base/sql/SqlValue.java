@@ -22,6 +22,11 @@ public class SqlValue extends ConstantTerm implements ISqlValue
 {
    private static final long serialVersionUID = 629451L;
 
+   protected SqlValue()
+   {
+      // for ObjectCopier
+   }
+
    public SqlValue(String value, String datatype)
    {
       super(value, datatype);
@@ -39,6 +44,18 @@ public class SqlValue extends ConstantTerm implements ISqlValue
       return super.getDatatype();
    }
 
+   /*
+    * A bind variable and a constant value are never equal, whichever side is asked.
+    */
+   @Override
+   public boolean equals(Object obj)
+   {
+      if ((this instanceof SqlParameter) != (obj instanceof SqlParameter)) {
+         return false;
+      }
+      return super.equals(obj);
+   }
+
    @Override
    public void accept(ISqlExpressionVisitor visitor)
    {
@@ -43,6 +43,7 @@ import com.obidea.semantika.mapping.base.sql.SqlQuery;
 import com.obidea.semantika.mapping.base.sql.SqlSelectQuery;
 import com.obidea.semantika.mapping.base.sql.SqlUriConcat;
 import com.obidea.semantika.mapping.base.sql.SqlUriValue;
+import com.obidea.semantika.metrics.IMetrics;
 import com.obidea.semantika.queryanswer.processor.TermToSqlConverter;
 import com.obidea.semantika.util.LogUtils;
 
@@ -52,6 +53,8 @@ public class RdfMaterializerEngine implements IMaterializerEngine
 
    private Connection mConnection;
 
+   private boolean mMetricsRegistered = false;
+
    private IRdfMaterializer mMaterializer = new NTriplesMaterializer(); // by default
 
    private TermToSqlConverter mConverter = new TermToSqlConverter();
@@ -74,6 +77,10 @@ public class RdfMaterializerEngine implements IMaterializerEngine
       try {
          LOG.debug("Starting materializer engine."); //$NON-NLS-1$
          mConnection = mAppManager.getConnectionProvider().getConnection();
+         if (!mMetricsRegistered) {
+            mAppManager.registerMetrics();
+            mMetricsRegistered = true;
+         }
       }
       catch (SQLException e) {
          throw new MaterializerEngineException(e);
@@ -85,6 +92,10 @@ public class RdfMaterializerEngine implements IMaterializerEngine
    {
       try {
          LOG.debug("Stopping materializer engine."); //$NON-NLS-1$
+         if (mMetricsRegistered) {
+            mAppManager.unregisterMetrics();
+            mMetricsRegistered = false;
+         }
          mAppManager.getConnectionProvider().closeConnection(mConnection);
       }
       catch (SQLException e) {
@@ -164,6 +175,7 @@ public class RdfMaterializerEngine implements IMaterializerEngine
          int mappingSize = mAppManager.getKnowledgeBase().getMappingSet().size();
          
          SqlDeparser deparser = new SqlDeparser(mAppManager.getTargetDatabase().getDialect());
+         IMetrics metrics = mAppManager.getMetrics();
          
          LOG.info("Materialization in progress."); //$NON-NLS-1$
          progressMonitor.start(mappingSize);
@@ -175,8 +187,11 @@ public class RdfMaterializerEngine implements IMaterializerEngine
                TriplesProjection projection = new TriplesProjection(query);
                String sql = deparser.deparse(query);
                Statement stmt = createSqlStatement();
+               long start = System.nanoTime();
                resultSet = stmt.executeQuery(sql);
                returnSize = mMaterializer.materializeTuples(resultSet, projection, output);
+               metrics.recordTime(IMetrics.MATERIALIZER_MAPPING, System.nanoTime() - start);
+               metrics.incrementCounter(IMetrics.MATERIALIZER_TRIPLES, returnSize);
             }
             catch (SQLException e) {
                throw new MaterializationException(e);
@@ -17,8 +17,6 @@ package com.obidea.semantika.materializer;
 
 import static java.lang.String.format;
 
-import java.net.URISyntaxException;
-
 import org.openrdf.model.Resource;
 import org.openrdf.model.Statement;
 import org.openrdf.model.URI;
@@ -29,6 +27,7 @@ import org.openrdf.model.impl.ValueFactoryImpl;
 import com.obidea.semantika.datatype.AbstractXmlType;
 import com.obidea.semantika.datatype.XmlDataTypeProfile;
 import com.obidea.semantika.datatype.primitive.XsdString;
+import com.obidea.semantika.util.CompiledUriTemplate;
 import com.obidea.semantika.util.TemplateStringHelper;
 
 /* package */class SesameStatement implements Statement
@@ -115,28 +114,12 @@ import com.obidea.semantika.util.TemplateStringHelper;
       /*
        * Check if the given object value is a URI-template string or a URI string.
        */
-      if (!validUri(uriString)) {
+      if (TemplateStringHelper.isTemplateConstruction(uriString)) {
          /*
           * If it is a URI template string then reconstruct it to be a URI string.
           */
-         uriString = TemplateStringHelper.buildUri(value);
+         uriString = CompiledUriTemplate.expandConstruction(value);
       }
       return uriString;
    }
-
-   /*
-    * A utility method to check if the given URI string is a valid URI construction.
-    * This method is used exclusively to check if the given value is in the form of
-    * a URI template string or an already URI string.
-    */
-   private static boolean validUri(String uriString)
-   {
-      try {
-         new java.net.URI(uriString);
-      }
-      catch (URISyntaxException e) {
-         return false;
-      }
-      return true;
-   }
 }
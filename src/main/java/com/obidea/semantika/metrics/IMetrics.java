@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.metrics;
+
+/**
+ * The service interface that receives the timings and the counts of the query
+ * translation, the query evaluation and the materialization. The implementation is
+ * called concurrently by the query threads, so it must be thread-safe and cheap.
+ */
+public interface IMetrics
+{
+   /*
+    * Timers of the query translation stages
+    */
+   public static final String TRANSLATION_PARSE = "translation.parse"; //$NON-NLS-1$
+   public static final String TRANSLATION_REFORMULATE = "translation.reformulate"; //$NON-NLS-1$
+   public static final String TRANSLATION_UNFOLD = "translation.unfold"; //$NON-NLS-1$
+   public static final String TRANSLATION_OPTIMIZE = "translation.optimize"; //$NON-NLS-1$
+   public static final String TRANSLATION_DEPARSE = "translation.deparse"; //$NON-NLS-1$
+
+   /**
+    * Counter of the UNION branches produced by the query translations.
+    */
+   public static final String TRANSLATION_UNION_BRANCHES = "translation.union_branches"; //$NON-NLS-1$
+
+   /*
+    * Counters of the query plan cache lookups
+    */
+   public static final String PLAN_CACHE_HIT = "plan_cache.hit"; //$NON-NLS-1$
+   public static final String PLAN_CACHE_MISS = "plan_cache.miss"; //$NON-NLS-1$
+
+   /**
+    * Timer of obtaining a query plan, which includes the translation on a cache miss.
+    */
+   public static final String PLAN_CACHE_LOOKUP = "plan_cache.lookup"; //$NON-NLS-1$
+
+   /**
+    * Timer of obtaining a database connection from the connection provider, which
+    * includes the wait for a free pooled connection.
+    */
+   public static final String CONNECTION_ACQUIRE = "connection.acquire"; //$NON-NLS-1$
+
+   /**
+    * Timer of the SQL query execution, until the first rows are available.
+    */
+   public static final String EVALUATION_EXECUTE = "evaluation.execute"; //$NON-NLS-1$
+
+   /**
+    * Timer of fetching and reading the rows of a SQL query result.
+    */
+   public static final String EVALUATION_FETCH = "evaluation.fetch"; //$NON-NLS-1$
+
+   /**
+    * Counter of the rows returned by the query evaluations.
+    */
+   public static final String EVALUATION_ROWS = "evaluation.rows"; //$NON-NLS-1$
+
+   /**
+    * Timer of materializing the triples of a single mapping.
+    */
+   public static final String MATERIALIZER_MAPPING = "materializer.mapping"; //$NON-NLS-1$
+
+   /**
+    * Counter of the materialized triples.
+    */
+   public static final String MATERIALIZER_TRIPLES = "materializer.triples"; //$NON-NLS-1$
+
+   /**
+    * Records one occurrence of the timed event with the given name.
+    *
+    * @param name
+    *           the timer name.
+    * @param nanos
+    *           the elapsed time in nanoseconds.
+    */
+   void recordTime(String name, long nanos);
+
+   /**
+    * Adds <code>delta</code> to the counter with the given name.
+    */
+   void incrementCounter(String name, long delta);
+}
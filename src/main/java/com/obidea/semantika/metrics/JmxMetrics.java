@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+
+import com.obidea.semantika.util.LogUtils;
+
+/**
+ * The metrics implementation that keeps the counters and the timers in memory and
+ * exposes them through a JMX MBean, named
+ * <code>com.obidea.semantika:type=Metrics,name=&lt;application name&gt;</code>.
+ * The MBean is registered while at least one engine that uses these metrics is
+ * started, so the MBean server does not keep the metrics of a discarded application.
+ */
+public class JmxMetrics implements IMetrics, MetricsMXBean
+{
+   private static final String DOMAIN = "com.obidea.semantika"; //$NON-NLS-1$
+
+   private static final Logger LOG = LogUtils.createLogger("semantika.metrics"); //$NON-NLS-1$
+
+   private final ConcurrentMap<String, LongAdder> mCounters = new ConcurrentHashMap<String, LongAdder>();
+   private final ConcurrentMap<String, Timer> mTimers = new ConcurrentHashMap<String, Timer>();
+
+   private final String mApplicationName;
+
+   private ObjectName mObjectName;
+   private int mUsers = 0;
+
+   public JmxMetrics(String applicationName)
+   {
+      mApplicationName = applicationName;
+   }
+
+   @Override
+   public void recordTime(String name, long nanos)
+   {
+      Timer timer = mTimers.get(name);
+      if (timer == null) {
+         timer = new Timer();
+         Timer existing = mTimers.putIfAbsent(name, timer);
+         if (existing != null) {
+            timer = existing;
+         }
+      }
+      timer.record(nanos);
+   }
+
+   @Override
+   public void incrementCounter(String name, long delta)
+   {
+      LongAdder counter = mCounters.get(name);
+      if (counter == null) {
+         counter = new LongAdder();
+         LongAdder existing = mCounters.putIfAbsent(name, counter);
+         if (existing != null) {
+            counter = existing;
+         }
+      }
+      counter.add(delta);
+   }
+
+   @Override
+   public Map<String, Long> getCounters()
+   {
+      Map<String, Long> counters = new TreeMap<String, Long>();
+      for (Map.Entry<String, LongAdder> mapEntry : mCounters.entrySet()) {
+         counters.put(mapEntry.getKey(), mapEntry.getValue().sum());
+      }
+      return counters;
+   }
+
+   @Override
+   public Map<String, TimerStatistics> getTimers()
+   {
+      Map<String, TimerStatistics> timers = new TreeMap<String, TimerStatistics>();
+      for (Map.Entry<String, Timer> mapEntry : mTimers.entrySet()) {
+         timers.put(mapEntry.getKey(), mapEntry.getValue().getStatistics());
+      }
+      return timers;
+   }
+
+   @Override
+   public void reset()
+   {
+      mCounters.clear();
+      mTimers.clear();
+   }
+
+   /**
+    * Registers this object to the platform MBean server under the application name
+    * when the first engine starts. The MBean of another application with the same
+    * name is left in place, in which case these metrics are not exposed. A failed
+    * registration is logged and leaves the metrics usable.
+    */
+   public synchronized void register()
+   {
+      if (mUsers++ > 0) {
+         return;
+      }
+      try {
+         MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+         ObjectName objectName = new ObjectName(DOMAIN + ":type=Metrics,name=" //$NON-NLS-1$
+               + ObjectName.quote(String.valueOf(mApplicationName)));
+         if (server.isRegistered(objectName)) {
+            LOG.warn("The metrics MBean {} is already registered by another application", objectName); //$NON-NLS-1$
+            return;
+         }
+         server.registerMBean(this, objectName);
+         mObjectName = objectName;
+      }
+      catch (JMException e) {
+         LOG.warn("Failed to register the metrics MBean: {}", e.getMessage()); //$NON-NLS-1$
+      }
+   }
+
+   /**
+    * Removes this object from the platform MBean server when the last engine stops.
+    */
+   public synchronized void unregister()
+   {
+      if (mUsers == 0 || --mUsers > 0 || mObjectName == null) {
+         return;
+      }
+      try {
+         ManagementFactory.getPlatformMBeanServer().unregisterMBean(mObjectName);
+      }
+      catch (JMException e) {
+         LOG.warn("Failed to unregister the metrics MBean: {}", e.getMessage()); //$NON-NLS-1$
+      }
+      mObjectName = null;
+   }
+
+   private static class Timer
+   {
+      private final LongAdder mCount = new LongAdder();
+      private final LongAdder mTotalTime = new LongAdder();
+      private final AtomicLong mMaxTime = new AtomicLong();
+
+      void record(long nanos)
+      {
+         mCount.increment();
+         mTotalTime.add(nanos);
+         long maxTime = mMaxTime.get();
+         while (nanos > maxTime && !mMaxTime.compareAndSet(maxTime, nanos)) {
+            maxTime = mMaxTime.get();
+         }
+      }
+
+      TimerStatistics getStatistics()
+      {
+         return new TimerStatistics(mCount.sum(), mTotalTime.sum(), mMaxTime.get());
+      }
+   }
+}
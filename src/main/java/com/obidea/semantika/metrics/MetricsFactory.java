@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.metrics;
+
+import com.obidea.semantika.exception.SemantikaRuntimeException;
+import com.obidea.semantika.util.StringUtils;
+
+public class MetricsFactory
+{
+   /**
+    * The metrics name that selects {@link JmxMetrics}.
+    */
+   public static final String JMX = "jmx"; //$NON-NLS-1$
+
+   /**
+    * Creates the metrics implementation with the given name, which is either
+    * <code>jmx</code> or the name of a class that implements {@link IMetrics} and has a
+    * public no-argument constructor. An empty name gives {@link NoOpMetrics}.
+    */
+   public static IMetrics buildMetrics(String metricsName, String applicationName)
+   {
+      if (StringUtils.isEmpty(metricsName)) {
+         return NoOpMetrics.INSTANCE;
+      }
+      else if (JMX.equals(metricsName)) {
+         return new JmxMetrics(applicationName);
+      }
+      return buildMetrics(metricsName);
+   }
+
+   private static IMetrics buildMetrics(String className)
+   {
+      try {
+         ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+         return (IMetrics) contextClassLoader.loadClass(className).newInstance();
+      }
+      catch (ClassNotFoundException e) {
+         throw new SemantikaRuntimeException("Metrics class not found: " + className); //$NON-NLS-1$
+      }
+      catch (Exception e) {
+         throw new SemantikaRuntimeException("Could not instantiate metrics class", e); //$NON-NLS-1$
+      }
+   }
+}
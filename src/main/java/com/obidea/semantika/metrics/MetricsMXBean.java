@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.metrics;
+
+import java.util.Map;
+
+/**
+ * The management interface of {@link JmxMetrics}.
+ */
+public interface MetricsMXBean
+{
+   /**
+    * Returns the current value of each counter.
+    */
+   Map<String, Long> getCounters();
+
+   /**
+    * Returns the statistics of each timer.
+    */
+   Map<String, TimerStatistics> getTimers();
+
+   /**
+    * Sets all counters and timers back to zero.
+    */
+   void reset();
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.metrics;
+
+/**
+ * The metrics implementation that discards everything, which is used when no metrics
+ * implementation is configured.
+ */
+public final class NoOpMetrics implements IMetrics
+{
+   public static final NoOpMetrics INSTANCE = new NoOpMetrics();
+
+   private NoOpMetrics()
+   {
+      // NO-OP
+   }
+
+   @Override
+   public void recordTime(String name, long nanos)
+   {
+      // NO-OP
+   }
+
+   @Override
+   public void incrementCounter(String name, long delta)
+   {
+      // NO-OP
+   }
+}
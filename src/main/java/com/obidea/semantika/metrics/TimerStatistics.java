@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * An immutable snapshot of a timer. The times are in nanoseconds.
+ */
+public final class TimerStatistics
+{
+   private final long mCount;
+   private final long mTotalTime;
+   private final long mMaxTime;
+
+   @ConstructorProperties({ "count", "totalTime", "maxTime" })
+   public TimerStatistics(long count, long totalTime, long maxTime)
+   {
+      mCount = count;
+      mTotalTime = totalTime;
+      mMaxTime = maxTime;
+   }
+
+   /**
+    * Returns the number of recorded events.
+    */
+   public long getCount()
+   {
+      return mCount;
+   }
+
+   public long getTotalTime()
+   {
+      return mTotalTime;
+   }
+
+   public long getMaxTime()
+   {
+      return mMaxTime;
+   }
+
+   /**
+    * Returns the average time of an event, or 0.0 if there was no event.
+    */
+   public double getMeanTime()
+   {
+      return (mCount == 0) ? 0.0 : (double) mTotalTime / mCount;
+   }
+
+   @Override
+   public String toString()
+   {
+      StringBuilder sb = new StringBuilder();
+      sb.append("count=").append(mCount); //$NON-NLS-1$
+      sb.append(", totalTime=").append(mTotalTime).append("ns"); //$NON-NLS-1$ //$NON-NLS-2$
+      sb.append(", maxTime=").append(mMaxTime).append("ns"); //$NON-NLS-1$ //$NON-NLS-2$
+      return sb.toString();
+   }
+}
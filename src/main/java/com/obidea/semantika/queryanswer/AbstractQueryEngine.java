@@ -15,15 +15,20 @@
  */
 package com.obidea.semantika.queryanswer;
 
+import java.util.concurrent.ExecutorService;
+
 import org.slf4j.Logger;
 
 import com.obidea.semantika.app.ApplicationManager;
+import com.obidea.semantika.app.SystemProperties;
 import com.obidea.semantika.database.IDatabase;
 import com.obidea.semantika.database.connection.IConnectionProvider;
 import com.obidea.semantika.exception.SemantikaRuntimeException;
 import com.obidea.semantika.knowledgebase.model.IKnowledgeBase;
+import com.obidea.semantika.metrics.IMetrics;
 import com.obidea.semantika.queryanswer.internal.ConnectionManager;
 import com.obidea.semantika.queryanswer.internal.IQueryEvaluator;
+import com.obidea.semantika.queryanswer.internal.QueryAnswerCache;
 import com.obidea.semantika.queryanswer.internal.QueryEvaluator;
 import com.obidea.semantika.queryanswer.processor.EmptyRewriter;
 import com.obidea.semantika.queryanswer.processor.IOptimizer;
@@ -37,8 +42,6 @@ public abstract class AbstractQueryEngine implements IQueryEngineExt
 {
    private ApplicationManager mAppManager;
 
-   private IQueryEvaluator mQueryEvaluator;
-
    protected static final Logger LOG = LogUtils.createLogger("semantika.queryanswer"); //$NON-NLS-1$
 
    public AbstractQueryEngine(final ApplicationManager manager)
@@ -62,6 +65,32 @@ public abstract class AbstractQueryEngine implements IQueryEngineExt
       return mAppManager.getConnectionProvider();
    }
 
+   public SystemProperties getSystemProperties()
+   {
+      return mAppManager.getSystemProperties();
+   }
+
+   /**
+    * Returns the metrics that receive the stage timings and the counts of this engine.
+    */
+   public IMetrics getMetrics()
+   {
+      return mAppManager.getMetrics();
+   }
+
+   /**
+    * Exposes the metrics while this engine is started.
+    */
+   protected void registerMetrics()
+   {
+      mAppManager.registerMetrics();
+   }
+
+   protected void unregisterMetrics()
+   {
+      mAppManager.unregisterMetrics();
+   }
+
    /**
     * Returns a query reformulator object to expand the initial input query. This method will create
     * a new object in its call.
@@ -90,25 +119,44 @@ public abstract class AbstractQueryEngine implements IQueryEngineExt
    }
 
    /**
-    * Returns a query evaluator that manages and executes each given SQL query.
+    * Returns a new query evaluator that manages and executes the SQL queries of a single
+    * query evaluation. The evaluator keeps track of the JDBC resources it opens and it
+    * must be closed when the evaluation completes. This method will create a new object
+    * in its call, so each thread works on its own evaluator.
     */
    public IQueryEvaluator getQueryEvaluator()
    {
-      IQueryEvaluator evaluator = mQueryEvaluator;
-      if (evaluator == null) {
-         if (getConnectionManager() != null) {
-            evaluator = createQueryEvaluator(getConnectionManager());
-            evaluator.setTransactionTimeout(mAppManager.getSystemProperties().getTransactionTimeout());
-            evaluator.setTransactionFetchSize(mAppManager.getSystemProperties().getTransactionFetchSize());
-            evaluator.setTransactionMaxRows(mAppManager.getSystemProperties().getTransactionMaxRows());
-         }
-         else {
-            throw new SemantikaRuntimeException("Failed to create query evaluator. Start the query engine first."); //$NON-NLS-1$
-         }
+      return getQueryEvaluator(getMetrics());
+   }
+
+   /**
+    * Returns a new query evaluator that records the statement execution time to the
+    * given metrics.
+    */
+   public IQueryEvaluator getQueryEvaluator(IMetrics metrics)
+   {
+      if (getConnectionManager() == null) {
+         throw new SemantikaRuntimeException("Failed to create query evaluator. Start the query engine first."); //$NON-NLS-1$
       }
+      IQueryEvaluator evaluator = createQueryEvaluator(getConnectionManager(), metrics);
+      evaluator.setTransactionTimeout(mAppManager.getSystemProperties().getTransactionTimeout());
+      evaluator.setTransactionFetchSize(mAppManager.getSystemProperties().getTransactionFetchSize());
+      evaluator.setTransactionMaxRows(mAppManager.getSystemProperties().getTransactionMaxRows());
       return evaluator;
    }
 
+   /**
+    * Returns the executor that runs the UNION branches of a query concurrently, or
+    * <code>null</code> if the branches are evaluated as a single SQL query.
+    */
+   public abstract ExecutorService getUnionExecutor();
+
+   /**
+    * Returns the cache of the query answers, or <code>null</code> if the answers are
+    * not cached.
+    */
+   public abstract QueryAnswerCache getQueryAnswerCache();
+
    /**
     * Returns the connection manager used by this query engine.
     */
@@ -133,8 +181,8 @@ public abstract class AbstractQueryEngine implements IQueryEngineExt
       return new QueryReducer();
    }
 
-   private IQueryEvaluator createQueryEvaluator(ConnectionManager connectionManager)
+   private IQueryEvaluator createQueryEvaluator(ConnectionManager connectionManager, IMetrics metrics)
    {
-      return new QueryEvaluator(connectionManager);
+      return new QueryEvaluator(connectionManager, metrics);
    }
 }
@@ -15,6 +15,8 @@
  */
 package com.obidea.semantika.queryanswer;
 
+import java.util.concurrent.CompletableFuture;
+
 import com.obidea.semantika.knowledgebase.model.IKnowledgeBase;
 import com.obidea.semantika.queryanswer.exception.QueryAnswerException;
 import com.obidea.semantika.queryanswer.result.IQueryResult;
@@ -52,6 +54,17 @@ public interface IQueryEngine
     */
    IQueryResult evaluate(String sparql) throws QueryAnswerException;
 
+   /**
+    * Evaluates the given input SPARQL query in the background and returns a future of
+    * the answer result. The query runs on the bounded executor of the query engine.
+    * Cancelling the future cancels the SQL statement that is running in the database.
+    * 
+    * @param sparql
+    *           The input query in SPARQL language.
+    * @return Returns the future of the answer result.
+    */
+   CompletableFuture<IQueryResult> evaluateAsync(String sparql);
+
    /**
     * Returns the corresponding SQL query from the given input SPARQL query with respect to the
     * given knowledge base.
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.queryanswer;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.obidea.semantika.mapping.MappingPrinter;
+import com.obidea.semantika.mapping.base.IMapping;
+
+/**
+ * The translation of a SPARQL query together with the execution plan reported by the
+ * target database. Use it to find out which mappings contribute to a slow query.
+ */
+public class QueryExplanation
+{
+   private final String mQueryString;
+   private final String mSqlString;
+   private final List<Branch> mBranches;
+   private final String mDatabasePlan;
+
+   public QueryExplanation(String queryString, String sqlString, List<Branch> branches, String databasePlan)
+   {
+      mQueryString = queryString;
+      mSqlString = sqlString;
+      mBranches = Collections.unmodifiableList(branches);
+      mDatabasePlan = databasePlan;
+   }
+
+   public String getQueryString()
+   {
+      return mQueryString;
+   }
+
+   /**
+    * Returns the SQL query that is sent to the database.
+    */
+   public String getSqlString()
+   {
+      return mSqlString;
+   }
+
+   /**
+    * Returns the UNION branches of the SQL query.
+    */
+   public List<Branch> getBranches()
+   {
+      return mBranches;
+   }
+
+   public int getUnionWidth()
+   {
+      return mBranches.size();
+   }
+
+   /**
+    * Returns the output of the database <code>EXPLAIN</code> statement, one line per
+    * row with the columns separated by a tab.
+    */
+   public String getDatabasePlan()
+   {
+      return mDatabasePlan;
+   }
+
+   @Override
+   public String toString()
+   {
+      MappingPrinter printer = new MappingPrinter();
+      StringBuilder sb = new StringBuilder();
+      sb.append("SQL:\n").append(mSqlString).append("\n\n"); //$NON-NLS-1$ //$NON-NLS-2$
+      sb.append("UNION branches: ").append(getUnionWidth()).append("\n"); //$NON-NLS-1$ //$NON-NLS-2$
+      int index = 1;
+      for (Branch branch : mBranches) {
+         sb.append("[").append(index++).append("] ").append(branch.getSqlString()).append("\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+         for (IMapping mapping : branch.getSourceMappings()) {
+            sb.append("    from ").append(printer.print(mapping)).append("\n"); //$NON-NLS-1$ //$NON-NLS-2$
+         }
+      }
+      sb.append("\nDatabase plan:\n").append(mDatabasePlan); //$NON-NLS-1$
+      return sb.toString();
+   }
+
+   /**
+    * A single SQL query in the UNION and the mappings it was unfolded from.
+    */
+   public static class Branch
+   {
+      private final String mSqlString;
+      private final List<IMapping> mSourceMappings;
+
+      public Branch(String sqlString, List<IMapping> sourceMappings)
+      {
+         mSqlString = sqlString;
+         mSourceMappings = Collections.unmodifiableList(sourceMappings);
+      }
+
+      public String getSqlString()
+      {
+         return mSqlString;
+      }
+
+      /**
+       * Returns the mappings whose source queries are joined in this branch.
+       */
+      public List<IMapping> getSourceMappings()
+      {
+         return mSourceMappings;
+      }
+   }
+}
@@ -15,23 +15,69 @@
  */
 package com.obidea.semantika.queryanswer;
 
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
 import com.obidea.semantika.app.ApplicationManager;
 import com.obidea.semantika.exception.SemantikaException;
+import com.obidea.semantika.mapping.base.IMapping;
+import com.obidea.semantika.metrics.IMetrics;
 import com.obidea.semantika.queryanswer.exception.QueryAnswerException;
 import com.obidea.semantika.queryanswer.internal.ConnectionManager;
 import com.obidea.semantika.queryanswer.internal.ConnectionManagerException;
 import com.obidea.semantika.queryanswer.internal.DatabaseSession;
+import com.obidea.semantika.queryanswer.internal.QueryAnswerCache;
+import com.obidea.semantika.queryanswer.internal.QueryCancellation;
+import com.obidea.semantika.queryanswer.internal.QueryEvaluationException;
 import com.obidea.semantika.queryanswer.internal.QueryModifiers;
+import com.obidea.semantika.queryanswer.internal.QueryParameters;
 import com.obidea.semantika.queryanswer.internal.QueryPlan;
+import com.obidea.semantika.queryanswer.internal.QueryTrace;
 import com.obidea.semantika.queryanswer.internal.QueryTranslationException;
+import com.obidea.semantika.queryanswer.internal.QueryTranslator;
 import com.obidea.semantika.queryanswer.internal.SelectQuery;
+import com.obidea.semantika.queryanswer.internal.SlowQueryLog;
+import com.obidea.semantika.queryanswer.internal.UnionBranch;
 import com.obidea.semantika.queryanswer.internal.UserStatementSettings;
+import com.obidea.semantika.queryanswer.parser.UnsupportedSparqlExpressionException;
 import com.obidea.semantika.queryanswer.result.IQueryResult;
+import com.obidea.semantika.queryanswer.result.IQueryResultHandler;
+import com.obidea.semantika.util.CacheStatistics;
 
 public class SparqlQueryEngine extends AbstractQueryEngine
 {
    private ConnectionManager mConnectionManager;
    private DatabaseSession mSession = new DatabaseSession(this);
+   private ThreadPoolExecutor mQueryExecutor;
+   private ThreadPoolExecutor mUnionExecutor;
+   private final Set<AsyncQuery> mSubmittedQueries = Collections.newSetFromMap(new ConcurrentHashMap<AsyncQuery, Boolean>());
+   private SlowQueryLog mSlowQueryLog;
+   private boolean mMetricsRegistered = false;
+
+   private static final int DEFAULT_QUEUE_SIZE_PER_THREAD = 16;
+   private static final long EXECUTOR_KEEP_ALIVE_SECONDS = 60;
+   private static final long EXECUTOR_STOP_TIMEOUT_SECONDS = 10;
+
+   private static final String AGGREGATION_OUTSIDE_SELECT_QUERY = "GROUP BY or aggregate outside of SelectQuery"; //$NON-NLS-1$
 
    public SparqlQueryEngine(final ApplicationManager manager)
    {
@@ -42,7 +88,14 @@ public class SparqlQueryEngine extends AbstractQueryEngine
    public void start() throws QueryEngineException
    {
       LOG.debug("Starting query engine."); //$NON-NLS-1$
-      mConnectionManager = new ConnectionManager(mSession);
+      mConnectionManager = new ConnectionManager(mSession, getSystemProperties().isConnectionLeasePerQuery(), getMetrics());
+      mQueryExecutor = createQueryExecutor();
+      mUnionExecutor = createUnionExecutor();
+      mSlowQueryLog = createSlowQueryLog();
+      if (!mMetricsRegistered) {
+         registerMetrics();
+         mMetricsRegistered = true;
+      }
    }
 
    @Override
@@ -51,6 +104,12 @@ public class SparqlQueryEngine extends AbstractQueryEngine
       try {
          throwExceptionIfNull();
          LOG.debug("Stopping query engine."); //$NON-NLS-1$
+         stopQueryExecutor();
+         stopUnionExecutor();
+         if (mMetricsRegistered) {
+            unregisterMetrics();
+            mMetricsRegistered = false;
+         }
          mConnectionManager.close();
       }
       catch (ConnectionManagerException e) {
@@ -73,6 +132,18 @@ public class SparqlQueryEngine extends AbstractQueryEngine
       }
    }
 
+   @Override
+   public ExecutorService getUnionExecutor()
+   {
+      return mUnionExecutor;
+   }
+
+   @Override
+   public QueryAnswerCache getQueryAnswerCache()
+   {
+      return mSession.getQueryAnswerCache();
+   }
+
    @Override
    public ConnectionManager getConnectionManager()
    {
@@ -84,6 +155,18 @@ public class SparqlQueryEngine extends AbstractQueryEngine
       return new SelectQuery(sparql, this, getQueryPlan(sparql).getQueryMetadata());
    }
 
+   /**
+    * Creates a query whose variables listed in <code>parameterNames</code> are bound
+    * at evaluation time using {@link SelectQuery#setParameter(String, Object)}. The
+    * query is translated only once and the parameter values are sent to the database
+    * as bind variables.
+    */
+   public SelectQuery prepareQuery(String sparql, String... parameterNames) throws QueryAnswerException
+   {
+      Set<String> names = new HashSet<String>(Arrays.asList(parameterNames));
+      return new SelectQuery(sparql, names, this, getQueryPlan(sparql, names).getQueryMetadata());
+   }
+
    @Override
    public IQueryResult evaluate(String sparql) throws QueryAnswerException
    {
@@ -94,18 +177,172 @@ public class SparqlQueryEngine extends AbstractQueryEngine
    public IQueryResult evaluate(String sparql, QueryModifiers modifiers, UserStatementSettings userSettings)
          throws QueryAnswerException
    {
-      QueryPlan plan = getQueryPlan(sparql);
-      IQueryResult results = plan.evaluateQuery(modifiers, userSettings);
-      return results;
+      return evaluate(sparql, Collections.<String>emptySet(), new QueryParameters(), modifiers, userSettings);
+   }
+
+   /*
+    * A streaming result is logged when it is returned, so the slow query log does not
+    * count the time the caller takes to read the rows.
+    */
+   public IQueryResult evaluate(String sparql, Set<String> parameterNames, QueryParameters parameters,
+         QueryModifiers modifiers, UserStatementSettings userSettings) throws QueryAnswerException
+   {
+      if (mSlowQueryLog == null) {
+         QueryPlan plan = getQueryPlan(sparql, parameterNames);
+         checkAggregation(plan, modifiers);
+         return plan.evaluateQuery(parameters, modifiers, userSettings);
+      }
+      QueryTrace trace = createTrace(userSettings);
+      UserStatementSettings settings = new UserStatementSettings(userSettings);
+      settings.setMetrics(trace);
+      QueryPlan plan = null;
+      try {
+         plan = mSession.getQueryPlanCache().getQueryPlan(sparql, parameterNames, trace);
+         checkAggregation(plan, modifiers);
+         return plan.evaluateQuery(parameters, modifiers, settings);
+      }
+      finally {
+         mSlowQueryLog.log(sparql, (plan == null) ? null : plan.getSqlString(), trace);
+      }
+   }
+
+   public void evaluate(String sparql, Set<String> parameterNames, QueryParameters parameters,
+         QueryModifiers modifiers, UserStatementSettings userSettings, IQueryResultHandler handler)
+         throws QueryAnswerException
+   {
+      if (mSlowQueryLog == null) {
+         QueryPlan plan = getQueryPlan(sparql, parameterNames);
+         checkAggregation(plan, modifiers);
+         plan.evaluateQuery(parameters, modifiers, userSettings, handler);
+         return;
+      }
+      QueryTrace trace = createTrace(userSettings);
+      UserStatementSettings settings = new UserStatementSettings(userSettings);
+      settings.setMetrics(trace);
+      QueryPlan plan = null;
+      try {
+         plan = mSession.getQueryPlanCache().getQueryPlan(sparql, parameterNames, trace);
+         checkAggregation(plan, modifiers);
+         plan.evaluateQuery(parameters, modifiers, settings, handler);
+      }
+      finally {
+         mSlowQueryLog.log(sparql, (plan == null) ? null : plan.getSqlString(), trace);
+      }
+   }
+
+   /*
+    * The query modifiers (e.g., LIMIT, ORDER BY and the aggregation) are collected from
+    * the query string in the background, in the same way as evaluate(String).
+    */
+   @Override
+   public CompletableFuture<IQueryResult> evaluateAsync(final String sparql)
+   {
+      final UserStatementSettings settings = new UserStatementSettings();
+      return submit(new AsyncQuery(settings)
+      {
+         @Override
+         protected IQueryResult evaluate() throws QueryAnswerException
+         {
+            SelectQuery query = createQuery(sparql);
+            return SparqlQueryEngine.this.evaluate(sparql, query.getModifiers(), settings);
+         }
+      });
+   }
+
+   public CompletableFuture<IQueryResult> evaluateAsync(final String sparql, final QueryModifiers modifiers,
+         UserStatementSettings userSettings)
+   {
+      final UserStatementSettings settings = new UserStatementSettings(userSettings);
+      return submit(new AsyncQuery(settings)
+      {
+         @Override
+         protected IQueryResult evaluate() throws QueryAnswerException
+         {
+            return SparqlQueryEngine.this.evaluate(sparql, modifiers, settings);
+         }
+      });
+   }
+
+   /**
+    * Evaluates the parameterized query in the background. The given parameters and
+    * modifiers are read when the query starts, therefore the caller should not change
+    * them until the returned future completes.
+    */
+   public CompletableFuture<IQueryResult> evaluateAsync(final String sparql, final Set<String> parameterNames,
+         final QueryParameters parameters, final QueryModifiers modifiers, UserStatementSettings userSettings)
+   {
+      final UserStatementSettings settings = new UserStatementSettings(userSettings);
+      return submit(new AsyncQuery(settings)
+      {
+         @Override
+         protected IQueryResult evaluate() throws QueryAnswerException
+         {
+            return SparqlQueryEngine.this.evaluate(sparql, parameterNames, parameters, modifiers, settings);
+         }
+      });
    }
 
    @Override
    public String translate(String sparql) throws QueryAnswerException
    {
       QueryPlan plan = getQueryPlan(sparql);
+      checkAggregation(plan, null);
       return plan.getSqlString();
    }
 
+   /**
+    * Translates the query and returns the produced SQL query, its UNION branches with
+    * the mappings each branch was unfolded from, and the execution plan that the
+    * target database reports for the SQL query. The query is translated again without
+    * using the query plan cache and it is not evaluated.
+    */
+   public QueryExplanation explain(String sparql) throws QueryAnswerException
+   {
+      throwExceptionIfNull();
+      QueryTranslator translator = new QueryTranslator(sparql, this);
+      if (translator.hasAggregation()) {
+         throw new UnsupportedSparqlExpressionException(AGGREGATION_OUTSIDE_SELECT_QUERY);
+      }
+      List<UnionBranch> unionBranches = translator.getUnionBranches();
+      List<List<IMapping>> sourceMappings = translator.getSourceMappings();
+      List<QueryExplanation.Branch> branches = new ArrayList<QueryExplanation.Branch>();
+      for (int i = 0; i < unionBranches.size(); i++) {
+         branches.add(new QueryExplanation.Branch(unionBranches.get(i).getSqlString(), sourceMappings.get(i)));
+      }
+      String sqlString = translator.getSqlString();
+      return new QueryExplanation(sparql, sqlString, branches, explainSql(sqlString));
+   }
+
+   /**
+    * Returns the hit, miss, load-time and eviction counters of the query plan cache.
+    */
+   public CacheStatistics getQueryPlanCacheStatistics()
+   {
+      return mSession.getQueryPlanCache().getStatistics();
+   }
+
+   /**
+    * Returns the hit, miss and eviction counters of the query answer cache, or
+    * <code>null</code> if the answers are not cached.
+    */
+   public CacheStatistics getQueryAnswerCacheStatistics()
+   {
+      QueryAnswerCache cache = getQueryAnswerCache();
+      return (cache == null) ? null : cache.getStatistics();
+   }
+
+   /**
+    * Removes all the cached query answers. Call this method after the data in the
+    * database has changed, e.g., at the end of a data loading job.
+    */
+   public void invalidateQueryAnswerCache()
+   {
+      QueryAnswerCache cache = getQueryAnswerCache();
+      if (cache != null) {
+         cache.invalidate();
+      }
+   }
+
    /*
     * Private utility methods
     */
@@ -115,10 +352,253 @@ public class SparqlQueryEngine extends AbstractQueryEngine
       return mSession.getQueryPlanCache().getQueryPlan(queryString);
    }
 
+   private QueryPlan getQueryPlan(String queryString, Set<String> parameterNames) throws QueryTranslationException
+   {
+      return mSession.getQueryPlanCache().getQueryPlan(queryString, parameterNames);
+   }
+
+   /*
+    * The SQL query of a query with GROUP BY or aggregates selects the variables of the
+    * query body, so it is evaluated only with the aggregation that SelectQuery collects
+    * from the query string.
+    */
+   private static void checkAggregation(QueryPlan plan, QueryModifiers modifiers)
+         throws UnsupportedSparqlExpressionException
+   {
+      if (plan.hasAggregation() && (modifiers == null || !modifiers.hasAggregation())) {
+         throw new UnsupportedSparqlExpressionException(AGGREGATION_OUTSIDE_SELECT_QUERY);
+      }
+   }
+
+   private QueryTrace createTrace(UserStatementSettings userSettings)
+   {
+      IMetrics metrics = userSettings.getMetrics();
+      return new QueryTrace((metrics == null) ? getMetrics() : metrics);
+   }
+
+   private String explainSql(String sqlString) throws QueryAnswerException
+   {
+      String explainString = getTargetDatabase().getDialect().explain(sqlString);
+      try {
+         Connection conn = mConnectionManager.leaseConnection();
+         try {
+            Statement stmt = conn.createStatement();
+            try {
+               return readDatabasePlan(stmt.executeQuery(explainString));
+            }
+            finally {
+               stmt.close();
+            }
+         }
+         finally {
+            mConnectionManager.releaseConnection(conn);
+         }
+      }
+      catch (SQLException e) {
+         throw new QueryEvaluationException("Failed to explain SQL query:\n" + explainString, e); //$NON-NLS-1$
+      }
+      catch (SemantikaException e) {
+         throw new QueryEngineException(e);
+      }
+   }
+
+   private static String readDatabasePlan(ResultSet rs) throws SQLException
+   {
+      int columnCount = rs.getMetaData().getColumnCount();
+      StringBuilder sb = new StringBuilder();
+      while (rs.next()) {
+         for (int i = 1; i <= columnCount; i++) {
+            if (i > 1) {
+               sb.append("\t"); //$NON-NLS-1$
+            }
+            sb.append(rs.getString(i));
+         }
+         sb.append("\n"); //$NON-NLS-1$
+      }
+      return sb.toString();
+   }
+
+   private CompletableFuture<IQueryResult> submit(final AsyncQuery query)
+   {
+      ThreadPoolExecutor executor = mQueryExecutor;
+      if (executor == null) {
+         query.completeExceptionally(new QueryEngineException("Call start() first to initialize query engine")); //$NON-NLS-1$
+         return query;
+      }
+      mSubmittedQueries.add(query);
+      query.whenComplete(new BiConsumer<IQueryResult, Throwable>()
+      {
+         @Override
+         public void accept(IQueryResult result, Throwable error)
+         {
+            mSubmittedQueries.remove(query);
+         }
+      });
+      try {
+         executor.execute(query);
+      }
+      catch (RejectedExecutionException e) {
+         query.completeExceptionally(new QueryEngineException("Too many queries are waiting for evaluation", e)); //$NON-NLS-1$
+      }
+      return query;
+   }
+
+   private SlowQueryLog createSlowQueryLog()
+   {
+      long threshold = getSystemProperties().getSlowQueryLogThreshold();
+      if (threshold < 0) {
+         return null;
+      }
+      return new SlowQueryLog(getSystemProperties().getSlowQueryLogFile(), threshold,
+            getSystemProperties().getSlowQueryLogMaxSize(), getSystemProperties().getSlowQueryLogMaxFiles());
+   }
+
+   private ThreadPoolExecutor createQueryExecutor()
+   {
+      int threads = getSystemProperties().getQueryExecutorThreads();
+      if (threads <= 0) {
+         threads = Runtime.getRuntime().availableProcessors();
+      }
+      int queueSize = getSystemProperties().getQueryExecutorQueueSize();
+      if (queueSize <= 0) {
+         queueSize = threads * DEFAULT_QUEUE_SIZE_PER_THREAD;
+      }
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+            EXECUTOR_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<Runnable>(queueSize), new QueryThreadFactory("semantika-query-")); //$NON-NLS-1$
+      executor.allowCoreThreadTimeOut(true);
+      return executor;
+   }
+
+   /*
+    * The branch tasks never wait for other tasks, so they can queue up without a
+    * bound while the number of concurrent SQL queries stays fixed. Each branch task
+    * needs its own connection, so there is no executor without connection leasing.
+    */
+   private ThreadPoolExecutor createUnionExecutor()
+   {
+      int parallelism = getSystemProperties().getQueryExecutorUnionParallelism();
+      if (parallelism <= 1) {
+         return null;
+      }
+      if (!mConnectionManager.isLeasing()) {
+         LOG.warn("Parallel UNION evaluation is disabled because it needs connection leasing."); //$NON-NLS-1$
+         return null;
+      }
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism,
+            EXECUTOR_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new QueryThreadFactory("semantika-union-")); //$NON-NLS-1$
+      executor.allowCoreThreadTimeOut(true);
+      return executor;
+   }
+
+   /*
+    * The queries that are still waiting in the queue fail immediately and the running
+    * queries are cancelled, which cancels their JDBC statements whether or not they run
+    * on a leased connection. The method then waits a bounded time for the query
+    * threads to finish before the connections are closed.
+    */
+   private void stopQueryExecutor()
+   {
+      if (mQueryExecutor == null) {
+         return;
+      }
+      ThreadPoolExecutor executor = mQueryExecutor;
+      mQueryExecutor = null;
+      executor.shutdown();
+      List<Runnable> pendingQueries = new ArrayList<Runnable>();
+      executor.getQueue().drainTo(pendingQueries);
+      for (Runnable pendingQuery : pendingQueries) {
+         ((AsyncQuery) pendingQuery).completeExceptionally(new QueryEngineException("Query engine was stopped")); //$NON-NLS-1$
+      }
+      for (AsyncQuery runningQuery : new ArrayList<AsyncQuery>(mSubmittedQueries)) {
+         runningQuery.cancel(true);
+      }
+      try {
+         if (!executor.awaitTermination(EXECUTOR_STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            LOG.warn("Some queries were still running when the query engine was stopped."); //$NON-NLS-1$
+         }
+      }
+      catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   private void stopUnionExecutor()
+   {
+      if (mUnionExecutor != null) {
+         mUnionExecutor.shutdownNow();
+         mUnionExecutor = null;
+      }
+   }
+
    private void throwExceptionIfNull() throws QueryEngineException
    {
       if (mConnectionManager == null) {
          throw new QueryEngineException("Call start() first to initialize query engine"); //$NON-NLS-1$
       }
    }
+
+   /**
+    * A query evaluation that runs on the query executor. Cancelling this future
+    * cancels the running JDBC statement. The result that is produced after the future
+    * has been cancelled is closed right away.
+    */
+   private static abstract class AsyncQuery extends CompletableFuture<IQueryResult> implements Runnable
+   {
+      private final QueryCancellation mCancellation = new QueryCancellation();
+
+      public AsyncQuery(UserStatementSettings settings)
+      {
+         settings.setCancellation(mCancellation);
+      }
+
+      protected abstract IQueryResult evaluate() throws QueryAnswerException;
+
+      @Override
+      public void run()
+      {
+         if (isDone()) {
+            return; // cancelled while waiting in the queue
+         }
+         try {
+            IQueryResult result = evaluate();
+            if (!complete(result)) {
+               result.close();
+            }
+         }
+         catch (Exception e) {
+            completeExceptionally(e);
+         }
+      }
+
+      @Override
+      public boolean cancel(boolean mayInterruptIfRunning)
+      {
+         boolean cancelled = super.cancel(mayInterruptIfRunning);
+         if (cancelled) {
+            mCancellation.cancel();
+         }
+         return cancelled;
+      }
+   }
+
+   private static class QueryThreadFactory implements ThreadFactory
+   {
+      private final String mNamePrefix;
+      private final AtomicInteger mThreadNumber = new AtomicInteger(1);
+
+      public QueryThreadFactory(String namePrefix)
+      {
+         mNamePrefix = namePrefix;
+      }
+
+      @Override
+      public Thread newThread(Runnable r)
+      {
+         Thread thread = new Thread(r, mNamePrefix + mThreadNumber.getAndIncrement());
+         thread.setDaemon(true);
+         return thread;
+      }
+   }
 }
@@ -17,22 +17,103 @@ package com.obidea.semantika.queryanswer.internal;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.obidea.semantika.exception.SemantikaException;
+import com.obidea.semantika.metrics.IMetrics;
+import com.obidea.semantika.metrics.NoOpMetrics;
 
 public class ConnectionManager
 {
    private IDatabaseSession mSession;
    private Connection mConnection;
+   private IMetrics mMetrics;
 
-   private boolean mIsClosed = false;
+   private final boolean mIsLeasing;
+   private final AtomicInteger mLeasedCount = new AtomicInteger();
+
+   private volatile boolean mIsClosed = false;
 
    public ConnectionManager(IDatabaseSession session)
+   {
+      this(session, false);
+   }
+
+   /**
+    * Creates the connection manager. If <code>leaseConnections</code> is
+    * <code>true</code> then each query evaluation takes its own connection from the
+    * connection provider and returns it when the evaluation completes. Otherwise,
+    * all evaluations share a single connection.
+    */
+   public ConnectionManager(IDatabaseSession session, boolean leaseConnections)
+   {
+      this(session, leaseConnections, NoOpMetrics.INSTANCE);
+   }
+
+   /**
+    * Creates the connection manager that records the time spent on waiting for the
+    * connection provider to the given metrics.
+    */
+   public ConnectionManager(IDatabaseSession session, boolean leaseConnections, IMetrics metrics)
    {
       mSession = session;
+      mIsLeasing = leaseConnections;
+      mMetrics = metrics;
+   }
+
+   /**
+    * Returns a connection for a single query evaluation. The caller must give the
+    * connection back using {@link #releaseConnection(Connection)}.
+    */
+   public Connection leaseConnection() throws SemantikaException
+   {
+      if (!mIsLeasing) {
+         return getConnection();
+      }
+      if (mIsClosed) {
+         throw new ConnectionManagerException("Connection manager is closed"); //$NON-NLS-1$
+      }
+      try {
+         Connection conn = acquireConnection();
+         mLeasedCount.incrementAndGet();
+         return conn;
+      }
+      catch (SQLException e) {
+         throw new ConnectionManagerException("Cannot open connection", e); //$NON-NLS-1$
+      }
+   }
+
+   /**
+    * Gives back the connection obtained from {@link #leaseConnection()}.
+    */
+   public void releaseConnection(Connection conn) throws ConnectionManagerException
+   {
+      if (!mIsLeasing) {
+         return;
+      }
+      try {
+         mLeasedCount.decrementAndGet();
+         mSession.getConnectionProvider().closeConnection(conn);
+      }
+      catch (SQLException e) {
+         throw new ConnectionManagerException("Cannot release connection", e); //$NON-NLS-1$
+      }
+   }
+
+   /**
+    * Returns the number of connections that are currently leased by query evaluations.
+    */
+   public int getLeasedCount()
+   {
+      return mLeasedCount.get();
    }
 
-   public Connection getConnection() throws SemantikaException
+   public boolean isLeasing()
+   {
+      return mIsLeasing;
+   }
+
+   public synchronized Connection getConnection() throws SemantikaException
    {
       if (mConnection == null) {
          openConnection();
@@ -46,13 +127,24 @@ public class ConnectionManager
          return;
       }
       try {
-         mConnection = mSession.getConnectionProvider().getConnection();
+         mConnection = acquireConnection();
       }
       catch (SQLException e) {
          throw new ConnectionManagerException("Cannot open connection", e); //$NON-NLS-1$
       }
    }
 
+   private Connection acquireConnection() throws SQLException
+   {
+      long start = System.nanoTime();
+      try {
+         return mSession.getConnectionProvider().getConnection();
+      }
+      finally {
+         mMetrics.recordTime(IMetrics.CONNECTION_ACQUIRE, System.nanoTime() - start);
+      }
+   }
+
    private void closeConnection() throws ConnectionManagerException
    {
       try {
@@ -64,7 +156,7 @@ public class ConnectionManager
       }
    }
 
-   public void close() throws ConnectionManagerException
+   public synchronized void close() throws ConnectionManagerException
    {
       try {
          if (mConnection != null) {
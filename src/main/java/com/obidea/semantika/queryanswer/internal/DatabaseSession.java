@@ -15,6 +15,7 @@
  */
 package com.obidea.semantika.queryanswer.internal;
 
+import com.obidea.semantika.app.SystemProperties;
 import com.obidea.semantika.database.connection.IConnectionProvider;
 import com.obidea.semantika.queryanswer.SparqlQueryEngine;
 
@@ -24,10 +25,17 @@ public class DatabaseSession implements IDatabaseSession
 
    private QueryPlanCache mQueryPlanCache;
 
+   private QueryAnswerCache mQueryAnswerCache;
+
    public DatabaseSession(SparqlQueryEngine queryEngine)
    {
       mQueryPlanCache = new QueryPlanCache(queryEngine);
       mConnectionProvider = queryEngine.getConnectionProvider();
+      SystemProperties properties = queryEngine.getSystemProperties();
+      if (properties.getQueryAnswerCacheMaxWeight() > 0) {
+         mQueryAnswerCache = new QueryAnswerCache(properties.getQueryAnswerCacheMaxWeight(),
+               properties.getQueryAnswerCacheTtl() * 1000L);
+      }
    }
 
    @Override
@@ -36,6 +44,12 @@ public class DatabaseSession implements IDatabaseSession
       return mQueryPlanCache;
    }
 
+   @Override
+   public QueryAnswerCache getQueryAnswerCache()
+   {
+      return mQueryAnswerCache;
+   }
+
    @Override
    public IConnectionProvider getConnectionProvider()
    {
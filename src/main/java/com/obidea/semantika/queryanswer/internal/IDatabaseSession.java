@@ -21,5 +21,10 @@ public interface IDatabaseSession
 {
    QueryPlanCache getQueryPlanCache();
 
+   /**
+    * Returns the query answer cache, or <code>null</code> if the answers are not cached.
+    */
+   QueryAnswerCache getQueryAnswerCache();
+
    IConnectionProvider getConnectionProvider();
 }
@@ -40,4 +40,16 @@ public interface IQueryEvaluator
    void unsetTransactionFetchSize();
 
    void unsetTransactionMaxRows();
+
+   /**
+    * Cancels the statements that are currently running. This method can be called
+    * from another thread and any statement that is executed afterwards will fail.
+    */
+   void cancel();
+
+   /**
+    * Closes the statements and result sets that are still open and returns the
+    * database connection used by this evaluator.
+    */
+   void close();
 }
@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.queryanswer.internal;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.obidea.semantika.exception.SemantikaException;
+import com.obidea.semantika.queryanswer.AbstractQueryEngine;
+import com.obidea.semantika.queryanswer.result.IQueryResultHandler;
+import com.obidea.semantika.queryanswer.result.QueryResultHandlerStopException;
+import com.obidea.semantika.queryanswer.result.ValueArray;
+
+/**
+ * Evaluates the UNION branches of a query concurrently. The branches are grouped
+ * into chunks and each chunk runs as a separate SQL query using its own query
+ * evaluator, and thus its own connection when the connections are leased per
+ * query. The rows are merged in the calling thread.
+ * <p>
+ * Only the branches that are joined by UNION ALL are evaluated this way. Removing the
+ * duplicate rows across the chunks would mean keeping every row of the result in
+ * memory, so the other UNION queries run as a single SQL query instead.
+ */
+/* package */
+final class ParallelUnionEvaluation
+{
+   private static final int ROW_BUFFER_SIZE = 1024;
+   private static final long POLL_TIMEOUT_MILLIS = 100;
+
+   /*
+    * Marks the end of the rows of one chunk.
+    */
+   private static final Object END_OF_CHUNK = new Object();
+
+   private final AbstractQueryEngine mQueryEngine;
+   private final ExecutorService mExecutor;
+   private final List<UnionBranch> mChunks;
+
+   private final BlockingQueue<Object> mRowBuffer = new ArrayBlockingQueue<Object>(ROW_BUFFER_SIZE);
+   private final List<IQueryEvaluator> mEvaluators = new ArrayList<IQueryEvaluator>();
+
+   private volatile boolean mIsAborted = false;
+   private volatile Exception mFailure;
+
+   public ParallelUnionEvaluation(AbstractQueryEngine queryEngine, ExecutorService executor,
+         List<UnionBranch> branches, int parallelism)
+   {
+      mQueryEngine = queryEngine;
+      mExecutor = executor;
+      mChunks = createChunks(branches, parallelism);
+   }
+
+   /*
+    * Splits the branches into at most <code>parallelism</code> chunks of consecutive
+    * branches with about the same size.
+    */
+   private static List<UnionBranch> createChunks(List<UnionBranch> branches, int parallelism)
+   {
+      int chunkCount = Math.max(1, Math.min(parallelism, branches.size()));
+      List<UnionBranch> chunks = new ArrayList<UnionBranch>(chunkCount);
+      for (int i = 0; i < chunkCount; i++) {
+         int from = i * branches.size() / chunkCount;
+         int to = (i + 1) * branches.size() / chunkCount;
+         chunks.add(UnionBranch.union(branches.subList(from, to), true));
+      }
+      return chunks;
+   }
+
+   public void evaluate(QueryParameters parameters, UserStatementSettings userSettings, QueryMetadata metadata,
+         IQueryResultHandler handler) throws SQLException, SemantikaException
+   {
+      int runningChunks = 0;
+      try {
+         for (UnionBranch chunk : mChunks) {
+            IQueryEvaluator evaluator = mQueryEngine.getQueryEvaluator(QueryResultLoader.getMetrics(mQueryEngine, userSettings));
+            boolean isSubmitted = false;
+            try {
+               QueryResultLoader.register(evaluator, userSettings);
+               mEvaluators.add(evaluator);
+               mExecutor.execute(new ChunkTask(chunk, evaluator, parameters, userSettings, metadata));
+               isSubmitted = true;
+               runningChunks++;
+            }
+            finally {
+               if (!isSubmitted) {
+                  evaluator.close();
+               }
+            }
+         }
+         handler.start(metadata.getSelectNames());
+         while (runningChunks > 0) {
+            Object row = takeRow();
+            if (mFailure != null) {
+               break;
+            }
+            if (row == END_OF_CHUNK) {
+               runningChunks--;
+            }
+            else {
+               handler.handleResultFragment((ValueArray) row);
+            }
+         }
+         throwIfFailed();
+      }
+      catch (QueryResultHandlerStopException e) {
+         // NO-OP: The remaining rows are not needed
+      }
+      finally {
+         if (runningChunks > 0 || mFailure != null) {
+            abort();
+         }
+         for (IQueryEvaluator evaluator : mEvaluators) {
+            QueryResultLoader.unregister(evaluator, userSettings);
+         }
+      }
+      handler.stop();
+   }
+
+   /*
+    * Returns the next row, or <code>null</code> if a chunk has failed.
+    */
+   private Object takeRow() throws QueryEvaluationException
+   {
+      try {
+         while (true) {
+            Object row = mRowBuffer.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            if (row != null || mFailure != null) {
+               return row;
+            }
+         }
+      }
+      catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new QueryEvaluationException("Interrupted while waiting for query results", e); //$NON-NLS-1$
+      }
+   }
+
+   private void throwIfFailed() throws SQLException, SemantikaException
+   {
+      Exception failure = mFailure;
+      if (failure instanceof SQLException) {
+         throw (SQLException) failure;
+      }
+      else if (failure instanceof SemantikaException) {
+         throw (SemantikaException) failure;
+      }
+      else if (failure != null) {
+         throw new QueryEvaluationException(failure);
+      }
+   }
+
+   /*
+    * Stops the chunks that are still running. Each chunk closes its own evaluator
+    * when its task finishes.
+    */
+   private void abort()
+   {
+      mIsAborted = true;
+      for (IQueryEvaluator evaluator : mEvaluators) {
+         evaluator.cancel();
+      }
+      mRowBuffer.clear();
+   }
+
+   private void fail(Exception e)
+   {
+      if (mFailure == null) {
+         mFailure = e;
+      }
+   }
+
+   /*
+    * Puts the row into the buffer, or drops it once the evaluation is aborted.
+    */
+   private void putRow(Object row) throws InterruptedException
+   {
+      while (!mIsAborted) {
+         if (mRowBuffer.offer(row, POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            return;
+         }
+      }
+   }
+
+   private class ChunkTask implements Runnable
+   {
+      private final UnionBranch mChunk;
+      private final IQueryEvaluator mEvaluator;
+      private final QueryParameters mParameters;
+      private final UserStatementSettings mUserSettings;
+      private final QueryMetadata mMetadata;
+
+      public ChunkTask(UnionBranch chunk, IQueryEvaluator evaluator, QueryParameters parameters,
+            UserStatementSettings userSettings, QueryMetadata metadata)
+      {
+         mChunk = chunk;
+         mEvaluator = evaluator;
+         mParameters = parameters;
+         mUserSettings = userSettings;
+         mMetadata = metadata;
+      }
+
+      @Override
+      public void run()
+      {
+         try {
+            if (!mIsAborted) {
+               PreparedStatement ps = QueryResultLoader.preparedStatement(mEvaluator, mChunk.getSqlString(), mUserSettings);
+               QueryResultLoader.bindParameters(ps, mChunk.getParameterNames(), mParameters);
+               ResultSet rs = mEvaluator.getResultSet(ps);
+               List<String> selectLabels = new ArrayList<String>();
+               long fetchTime = 0;
+               long rowCount = 0;
+               try {
+                  /*
+                   * The fetch time excludes the time spent on waiting for the row buffer.
+                   */
+                  long start = System.nanoTime();
+                  while (!mIsAborted && rs.next()) {
+                     ValueArray row = QueryResultLoader.getValueArrayFromResultSet(rs, mMetadata, selectLabels);
+                     fetchTime += System.nanoTime() - start;
+                     rowCount++;
+                     putRow(row);
+                     start = System.nanoTime();
+                  }
+               }
+               finally {
+                  QueryResultLoader.recordFetch(QueryResultLoader.getMetrics(mQueryEngine, mUserSettings), fetchTime, rowCount);
+               }
+            }
+         }
+         catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(e);
+         }
+         catch (Exception e) {
+            if (!mIsAborted) {
+               fail(e);
+            }
+         }
+         finally {
+            mEvaluator.close();
+            try {
+               putRow(END_OF_CHUNK);
+            }
+            catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+            }
+         }
+      }
+   }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.queryanswer.internal;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.obidea.semantika.database.sql.deparser.Sql99;
+import com.obidea.semantika.database.sql.dialect.IDialect;
+import com.obidea.semantika.datatype.DataType;
+
+/**
+ * The SPARQL GROUP BY and the aggregate functions in the query projection. The query
+ * translation produces the SQL query that selects the group variables and all the
+ * variables of the query body, and the aggregation is then applied on top of that SQL
+ * query such that the database sends only the aggregated rows.
+ */
+public final class QueryAggregation
+{
+   private static final String AGGREGATE_TABLE = "agg"; //$NON-NLS-1$
+
+   private List<String> mGroupColumns = new ArrayList<String>();
+   private List<SelectItem> mSelectItems = new ArrayList<SelectItem>();
+
+   public void addGroupColumn(String column)
+   {
+      mGroupColumns.add(column);
+   }
+
+   public List<String> getGroupColumns()
+   {
+      return Collections.unmodifiableList(mGroupColumns);
+   }
+
+   /**
+    * Adds the group column to the projection.
+    */
+   public void addSelectColumn(String column)
+   {
+      mSelectItems.add(new SelectItem(column, null, column, false));
+   }
+
+   /**
+    * Adds the aggregate function to the projection. The <code>argument</code> is
+    * <code>null</code> for <code>COUNT(*)</code>.
+    */
+   public void addSelectAggregate(String label, String function, String argument, boolean distinct)
+   {
+      mSelectItems.add(new SelectItem(label, function, argument, distinct));
+   }
+
+   public List<SelectItem> getSelectItems()
+   {
+      return Collections.unmodifiableList(mSelectItems);
+   }
+
+   /**
+    * Returns <code>true</code> if the aggregation can be computed for each UNION branch
+    * first. The UNION removes duplicate rows, so only MIN and MAX, which do not depend
+    * on the number of duplicates, can be computed from the partial results.
+    */
+   public boolean isDecomposable()
+   {
+      for (SelectItem selectItem : mSelectItems) {
+         if (selectItem.isAggregate() && !Sql99.MIN.equals(selectItem.getFunction())
+               && !Sql99.MAX.equals(selectItem.getFunction())) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Creates the metadata of the aggregated result. The types of the group columns
+    * and the aggregate arguments are taken from <code>sourceMetadata</code>, and the
+    * labels of the group columns from <code>labelMetadata</code> at the same
+    * position, which allows the two metadata to use different variable names.
+    */
+   public QueryMetadata createMetadata(QueryMetadata sourceMetadata, QueryMetadata labelMetadata)
+   {
+      int size = mSelectItems.size();
+      String[] selectNames = new String[size];
+      String[] selectTypes = new String[size];
+      for (int i = 0; i < size; i++) {
+         SelectItem selectItem = mSelectItems.get(i);
+         String argumentType = null;
+         String label = selectItem.getLabel();
+         if (selectItem.getArgument() != null) {
+            int position = sourceMetadata.getSelectNames().indexOf(selectItem.getArgument()) + 1;
+            argumentType = sourceMetadata.getColumn(position).getDatatype();
+            if (!selectItem.isAggregate()) {
+               label = labelMetadata.getColumn(position).getLabel();
+            }
+         }
+         selectNames[i] = label;
+         selectTypes[i] = getResultType(selectItem.getFunction(), argumentType);
+      }
+      return new QueryMetadata(selectNames, selectTypes);
+   }
+
+   private static String getResultType(String function, String argumentType)
+   {
+      if (Sql99.COUNT.equals(function)) {
+         return DataType.INTEGER;
+      }
+      else if (Sql99.AVG.equals(function)) {
+         return DataType.DECIMAL;
+      }
+      return argumentType;
+   }
+
+   /**
+    * Creates the SQL query that aggregates the UNION (or UNION ALL if
+    * <code>unionAll</code> is <code>true</code>) of the given SQL queries. The
+    * aggregation is computed for each query first if it is decomposable.
+    */
+   public String createSql(List<String> unionBranches, boolean unionAll, IDialect dialect)
+   {
+      boolean isPartial = unionBranches.size() > 1 && isDecomposable();
+      StringBuilder union = new StringBuilder();
+      boolean needUnion = false;
+      for (String branch : unionBranches) {
+         if (needUnion) {
+            union.append("\n"); //$NON-NLS-1$
+            union.append(unionAll ? Sql99.UNION_ALL : Sql99.UNION);
+            union.append("\n"); //$NON-NLS-1$
+         }
+         union.append(isPartial ? aggregate(branch, false, dialect) : branch);
+         needUnion = true;
+      }
+      return aggregate(union.toString(), isPartial, dialect);
+   }
+
+   /*
+    * The partial aggregation labels each aggregate with its final label, so the outer
+    * aggregation finds the partial result under that label.
+    */
+   private String aggregate(String sql, boolean fromPartial, IDialect dialect)
+   {
+      StringBuilder sb = new StringBuilder();
+      sb.append(Sql99.SELECT).append(" "); //$NON-NLS-1$
+      boolean needComma = false;
+      for (SelectItem selectItem : mSelectItems) {
+         if (needComma) {
+            sb.append(", "); //$NON-NLS-1$
+         }
+         if (selectItem.isAggregate()) {
+            String column = fromPartial ? selectItem.getLabel() : selectItem.getArgument();
+            sb.append(aggregateExpression(selectItem, column, dialect));
+            sb.append(" ").append(dialect.alias(selectItem.getLabel())); //$NON-NLS-1$
+         }
+         else {
+            sb.append(dialect.identifier(AGGREGATE_TABLE, selectItem.getArgument()));
+            sb.append(" ").append(dialect.alias(selectItem.getArgument())); //$NON-NLS-1$
+         }
+         needComma = true;
+      }
+      sb.append("\n").append(Sql99.FROM).append(" (\n   "); //$NON-NLS-1$ //$NON-NLS-2$
+      sb.append(sql.trim().replaceAll("\n", "\n   ")); //$NON-NLS-1$ //$NON-NLS-2$
+      sb.append("\n) ").append(AGGREGATE_TABLE); //$NON-NLS-1$
+      if (!mGroupColumns.isEmpty()) {
+         sb.append("\n").append(Sql99.GROUP_BY).append(" "); //$NON-NLS-1$ //$NON-NLS-2$
+         needComma = false;
+         for (String column : mGroupColumns) {
+            if (needComma) {
+               sb.append(", "); //$NON-NLS-1$
+            }
+            sb.append(dialect.identifier(AGGREGATE_TABLE, column));
+            needComma = true;
+         }
+      }
+      return sb.toString();
+   }
+
+   /*
+    * AVG is computed on decimal values because some databases return the average of
+    * integer values as an integer.
+    */
+   private static String aggregateExpression(SelectItem selectItem, String column, IDialect dialect)
+   {
+      String argument = (column == null) ? Sql99.ASTERISK : dialect.identifier(AGGREGATE_TABLE, column);
+      if (Sql99.AVG.equals(selectItem.getFunction())) {
+         argument = dialect.cast(argument, Types.DECIMAL);
+      }
+      StringBuilder sb = new StringBuilder(selectItem.getFunction());
+      sb.append("("); //$NON-NLS-1$
+      if (selectItem.isDistinct()) {
+         sb.append(Sql99.DISTINCT).append(" "); //$NON-NLS-1$
+      }
+      sb.append(argument);
+      sb.append(")"); //$NON-NLS-1$
+      return sb.toString();
+   }
+
+   /**
+    * A column of the aggregated result, which is either a group column or an
+    * aggregate function over a column of the SQL query.
+    */
+   public static final class SelectItem
+   {
+      private final String mLabel;
+      private final String mFunction;
+      private final String mArgument;
+      private final boolean mDistinct;
+
+      public SelectItem(String label, String function, String argument, boolean distinct)
+      {
+         mLabel = label;
+         mFunction = function;
+         mArgument = argument;
+         mDistinct = distinct;
+      }
+
+      public String getLabel()
+      {
+         return mLabel;
+      }
+
+      /**
+       * Returns the SQL aggregate function, or <code>null</code> for a group column.
+       */
+      public String getFunction()
+      {
+         return mFunction;
+      }
+
+      public String getArgument()
+      {
+         return mArgument;
+      }
+
+      public boolean isDistinct()
+      {
+         return mDistinct;
+      }
+
+      public boolean isAggregate()
+      {
+         return mFunction != null;
+      }
+   }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.queryanswer.internal;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.obidea.semantika.queryanswer.internal.QueryMetadata.Column;
+import com.obidea.semantika.queryanswer.result.IQueryResultHandler;
+import com.obidea.semantika.queryanswer.result.IValue;
+import com.obidea.semantika.queryanswer.result.IValueArray;
+import com.obidea.semantika.queryanswer.result.Literal;
+import com.obidea.semantika.queryanswer.result.QueryResultHandlerException;
+import com.obidea.semantika.queryanswer.result.QueryResultHandlerStopException;
+import com.obidea.semantika.queryanswer.result.Uri;
+import com.obidea.semantika.queryanswer.result.ValueArray;
+import com.obidea.semantika.util.CacheStatistics;
+import com.obidea.semantika.util.WeightedMruCache;
+
+/**
+ * The cache of query answers. The answers are keyed by the final SQL string (i.e.,
+ * after applying the query modifiers), the parameter values and the statement
+ * settings that change the answer. The cached answers expire after the configured
+ * time-to-live and the least recently used answers are evicted when the total
+ * answer size exceeds the maximum weight.
+ * <p>
+ * The answers are stored as a flat array of strings where equal strings share a
+ * single instance. The result values are created again when the answer is read.
+ * Call {@link #invalidate()} when the data in the database has changed.
+ */
+public class QueryAnswerCache
+{
+   /*
+    * Estimated memory footprint in bytes of an array slot and of a string object
+    * without its characters.
+    */
+   private static final long REFERENCE_WEIGHT = 8;
+   private static final long STRING_WEIGHT = 40;
+
+   private final WeightedMruCache<AnswerKey, CachedAnswer> mAnswerCache;
+
+   private final long mMaxAnswerWeight;
+
+   public QueryAnswerCache(long maxWeight, long timeToLiveMillis)
+   {
+      mAnswerCache = new WeightedMruCache<AnswerKey, CachedAnswer>(maxWeight, timeToLiveMillis,
+            new WeightedMruCache.IWeigher<CachedAnswer>()
+            {
+               @Override
+               public long weigh(CachedAnswer answer)
+               {
+                  return answer.getWeight();
+               }
+            });
+      /*
+       * An answer that takes more than a quarter of the cache would evict most of
+       * the other answers, so it is not cached.
+       */
+      mMaxAnswerWeight = mAnswerCache.getMaxWeight() / 4;
+   }
+
+   /**
+    * Creates the cache key of the given SQL string. The parameter values follow the
+    * order of the bind variables in the SQL string.
+    */
+   public static AnswerKey createKey(String sqlString, List<String> parameterNames, QueryParameters parameters,
+         UserStatementSettings userSettings)
+   {
+      List<Object> parameterValues = new ArrayList<Object>(parameterNames.size());
+      for (String name : parameterNames) {
+         parameterValues.add(parameters.getValue(name));
+      }
+      return new AnswerKey(sqlString, parameterValues, userSettings.getMaxRows());
+   }
+
+   /**
+    * Returns the cached answer of the given key, or <code>null</code> if the answer
+    * is not cached or has expired.
+    */
+   public CachedAnswer get(AnswerKey key)
+   {
+      return mAnswerCache.getIfPresent(key);
+   }
+
+   /**
+    * Returns a handler that passes the rows to the given <code>handler</code> and
+    * records them such that the answer can be cached once all the rows are read.
+    */
+   public AnswerRecorder record(IQueryResultHandler handler)
+   {
+      return new AnswerRecorder(handler, mMaxAnswerWeight);
+   }
+
+   /**
+    * Caches the answer recorded by the given recorder if the recorder has read all the
+    * rows of the answer.
+    */
+   public void put(AnswerKey key, AnswerRecorder recorder)
+   {
+      if (recorder.isComplete()) {
+         mAnswerCache.put(key, recorder.getAnswer());
+      }
+   }
+
+   /**
+    * Removes all the cached answers, e.g., after the data in the database has been
+    * reloaded.
+    */
+   public void invalidate()
+   {
+      mAnswerCache.clear();
+   }
+
+   /**
+    * Returns the hit, miss and eviction counters of this cache.
+    */
+   public CacheStatistics getStatistics()
+   {
+      return mAnswerCache.getStatistics();
+   }
+
+   public static final class AnswerKey
+   {
+      private final String mSqlString;
+      private final List<Object> mParameterValues;
+      private final Integer mMaxRows;
+
+      private AnswerKey(String sqlString, List<Object> parameterValues, Integer maxRows)
+      {
+         mSqlString = sqlString;
+         mParameterValues = parameterValues;
+         mMaxRows = maxRows;
+      }
+
+      @Override
+      public int hashCode()
+      {
+         final int prime = 31;
+         int result = 1;
+         result = prime * result + mSqlString.hashCode();
+         result = prime * result + mParameterValues.hashCode();
+         result = prime * result + ((mMaxRows == null) ? 0 : mMaxRows.hashCode());
+         return result;
+      }
+
+      @Override
+      public boolean equals(Object obj)
+      {
+         if (this == obj) {
+            return true;
+         }
+         if (obj == null) {
+            return false;
+         }
+         if (getClass() != obj.getClass()) {
+            return false;
+         }
+         final AnswerKey other = (AnswerKey) obj;
+         return mSqlString.equals(other.mSqlString) && mParameterValues.equals(other.mParameterValues)
+               && (mMaxRows == null ? other.mMaxRows == null : mMaxRows.equals(other.mMaxRows));
+      }
+   }
+
+   /**
+    * A query answer in its compact form, i.e., the string values of all the rows in a
+    * single array.
+    */
+   public static final class CachedAnswer
+   {
+      private final int mColumnCount;
+      private final String[] mCells;
+      private final long mWeight;
+
+      private CachedAnswer(int columnCount, String[] cells, long weight)
+      {
+         mColumnCount = columnCount;
+         mCells = cells;
+         mWeight = weight;
+      }
+
+      public int getRowCount()
+      {
+         return (mColumnCount == 0) ? 0 : mCells.length / mColumnCount;
+      }
+
+      public long getWeight()
+      {
+         return mWeight;
+      }
+
+      /**
+       * Passes the cached rows to the <code>handler</code> using the column labels and
+       * the column types of the given <code>metadata</code>.
+       */
+      public void replay(QueryMetadata metadata, IQueryResultHandler handler) throws QueryResultHandlerException
+      {
+         List<String> selectNames = metadata.getSelectNames();
+         handler.start(selectNames);
+         URI[] datatypes = new URI[mColumnCount];
+         for (int i = 0; i < mColumnCount; i++) {
+            Column c = metadata.getColumn(i + 1);
+            if (c.isLiteral()) {
+               datatypes[i] = URI.create(c.getDatatype());
+            }
+         }
+         try {
+            for (int offset = 0; offset < mCells.length; offset += mColumnCount) {
+               IValue[] values = new IValue[mColumnCount];
+               for (int i = 0; i < mColumnCount; i++) {
+                  String cell = mCells[offset + i];
+                  if (cell != null) {
+                     values[i] = (datatypes[i] != null) ? new Literal(cell, datatypes[i]) : new Uri(cell);
+                  }
+               }
+               handler.handleResultFragment(new ValueArray(selectNames, Arrays.asList(values)));
+            }
+         }
+         catch (QueryResultHandlerStopException e) {
+            // NO-OP: The remaining rows are not needed
+         }
+         handler.stop();
+      }
+   }
+
+   /**
+    * Records the rows that pass through it while forwarding them to the actual result
+    * handler. The recording is dropped when the handler stops early or when the answer
+    * grows beyond the maximum answer weight.
+    */
+   public static final class AnswerRecorder implements IQueryResultHandler
+   {
+      private final IQueryResultHandler mHandler;
+      private final long mMaxWeight;
+
+      private int mColumnCount;
+      private List<String> mCells = new ArrayList<String>();
+      private Map<String, String> mDictionary = new HashMap<String, String>();
+      private long mWeight = 0;
+
+      private boolean mIsComplete = false;
+
+      private AnswerRecorder(IQueryResultHandler handler, long maxWeight)
+      {
+         mHandler = handler;
+         mMaxWeight = maxWeight;
+      }
+
+      @Override
+      public void start(List<String> selectNames) throws QueryResultHandlerException
+      {
+         mColumnCount = selectNames.size();
+         mHandler.start(selectNames);
+      }
+
+      @Override
+      public void handleResultFragment(IValueArray valueArray) throws QueryResultHandlerException
+      {
+         if (mCells != null) {
+            for (IValue value : valueArray) {
+               mCells.add((value == null) ? null : share(value.stringValue()));
+            }
+            mWeight += mColumnCount * REFERENCE_WEIGHT;
+            if (mWeight > mMaxWeight) {
+               discard();
+            }
+         }
+         try {
+            mHandler.handleResultFragment(valueArray);
+         }
+         catch (QueryResultHandlerException e) {
+            discard();
+            throw e;
+         }
+      }
+
+      @Override
+      public void stop() throws QueryResultHandlerException
+      {
+         mIsComplete = (mCells != null);
+         mDictionary = null;
+         mHandler.stop();
+      }
+
+      /*
+       * Equal strings share a single instance so that repeating values, e.g., the
+       * class URIs, are counted and stored once.
+       */
+      private String share(String value)
+      {
+         String sharedValue = mDictionary.get(value);
+         if (sharedValue == null) {
+            sharedValue = value;
+            mDictionary.put(value, value);
+            mWeight += STRING_WEIGHT + 2L * value.length();
+         }
+         return sharedValue;
+      }
+
+      private void discard()
+      {
+         mCells = null;
+         mDictionary = null;
+      }
+
+      public boolean isComplete()
+      {
+         return mIsComplete;
+      }
+
+      public CachedAnswer getAnswer()
+      {
+         return new CachedAnswer(mColumnCount, mCells.toArray(new String[mCells.size()]), mWeight);
+      }
+   }
+}
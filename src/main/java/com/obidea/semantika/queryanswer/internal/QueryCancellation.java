@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.queryanswer.internal;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A handle to cancel a query evaluation from another thread. The evaluation
+ * registers its query evaluators to this handle while the SQL statements are running,
+ * such that {@link #cancel()} can cancel the in-flight JDBC statements.
+ */
+public final class QueryCancellation
+{
+   private volatile boolean mIsCancelled = false;
+
+   private Set<IQueryEvaluator> mQueryEvaluators = new HashSet<IQueryEvaluator>();
+
+   /**
+    * Cancels the evaluation. The running statements are cancelled immediately and the
+    * evaluation that has not started yet will fail when it starts.
+    */
+   public void cancel()
+   {
+      List<IQueryEvaluator> evaluators;
+      synchronized (this) {
+         mIsCancelled = true;
+         evaluators = new ArrayList<IQueryEvaluator>(mQueryEvaluators);
+      }
+      for (IQueryEvaluator evaluator : evaluators) {
+         evaluator.cancel();
+      }
+   }
+
+   public boolean isCancelled()
+   {
+      return mIsCancelled;
+   }
+
+   /* package */
+   synchronized void register(IQueryEvaluator evaluator) throws QueryEvaluationException
+   {
+      if (mIsCancelled) {
+         throw new QueryEvaluationException("Query evaluation was cancelled"); //$NON-NLS-1$
+      }
+      mQueryEvaluators.add(evaluator);
+   }
+
+   /* package */
+   synchronized void unregister(IQueryEvaluator evaluator)
+   {
+      mQueryEvaluators.remove(evaluator);
+   }
+}
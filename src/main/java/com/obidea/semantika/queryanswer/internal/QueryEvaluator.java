@@ -15,25 +15,36 @@
  */
 package com.obidea.semantika.queryanswer.internal;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 import org.slf4j.Logger;
 
 import com.obidea.semantika.exception.SemantikaException;
+import com.obidea.semantika.metrics.IMetrics;
+import com.obidea.semantika.metrics.NoOpMetrics;
 import com.obidea.semantika.util.LogUtils;
 
 public class QueryEvaluator implements IQueryEvaluator
 {
    private ConnectionManager mConnectionManager;
+   private Connection mConnection;
 
-   private Set<PreparedStatement> mStatementsToClose = new HashSet<PreparedStatement>();
+   private IMetrics mMetrics;
+
+   private Set<PreparedStatement> mStatementsToClose = Collections.synchronizedSet(new HashSet<PreparedStatement>());
    private Set<ResultSet> mResultSetsToClose = new HashSet<ResultSet>();
 
+   private volatile boolean mIsCancelled = false;
+
    private long mTransactionTimeout = -1;
    private int mTransactionFetchSize = -1;
    private int mTransactionMaxRows = -1;
@@ -42,18 +53,28 @@ public class QueryEvaluator implements IQueryEvaluator
    private boolean mIsTransactionFetchSizeSet = false;
    private boolean mIsTransactionMaxRowsSet = false;
 
+   private static final String SQL_STATE_CANCELLED = "HY008"; //$NON-NLS-1$
+
    private static final Logger LOG = LogUtils.createLogger("semantika.queryanswer"); //$NON-NLS-1$
 
    public QueryEvaluator(ConnectionManager connectionManager)
+   {
+      this(connectionManager, NoOpMetrics.INSTANCE);
+   }
+
+   public QueryEvaluator(ConnectionManager connectionManager, IMetrics metrics)
    {
       mConnectionManager = connectionManager;
+      mMetrics = metrics;
    }
 
    @Override
    public PreparedStatement prepareQueryStatement(String sql) throws SQLException, SemantikaException
    {
-      PreparedStatement ps = mConnectionManager.getConnection()
-            .prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+      if (mIsCancelled) {
+         throw new QueryEvaluationException("Query evaluation was cancelled"); //$NON-NLS-1$
+      }
+      PreparedStatement ps = getConnection().prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
       setTimeout(ps);
       setFetchSize(ps);
       setMaxRows(ps);
@@ -61,6 +82,18 @@ public class QueryEvaluator implements IQueryEvaluator
       return ps;
    }
 
+   /*
+    * The connection is leased on the first statement and kept until this evaluator
+    * is closed.
+    */
+   private Connection getConnection() throws SemantikaException
+   {
+      if (mConnection == null) {
+         mConnection = mConnectionManager.leaseConnection();
+      }
+      return mConnection;
+   }
+
    private void setTimeout(PreparedStatement stmt) throws SQLException, QueryEvaluationException
    {
       if (mIsTransactionTimeoutSet) {
@@ -143,11 +176,34 @@ public class QueryEvaluator implements IQueryEvaluator
    @Override
    public ResultSet getResultSet(PreparedStatement ps) throws SQLException
    {
+      if (mIsCancelled) {
+         throw new SQLException("Query evaluation was cancelled", SQL_STATE_CANCELLED); //$NON-NLS-1$
+      }
+      long start = System.nanoTime();
       ResultSet rs = ps.executeQuery();
+      mMetrics.recordTime(IMetrics.EVALUATION_EXECUTE, System.nanoTime() - start);
       mResultSetsToClose.add(rs);
       return rs;
    }
 
+   @Override
+   public void cancel()
+   {
+      mIsCancelled = true;
+      List<PreparedStatement> runningStatements;
+      synchronized (mStatementsToClose) {
+         runningStatements = new ArrayList<PreparedStatement>(mStatementsToClose);
+      }
+      for (PreparedStatement ps : runningStatements) {
+         try {
+            ps.cancel();
+         }
+         catch (SQLException e) {
+            LOG.warn("Could not cancel a JDBC statement", e); //$NON-NLS-1$
+         }
+      }
+   }
+
    public void releaseResources()
    {
       Iterator<ResultSet> iter = mResultSetsToClose.iterator();
@@ -161,16 +217,37 @@ public class QueryEvaluator implements IQueryEvaluator
       }
       mResultSetsToClose.clear();
       
-      Iterator<PreparedStatement> iter2 = mStatementsToClose.iterator();
-      while (iter2.hasNext()) {
-         try {
-            closeQueryStatement(iter2.next());
+      synchronized (mStatementsToClose) {
+         Iterator<PreparedStatement> iter2 = mStatementsToClose.iterator();
+         while (iter2.hasNext()) {
+            try {
+               closeQueryStatement(iter2.next());
+            }
+            catch (SQLException e) {
+               LOG.warn("Could not close a JDBC statement", e); //$NON-NLS-1$
+            }
          }
-         catch (SQLException e) {
-            LOG.warn("Could not close a JDBC statement", e); //$NON-NLS-1$
+         mStatementsToClose.clear();
+      }
+   }
+
+   @Override
+   public void close()
+   {
+      try {
+         releaseResources();
+      }
+      finally {
+         if (mConnection != null) {
+            try {
+               mConnectionManager.releaseConnection(mConnection);
+            }
+            catch (ConnectionManagerException e) {
+               LOG.warn("Could not release a JDBC connection", e); //$NON-NLS-1$
+            }
+            mConnection = null;
          }
       }
-      mStatementsToClose.clear();
    }
 
    @Override
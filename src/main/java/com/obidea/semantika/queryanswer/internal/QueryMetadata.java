@@ -15,6 +15,7 @@
  */
 package com.obidea.semantika.queryanswer.internal;
 
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -29,10 +30,36 @@ public class QueryMetadata
    {
       mSelectNames.addAll(Arrays.asList(selectNames));
       for (int i = 0; i < selectNames.length; i++) {
-         mColumnList.add(new Column(selectNames[i], selectTypes[i]));
+         mColumnList.add(new Column(selectNames[i], selectTypes[i], i + 1, -1, null));
       }
    }
 
+   private QueryMetadata(List<String> selectNames, List<Column> columns)
+   {
+      mSelectNames.addAll(selectNames);
+      mColumnList.addAll(columns);
+   }
+
+   /**
+    * Returns a copy of this metadata for reading the SQL query of the deferred URI
+    * construction. The column at position <i>i</i> constructs its URIs from a template
+    * id followed by <code>uriArities[i-1]</code> argument columns, where the id is the
+    * index in <code>uriTemplates</code>. A negative arity means the column is read as
+    * a single SQL column.
+    */
+   public QueryMetadata deferUriConstruction(List<String> uriTemplates, int[] uriArities)
+   {
+      List<Column> columns = new ArrayList<Column>(mColumnList.size());
+      int sqlPosition = 1;
+      for (int i = 0; i < mColumnList.size(); i++) {
+         Column c = mColumnList.get(i);
+         int arity = c.isLiteral() ? -1 : uriArities[i];
+         columns.add(new Column(c.getLabel(), c.getDatatype(), sqlPosition, arity, uriTemplates));
+         sqlPosition += 1 + Math.max(arity, 0);
+      }
+      return new QueryMetadata(mSelectNames, columns);
+   }
+
    public List<String> getSelectNames()
    {
       return Collections.unmodifiableList(mSelectNames);
@@ -54,15 +81,34 @@ public class QueryMetadata
       return mSelectNames.size();
    }
 
+   /**
+    * Returns the position of the column with the given label, or 0 if there is no
+    * such column.
+    */
+   public int getPosition(String label)
+   {
+      return mSelectNames.indexOf(label) + 1;
+   }
+
    class Column
    {
       private String mLabel;
       private String mDatatype;
+      private URI mDatatypeUri;
+      private int mSqlPosition;
+      private int mUriArity;
+      private List<String> mUriTemplates;
       
-      public Column(String label, String datatype)
+      public Column(String label, String datatype, int sqlPosition, int uriArity, List<String> uriTemplates)
       {
          mLabel = label;
          mDatatype = datatype;
+         if (datatype != null) {
+            mDatatypeUri = URI.create(datatype);
+         }
+         mSqlPosition = sqlPosition;
+         mUriArity = uriArity;
+         mUriTemplates = uriTemplates;
       }
       
       public String getLabel()
@@ -74,10 +120,51 @@ public class QueryMetadata
       {
          return mDatatype;
       }
+
+      /**
+       * Returns the datatype as a URI object, which is created once for all the
+       * literal values in this column.
+       */
+      public URI getDatatypeUri()
+      {
+         return mDatatypeUri;
+      }
       
       public boolean isLiteral()
       {
          return (mDatatype != null) ? true : false;
       }
+
+      /**
+       * Returns the position of the column in the SQL result set, which differs from
+       * the column position when the preceding columns have a deferred URI
+       * construction.
+       */
+      public int getSqlPosition()
+      {
+         return mSqlPosition;
+      }
+
+      /**
+       * Returns <code>true</code> if the SQL result set gives the template id and the
+       * template arguments of the URIs instead of the URI strings.
+       */
+      public boolean isDeferredUri()
+      {
+         return mUriArity >= 0;
+      }
+
+      /**
+       * Returns the number of template argument columns that follow the template id.
+       */
+      public int getUriArity()
+      {
+         return mUriArity;
+      }
+
+      public String getUriTemplate(int templateId)
+      {
+         return mUriTemplates.get(templateId);
+      }
    }
 }
@@ -16,6 +16,8 @@
 package com.obidea.semantika.queryanswer.internal;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 public final class QueryModifiers
@@ -27,6 +29,9 @@ public final class QueryModifiers
    private int mLimit = NO_LIMIT;
    private List<String> mAscendingOrderColumns = new ArrayList<String>();
    private List<String> mDescendingOrderColumns = new ArrayList<String>();
+   private List<String> mOrderColumns = new ArrayList<String>();
+   private List<Object> mSeekValues = Collections.emptyList();
+   private QueryAggregation mAggregation = null;
 
    private boolean mIsModifiersSet = false;
 
@@ -60,6 +65,7 @@ public final class QueryModifiers
    {
       mIsModifiersSet = true;
       mAscendingOrderColumns.add(columnName);
+      mOrderColumns.add(columnName);
    }
 
    public List<String> getAscendingOrder()
@@ -71,6 +77,7 @@ public final class QueryModifiers
    {
       mIsModifiersSet = true;
       mDescendingOrderColumns.add(columnName);
+      mOrderColumns.add(columnName);
    }
 
    public List<String> getDescendingOrder()
@@ -78,6 +85,59 @@ public final class QueryModifiers
       return mDescendingOrderColumns;
    }
 
+   /**
+    * Returns all the order columns following the order in which they were set.
+    */
+   public List<String> getOrderColumns()
+   {
+      return mOrderColumns;
+   }
+
+   public boolean isDescendingOrder(String columnName)
+   {
+      return mDescendingOrderColumns.contains(columnName);
+   }
+
+   /**
+    * Sets the values of the order columns of the last row that was read, such that
+    * the query returns only the rows that come after that row in the ordering (i.e.,
+    * keyset pagination).
+    */
+   public void setSeekValues(Object... values)
+   {
+      mIsModifiersSet = true;
+      mSeekValues = Collections.unmodifiableList(new ArrayList<Object>(Arrays.asList(values)));
+   }
+
+   public List<Object> getSeekValues()
+   {
+      return mSeekValues;
+   }
+
+   public boolean hasSeek()
+   {
+      return !mSeekValues.isEmpty();
+   }
+
+   /**
+    * Sets the GROUP BY and the aggregate functions that apply to the query answer.
+    */
+   public void setAggregation(QueryAggregation aggregation)
+   {
+      mIsModifiersSet = true;
+      mAggregation = aggregation;
+   }
+
+   public QueryAggregation getAggregation()
+   {
+      return mAggregation;
+   }
+
+   public boolean hasAggregation()
+   {
+      return mAggregation != null;
+   }
+
    public boolean isSet()
    {
       return mIsModifiersSet;
@@ -95,5 +155,8 @@ public final class QueryModifiers
       mLimit = NO_LIMIT;
       mAscendingOrderColumns = new ArrayList<String>();
       mDescendingOrderColumns = new ArrayList<String>();
+      mOrderColumns = new ArrayList<String>();
+      mSeekValues = Collections.emptyList();
+      mAggregation = null;
    }
 }
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.queryanswer.internal;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+public final class QueryParameters
+{
+   private Map<String, Object> mParameterValues = new HashMap<String, Object>();
+
+   public void setValue(String name, Object value)
+   {
+      mParameterValues.put(name, value);
+   }
+
+   public Object getValue(String name)
+   {
+      return mParameterValues.get(name);
+   }
+
+   public boolean contains(String name)
+   {
+      return mParameterValues.containsKey(name);
+   }
+
+   public Set<String> getNames()
+   {
+      return Collections.unmodifiableSet(mParameterValues.keySet());
+   }
+
+   public boolean isSet()
+   {
+      return !mParameterValues.isEmpty();
+   }
+
+   public void clear()
+   {
+      mParameterValues.clear();
+   }
+}
@@ -15,24 +15,212 @@
  */
 package com.obidea.semantika.queryanswer.internal;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.obidea.semantika.metrics.IMetrics;
 import com.obidea.semantika.queryanswer.AbstractQueryEngine;
+import com.obidea.semantika.queryanswer.internal.QueryAggregation.SelectItem;
 import com.obidea.semantika.queryanswer.result.IQueryResult;
+import com.obidea.semantika.queryanswer.result.IQueryResultHandler;
 
 public class QueryPlan
 {
+   /**
+    * The estimated cost of keeping a single UNION branch in memory, expressed in the
+    * same unit as the SQL string length.
+    */
+   private static final int UNION_BRANCH_WEIGHT = 64;
+
    private String mQueryString;
 
+   private QueryPlanKey mQueryPlanKey;
+
+   /*
+    * The key of the query that was given to the translator.
+    */
+   private QueryPlanKey mTranslatorKey;
+
    private QueryTranslator mTranslator;
 
-   public QueryPlan(String queryString, AbstractQueryEngine queryEngine) throws QueryTranslationException
+   /*
+    * Maps the variable names used by the translator to the variable names used by
+    * this query. The map is null if both use the same names.
+    */
+   private Map<String, String> mVariableNames;
+
+   private QueryMetadata mQueryMetadata;
+
+   public QueryPlan(String queryString, QueryPlanKey queryPlanKey, Set<String> parameterNames,
+         AbstractQueryEngine queryEngine) throws QueryTranslationException
+   {
+      this(queryString, queryPlanKey, parameterNames, queryEngine, queryEngine.getMetrics());
+   }
+
+   /**
+    * Translates the query plan and records the time of each translation stage to the
+    * given metrics.
+    */
+   public QueryPlan(String queryString, QueryPlanKey queryPlanKey, Set<String> parameterNames,
+         AbstractQueryEngine queryEngine, IMetrics metrics) throws QueryTranslationException
    {
       mQueryString = queryString;
-      mTranslator = new QueryTranslator(queryString, queryEngine);
+      mQueryPlanKey = queryPlanKey;
+      mTranslatorKey = queryPlanKey;
+      mTranslator = new QueryTranslator(queryString, parameterNames, queryEngine, metrics);
+      mQueryMetadata = mTranslator.getQueryMetadata();
+   }
+
+   /**
+    * Creates the query plan from a translation that was done earlier.
+    */
+   public QueryPlan(String queryString, QueryPlanKey queryPlanKey, QueryTranslator translator)
+   {
+      mQueryString = queryString;
+      mQueryPlanKey = queryPlanKey;
+      mTranslatorKey = queryPlanKey;
+      mTranslator = translator;
+      mQueryMetadata = mTranslator.getQueryMetadata();
+   }
+
+   /*
+    * Creates a query plan that shares the translation of the <code>source</code> plan
+    * for a query that has the same key but uses different variable names.
+    */
+   private QueryPlan(QueryPlan source, String queryString, QueryPlanKey queryPlanKey)
+   {
+      mQueryString = queryString;
+      mQueryPlanKey = queryPlanKey;
+      mTranslatorKey = source.mTranslatorKey;
+      mTranslator = source.mTranslator;
+      mVariableNames = new HashMap<String, String>();
+      for (String name : source.mTranslator.getQueryMetadata().getSelectNames()) {
+         mVariableNames.put(name, source.rename(name, queryPlanKey));
+      }
+      for (String name : source.mTranslator.getParameterNames()) {
+         mVariableNames.put(name, source.rename(name, queryPlanKey));
+      }
+      mQueryMetadata = renameMetadata(mTranslator.getQueryMetadata());
+   }
+
+   /**
+    * Returns this query plan for the given query which has the same key as this plan.
+    * The returned plan uses the variable names of the given query for the projection
+    * labels, the query modifiers and the query parameters.
+    */
+   public QueryPlan forQuery(String queryString, QueryPlanKey queryPlanKey)
+   {
+      if (mQueryString.equals(queryString)) {
+         return this;
+      }
+      if (mTranslatorKey.hasSameNames(queryPlanKey)) {
+         return (mVariableNames == null) ? this : new QueryPlan(queryString, mTranslatorKey, mTranslator);
+      }
+      return new QueryPlan(this, queryString, queryPlanKey);
+   }
+
+   private String rename(String name, QueryPlanKey target)
+   {
+      String targetName = target.getOriginalName(mTranslatorKey.getCanonicalName(name));
+      return (targetName != null) ? targetName : name;
+   }
+
+   private String toTranslatorName(String name)
+   {
+      if (mVariableNames != null) {
+         for (Map.Entry<String, String> mapEntry : mVariableNames.entrySet()) {
+            if (mapEntry.getValue().equals(name)) {
+               return mapEntry.getKey();
+            }
+         }
+      }
+      return name;
+   }
+
+   private String toQueryName(String name)
+   {
+      if (mVariableNames != null && mVariableNames.containsKey(name)) {
+         return mVariableNames.get(name);
+      }
+      return name;
+   }
+
+   private QueryMetadata renameMetadata(QueryMetadata metadata)
+   {
+      int size = metadata.size();
+      String[] selectNames = new String[size];
+      String[] selectTypes = new String[size];
+      for (int i = 0; i < size; i++) {
+         selectNames[i] = toQueryName(metadata.getColumn(i + 1).getLabel());
+         selectTypes[i] = metadata.getColumn(i + 1).getDatatype();
+      }
+      return new QueryMetadata(selectNames, selectTypes);
+   }
+
+   private QueryModifiers renameModifiers(QueryModifiers modifiers)
+   {
+      QueryModifiers renamed = new QueryModifiers();
+      renamed.setLimit(modifiers.getLimit());
+      renamed.setOffset(modifiers.getOffset());
+      for (String column : modifiers.getOrderColumns()) {
+         if (modifiers.isDescendingOrder(column)) {
+            renamed.setDescendingOrder(toTranslatorName(column));
+         }
+         else {
+            renamed.setAscendingOrder(toTranslatorName(column));
+         }
+      }
+      if (modifiers.hasSeek()) {
+         renamed.setSeekValues(modifiers.getSeekValues().toArray());
+      }
+      if (modifiers.hasAggregation()) {
+         renamed.setAggregation(renameAggregation(modifiers.getAggregation()));
+      }
+      return renamed;
+   }
+
+   private QueryAggregation renameAggregation(QueryAggregation aggregation)
+   {
+      QueryAggregation renamed = new QueryAggregation();
+      for (String column : aggregation.getGroupColumns()) {
+         renamed.addGroupColumn(toTranslatorName(column));
+      }
+      for (SelectItem selectItem : aggregation.getSelectItems()) {
+         String argument = (selectItem.getArgument() == null) ? null : toTranslatorName(selectItem.getArgument());
+         if (selectItem.isAggregate()) {
+            renamed.addSelectAggregate(selectItem.getLabel(), selectItem.getFunction(), argument,
+                  selectItem.isDistinct());
+         }
+         else {
+            renamed.addSelectColumn(argument);
+         }
+      }
+      return renamed;
+   }
+
+   private QueryParameters renameParameters(QueryParameters parameters)
+   {
+      QueryParameters renamed = new QueryParameters();
+      for (String name : mTranslator.getParameterNames()) {
+         String queryName = toQueryName(name);
+         if (parameters.contains(queryName)) {
+            renamed.setValue(name, parameters.getValue(queryName));
+         }
+      }
+      return renamed;
+   }
+
+   public QueryPlanKey getQueryPlanKey()
+   {
+      return mQueryPlanKey;
    }
 
    public QueryMetadata getQueryMetadata()
    {
-      return mTranslator.getQueryMetadata();
+      return mQueryMetadata;
    }
 
    public String getQueryString()
@@ -40,14 +228,113 @@ public class QueryPlan
       return mQueryString;
    }
 
+   /**
+    * Returns <code>true</code> if the query has GROUP BY or aggregate functions.
+    */
+   public boolean hasAggregation()
+   {
+      return mTranslator.hasAggregation();
+   }
+
+   /**
+    * Returns the SQL string. The SQL column labels follow the variable names of the
+    * query that was translated, which can differ from the variable names of this query.
+    */
    public String getSqlString()
    {
       return mTranslator.getSqlString();
    }
 
+   /**
+    * Returns the parameter names in the order of the bind variables in the SQL string.
+    */
+   public List<String> getParameterNames()
+   {
+      List<String> parameterNames = new ArrayList<String>();
+      for (String name : mTranslator.getParameterNames()) {
+         parameterNames.add(toQueryName(name));
+      }
+      return parameterNames;
+   }
+
+   /**
+    * Returns the SQL queries of the UNION. Like the SQL string, the column labels and
+    * the parameter names follow the variable names of the query that was translated.
+    */
+   public List<UnionBranch> getUnionBranches()
+   {
+      return mTranslator.getUnionBranches();
+   }
+
+   public int getUnionWidth()
+   {
+      return mTranslator.getUnionWidth();
+   }
+
+   /**
+    * Returns <code>true</code> if the SQL queries of the UNION are joined by UNION ALL.
+    */
+   public boolean isUnionAll()
+   {
+      return mTranslator.isUnionAll();
+   }
+
+   /**
+    * Returns the URI templates of the deferred URI construction, where the position of
+    * a template is its id in the SQL result set.
+    */
+   public List<String> getUriTemplates()
+   {
+      return mTranslator.getUriTemplates();
+   }
+
+   /**
+    * Returns the number of template arguments of each select item in the deferred URI
+    * construction, or <code>null</code> if the URIs are constructed by the database.
+    */
+   public int[] getUriArities()
+   {
+      return mTranslator.getUriArities();
+   }
+
+   /**
+    * Returns the estimated in-memory weight of this plan which is used by the plan
+    * cache to decide the eviction.
+    */
+   public long getWeight()
+   {
+      return getSqlString().length() + (long) getUnionWidth() * UNION_BRANCH_WEIGHT;
+   }
+
    public IQueryResult evaluateQuery(QueryModifiers modifiers, UserStatementSettings userSettings)
          throws QueryEvaluationException
    {
-      return mTranslator.evaluate(modifiers, userSettings);
+      return evaluateQuery(new QueryParameters(), modifiers, userSettings);
+   }
+
+   public IQueryResult evaluateQuery(QueryParameters parameters, QueryModifiers modifiers,
+         UserStatementSettings userSettings) throws QueryEvaluationException
+   {
+      if (mVariableNames == null) {
+         return mTranslator.evaluate(parameters, modifiers, userSettings);
+      }
+      return mTranslator.evaluate(renameParameters(parameters), renameModifiers(modifiers), userSettings,
+            mQueryMetadata);
+   }
+
+   /**
+    * Evaluates the query and pushes each row to the <code>handler</code> directly from
+    * the database fetch loop.
+    */
+   public void evaluateQuery(QueryParameters parameters, QueryModifiers modifiers, UserStatementSettings userSettings,
+         IQueryResultHandler handler) throws QueryEvaluationException
+   {
+      if (mVariableNames == null) {
+         mTranslator.evaluate(parameters, modifiers, userSettings, mQueryMetadata, handler);
+      }
+      else {
+         mTranslator.evaluate(renameParameters(parameters), renameModifiers(modifiers), userSettings,
+               mQueryMetadata, handler);
+      }
    }
 }
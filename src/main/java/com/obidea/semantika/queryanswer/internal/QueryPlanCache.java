@@ -15,27 +15,231 @@
  */
 package com.obidea.semantika.queryanswer.internal;
 
+import java.io.File;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import com.obidea.semantika.exception.SemantikaRuntimeException;
+import com.obidea.semantika.metrics.IMetrics;
 import com.obidea.semantika.queryanswer.SparqlQueryEngine;
-import com.obidea.semantika.util.SoftMruCache;
+import com.obidea.semantika.util.CacheStatistics;
+import com.obidea.semantika.util.WeightedMruCache;
 
 public class QueryPlanCache
 {
+   /**
+    * The maximum total length of the canonical keys that are remembered for the
+    * recent query strings.
+    */
+   public static final long QUERY_KEY_CACHE_MAX_WEIGHT = 1024 * 1024;
+
    private SparqlQueryEngine mQueryEngine;
 
-   private final SoftMruCache mQueryPlanCache = new SoftMruCache();
+   private final WeightedMruCache<QueryPlanKey, QueryPlan> mQueryPlanCache;
+
+   /*
+    * The keys of the recent query strings, so that a query string that was seen
+    * before is not parsed again to compute its canonical key.
+    */
+   private final WeightedMruCache<QueryString, QueryPlanKey> mQueryKeyCache;
+
+   private QueryPlanStore mQueryPlanStore;
 
    public QueryPlanCache(SparqlQueryEngine queryEngine)
+   {
+      this(queryEngine, queryEngine.getSystemProperties().getQueryPlanCacheMaxWeight());
+      File directory = queryEngine.getSystemProperties().getQueryPlanCacheDirectory();
+      if (directory != null) {
+         mQueryPlanStore = QueryPlanStore.create(directory, queryEngine);
+      }
+   }
+
+   public QueryPlanCache(SparqlQueryEngine queryEngine, long maxWeight)
    {
       mQueryEngine = queryEngine;
+      mQueryPlanCache = new WeightedMruCache<QueryPlanKey, QueryPlan>(maxWeight, new WeightedMruCache.IWeigher<QueryPlan>()
+      {
+         @Override
+         public long weigh(QueryPlan plan)
+         {
+            return plan.getWeight();
+         }
+      });
+      mQueryKeyCache = new WeightedMruCache<QueryString, QueryPlanKey>(QUERY_KEY_CACHE_MAX_WEIGHT, new WeightedMruCache.IWeigher<QueryPlanKey>()
+      {
+         @Override
+         public long weigh(QueryPlanKey key)
+         {
+            return key.toString().length();
+         }
+      });
+   }
+
+   /**
+    * Returns the query plan of the given query string. The query is translated only
+    * once even if several threads ask for the same query plan at the same time.
+    */
+   public QueryPlan getQueryPlan(final String queryString) throws QueryTranslationException
+   {
+      return getQueryPlan(queryString, Collections.<String>emptySet());
+   }
+
+   /**
+    * Returns the query plan of the given query string where the variables listed in
+    * <code>parameterNames</code> are translated as bind variables. The same query string
+    * with a different set of parameter names produces a different query plan.
+    * <p>
+    * The cache is keyed by the canonical form of the parsed query, therefore queries
+    * that differ only in formatting, prefix declarations, variable names or pattern
+    * order share the same query plan. The returned plan is remapped to the variable
+    * names of the given query.
+    */
+   public QueryPlan getQueryPlan(final String queryString, final Set<String> parameterNames)
+         throws QueryTranslationException
+   {
+      return getQueryPlan(queryString, parameterNames, mQueryEngine.getMetrics());
+   }
+
+   /**
+    * Returns the query plan like {@link #getQueryPlan(String, Set)} and records the
+    * cache hit or miss, and the translation stages if the query is translated, to the
+    * given metrics.
+    */
+   public QueryPlan getQueryPlan(final String queryString, final Set<String> parameterNames, final IMetrics metrics)
+         throws QueryTranslationException
+   {
+      final QueryPlanKey key = getQueryPlanKey(queryString, parameterNames);
+      final boolean[] loaded = new boolean[] { false };
+      long start = System.nanoTime();
+      try {
+         QueryPlan plan = mQueryPlanCache.get(key, new Callable<QueryPlan>()
+         {
+            @Override
+            public QueryPlan call() throws QueryTranslationException
+            {
+               loaded[0] = true;
+               if (mQueryPlanStore != null) {
+                  QueryPlan storedPlan = mQueryPlanStore.get(key, mQueryEngine);
+                  if (storedPlan != null) {
+                     return storedPlan;
+                  }
+               }
+               QueryPlan plan = new QueryPlan(queryString, key, parameterNames, mQueryEngine, metrics);
+               if (mQueryPlanStore != null) {
+                  mQueryPlanStore.put(plan);
+               }
+               return plan;
+            }
+         });
+         metrics.recordTime(IMetrics.PLAN_CACHE_LOOKUP, System.nanoTime() - start);
+         metrics.incrementCounter(loaded[0] ? IMetrics.PLAN_CACHE_MISS : IMetrics.PLAN_CACHE_HIT, 1);
+         return plan.forQuery(queryString, key);
+      }
+      catch (ExecutionException e) {
+         Throwable cause = e.getCause();
+         if (cause instanceof QueryTranslationException) {
+            throw (QueryTranslationException) cause;
+         }
+         else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+         }
+         else if (cause instanceof Error) {
+            throw (Error) cause;
+         }
+         throw new SemantikaRuntimeException("Failed to obtain query plan", cause); //$NON-NLS-1$
+      }
+   }
+
+   /*
+    * Returns the canonical key of the query string. The query is parsed only when the
+    * same string with the same parameter names is not found in the key cache.
+    */
+   private QueryPlanKey getQueryPlanKey(final String queryString, final Set<String> parameterNames)
+         throws QueryTranslationException
+   {
+      try {
+         return mQueryKeyCache.get(new QueryString(queryString, parameterNames), new Callable<QueryPlanKey>()
+         {
+            @Override
+            public QueryPlanKey call() throws QueryTranslationException
+            {
+               return QueryPlanKey.create(queryString, parameterNames);
+            }
+         });
+      }
+      catch (ExecutionException e) {
+         Throwable cause = e.getCause();
+         if (cause instanceof QueryTranslationException) {
+            throw (QueryTranslationException) cause;
+         }
+         else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+         }
+         else if (cause instanceof Error) {
+            throw (Error) cause;
+         }
+         throw new SemantikaRuntimeException("Failed to obtain query plan key", cause); //$NON-NLS-1$
+      }
+   }
+
+   /**
+    * Removes all the cached query plans, including the plans stored on the disk.
+    */
+   public void clear()
+   {
+      mQueryPlanCache.clear();
+      mQueryKeyCache.clear();
+      if (mQueryPlanStore != null) {
+         mQueryPlanStore.clear();
+      }
    }
 
-   public QueryPlan getQueryPlan(String queryString) throws QueryTranslationException
+   /**
+    * Returns the hit, miss, load-time and eviction counters of this cache.
+    */
+   public CacheStatistics getStatistics()
    {
-      QueryPlan plan = (QueryPlan) mQueryPlanCache.get(queryString);
-      if (plan == null) {
-         plan = new QueryPlan(queryString, mQueryEngine);
+      return mQueryPlanCache.getStatistics();
+   }
+
+   /**
+    * The query string together with the names of its parameters, which both decide
+    * the query plan key.
+    */
+   private static class QueryString
+   {
+      private final String mQuery;
+      private final Set<String> mParameterNames;
+
+      public QueryString(String query, Set<String> parameterNames)
+      {
+         mQuery = query;
+         mParameterNames = new HashSet<String>(parameterNames);
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return 31 * mQuery.hashCode() + mParameterNames.hashCode();
+      }
+
+      @Override
+      public boolean equals(Object obj)
+      {
+         if (this == obj) {
+            return true;
+         }
+         if (obj == null) {
+            return false;
+         }
+         if (getClass() != obj.getClass()) {
+            return false;
+         }
+         final QueryString other = (QueryString) obj;
+         return mQuery.equals(other.mQuery) && mParameterNames.equals(other.mParameterNames);
       }
-      mQueryPlanCache.put(queryString, plan);
-      return plan;
    }
 }
@@ -0,0 +1,403 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.queryanswer.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.obidea.semantika.expression.base.IAtom;
+import com.obidea.semantika.expression.base.IConstant;
+import com.obidea.semantika.expression.base.IFunction;
+import com.obidea.semantika.expression.base.ILiteral;
+import com.obidea.semantika.expression.base.IQueryExt;
+import com.obidea.semantika.expression.base.ITerm;
+import com.obidea.semantika.expression.base.IUriReference;
+import com.obidea.semantika.expression.base.IVariable;
+import com.obidea.semantika.expression.base.Join;
+import com.obidea.semantika.expression.base.Parameter;
+import com.obidea.semantika.expression.base.QuerySet;
+import com.obidea.semantika.queryanswer.parser.SparqlFactory;
+import com.obidea.semantika.queryanswer.parser.SparqlParser;
+import com.obidea.semantika.queryanswer.parser.SparqlParserException;
+import com.obidea.semantika.util.StringUtils;
+
+/**
+ * The query plan cache key. The key is produced from the parsed query object rather
+ * than from the query string such that queries that differ only in whitespace, prefix
+ * declarations, variable names or the order of the triple patterns share the same key.
+ * <p>
+ * The canonical form renames the variables to <code>v0</code>, <code>v1</code>, etc.,
+ * starting from the projection, and sorts the operands of every inner join and the
+ * filters by their shape (i.e., the expression string where the variables are left
+ * unnamed). The branches of a UNION query are sorted in the same way. The key keeps
+ * the mapping between the original variable names and the canonical names such that a
+ * query plan can be remapped to the variable names of another query that has the same
+ * key.
+ * <p>
+ * An aggregate query is translated into the SQL query that selects its group variables
+ * and body variables, which can be the same SQL query as the one of a plain query.
+ * The key therefore ends with the GROUP BY variables of an aggregate query, so that
+ * the two queries never share a plan.
+ */
+public final class QueryPlanKey
+{
+   private static final String ANONYMOUS = "?"; //$NON-NLS-1$
+
+   private final String mKey;
+
+   private final Map<String, String> mCanonicalNames;
+   private final Map<String, String> mOriginalNames;
+
+   private QueryPlanKey(String key, Map<String, String> canonicalNames)
+   {
+      mKey = key;
+      mCanonicalNames = canonicalNames;
+      mOriginalNames = new HashMap<String, String>();
+      for (Map.Entry<String, String> mapEntry : canonicalNames.entrySet()) {
+         mOriginalNames.put(mapEntry.getValue(), mapEntry.getKey());
+      }
+   }
+
+   /**
+    * Creates the key of the given query string where the variables listed in
+    * <code>parameterNames</code> are query parameters.
+    *
+    * @throws QueryTranslationException
+    *            if the query string is not a valid or supported SPARQL query.
+    */
+   public static QueryPlanKey create(String queryString, Set<String> parameterNames) throws QueryTranslationException
+   {
+      try {
+         SparqlParser parser = new SparqlParser(parameterNames);
+         QuerySet<IQueryExt> querySet = SparqlFactory.create(queryString, parser);
+         CanonicalPrinter printer = new CanonicalPrinter();
+         StringBuilder key = new StringBuilder(printer.print(querySet.getAll()));
+         if (parser.hasAggregation()) {
+            key.append(" GROUP BY "); //$NON-NLS-1$
+            key.append(printer.printVariables(parser.getGroupVariables()));
+         }
+         return new QueryPlanKey(key.toString(), printer.getCanonicalNames());
+      }
+      catch (SparqlParserException e) {
+         throw new QueryTranslationException("Exception while parsing input query:\n" + queryString, e); //$NON-NLS-1$
+      }
+   }
+
+   /*
+    * Restores the key that was previously stored by the query plan store.
+    */
+   /* package */
+   static QueryPlanKey restore(String key, Map<String, String> canonicalNames)
+   {
+      return new QueryPlanKey(key, new HashMap<String, String>(canonicalNames));
+   }
+
+   /* package */
+   Map<String, String> getCanonicalNames()
+   {
+      return Collections.unmodifiableMap(mCanonicalNames);
+   }
+
+   /**
+    * Returns the canonical name of the given variable (or parameter) name, or
+    * <code>null</code> if the name does not appear in the query.
+    */
+   public String getCanonicalName(String name)
+   {
+      return mCanonicalNames.get(name);
+   }
+
+   /**
+    * Returns the variable (or parameter) name in the query that has the given
+    * canonical name, or <code>null</code> if there is no such name.
+    */
+   public String getOriginalName(String canonicalName)
+   {
+      return mOriginalNames.get(canonicalName);
+   }
+
+   /**
+    * Returns <code>true</code> if the variable names in the query are the same as the
+    * variable names in the query of the <code>other</code> key.
+    */
+   public boolean hasSameNames(QueryPlanKey other)
+   {
+      return mCanonicalNames.equals(other.mCanonicalNames);
+   }
+
+   @Override
+   public int hashCode()
+   {
+      return mKey.hashCode();
+   }
+
+   @Override
+   public boolean equals(Object obj)
+   {
+      if (this == obj) {
+         return true;
+      }
+      if (obj == null) {
+         return false;
+      }
+      if (getClass() != obj.getClass()) {
+         return false;
+      }
+      final QueryPlanKey other = (QueryPlanKey) obj;
+      return mKey.equals(other.mKey);
+   }
+
+   @Override
+   public String toString()
+   {
+      return mKey;
+   }
+
+   /**
+    * Prints the query object in its canonical form.
+    */
+   private static class CanonicalPrinter
+   {
+      private Map<String, String> mCanonicalNames = new HashMap<String, String>();
+
+      /*
+       * The UNION branches are printed in the order of their shape, where the shape of
+       * a branch is its canonical form printed on its own.
+       */
+      public String print(Collection<IQueryExt> queries)
+      {
+         List<IQueryExt> branches = new ArrayList<IQueryExt>(queries);
+         final List<String> shapes = new ArrayList<String>();
+         for (IQueryExt query : branches) {
+            shapes.add(new CanonicalPrinter().print(query));
+         }
+         StringBuilder sb = new StringBuilder();
+         boolean needUnion = false;
+         for (Integer index : sortedOrder(shapes)) {
+            if (needUnion) {
+               sb.append(" UNION "); //$NON-NLS-1$
+            }
+            sb.append(print(branches.get(index)));
+            needUnion = true;
+         }
+         return sb.toString();
+      }
+
+      public String print(IQueryExt query)
+      {
+         StringBuilder sb = new StringBuilder();
+         if (query.isDistinct()) {
+            sb.append("DISTINCT "); //$NON-NLS-1$
+         }
+         /*
+          * Print the projection first so that the canonical names follow the
+          * projection order.
+          */
+         sb.append(print(query.getHead(), false));
+         sb.append(" :- "); //$NON-NLS-1$
+         sb.append(printConjunction(query.getBody(), false));
+         if (query.hasFilter()) {
+            sb.append(" FILTER "); //$NON-NLS-1$
+            sb.append(printSorted(new ArrayList<ITerm>(query.getFilters())));
+         }
+         return sb.toString();
+      }
+
+      public String printVariables(List<String> names)
+      {
+         List<String> printed = new ArrayList<String>();
+         for (String name : names) {
+            printed.add("?" + name(name, false)); //$NON-NLS-1$
+         }
+         return printed.toString();
+      }
+
+      public Map<String, String> getCanonicalNames()
+      {
+         return mCanonicalNames;
+      }
+
+      private String printConjunction(List<? extends IAtom> atoms, boolean anonymous)
+      {
+         List<IAtom> operands = new ArrayList<IAtom>();
+         for (IAtom atom : atoms) {
+            collectJoinOperands(atom, operands);
+         }
+         final List<String> shapes = new ArrayList<String>();
+         for (IAtom operand : operands) {
+            shapes.add(print(operand, true));
+         }
+         List<Integer> order = sortedOrder(shapes);
+         StringBuilder sb = new StringBuilder("AND("); //$NON-NLS-1$
+         boolean needComma = false;
+         for (Integer index : order) {
+            if (needComma) {
+               sb.append(", "); //$NON-NLS-1$
+            }
+            sb.append(print(operands.get(index), anonymous));
+            needComma = true;
+         }
+         sb.append(")"); //$NON-NLS-1$
+         return sb.toString();
+      }
+
+      private String printSorted(List<ITerm> terms)
+      {
+         final List<String> shapes = new ArrayList<String>();
+         for (ITerm term : terms) {
+            shapes.add(print(term, true));
+         }
+         List<Integer> order = sortedOrder(shapes);
+         List<String> printed = new ArrayList<String>();
+         for (Integer index : order) {
+            printed.add(print(terms.get(index), false));
+         }
+         /*
+          * Sort again after naming the variables to settle the operands that have
+          * the same shape.
+          */
+         Collections.sort(printed);
+         return printed.toString();
+      }
+
+      /*
+       * Inner joins are associative and commutative, so a tree of inner joins is
+       * flattened into a list of operands.
+       */
+      private static void collectJoinOperands(IAtom atom, List<IAtom> operands)
+      {
+         if (atom instanceof Join && ((Join) atom).isInnerJoin() && !((Join) atom).hasFilter()) {
+            Join join = (Join) atom;
+            collectJoinOperands(join.getLeftExpression(), operands);
+            collectJoinOperands(join.getRightExpression(), operands);
+         }
+         else {
+            operands.add(atom);
+         }
+      }
+
+      private static List<Integer> sortedOrder(final List<String> shapes)
+      {
+         List<Integer> order = new ArrayList<Integer>();
+         for (int i = 0; i < shapes.size(); i++) {
+            order.add(i);
+         }
+         Collections.sort(order, new Comparator<Integer>()
+         {
+            @Override
+            public int compare(Integer i1, Integer i2)
+            {
+               return shapes.get(i1).compareTo(shapes.get(i2));
+            }
+         });
+         return order;
+      }
+
+      private String print(IAtom atom, boolean anonymous)
+      {
+         if (atom instanceof Join) {
+            Join join = (Join) atom;
+            if (join.isInnerJoin() && !join.hasFilter()) {
+               return printConjunction(Collections.singletonList(join), anonymous);
+            }
+            StringBuilder sb = new StringBuilder();
+            sb.append(join.getName()).append("("); //$NON-NLS-1$
+            sb.append(print(join.getLeftExpression(), anonymous));
+            sb.append(", "); //$NON-NLS-1$
+            sb.append(print(join.getRightExpression(), anonymous));
+            if (join.hasFilter()) {
+               sb.append(", "); //$NON-NLS-1$
+               sb.append(print(join.getFilter(), anonymous));
+            }
+            sb.append(")"); //$NON-NLS-1$
+            return sb.toString();
+         }
+         StringBuilder sb = new StringBuilder();
+         sb.append(atom.getPredicate()).append("("); //$NON-NLS-1$
+         boolean needComma = false;
+         for (ITerm term : atom.getTerms()) {
+            if (needComma) {
+               sb.append(", "); //$NON-NLS-1$
+            }
+            sb.append(print(term, anonymous));
+            needComma = true;
+         }
+         sb.append(")"); //$NON-NLS-1$
+         return sb.toString();
+      }
+
+      private String print(ITerm term, boolean anonymous)
+      {
+         if (term instanceof IVariable) {
+            return "?" + name(term.getName(), anonymous); //$NON-NLS-1$
+         }
+         else if (term instanceof Parameter) {
+            return "$" + name(((Parameter) term).getParameterName(), anonymous); //$NON-NLS-1$
+         }
+         else if (term instanceof ILiteral) {
+            ILiteral literal = (ILiteral) term;
+            StringBuilder sb = new StringBuilder();
+            sb.append("\"").append(literal.getLexicalValue()).append("\""); //$NON-NLS-1$ //$NON-NLS-2$
+            if (!StringUtils.isEmpty(literal.getLanguageTag())) {
+               sb.append("@").append(literal.getLanguageTag()); //$NON-NLS-1$
+            }
+            sb.append("^^").append(literal.getDatatype()); //$NON-NLS-1$
+            return sb.toString();
+         }
+         else if (term instanceof IUriReference) {
+            return "<" + ((IUriReference) term).getLexicalValue() + ">"; //$NON-NLS-1$ //$NON-NLS-2$
+         }
+         else if (term instanceof IConstant) {
+            return "\"" + ((IConstant) term).getLexicalValue() + "\""; //$NON-NLS-1$ //$NON-NLS-2$
+         }
+         else if (term instanceof IFunction) {
+            IFunction function = (IFunction) term;
+            StringBuilder sb = new StringBuilder();
+            sb.append(function.getName()).append("("); //$NON-NLS-1$
+            boolean needComma = false;
+            for (ITerm parameter : function.getParameters()) {
+               if (needComma) {
+                  sb.append(", "); //$NON-NLS-1$
+               }
+               sb.append(print(parameter, anonymous));
+               needComma = true;
+            }
+            sb.append(")"); //$NON-NLS-1$
+            return sb.toString();
+         }
+         return term.toString();
+      }
+
+      private String name(String originalName, boolean anonymous)
+      {
+         if (anonymous) {
+            return ANONYMOUS;
+         }
+         String canonicalName = mCanonicalNames.get(originalName);
+         if (canonicalName == null) {
+            canonicalName = "v" + mCanonicalNames.size(); //$NON-NLS-1$
+            mCanonicalNames.put(originalName, canonicalName);
+         }
+         return canonicalName;
+      }
+   }
+}
@@ -0,0 +1,745 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.queryanswer.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.slf4j.Logger;
+
+import com.obidea.semantika.app.Environment;
+import com.obidea.semantika.database.IDatabase;
+import com.obidea.semantika.knowledgebase.model.IKnowledgeBase;
+import com.obidea.semantika.mapping.MappingPrinter;
+import com.obidea.semantika.mapping.base.IMapping;
+import com.obidea.semantika.ontology.IOntology;
+import com.obidea.semantika.ontology.owlapi.AbstractOwlOntology;
+import com.obidea.semantika.queryanswer.AbstractQueryEngine;
+import com.obidea.semantika.queryanswer.internal.UnionBranch.SelectColumn;
+import com.obidea.semantika.util.DigestUtils;
+import com.obidea.semantika.util.LogUtils;
+import com.obidea.semantika.util.StringUtils;
+
+/**
+ * Stores the translated query plans in a local file such that the query plan cache
+ * does not start cold after the application restarts.
+ * <p>
+ * The file name contains the application name and the digest of the knowledge base
+ * (i.e., the ontology, the mapping set and the database dialect). A stored plan is
+ * therefore used only when the knowledge base is the same as when the plan was
+ * translated. When the store is loaded, the files of the same application that
+ * belong to a different digest are deleted, while the files of other applications
+ * sharing the directory are left untouched. The file is indexed lazily on the first
+ * lookup and each new plan is appended at the end of the file.
+ * <p>
+ * Only the keys and the file positions of the stored plans are kept in memory, and a
+ * plan is read from the file when it is asked for. The file stops growing once it
+ * reaches {@link #MAX_FILE_LENGTH}. The store lock is held only to read or append a
+ * single record, while a plan is serialized and restored outside of it.
+ */
+public class QueryPlanStore
+{
+   private static final String FILE_PREFIX = "query-plans-"; //$NON-NLS-1$
+   private static final String FILE_SUFFIX = ".dat"; //$NON-NLS-1$
+   private static final String TEMP_SUFFIX = ".tmp"; //$NON-NLS-1$
+
+   /**
+    * The maximum length of the store file in bytes.
+    */
+   public static final long MAX_FILE_LENGTH = 16 * 1024 * 1024;
+
+   private static final int MAGIC_NUMBER = 0x53514C50; // "SQLP"
+   private static final int FORMAT_VERSION = 9;
+
+   private static final Logger LOG = LogUtils.createLogger("semantika.queryanswer"); //$NON-NLS-1$
+
+   private final File mDirectory;
+   private final File mStoreFile;
+   private final String mFilePrefix;
+
+   /*
+    * The position of each stored plan in the store file. Only the keys and the
+    * positions are kept in memory, the plans are read from the file when asked for.
+    */
+   private Map<QueryPlanKey, Long> mRecordPositions;
+
+   private long mFileLength;
+
+   public QueryPlanStore(File directory, String storeName, String digest)
+   {
+      mDirectory = directory;
+      mFilePrefix = FILE_PREFIX + toFileName(storeName) + "-"; //$NON-NLS-1$
+      mStoreFile = new File(directory, mFilePrefix + digest + FILE_SUFFIX);
+   }
+
+   /**
+    * Creates the store for the knowledge base of the given query engine. The store is
+    * named after the application so that applications sharing the same directory do
+    * not remove each other's files.
+    */
+   public static QueryPlanStore create(File directory, AbstractQueryEngine queryEngine)
+   {
+      return new QueryPlanStore(directory, queryEngine.getSystemProperties().getApplicationName(),
+            digest(queryEngine.getKnowledgeBase(), queryEngine.getTargetDatabase()));
+   }
+
+   private static String toFileName(String name)
+   {
+      return name.replaceAll("[^A-Za-z0-9_.]", "_"); //$NON-NLS-1$ //$NON-NLS-2$
+   }
+
+   /**
+    * Returns the stored query plan of the given key, or <code>null</code> if the plan
+    * was not stored before. The returned plan uses the variable names of the query
+    * that was stored.
+    */
+   public QueryPlan get(QueryPlanKey key, AbstractQueryEngine queryEngine)
+   {
+      StoredPlan storedPlan;
+      synchronized (this) {
+         loadIfNeeded();
+         Long position = mRecordPositions.get(key);
+         if (position == null) {
+            return null;
+         }
+         try {
+            storedPlan = readRecordAt(position);
+            if (!storedPlan.mKey.equals(key)) {
+               throw new IOException("Record does not match the index"); //$NON-NLS-1$
+            }
+         }
+         catch (IOException e) {
+            discard(key, e);
+            return null;
+         }
+         catch (RuntimeException e) {
+            discard(key, e);
+            return null;
+         }
+      }
+      try {
+         return storedPlan.restore(queryEngine);
+      }
+      catch (RuntimeException e) {
+         synchronized (this) {
+            discard(key, e);
+         }
+         return null;
+      }
+   }
+
+   /**
+    * Appends the given query plan to the store file. An I/O failure is logged and
+    * otherwise ignored since the plan remains usable in memory. The plan is not
+    * stored once the file has reached {@link #MAX_FILE_LENGTH}.
+    */
+   public void put(QueryPlan plan)
+   {
+      QueryPlanKey key = plan.getQueryPlanKey();
+      synchronized (this) {
+         loadIfNeeded();
+         if (mRecordPositions.containsKey(key)) {
+            return;
+         }
+      }
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      try {
+         new StoredPlan(key, plan).write(new DataOutputStream(buffer));
+      }
+      catch (IOException e) {
+         // Should never happen when writing to memory
+         LOG.warn("Failed to store query plan in {}: {}", mStoreFile, e.getMessage()); //$NON-NLS-1$
+         return;
+      }
+      synchronized (this) {
+         if (mRecordPositions.containsKey(key)) {
+            return;
+         }
+         if (mFileLength + 4 + buffer.size() > MAX_FILE_LENGTH) {
+            LOG.debug("Query plan store {} is full", mStoreFile); //$NON-NLS-1$
+            return;
+         }
+         try {
+            mRecordPositions.put(key, append(buffer));
+         }
+         catch (IOException e) {
+            LOG.warn("Failed to store query plan in {}: {}", mStoreFile, e.getMessage()); //$NON-NLS-1$
+         }
+      }
+   }
+
+   /**
+    * Removes the store file and all the stored query plans.
+    */
+   public synchronized void clear()
+   {
+      mRecordPositions = new HashMap<QueryPlanKey, Long>();
+      mFileLength = 0;
+      if (mStoreFile.exists() && !mStoreFile.delete()) {
+         LOG.warn("Failed to delete query plan store {}", mStoreFile); //$NON-NLS-1$
+      }
+   }
+
+   public File getStoreFile()
+   {
+      return mStoreFile;
+   }
+
+   /*
+    * Drops an unreadable or unusable plan from the index and from the file.
+    */
+   private void discard(QueryPlanKey key, Exception e)
+   {
+      LOG.warn("Discarding unusable query plan in {}: {}", mStoreFile, e.getMessage()); //$NON-NLS-1$
+      if (mRecordPositions.remove(key) != null) {
+         rewrite();
+      }
+   }
+
+   /*
+    * Reads the whole file once to check the records and to index their positions. The
+    * plans themselves are not kept.
+    */
+   private void loadIfNeeded()
+   {
+      if (mRecordPositions != null) {
+         return;
+      }
+      mRecordPositions = new HashMap<QueryPlanKey, Long>();
+      mFileLength = 0;
+      deleteObsoleteFiles();
+      if (!mStoreFile.exists()) {
+         return;
+      }
+      boolean isComplete = false;
+      DataInputStream in = null;
+      try {
+         in = new DataInputStream(new BufferedInputStream(new FileInputStream(mStoreFile)));
+         long position = getHeaderLength();
+         long remaining = mStoreFile.length() - position;
+         if (in.readInt() != MAGIC_NUMBER || in.readInt() != FORMAT_VERSION
+               || !Environment.VERSION.equals(in.readUTF())) {
+            LOG.warn("Discarding unrecognized query plan store {}", mStoreFile); //$NON-NLS-1$
+            in.close();
+            in = null;
+            mStoreFile.delete();
+            return;
+         }
+         while (remaining > 0) {
+            int length = readRecordLength(in, remaining);
+            StoredPlan storedPlan = readRecord(in, length);
+            mRecordPositions.put(storedPlan.mKey, position);
+            position += 4 + length;
+            remaining -= 4 + length;
+         }
+         mFileLength = position;
+         isComplete = true;
+         LOG.debug("Indexed {} query plans in {}", mRecordPositions.size(), mStoreFile); //$NON-NLS-1$
+      }
+      catch (IOException e) {
+         LOG.warn("Failed to read query plan store {}: {}", mStoreFile, e.getMessage()); //$NON-NLS-1$
+      }
+      catch (RuntimeException e) {
+         LOG.warn("Failed to read query plan store {}: {}", mStoreFile, e.getMessage()); //$NON-NLS-1$
+      }
+      finally {
+         closeQuietly(in);
+      }
+      if (!isComplete) {
+         rewrite();
+      }
+   }
+
+   /*
+    * Copies the indexed records into a new file, dropping the unreadable tail and the
+    * discarded records so that the plans appended later can be read.
+    */
+   private void rewrite()
+   {
+      File tempFile = new File(mDirectory, mStoreFile.getName() + TEMP_SUFFIX);
+      Map<QueryPlanKey, Long> positions = new HashMap<QueryPlanKey, Long>();
+      long length = 0;
+      boolean isComplete = false;
+      RandomAccessFile in = null;
+      DataOutputStream out = null;
+      try {
+         if (!mRecordPositions.isEmpty()) {
+            in = new RandomAccessFile(mStoreFile, "r"); //$NON-NLS-1$
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            writeHeader(out);
+            length = getHeaderLength();
+            for (Map.Entry<QueryPlanKey, Long> mapEntry : mRecordPositions.entrySet()) {
+               byte[] record = readRecordBytes(in, mapEntry.getValue());
+               out.writeInt(record.length);
+               out.write(record);
+               positions.put(mapEntry.getKey(), length);
+               length += 4 + record.length;
+            }
+         }
+         isComplete = true;
+      }
+      catch (IOException e) {
+         LOG.warn("Failed to rewrite query plan store {}: {}", mStoreFile, e.getMessage()); //$NON-NLS-1$
+      }
+      finally {
+         closeQuietly(in);
+         closeQuietly(out);
+      }
+      mStoreFile.delete();
+      if (!isComplete || (out != null && !tempFile.renameTo(mStoreFile))) {
+         tempFile.delete();
+         positions.clear();
+         length = 0;
+      }
+      mRecordPositions = positions;
+      mFileLength = length;
+   }
+
+   private void deleteObsoleteFiles()
+   {
+      File[] files = mDirectory.listFiles();
+      if (files == null) {
+         return;
+      }
+      for (File file : files) {
+         if (isObsoleteFile(file)) {
+            LOG.debug("Deleting obsolete query plan store {}", file); //$NON-NLS-1$
+            file.delete();
+         }
+      }
+   }
+
+   /*
+    * Only the files named after this store with a different digest are obsolete, and
+    * the temporary file of this store that an interrupted rewrite left behind.
+    */
+   private boolean isObsoleteFile(File file)
+   {
+      String name = file.getName();
+      if (name.equals(mStoreFile.getName() + TEMP_SUFFIX)) {
+         return true;
+      }
+      if (!name.startsWith(mFilePrefix) || !name.endsWith(FILE_SUFFIX) || file.equals(mStoreFile)) {
+         return false;
+      }
+      String digest = name.substring(mFilePrefix.length(), name.length() - FILE_SUFFIX.length());
+      return digest.matches("[0-9a-f]{32}"); //$NON-NLS-1$
+   }
+
+   /*
+    * Each record is prefixed by its length so that a record that was only partially
+    * written (e.g., the application was killed) or a damaged length is detected. This
+    * method throws IOException if the length does not fit in the rest of the file.
+    */
+   private static int readRecordLength(DataInput in, long remaining) throws IOException
+   {
+      if (remaining < 4) {
+         throw new EOFException("Partial record length"); //$NON-NLS-1$
+      }
+      int length = in.readInt();
+      if (length < 0 || length > remaining - 4) {
+         throw new IOException("Invalid record length " + length); //$NON-NLS-1$
+      }
+      return length;
+   }
+
+   private static StoredPlan readRecord(DataInputStream in, int length) throws IOException
+   {
+      byte[] record = new byte[length];
+      in.readFully(record);
+      return StoredPlan.read(new DataInputStream(new ByteArrayInputStream(record)));
+   }
+
+   private StoredPlan readRecordAt(long position) throws IOException
+   {
+      RandomAccessFile in = new RandomAccessFile(mStoreFile, "r"); //$NON-NLS-1$
+      try {
+         byte[] record = readRecordBytes(in, position);
+         return StoredPlan.read(new DataInputStream(new ByteArrayInputStream(record)));
+      }
+      finally {
+         in.close();
+      }
+   }
+
+   private static byte[] readRecordBytes(RandomAccessFile in, long position) throws IOException
+   {
+      in.seek(position);
+      byte[] record = new byte[readRecordLength(in, in.length() - position)];
+      in.readFully(record);
+      return record;
+   }
+
+   private static long getHeaderLength() throws IOException
+   {
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      writeHeader(new DataOutputStream(buffer));
+      return buffer.size();
+   }
+
+   private static void writeHeader(DataOutputStream out) throws IOException
+   {
+      out.writeInt(MAGIC_NUMBER);
+      out.writeInt(FORMAT_VERSION);
+      out.writeUTF(Environment.VERSION);
+   }
+
+   /*
+    * Appends the serialized plan to the store file and returns the position of its
+    * record.
+    */
+   private long append(ByteArrayOutputStream buffer) throws IOException
+   {
+      if (!mDirectory.exists() && !mDirectory.mkdirs()) {
+         throw new IOException("Unable to create directory " + mDirectory); //$NON-NLS-1$
+      }
+      boolean isNewFile = !mStoreFile.exists();
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(mStoreFile, true)));
+      try {
+         if (isNewFile) {
+            writeHeader(out);
+            mFileLength = getHeaderLength();
+         }
+         out.writeInt(buffer.size());
+         buffer.writeTo(out);
+      }
+      finally {
+         out.close();
+      }
+      long position = mFileLength;
+      mFileLength += 4 + buffer.size();
+      return position;
+   }
+
+   private static void closeQuietly(Closeable stream)
+   {
+      if (stream != null) {
+         try {
+            stream.close();
+         }
+         catch (IOException e) {
+            // NO-OP
+         }
+      }
+   }
+
+   /**
+    * Computes the digest of the given knowledge base and its target database. Any
+    * change in the ontology axioms, the mappings or the SQL dialect produces a
+    * different digest.
+    */
+   public static String digest(IKnowledgeBase kb, IDatabase database)
+   {
+      StringBuilder sb = new StringBuilder();
+      sb.append(Environment.VERSION).append("\n"); //$NON-NLS-1$
+      sb.append(database.getDatabaseProduct()).append(" "); //$NON-NLS-1$
+      sb.append(database.getDatabaseMajorVersion()).append("."); //$NON-NLS-1$
+      sb.append(database.getDatabaseMinorVersion()).append("\n"); //$NON-NLS-1$
+      sb.append(database.getDialect().getClass().getName()).append("\n"); //$NON-NLS-1$
+      for (String axiom : getSortedAxioms(kb.getOntology())) {
+         sb.append(axiom).append("\n"); //$NON-NLS-1$
+      }
+      for (String mapping : getSortedMappings(kb)) {
+         sb.append(mapping).append("\n"); //$NON-NLS-1$
+      }
+      return DigestUtils.md5Hex(sb.toString());
+   }
+
+   private static List<String> getSortedAxioms(IOntology ontology)
+   {
+      List<String> axioms = new ArrayList<String>();
+      if (ontology instanceof AbstractOwlOntology) {
+         for (OWLAxiom axiom : ((AbstractOwlOntology) ontology).asOwlOntology().getAxioms()) {
+            axioms.add(axiom.toString());
+         }
+         Collections.sort(axioms);
+      }
+      else if (ontology != null) {
+         axioms.add(ontology.getClass().getName() + ":" + ontology.getAxiomCount()); //$NON-NLS-1$
+      }
+      return axioms;
+   }
+
+   private static List<String> getSortedMappings(IKnowledgeBase kb)
+   {
+      MappingPrinter printer = new MappingPrinter();
+      List<String> mappings = new ArrayList<String>();
+      for (IMapping mapping : kb.getMappingSet().getAll()) {
+         mappings.add(printer.print(mapping));
+      }
+      Collections.sort(mappings);
+      return mappings;
+   }
+
+   /**
+    * The part of a query plan that is written to the store file.
+    */
+   private static class StoredPlan
+   {
+      final QueryPlanKey mKey;
+      final String mQueryString;
+      final String[] mSelectNames;
+      final String[] mSelectTypes;
+      final List<UnionBranch> mUnionBranches;
+      final boolean mUnionAll;
+      final boolean mAggregation;
+      final List<String> mUriTemplates;
+      final int[] mUriArities;
+
+      StoredPlan(QueryPlanKey key, String queryString, String[] selectNames, String[] selectTypes,
+            List<UnionBranch> unionBranches, boolean unionAll, boolean aggregation, List<String> uriTemplates,
+            int[] uriArities)
+      {
+         mKey = key;
+         mQueryString = queryString;
+         mSelectNames = selectNames;
+         mSelectTypes = selectTypes;
+         mUnionBranches = unionBranches;
+         mUnionAll = unionAll;
+         mAggregation = aggregation;
+         mUriTemplates = uriTemplates;
+         mUriArities = uriArities;
+      }
+
+      StoredPlan(QueryPlanKey key, QueryPlan plan)
+      {
+         mKey = key;
+         mQueryString = plan.getQueryString();
+         QueryMetadata metadata = plan.getQueryMetadata();
+         mSelectNames = new String[metadata.size()];
+         mSelectTypes = new String[metadata.size()];
+         for (int i = 0; i < metadata.size(); i++) {
+            mSelectNames[i] = metadata.getColumn(i + 1).getLabel();
+            mSelectTypes[i] = metadata.getColumn(i + 1).getDatatype();
+         }
+         mUnionBranches = plan.getUnionBranches();
+         mUnionAll = plan.isUnionAll();
+         mAggregation = plan.hasAggregation();
+         mUriTemplates = plan.getUriTemplates();
+         mUriArities = plan.getUriArities();
+      }
+
+      /*
+       * The deferred URI construction of the stored plan is used only if it is still
+       * enabled in the system properties.
+       */
+      QueryPlan restore(AbstractQueryEngine queryEngine)
+      {
+         QueryMetadata metadata = new QueryMetadata(mSelectNames, mSelectTypes);
+         QueryTranslator translator;
+         if (mUriArities != null && queryEngine.getSystemProperties().isDeferredUriConstruction()) {
+            translator = new QueryTranslator(mQueryString, metadata, mUnionBranches, mUnionAll, mUriTemplates,
+                  mUriArities, queryEngine);
+         }
+         else {
+            translator = new QueryTranslator(mQueryString, metadata, mUnionBranches, mUnionAll, queryEngine);
+         }
+         translator.setAggregation(mAggregation);
+         return new QueryPlan(mQueryString, mKey, translator);
+      }
+
+      void write(DataOutputStream out) throws IOException
+      {
+         writeString(out, mKey.toString());
+         Map<String, String> names = mKey.getCanonicalNames();
+         out.writeInt(names.size());
+         for (Map.Entry<String, String> mapEntry : names.entrySet()) {
+            writeString(out, mapEntry.getKey());
+            writeString(out, mapEntry.getValue());
+         }
+         writeString(out, mQueryString);
+         out.writeInt(mSelectNames.length);
+         for (int i = 0; i < mSelectNames.length; i++) {
+            writeString(out, mSelectNames[i]);
+            writeString(out, mSelectTypes[i]);
+         }
+         out.writeInt(mUnionBranches.size());
+         for (UnionBranch branch : mUnionBranches) {
+            writeString(out, branch.getSqlString());
+            out.writeInt(branch.getParameterNames().size());
+            for (String name : branch.getParameterNames()) {
+               writeString(out, name);
+            }
+            out.writeInt(branch.getSelectColumns().size());
+            for (Map.Entry<String, SelectColumn> mapEntry : branch.getSelectColumns().entrySet()) {
+               writeString(out, mapEntry.getKey());
+               writeSelectColumn(out, mapEntry.getValue());
+            }
+            out.writeBoolean(branch.hasWhereClause());
+            writeString(out, branch.getDeferredSqlString());
+         }
+         out.writeBoolean(mUnionAll);
+         out.writeBoolean(mAggregation);
+         out.writeInt(mUriTemplates.size());
+         for (String uriTemplate : mUriTemplates) {
+            writeString(out, uriTemplate);
+         }
+         if (mUriArities == null) {
+            out.writeInt(-1);
+         }
+         else {
+            out.writeInt(mUriArities.length);
+            for (int arity : mUriArities) {
+               out.writeInt(arity);
+            }
+         }
+         out.flush();
+      }
+
+      static StoredPlan read(DataInputStream in) throws IOException
+      {
+         String key = readString(in);
+         Map<String, String> names = new HashMap<String, String>();
+         int size = readSize(in);
+         for (int i = 0; i < size; i++) {
+            names.put(readString(in), readString(in));
+         }
+         String queryString = readString(in);
+         size = readSize(in);
+         String[] selectNames = new String[size];
+         String[] selectTypes = new String[size];
+         for (int i = 0; i < size; i++) {
+            selectNames[i] = readString(in);
+            selectTypes[i] = readString(in);
+         }
+         size = readSize(in);
+         List<UnionBranch> unionBranches = new ArrayList<UnionBranch>(size);
+         for (int i = 0; i < size; i++) {
+            String sqlString = readString(in);
+            int parameterSize = readSize(in);
+            List<String> parameterNames = new ArrayList<String>(parameterSize);
+            for (int j = 0; j < parameterSize; j++) {
+               parameterNames.add(readString(in));
+            }
+            Map<String, SelectColumn> selectColumns = new HashMap<String, SelectColumn>();
+            int columnSize = readSize(in);
+            for (int j = 0; j < columnSize; j++) {
+               selectColumns.put(readString(in), readSelectColumn(in));
+            }
+            boolean hasWhereClause = in.readBoolean();
+            String deferredSqlString = readString(in);
+            unionBranches.add(new UnionBranch(sqlString, parameterNames, selectColumns, hasWhereClause,
+                  deferredSqlString));
+         }
+         boolean unionAll = in.readBoolean();
+         boolean aggregation = in.readBoolean();
+         size = readSize(in);
+         List<String> uriTemplates = new ArrayList<String>(size);
+         for (int i = 0; i < size; i++) {
+            uriTemplates.add(readString(in));
+         }
+         int[] uriArities = null;
+         size = in.readInt();
+         if (size >= 0) {
+            checkSize(in, size);
+            uriArities = new int[size];
+            for (int i = 0; i < size; i++) {
+               uriArities[i] = in.readInt();
+            }
+         }
+         return new StoredPlan(QueryPlanKey.restore(key, names), queryString, selectNames, selectTypes,
+               unionBranches, unionAll, aggregation, uriTemplates, uriArities);
+      }
+
+      private static void writeSelectColumn(DataOutputStream out, SelectColumn column) throws IOException
+      {
+         writeString(out, column.getExpression());
+         writeString(out, column.getUriTemplate());
+         out.writeInt(column.getArgumentExpressions().size());
+         for (int i = 0; i < column.getArgumentExpressions().size(); i++) {
+            writeString(out, column.getArgumentExpressions().get(i));
+            out.writeInt(column.getArgumentTypes().get(i));
+         }
+      }
+
+      private static SelectColumn readSelectColumn(DataInputStream in) throws IOException
+      {
+         String expression = readString(in);
+         String uriTemplate = readString(in);
+         int size = readSize(in);
+         List<String> argumentExpressions = new ArrayList<String>(size);
+         List<Integer> argumentTypes = new ArrayList<Integer>(size);
+         for (int i = 0; i < size; i++) {
+            argumentExpressions.add(readString(in));
+            argumentTypes.add(in.readInt());
+         }
+         return new SelectColumn(expression, uriTemplate, argumentExpressions, argumentTypes);
+      }
+
+      /*
+       * DataOutput.writeUTF() is limited to 64KB which a SQL string with many UNION
+       * branches can exceed, so the string is written as length-prefixed UTF-8 bytes.
+       */
+      private static void writeString(DataOutputStream out, String value) throws IOException
+      {
+         if (value == null) {
+            out.writeInt(-1);
+            return;
+         }
+         byte[] bytes = StringUtils.getBytesUtf8(value);
+         out.writeInt(bytes.length);
+         out.write(bytes);
+      }
+
+      private static int readSize(DataInputStream in) throws IOException
+      {
+         int size = in.readInt();
+         checkSize(in, size);
+         return size;
+      }
+
+      /*
+       * Every element takes at least one byte, so a size larger than the rest of the
+       * record comes from a damaged record.
+       */
+      private static void checkSize(DataInputStream in, int size) throws IOException
+      {
+         if (size < 0 || size > in.available()) {
+            throw new IOException("Invalid size " + size); //$NON-NLS-1$
+         }
+      }
+
+      private static String readString(DataInputStream in) throws IOException
+      {
+         int length = in.readInt();
+         if (length < 0) {
+            return null;
+         }
+         checkSize(in, length);
+         byte[] bytes = new byte[length];
+         in.readFully(bytes);
+         return new String(bytes, "UTF-8"); //$NON-NLS-1$
+      }
+   }
+}
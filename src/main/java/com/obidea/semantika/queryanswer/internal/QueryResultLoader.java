@@ -15,30 +15,51 @@
  */
 package com.obidea.semantika.queryanswer.internal;
 
+import java.math.BigDecimal;
 import java.net.URI;
-import java.net.URISyntaxException;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
+import com.obidea.semantika.database.sql.dialect.IDialect;
 import com.obidea.semantika.exception.SemantikaException;
+import com.obidea.semantika.metrics.IMetrics;
 import com.obidea.semantika.queryanswer.AbstractQueryEngine;
+import com.obidea.semantika.queryanswer.internal.QueryAnswerCache.AnswerKey;
+import com.obidea.semantika.queryanswer.internal.QueryAnswerCache.AnswerRecorder;
+import com.obidea.semantika.queryanswer.internal.QueryAnswerCache.CachedAnswer;
 import com.obidea.semantika.queryanswer.internal.QueryMetadata.Column;
+import com.obidea.semantika.queryanswer.internal.UnionBranch.SelectColumn;
 import com.obidea.semantika.queryanswer.paging.SqlPaging;
 import com.obidea.semantika.queryanswer.paging.SqlPagingStrategy;
 import com.obidea.semantika.queryanswer.result.IQueryResult;
+import com.obidea.semantika.queryanswer.result.IQueryResultHandler;
 import com.obidea.semantika.queryanswer.result.IValue;
 import com.obidea.semantika.queryanswer.result.Literal;
 import com.obidea.semantika.queryanswer.result.QueryResult;
 import com.obidea.semantika.queryanswer.result.QueryResultBuilder;
+import com.obidea.semantika.queryanswer.result.QueryResultHandlerStopException;
 import com.obidea.semantika.queryanswer.result.Uri;
 import com.obidea.semantika.queryanswer.result.ValueArray;
+import com.obidea.semantika.util.CompiledUriTemplate;
 import com.obidea.semantika.util.TemplateStringHelper;
 
 public abstract class QueryResultLoader
 {
+   /*
+    * The name prefix of the bind variables of the keyset pagination. The space makes
+    * sure that the name does not clash with the query parameter names.
+    */
+   private static final String SEEK_PARAMETER = " seek."; //$NON-NLS-1$
+
    protected AbstractQueryEngine mQueryEngine;
 
    public QueryResultLoader(final AbstractQueryEngine queryEngine)
@@ -46,34 +67,132 @@ public abstract class QueryResultLoader
       mQueryEngine = queryEngine;
    }
 
-   protected IQueryResult evaluate(QueryModifiers modifiers, UserStatementSettings userSettings)
-         throws SQLException, SemantikaException
+   protected IQueryResult evaluate(QueryParameters parameters, QueryModifiers modifiers,
+         UserStatementSettings userSettings) throws SQLException, SemantikaException
    {
-      String sql = preprocessSql(getSqlString(), modifiers);
-      final PreparedStatement ps =  preparedStatement(sql, userSettings);
-      final ResultSet rs = doQuery(ps);
-      
-      IQueryResult result = null;
+      return evaluate(parameters, modifiers, userSettings, getQueryMetadata());
+   }
+
+   /**
+    * Evaluates the query and labels the result using the given <code>metadata</code>
+    * instead of the query metadata of this loader.
+    */
+   protected IQueryResult evaluate(QueryParameters parameters, QueryModifiers modifiers,
+         UserStatementSettings userSettings, QueryMetadata metadata) throws SQLException, SemantikaException
+   {
+      metadata = getResultMetadata(metadata, modifiers);
+      if (isParallelUnion(modifiers, userSettings) || isAnswerCached(userSettings)) {
+         QueryResultBuilder builder = new QueryResultBuilder();
+         load(parameters, modifiers, userSettings, metadata, builder);
+         return builder.getQueryResult();
+      }
+      UnionBranch query = preprocessSql(modifiers);
+      QueryParameters queryParameters = preprocessParameters(parameters, modifiers);
+      final IQueryEvaluator evaluator = mQueryEngine.getQueryEvaluator(getMetrics(mQueryEngine, userSettings));
+      boolean isStreamed = false;
       try {
-         result = buildQueryResult(rs, getQueryMetadata());
+         register(evaluator, userSettings);
+         final PreparedStatement ps = preparedStatement(evaluator, query.getSqlString(), userSettings);
+         bindParameters(ps, query.getParameterNames(), queryParameters);
+         final ResultSet rs = evaluator.getResultSet(ps);
+         if (userSettings.isStreaming()) {
+            /*
+             * The evaluator is closed by the streaming result itself.
+             */
+            isStreamed = true;
+            return new StreamingQueryResult(ps, rs, metadata, evaluator, getMetrics(mQueryEngine, userSettings));
+         }
+         return buildQueryResult(rs, metadata, getMetrics(mQueryEngine, userSettings));
       }
       finally {
-         mQueryEngine.getQueryEvaluator().closeQueryStatement(ps, rs);
+         unregister(evaluator, userSettings);
+         if (!isStreamed) {
+            evaluator.close();
+         }
       }
-      return result;
    }
 
-   protected ResultSet doQuery(PreparedStatement ps) throws SQLException, SemantikaException
+   /**
+    * Evaluates the query and pushes each row to the <code>handler</code> as soon as it
+    * is fetched from the database, without keeping the rows in memory. The handler can
+    * throw <code>QueryResultHandlerStopException</code> to stop early, in which case
+    * the running statement is cancelled.
+    */
+   protected void evaluate(QueryParameters parameters, QueryModifiers modifiers, UserStatementSettings userSettings,
+         QueryMetadata metadata, IQueryResultHandler handler) throws SQLException, SemantikaException
+   {
+      load(parameters, modifiers, userSettings, getResultMetadata(metadata, modifiers), handler);
+   }
+
+   /*
+    * Passes the query answer to the handler, either from the answer cache or from the
+    * database. The answer that is read from the database is cached if the answer
+    * cache is enabled.
+    */
+   private void load(QueryParameters parameters, QueryModifiers modifiers, UserStatementSettings userSettings,
+         QueryMetadata metadata, IQueryResultHandler handler) throws SQLException, SemantikaException
    {
-      ResultSet rs = null;
+      UnionBranch query = preprocessSql(modifiers);
+      QueryParameters queryParameters = preprocessParameters(parameters, modifiers);
+      QueryAnswerCache cache = mQueryEngine.getQueryAnswerCache();
+      if (cache == null) {
+         load(query, queryParameters, modifiers, userSettings, metadata, handler);
+         return;
+      }
+      AnswerKey key = QueryAnswerCache.createKey(query.getSqlString(), query.getParameterNames(), queryParameters,
+            userSettings);
+      CachedAnswer answer = cache.get(key);
+      if (answer != null) {
+         answer.replay(metadata, handler);
+         return;
+      }
+      AnswerRecorder recorder = cache.record(handler);
+      load(query, queryParameters, modifiers, userSettings, metadata, recorder);
+      cache.put(key, recorder);
+   }
+
+   private void load(UnionBranch query, QueryParameters parameters, QueryModifiers modifiers,
+         UserStatementSettings userSettings, QueryMetadata metadata, IQueryResultHandler handler)
+         throws SQLException, SemantikaException
+   {
+      if (isParallelUnion(modifiers, userSettings)) {
+         createParallelUnion(modifiers).evaluate(parameters, userSettings, metadata, handler);
+         return;
+      }
+      final IQueryEvaluator evaluator = mQueryEngine.getQueryEvaluator(getMetrics(mQueryEngine, userSettings));
       try {
-         rs = mQueryEngine.getQueryEvaluator().getResultSet(ps);
+         register(evaluator, userSettings);
+         final PreparedStatement ps = preparedStatement(evaluator, query.getSqlString(), userSettings);
+         bindParameters(ps, query.getParameterNames(), parameters);
+         final ResultSet rs = evaluator.getResultSet(ps);
+         final List<String> selectLabels = new ArrayList<String>();
+         handler.start(metadata.getSelectNames());
+         long fetchTime = 0;
+         long rowCount = 0;
+         try {
+            /*
+             * The fetch time excludes the time spent by the handler.
+             */
+            long start = System.nanoTime();
+            while (rs.next()) {
+               ValueArray valueArray = getValueArrayFromResultSet(rs, metadata, selectLabels);
+               fetchTime += System.nanoTime() - start;
+               rowCount++;
+               handler.handleResultFragment(valueArray);
+               start = System.nanoTime();
+            }
+            fetchTime += System.nanoTime() - start;
+         }
+         catch (QueryResultHandlerStopException e) {
+            cancelQuietly(ps);
+         }
+         recordFetch(getMetrics(mQueryEngine, userSettings), fetchTime, rowCount);
+         handler.stop();
       }
-      catch (SQLException e) {
-         mQueryEngine.getQueryEvaluator().closeQueryStatement(ps, rs);
-         throw e;
+      finally {
+         unregister(evaluator, userSettings);
+         evaluator.close();
       }
-      return rs;
    }
 
    /**
@@ -86,67 +205,522 @@ public abstract class QueryResultLoader
     */
    protected abstract QueryMetadata getQueryMetadata();
 
+   /**
+    * Returns the parameter names following the order of the bind variables in the
+    * produced SQL query string. A name can appear more than once.
+    */
+   protected abstract List<String> getParameterNames();
+
+   /**
+    * Returns the SQL queries that are joined by UNION in the produced SQL query string.
+    */
+   protected abstract List<UnionBranch> getUnionBranches();
+
+   /**
+    * Returns <code>true</code> if the SQL queries are joined by UNION ALL, i.e., the
+    * answer doesn't need the duplicate elimination of UNION.
+    */
+   protected abstract boolean isUnionAll();
+
+   /**
+    * Returns the URI templates of the deferred URI construction, where the position of
+    * a template is its id in the SQL result set.
+    */
+   protected abstract List<String> getUriTemplates();
+
+   /**
+    * Returns the number of template arguments that the SQL strings of the deferred URI
+    * construction project for each select item, following the order of the query
+    * metadata. A negative number means the select item is projected as it is. Returns
+    * <code>null</code> if the UNION branches have no deferred URI construction.
+    */
+   protected abstract int[] getUriArities();
+
    /*
     * Private utility methods
     */
 
-   private String preprocessSql(String sql, QueryModifiers modifiers)
+   /*
+    * The aggregated result has its own projection, which is built from the projection
+    * of the translated query.
+    */
+   private QueryMetadata getResultMetadata(QueryMetadata metadata, QueryModifiers modifiers)
    {
-      if (modifiers.isSet()) {
-         int limit = modifiers.getLimit();
-         int offset = modifiers.getOffset();
-         final List<String> ascOrder = modifiers.getAscendingOrder();
-         final List<String> descOrder = modifiers.getDescendingOrder();
-         SqlPaging paging = getPaging();
-         sql = paging.createPaging(sql, limit, offset, ascOrder, descOrder);
+      if (modifiers.hasAggregation()) {
+         return modifiers.getAggregation().createMetadata(getQueryMetadata(), metadata);
+      }
+      if (isDeferredUriConstruction(modifiers)) {
+         return metadata.deferUriConstruction(getUriTemplates(), getUriArities());
       }
-      return sql;
+      return metadata;
    }
 
-   private PreparedStatement preparedStatement(String sql, UserStatementSettings settings) throws SQLException, SemantikaException
+   /*
+    * The URIs are constructed from the projected template arguments unless the SQL
+    * query refers to the select labels of the URIs, i.e., the aggregation and the
+    * ordering of several UNION branches, which need the URI strings.
+    */
+   private boolean isDeferredUriConstruction(QueryModifiers modifiers)
    {
-      PreparedStatement ps = null;
-      try {
-         ps = mQueryEngine.getQueryEvaluator().prepareQueryStatement(sql);
-         
-         /*
-          * These settings come from user code in SelectQuery class and they will override the
-          * global JDBC statement parameters in the configuration file, if any.
-          */
-         if (settings.getQueryTimeout() != null) {
-            ps.setQueryTimeout(settings.getQueryTimeout().intValue());
+      if (getUriArities() == null || modifiers.hasAggregation()) {
+         return false;
+      }
+      if (!isSingleQuery()) {
+         for (String column : modifiers.getOrderColumns()) {
+            SelectColumn selectColumn = getUnionBranches().get(0).getSelectColumn(column);
+            if (selectColumn != null && selectColumn.isUri()) {
+               return false;
+            }
          }
-         if (settings.getFetchSize() != null) {
-            ps.setFetchSize(settings.getFetchSize().intValue());
+      }
+      return true;
+   }
+
+   private List<UnionBranch> getUnionBranches(QueryModifiers modifiers)
+   {
+      if (!isDeferredUriConstruction(modifiers)) {
+         return getUnionBranches();
+      }
+      List<UnionBranch> branches = new ArrayList<UnionBranch>();
+      for (UnionBranch branch : getUnionBranches()) {
+         branches.add(branch.deferred());
+      }
+      return branches;
+   }
+
+   /*
+    * The paging is applied to the UNION branches such that the limit can be pushed
+    * into each branch. The branches keep their order, so do the bind variables.
+    * A single SQL query is sorted on its underlying columns so the database can use
+    * the column indexes, while the UNION of several queries is sorted on the select
+    * labels. A URI is sorted on its template argument only when that gives the order
+    * of the URI strings and the argument is projected, otherwise on its select label.
+    */
+   private UnionBranch preprocessSql(QueryModifiers modifiers) throws QueryEvaluationException
+   {
+      if (isDeferredUriConstruction(modifiers) && !modifiers.isSet()) {
+         return UnionBranch.union(getUnionBranches(modifiers), isUnionAll());
+      }
+      if (!modifiers.isSet()) {
+         return new UnionBranch(getSqlString(), getParameterNames());
+      }
+      int limit = modifiers.getLimit();
+      int offset = modifiers.getOffset();
+      final SqlPaging paging = getPaging();
+      final List<String> orderBy = new ArrayList<String>();
+      for (String column : modifiers.getOrderColumns()) {
+         boolean descending = modifiers.isDescendingOrder(column);
+         for (String expression : getOrderExpressions(column, modifiers)) {
+            orderBy.add(paging.createOrderItem(expression, descending));
          }
-         if (settings.getMaxRows() != null) {
-            ps.setMaxRows(settings.getMaxRows().intValue());
+      }
+      final List<String> unionBranches = new ArrayList<String>();
+      final List<String> parameterNames = new ArrayList<String>();
+      for (UnionBranch branch : getUnionBranches(modifiers)) {
+         if (modifiers.hasSeek()) {
+            branch = applySeek(branch, modifiers, paging);
          }
+         unionBranches.add(branch.getSqlString());
+         parameterNames.addAll(branch.getParameterNames());
       }
-      catch (SQLException e) {
-         mQueryEngine.getQueryEvaluator().closeQueryStatement(ps, null);
-         throw e;
+      if (modifiers.hasAggregation()) {
+         IDialect dialect = mQueryEngine.getTargetDatabase().getDialect();
+         String sql = modifiers.getAggregation().createSql(unionBranches, isUnionAll(), dialect);
+         unionBranches.clear();
+         unionBranches.add(sql);
+      }
+      String sql = paging.createPaging(unionBranches, isUnionAll(), limit, offset, orderBy);
+      return new UnionBranch(sql, parameterNames);
+   }
+
+   /*
+    * The keyset predicate is placed in every UNION branch on the same expressions that
+    * sort the rows, so the database can use the index of a key that maps directly to
+    * a table column.
+    */
+   private UnionBranch applySeek(UnionBranch branch, QueryModifiers modifiers, SqlPaging paging)
+         throws QueryEvaluationException
+   {
+      if (modifiers.hasAggregation()) {
+         throw new QueryEvaluationException("Keyset pagination is not supported on aggregate queries"); //$NON-NLS-1$
+      }
+      List<String> keyExpressions = new ArrayList<String>();
+      for (String column : getSeekColumns(modifiers)) {
+         keyExpressions.addAll(getSortExpressions(branch, column, modifiers));
+      }
+      List<String> parameterNames = new ArrayList<String>(branch.getParameterNames());
+      for (int i = 0; i < keyExpressions.size(); i++) {
+         parameterNames.add(seekParameterName(i));
+      }
+      boolean descending = modifiers.getAscendingOrder().isEmpty();
+      String sql = paging.createSeek(branch.getSqlString(), branch.hasWhereClause(), keyExpressions, descending);
+      return new UnionBranch(sql, parameterNames);
+   }
+
+   /*
+    * Adds the values of the keyset pagination to the query parameters, following the
+    * key expressions of the seek predicate. A URI value is split into its template
+    * arguments when a single SQL query sorts the URI by them, otherwise it is turned
+    * back into the URI template construction that the SQL query produces.
+    */
+   private QueryParameters preprocessParameters(QueryParameters parameters, QueryModifiers modifiers)
+         throws QueryEvaluationException
+   {
+      if (!modifiers.hasSeek()) {
+         return parameters;
+      }
+      QueryParameters queryParameters = new QueryParameters();
+      for (String name : parameters.getNames()) {
+         queryParameters.setValue(name, parameters.getValue(name));
+      }
+      List<String> keyColumns = getSeekColumns(modifiers);
+      List<Object> seekValues = modifiers.getSeekValues();
+      List<Object> keyValues = new ArrayList<Object>();
+      for (int i = 0; i < keyColumns.size(); i++) {
+         String column = keyColumns.get(i);
+         Object value = seekValues.get(i);
+         if (value == null) {
+            throw new QueryEvaluationException("Keyset pagination value cannot be null: " + column); //$NON-NLS-1$
+         }
+         String uriString = null;
+         if (value instanceof IValue && ((IValue) value).getType() == IValue.URI) {
+            uriString = ((IValue) value).stringValue();
+         }
+         else if (value instanceof URI) {
+            uriString = value.toString();
+         }
+         else if (value instanceof IValue) {
+            value = ((IValue) value).getObject();
+         }
+         SelectColumn selectColumn = getUnionBranches().get(0).getSelectColumn(column);
+         if (uriString == null || selectColumn == null || !selectColumn.isUri()) {
+            keyValues.add(uriString == null ? value : uriString);
+         }
+         else if (isSortedByArguments(selectColumn, modifiers)) {
+            keyValues.addAll(getTemplateArguments(selectColumn, uriString));
+         }
+         else {
+            keyValues.add(getTemplateConstruction(column, uriString));
+         }
+      }
+      for (int i = 0; i < keyValues.size(); i++) {
+         queryParameters.setValue(seekParameterName(i), keyValues.get(i));
+      }
+      return queryParameters;
+   }
+
+   private static List<Object> getTemplateArguments(SelectColumn column, String uriString)
+         throws QueryEvaluationException
+   {
+      List<String> arguments = TemplateStringHelper.getTemplateArguments(column.getUriTemplate(), uriString);
+      if (arguments == null) {
+         throw new QueryEvaluationException("Keyset pagination value does not match the URI template " //$NON-NLS-1$
+               + column.getUriTemplate() + ": " + uriString); //$NON-NLS-1$
+      }
+      List<Object> values = new ArrayList<Object>();
+      for (int i = 0; i < arguments.size(); i++) {
+         values.add(toSqlValue(arguments.get(i), column.getArgumentTypes().get(i)));
+      }
+      return values;
+   }
+
+   private String getTemplateConstruction(String column, String uriString) throws QueryEvaluationException
+   {
+      for (UnionBranch branch : getUnionBranches()) {
+         SelectColumn selectColumn = branch.getSelectColumn(column);
+         if (selectColumn != null && selectColumn.isUri()) {
+            String construction = TemplateStringHelper.createTemplateConstruction(selectColumn.getUriTemplate(),
+                  uriString);
+            if (construction != null) {
+               return construction;
+            }
+         }
+      }
+      throw new QueryEvaluationException("Keyset pagination value does not match the URI templates of column " //$NON-NLS-1$
+            + column + ": " + uriString); //$NON-NLS-1$
+   }
+
+   /*
+    * Converts the URI template argument back to the type of its column, such that it
+    * is compared the same way as the column values are sorted.
+    */
+   private static Object toSqlValue(String argument, int sqlType) throws QueryEvaluationException
+   {
+      try {
+         switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+               return Integer.valueOf(argument);
+            case Types.BIGINT:
+               return Long.valueOf(argument);
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+               return new BigDecimal(argument);
+            case Types.REAL:
+               return Float.valueOf(argument);
+            case Types.FLOAT:
+            case Types.DOUBLE:
+               return Double.valueOf(argument);
+            default:
+               return argument;
+         }
+      }
+      catch (NumberFormatException e) {
+         throw new QueryEvaluationException("Invalid keyset pagination value: " + argument); //$NON-NLS-1$
+      }
+   }
+
+   /*
+    * Returns the SQL expressions that sort the given column in the given branch.
+    */
+   private List<String> getOrderExpressions(String column, QueryModifiers modifiers)
+         throws QueryEvaluationException
+   {
+      if (!isSingleQuery() || modifiers.hasAggregation()) {
+         return Collections.singletonList(column);
+      }
+      SelectColumn selectColumn = getSelectColumn(getUnionBranches().get(0), column);
+      if (selectColumn.isUri() && !isSortedByArguments(selectColumn, modifiers)) {
+         return Collections.singletonList(column);
+      }
+      return getSortExpressions(getUnionBranches().get(0), column, modifiers);
+   }
+
+   /*
+    * Returns the SQL expressions that sort the column in the given branch, which the
+    * keyset predicate also compares.
+    */
+   private List<String> getSortExpressions(UnionBranch branch, String column, QueryModifiers modifiers)
+         throws QueryEvaluationException
+   {
+      SelectColumn selectColumn = getSelectColumn(branch, column);
+      if (isSortedByArguments(selectColumn, modifiers)) {
+         return selectColumn.getArgumentExpressions();
+      }
+      return Collections.singletonList(selectColumn.getExpression());
+   }
+
+   private static SelectColumn getSelectColumn(UnionBranch branch, String column) throws QueryEvaluationException
+   {
+      SelectColumn selectColumn = branch.getSelectColumn(column);
+      if (selectColumn == null) {
+         throw new QueryEvaluationException("Unknown order column: " + column); //$NON-NLS-1$
+      }
+      return selectColumn;
+   }
+
+   /*
+    * A single SQL query sorts a URI on its template argument when the order is the
+    * same as the order of the URI strings and the argument is in the select list,
+    * i.e., the URIs are constructed from the projected arguments, so that a DISTINCT
+    * query can still be sorted on it.
+    */
+   private boolean isSortedByArguments(SelectColumn selectColumn, QueryModifiers modifiers)
+   {
+      return isSingleQuery() && selectColumn.isOrderedByArguments() && isDeferredUriConstruction(modifiers);
+   }
+
+   private boolean isSingleQuery()
+   {
+      return getUnionBranches().size() == 1;
+   }
+
+   /*
+    * The keyset comparison is a single row-value comparison, so the order columns must
+    * share the same direction.
+    */
+   private static List<String> getSeekColumns(QueryModifiers modifiers) throws QueryEvaluationException
+   {
+      List<String> ascOrder = modifiers.getAscendingOrder();
+      List<String> descOrder = modifiers.getDescendingOrder();
+      if (!ascOrder.isEmpty() && !descOrder.isEmpty()) {
+         throw new QueryEvaluationException("Keyset pagination requires the order columns in the same direction"); //$NON-NLS-1$
+      }
+      List<String> keyColumns = modifiers.getOrderColumns();
+      if (keyColumns.size() != modifiers.getSeekValues().size()) {
+         throw new QueryEvaluationException("Keyset pagination requires one value for each order column"); //$NON-NLS-1$
+      }
+      return keyColumns;
+   }
+
+   private static String seekParameterName(int index)
+   {
+      return SEEK_PARAMETER + index;
+   }
+
+   /*
+    * The UNION branches run in parallel only when the whole result is needed, i.e.,
+    * the query has no modifiers that apply to the UNION as a whole and the result is
+    * not streamed from a single cursor, and when the branches are joined by UNION ALL
+    * so that no duplicate rows have to be removed across the branches.
+    */
+   private boolean isParallelUnion(QueryModifiers modifiers, UserStatementSettings userSettings)
+   {
+      return mQueryEngine.getUnionExecutor() != null
+            && getUnionBranches().size() > 1
+            && isUnionAll()
+            && !modifiers.isSet()
+            && !userSettings.isStreaming();
+   }
+
+   /*
+    * The streaming results read the rows lazily from the database cursor, so they
+    * always bypass the answer cache.
+    */
+   private boolean isAnswerCached(UserStatementSettings userSettings)
+   {
+      return mQueryEngine.getQueryAnswerCache() != null && !userSettings.isStreaming();
+   }
+
+   private ParallelUnionEvaluation createParallelUnion(QueryModifiers modifiers)
+   {
+      ExecutorService executor = mQueryEngine.getUnionExecutor();
+      int parallelism = mQueryEngine.getSystemProperties().getQueryExecutorUnionParallelism();
+      return new ParallelUnionEvaluation(mQueryEngine, executor, getUnionBranches(modifiers), parallelism);
+   }
+
+   /* package */
+   static PreparedStatement preparedStatement(IQueryEvaluator evaluator, String sql,
+         UserStatementSettings settings) throws SQLException, SemantikaException
+   {
+      PreparedStatement ps = evaluator.prepareQueryStatement(sql);
+      
+      /*
+       * These settings come from user code in SelectQuery class and they will override the
+       * global JDBC statement parameters in the configuration file, if any.
+       */
+      if (settings.getQueryTimeout() != null) {
+         ps.setQueryTimeout(settings.getQueryTimeout().intValue());
+      }
+      if (settings.getFetchSize() != null) {
+         ps.setFetchSize(settings.getFetchSize().intValue());
       }
-      catch (SemantikaException e) {
-         mQueryEngine.getQueryEvaluator().closeQueryStatement(ps, null);
-         throw e;
+      if (settings.getMaxRows() != null) {
+         ps.setMaxRows(settings.getMaxRows().intValue());
       }
       return ps;
    }
 
-   private static QueryResult buildQueryResult(ResultSet rs, QueryMetadata metadata) throws SQLException
+   /* package */
+   static void register(IQueryEvaluator evaluator, UserStatementSettings settings) throws QueryEvaluationException
+   {
+      if (settings.getCancellation() != null) {
+         settings.getCancellation().register(evaluator);
+      }
+   }
+
+   /* package */
+   static void unregister(IQueryEvaluator evaluator, UserStatementSettings settings)
+   {
+      if (settings.getCancellation() != null) {
+         settings.getCancellation().unregister(evaluator);
+      }
+   }
+
+   /*
+    * Cancelling the statement prevents some drivers from reading the remaining rows
+    * when the result set is closed.
+    */
+   private static void cancelQuietly(PreparedStatement ps)
+   {
+      try {
+         ps.cancel();
+      }
+      catch (SQLException e) {
+         // NO-OP: The statement is closed anyway
+      }
+   }
+
+   /* package */
+   static void bindParameters(PreparedStatement ps, List<String> parameterNames, QueryParameters parameters)
+         throws SQLException, SemantikaException
+   {
+      int index = 1;
+      for (String name : parameterNames) {
+         if (!parameters.contains(name)) {
+            throw new QueryEvaluationException("No value was bound to query parameter: " + name); //$NON-NLS-1$
+         }
+         setParameterValue(ps, index++, parameters.getValue(name));
+      }
+   }
+
+   private static void setParameterValue(PreparedStatement ps, int index, Object value) throws SQLException
+   {
+      if (value == null) {
+         ps.setNull(index, Types.NULL);
+      }
+      else if (value instanceof String) {
+         ps.setString(index, (String) value);
+      }
+      else if (value instanceof Integer) {
+         ps.setInt(index, ((Integer) value).intValue());
+      }
+      else if (value instanceof Long) {
+         ps.setLong(index, ((Long) value).longValue());
+      }
+      else if (value instanceof Double) {
+         ps.setDouble(index, ((Double) value).doubleValue());
+      }
+      else if (value instanceof Float) {
+         ps.setFloat(index, ((Float) value).floatValue());
+      }
+      else if (value instanceof Boolean) {
+         ps.setBoolean(index, ((Boolean) value).booleanValue());
+      }
+      else if (value instanceof BigDecimal) {
+         ps.setBigDecimal(index, (BigDecimal) value);
+      }
+      else if (value instanceof java.sql.Date) {
+         ps.setDate(index, (java.sql.Date) value);
+      }
+      else if (value instanceof Time) {
+         ps.setTime(index, (Time) value);
+      }
+      else if (value instanceof Timestamp) {
+         ps.setTimestamp(index, (Timestamp) value);
+      }
+      else if (value instanceof Date) {
+         ps.setTimestamp(index, new Timestamp(((Date) value).getTime()));
+      }
+      else {
+         ps.setObject(index, value);
+      }
+   }
+
+   private static QueryResult buildQueryResult(ResultSet rs, QueryMetadata metadata, IMetrics metrics)
+         throws SQLException
    {
       final List<String> selectLabels = new ArrayList<String>();
       QueryResultBuilder builder = new QueryResultBuilder();
       builder.start(metadata.getSelectNames());
+      long rowCount = 0;
+      long start = System.nanoTime();
       while (rs.next()) {
          ValueArray valueArray = getValueArrayFromResultSet(rs, metadata, selectLabels);
          builder.handleResultFragment(valueArray);
+         rowCount++;
       }
+      recordFetch(metrics, System.nanoTime() - start, rowCount);
       return builder.getQueryResult();
    }
 
-   private static ValueArray getValueArrayFromResultSet(ResultSet rs, QueryMetadata metadata, List<String> selectLabels) throws SQLException
+   /* package */
+   static IMetrics getMetrics(AbstractQueryEngine queryEngine, UserStatementSettings userSettings)
+   {
+      IMetrics metrics = userSettings.getMetrics();
+      return (metrics == null) ? queryEngine.getMetrics() : metrics;
+   }
+
+   /* package */
+   static void recordFetch(IMetrics metrics, long fetchTime, long rowCount)
+   {
+      metrics.recordTime(IMetrics.EVALUATION_FETCH, fetchTime);
+      metrics.incrementCounter(IMetrics.EVALUATION_ROWS, rowCount);
+   }
+
+   /* package */
+   static ValueArray getValueArrayFromResultSet(ResultSet rs, QueryMetadata metadata, List<String> selectLabels) throws SQLException
    {
       List<IValue> values = getSelectValues(rs, metadata, selectLabels);
       return new ValueArray(selectLabels, values);
@@ -155,7 +729,7 @@ public abstract class QueryResultLoader
    private static List<IValue> getSelectValues(ResultSet rs, QueryMetadata metadata, List<String> selectLabels) throws SQLException
    {
       boolean needAdd = selectLabels.isEmpty();
-      List<IValue> values = new ArrayList<IValue>();
+      List<IValue> values = new ArrayList<IValue>(metadata.size());
       for (int i = 1; i <= metadata.size(); i++) {
          if (needAdd) {
             String label = getLabel(metadata, i);
@@ -172,9 +746,15 @@ public abstract class QueryResultLoader
       return metadata.getColumn(position).getLabel();
    }
 
-   private static IValue getValue(ResultSet resultSet, QueryMetadata metadata, int position) throws SQLException
+   /* package */
+   static IValue getValue(ResultSet resultSet, QueryMetadata metadata, int position) throws SQLException
    {
-      String value = resultSet.getString(position);
+      Column c = metadata.getColumn(position);
+      if (c.isDeferredUri()) {
+         String uriString = getDeferredUriString(resultSet, c);
+         return (uriString == null) ? null : new Uri(uriString);
+      }
+      String value = resultSet.getString(c.getSqlPosition());
       /*
        * If the JDBC ResultSet gives null, then this method returns null as well.
        */
@@ -182,31 +762,63 @@ public abstract class QueryResultLoader
          return null;
       }
       
-      Column c = metadata.getColumn(position);
       if (c.isLiteral()) {
-         return new Literal(value, URI.create(c.getDatatype()));
+         return new Literal(value, c.getDatatypeUri());
       }
       else {
-         if (!validUri(value)) {
-            /*
-             * We assume if the URI string is invalid it means the given value is a
-             * URI template construction, i.e., <template> : <value1> <value2> etc. 
-             */
-            value = TemplateStringHelper.buildUri(value);
-         }
-         return new Uri(value);
+         return new Uri(getUriString(value));
       }
    }
 
-   private static boolean validUri(String uriString)
+   /**
+    * Returns the URI string of the given URI column in the current row, or
+    * <code>null</code> if the database gives null.
+    */
+   /* package */
+   static String getUriString(ResultSet resultSet, Column column) throws SQLException
    {
-      try {
-         new URI(uriString);
+      if (column.isDeferredUri()) {
+         return getDeferredUriString(resultSet, column);
       }
-      catch (URISyntaxException e) {
-         return false;
+      String value = resultSet.getString(column.getSqlPosition());
+      return (value == null) ? null : getUriString(value);
+   }
+
+   /*
+    * Reads the template id and the template arguments of the deferred URI construction.
+    * Like the SQL string concatenation, the URI is null if one of its arguments is null.
+    */
+   private static String getDeferredUriString(ResultSet resultSet, Column column) throws SQLException
+   {
+      int templateId = resultSet.getInt(column.getSqlPosition());
+      if (resultSet.wasNull()) {
+         return null;
       }
-      return true;
+      CompiledUriTemplate template = CompiledUriTemplate.compile(column.getUriTemplate(templateId));
+      int argumentCount = Math.min(template.getArgumentCount(), column.getUriArity());
+      List<String> arguments = new ArrayList<String>(argumentCount);
+      for (int i = 1; i <= argumentCount; i++) {
+         String argument = resultSet.getString(column.getSqlPosition() + i);
+         if (argument == null) {
+            return null;
+         }
+         arguments.add(argument);
+      }
+      return template.expand(arguments);
+   }
+
+   /*
+    * A URI column gives either the URI string or the URI template construction, i.e.,
+    * <template> : "value1" "value2" etc. The construction is recognized by its
+    * separator, which cannot appear in a valid URI.
+    */
+   /* package */
+   static String getUriString(String value)
+   {
+      if (TemplateStringHelper.isTemplateConstruction(value)) {
+         return CompiledUriTemplate.expandConstruction(value);
+      }
+      return value;
    }
 
    private SqlPaging getPaging()
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.queryanswer.internal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.obidea.semantika.metrics.IMetrics;
+
+/**
+ * Collects the timings and the counts of a single query evaluation while passing them
+ * on to the metrics of the query engine. The trace can be updated by the threads that
+ * evaluate the UNION branches concurrently.
+ */
+public class QueryTrace implements IMetrics
+{
+   private final IMetrics mDelegate;
+   private final long mStartTime;
+
+   private final Map<String, Long> mTimes = new LinkedHashMap<String, Long>();
+   private final Map<String, Long> mCounters = new LinkedHashMap<String, Long>();
+
+   public QueryTrace(IMetrics delegate)
+   {
+      mDelegate = delegate;
+      mStartTime = System.nanoTime();
+   }
+
+   @Override
+   public void recordTime(String name, long nanos)
+   {
+      mDelegate.recordTime(name, nanos);
+      add(mTimes, name, nanos);
+   }
+
+   @Override
+   public void incrementCounter(String name, long delta)
+   {
+      mDelegate.incrementCounter(name, delta);
+      add(mCounters, name, delta);
+   }
+
+   /**
+    * Returns the time in nanoseconds since this trace was created.
+    */
+   public long getElapsedTime()
+   {
+      return System.nanoTime() - mStartTime;
+   }
+
+   /**
+    * Returns the total time in nanoseconds of each timer, in the order they were first
+    * recorded.
+    */
+   public synchronized Map<String, Long> getTimes()
+   {
+      return new LinkedHashMap<String, Long>(mTimes);
+   }
+
+   /**
+    * Returns the total of each counter, in the order they were first recorded.
+    */
+   public synchronized Map<String, Long> getCounters()
+   {
+      return new LinkedHashMap<String, Long>(mCounters);
+   }
+
+   private synchronized void add(Map<String, Long> totals, String name, long value)
+   {
+      Long total = totals.get(name);
+      totals.put(name, (total == null) ? value : total + value);
+   }
+}
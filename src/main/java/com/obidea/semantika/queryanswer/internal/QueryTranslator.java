@@ -16,65 +16,120 @@
 package com.obidea.semantika.queryanswer.internal;
 
 import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
+import com.obidea.semantika.database.sql.base.ISqlColumn;
+import com.obidea.semantika.database.sql.base.ISqlExpression;
+import com.obidea.semantika.database.sql.base.ISqlValue;
 import com.obidea.semantika.database.sql.base.SqlSelectItem;
 import com.obidea.semantika.database.sql.deparser.SqlDeparser;
+import com.obidea.semantika.database.sql.dialect.IDialect;
 import com.obidea.semantika.exception.SemantikaException;
 import com.obidea.semantika.expression.base.IQueryExt;
 import com.obidea.semantika.expression.base.QuerySet;
+import com.obidea.semantika.mapping.base.IMapping;
 import com.obidea.semantika.mapping.base.IMappingTerm;
 import com.obidea.semantika.mapping.base.TermType;
 import com.obidea.semantika.mapping.base.sql.SqlQuery;
+import com.obidea.semantika.mapping.base.sql.SqlUriConcat;
+import com.obidea.semantika.metrics.IMetrics;
 import com.obidea.semantika.queryanswer.AbstractQueryEngine;
+import com.obidea.semantika.queryanswer.internal.UnionBranch.SelectColumn;
 import com.obidea.semantika.queryanswer.parser.SparqlFactory;
+import com.obidea.semantika.queryanswer.parser.SparqlParser;
 import com.obidea.semantika.queryanswer.parser.SparqlParserException;
 import com.obidea.semantika.queryanswer.processor.QueryOptimizationException;
 import com.obidea.semantika.queryanswer.processor.QueryReformulationException;
 import com.obidea.semantika.queryanswer.processor.QueryUnfoldingException;
 import com.obidea.semantika.queryanswer.result.IQueryResult;
+import com.obidea.semantika.queryanswer.result.IQueryResultHandler;
+import com.obidea.semantika.queryanswer.result.QueryResultHandlerException;
 
 public class QueryTranslator extends QueryResultLoader implements IQueryTranslator
 {
    private String mQueryString;
    private String mSqlString;
+   private int mUnionWidth;
+   private boolean mUnionAll;
+   private boolean mAggregation;
+   private List<String> mParameterNames;
+   private List<UnionBranch> mUnionBranches;
+   private List<String> mUriTemplates = Collections.emptyList();
+   private int[] mUriArities;
+   private List<List<IMapping>> mSourceMappings = Collections.emptyList();
 
    private QueryMetadata mQueryMetadata;
 
    public QueryTranslator(String queryString, AbstractQueryEngine queryEngine) throws QueryTranslationException
+   {
+      this(queryString, Collections.<String>emptySet(), queryEngine);
+   }
+
+   public QueryTranslator(String queryString, Set<String> parameterNames, AbstractQueryEngine queryEngine)
+         throws QueryTranslationException
+   {
+      this(queryString, parameterNames, queryEngine, queryEngine.getMetrics());
+   }
+
+   /**
+    * Translates the query and records the time of each translation stage to the given
+    * metrics.
+    */
+   public QueryTranslator(String queryString, Set<String> parameterNames, AbstractQueryEngine queryEngine,
+         IMetrics metrics) throws QueryTranslationException
    {
       super(queryEngine);
+      mQueryString = queryString;
       try {
          /*
           * Parse the SPARQL string into a set of query objects.
           */
-         QuerySet<IQueryExt> parsedQuery = SparqlFactory.create(queryString);
+         long start = System.nanoTime();
+         SparqlParser parser = new SparqlParser(parameterNames);
+         QuerySet<IQueryExt> parsedQuery = SparqlFactory.create(queryString, parser);
+         mAggregation = parser.hasAggregation();
+         start = recordTime(metrics, IMetrics.TRANSLATION_PARSE, start);
          
          /*
           * Process the input query set by expanding it using a query reformulator.
           */
          QuerySet<IQueryExt> reformulatedQuery = applyQueryReformulation(parsedQuery);
+         start = recordTime(metrics, IMetrics.TRANSLATION_REFORMULATE, start);
          
          /*
           * Process the "expanded" query set by unfolding each query to a proper SQL query.
           */
          QuerySet<SqlQuery> unfoldedQuery = applyQueryUnfolding(reformulatedQuery);
+         start = recordTime(metrics, IMetrics.TRANSLATION_UNFOLD, start);
          
          if (!unfoldedQuery.isEmpty()) {
             /*
              * Optimize the "unfolded" SQL query to increase the query performance.
              */
             unfoldedQuery = applyQueryOptimization(unfoldedQuery);
+            start = recordTime(metrics, IMetrics.TRANSLATION_OPTIMIZE, start);
    
             /*
              * Translate the "unfolded" <code>QueryExt</code> objects into SQL string.
              */
             renderSql(unfoldedQuery);
+            recordTime(metrics, IMetrics.TRANSLATION_DEPARSE, start);
+            metrics.incrementCounter(IMetrics.TRANSLATION_UNION_BRANCHES, mUnionWidth);
             
             /*
-             * Construct the query meta-information from taking one query sample
+             * Construct the query meta-information from the select items, which all
+             * the UNION branches must agree on
              */
-            buildQueryMetadata(unfoldedQuery.get(0));
+            buildQueryMetadata(unfoldedQuery);
          }
          else {
             throw new QueryTranslationException("No SQL was produced for input query:\n" + queryString); //$NON-NLS-1$
@@ -94,6 +149,42 @@ public class QueryTranslator extends QueryResultLoader implements IQueryTranslat
       }
    }
 
+   /**
+    * Creates the translator from the result of a previous translation, e.g., a query
+    * plan that was restored from the disk.
+    */
+   public QueryTranslator(String queryString, QueryMetadata metadata, List<UnionBranch> unionBranches,
+         boolean unionAll, AbstractQueryEngine queryEngine)
+   {
+      this(queryString, metadata, unionBranches, unionAll, Collections.<String>emptyList(), null, queryEngine);
+   }
+
+   /**
+    * Creates the translator from the result of a previous translation whose UNION
+    * branches have the SQL strings of the deferred URI construction, given the URI
+    * templates and the number of template arguments of each select item.
+    */
+   public QueryTranslator(String queryString, QueryMetadata metadata, List<UnionBranch> unionBranches,
+         boolean unionAll, List<String> uriTemplates, int[] uriArities, AbstractQueryEngine queryEngine)
+   {
+      super(queryEngine);
+      mQueryString = queryString;
+      mQueryMetadata = metadata;
+      setUnionBranches(unionBranches, unionAll);
+      mUriTemplates = Collections.unmodifiableList(new ArrayList<String>(uriTemplates));
+      mUriArities = uriArities;
+   }
+
+   /*
+    * Records the time elapsed since the given start and returns the start of the next stage.
+    */
+   private static long recordTime(IMetrics metrics, String name, long start)
+   {
+      long end = System.nanoTime();
+      metrics.recordTime(name, end - start);
+      return end;
+   }
+
    private QuerySet<IQueryExt> applyQueryReformulation(QuerySet<IQueryExt> querySet) throws QueryReformulationException
    {
       return mQueryEngine.getQueryReformulator().reformulate(querySet);
@@ -109,19 +200,145 @@ public class QueryTranslator extends QueryResultLoader implements IQueryTranslat
       return mQueryEngine.getQueryOptimizers().optimize(querySet);
    }
 
+   /*
+    * Each query is rendered separately such that the UNION branches can also be
+    * executed independently.
+    */
    private void renderSql(QuerySet<SqlQuery> inputQuery)
    {
-      SqlDeparser deparser = new SqlDeparser(mQueryEngine.getTargetDatabase().getDialect());
-      mSqlString = deparser.deparse(inputQuery);
+      IDialect dialect = mQueryEngine.getTargetDatabase().getDialect();
+      Map<String, Integer> uriArities = Collections.emptyMap();
+      if (mQueryEngine.getSystemProperties().isDeferredUriConstruction()) {
+         uriArities = getDeferredUriArities(inputQuery);
+      }
+      List<String> uriTemplates = getUriTemplates(inputQuery, uriArities);
+      Map<String, Integer> uriTemplateIds = new HashMap<String, Integer>();
+      for (int i = 0; i < uriTemplates.size(); i++) {
+         uriTemplateIds.put(uriTemplates.get(i), i);
+      }
+      List<UnionBranch> unionBranches = new ArrayList<UnionBranch>();
+      List<List<IMapping>> sourceMappings = new ArrayList<List<IMapping>>();
+      for (SqlQuery query : inputQuery.getAll()) {
+         SqlDeparser deparser = new SqlDeparser(dialect);
+         String sqlString = deparser.deparse(query);
+         List<String> parameterNames = new ArrayList<String>(deparser.getParameterNames());
+         Map<String, SelectColumn> selectColumns = new HashMap<String, SelectColumn>();
+         for (SqlSelectItem selectItem : query.getSelectItems()) {
+            selectColumns.put(selectItem.getLabelName(), createSelectColumn(selectItem.getExpression(), deparser));
+         }
+         String deferredSqlString = null;
+         if (!uriArities.isEmpty()) {
+            /*
+             * The argument columns of the UNION branches must have compatible types.
+             */
+            SqlDeparser deferredDeparser = new SqlDeparser(dialect);
+            deferredDeparser.setDeferredUriConstruction(uriTemplateIds, uriArities, inputQuery.size() > 1);
+            deferredSqlString = deferredDeparser.deparse(query);
+         }
+         unionBranches.add(new UnionBranch(sqlString, parameterNames, selectColumns, query.hasWhereExpression(),
+               deferredSqlString));
+         sourceMappings.add(query.getSourceMappings());
+      }
+      mSourceMappings = Collections.unmodifiableList(sourceMappings);
+      setUnionBranches(unionBranches, SqlDeparser.isUnionAll(inputQuery));
+      if (!uriArities.isEmpty()) {
+         List<SqlSelectItem> selectItems = inputQuery.get(0).getSelectItems();
+         mUriArities = new int[selectItems.size()];
+         for (int i = 0; i < selectItems.size(); i++) {
+            Integer arity = uriArities.get(selectItems.get(i).getLabelName());
+            mUriArities[i] = (arity == null) ? -1 : arity;
+         }
+         mUriTemplates = Collections.unmodifiableList(uriTemplates);
+      }
+   }
+
+   /*
+    * Returns the number of template arguments of each select label whose URIs can be
+    * constructed by the engine, i.e., the label is a URI template construction in all
+    * the queries. The number is the largest among the queries.
+    */
+   private static Map<String, Integer> getDeferredUriArities(QuerySet<SqlQuery> inputQuery)
+   {
+      Map<String, Integer> uriArities = new HashMap<String, Integer>();
+      Set<String> excludedLabels = new HashSet<String>();
+      for (SqlQuery query : inputQuery.getAll()) {
+         for (SqlSelectItem selectItem : query.getSelectItems()) {
+            String label = selectItem.getLabelName();
+            if (selectItem.getExpression() instanceof SqlUriConcat) {
+               int arity = ((SqlUriConcat) selectItem.getExpression()).getParameterExpressions().size() - 1;
+               Integer maxArity = uriArities.get(label);
+               uriArities.put(label, (maxArity == null) ? arity : Math.max(maxArity, arity));
+            }
+            else {
+               excludedLabels.add(label);
+            }
+         }
+      }
+      uriArities.keySet().removeAll(excludedLabels);
+      return uriArities;
+   }
+
+   /*
+    * Returns the sorted URI templates of the given select labels, where the position of
+    * a template is its id.
+    */
+   private static List<String> getUriTemplates(QuerySet<SqlQuery> inputQuery, Map<String, Integer> uriArities)
+   {
+      Set<String> uriTemplates = new TreeSet<String>();
+      for (SqlQuery query : inputQuery.getAll()) {
+         for (SqlSelectItem selectItem : query.getSelectItems()) {
+            if (uriArities.containsKey(selectItem.getLabelName())) {
+               SqlUriConcat uriConcat = (SqlUriConcat) selectItem.getExpression();
+               uriTemplates.add(((ISqlValue) uriConcat.getParameterExpressions().get(0)).getValue()); // must be a value
+            }
+         }
+      }
+      return new ArrayList<String>(uriTemplates);
+   }
+
+   private static SelectColumn createSelectColumn(ISqlExpression expression, SqlDeparser deparser)
+   {
+      String selectExpression = deparser.deparseSelectExpression(expression);
+      if (expression instanceof SqlUriConcat) {
+         Iterator<ISqlExpression> iter = ((SqlUriConcat) expression).getParameterExpressions().iterator();
+         String uriTemplate = ((ISqlValue) iter.next()).getValue(); // must be a value
+         List<String> argumentExpressions = new ArrayList<String>();
+         List<Integer> argumentTypes = new ArrayList<Integer>();
+         while (iter.hasNext()) {
+            ISqlExpression argument = iter.next();
+            argumentExpressions.add(deparser.deparseSelectExpression(argument));
+            argumentTypes.add(argument instanceof ISqlColumn ? ((ISqlColumn) argument).getColumnType()
+                  : Types.VARCHAR);
+         }
+         return new SelectColumn(selectExpression, uriTemplate, argumentExpressions, argumentTypes);
+      }
+      return new SelectColumn(selectExpression);
+   }
+
+   private void setUnionBranches(List<UnionBranch> unionBranches, boolean unionAll)
+   {
+      UnionBranch union = UnionBranch.union(unionBranches, unionAll);
+      mSqlString = union.getSqlString();
+      mParameterNames = union.getParameterNames();
+      mUnionBranches = Collections.unmodifiableList(unionBranches);
+      mUnionWidth = unionBranches.size();
+      mUnionAll = unionAll;
    }
 
-   private void buildQueryMetadata(SqlQuery sqlQuery)
+   /*
+    * Builds the query metadata from the select items of the UNION branches. The rows of
+    * all the branches are read with the same metadata, therefore a branch that selects
+    * a URI where another selects a literal, or a literal of a different datatype, is
+    * rejected.
+    */
+   private void buildQueryMetadata(QuerySet<SqlQuery> querySet) throws QueryTranslationException
    {
-      List<SqlSelectItem> selectItems = sqlQuery.getSelectItems();
+      List<SqlSelectItem> selectItems = querySet.get(0).getSelectItems();
       int selectSize = selectItems.size();
       
       String[] selectNames = new String[selectSize];
       String[] selectTypes = new String[selectSize];
+      int[] termTypes = new int[selectSize];
       
       for (int i = 0; i < selectSize; i++) {
          final SqlSelectItem selectItem = selectItems.get(i);
@@ -138,14 +355,39 @@ public class QueryTranslator extends QueryResultLoader implements IQueryTranslat
           * object as a mapping term expression.
           */
          IMappingTerm mt = (IMappingTerm) selectItem.getExpression();
-         switch (mt.getTermType()) {
-            case TermType.LITERAL_TYPE: selectTypes[i] = mt.getDatatype(); break;
-            case TermType.URI_TYPE: selectTypes[i] = null; break;
+         termTypes[i] = mt.getTermType();
+         selectTypes[i] = getSelectType(mt);
+      }
+      for (int n = 1; n < querySet.size(); n++) {
+         List<SqlSelectItem> branchItems = querySet.get(n).getSelectItems();
+         for (int i = 0; i < selectSize; i++) {
+            IMappingTerm mt = (IMappingTerm) branchItems.get(i).getExpression();
+            String selectType = getSelectType(mt);
+            if (mt.getTermType() != termTypes[i]
+                  || (selectType == null ? selectTypes[i] != null : !selectType.equals(selectTypes[i]))) {
+               throw new QueryTranslationException(String.format(
+                     "UNION branches select different types for \"%s\": %s and %s", //$NON-NLS-1$
+                     selectNames[i], describeType(termTypes[i], selectTypes[i]),
+                     describeType(mt.getTermType(), selectType)));
+            }
          }
       }
       mQueryMetadata = new QueryMetadata(selectNames, selectTypes);
    }
 
+   private static String getSelectType(IMappingTerm mt)
+   {
+      return (mt.getTermType() == TermType.LITERAL_TYPE) ? mt.getDatatype() : null;
+   }
+
+   private static String describeType(int termType, String selectType)
+   {
+      if (termType == TermType.URI_TYPE) {
+         return "URI"; //$NON-NLS-1$
+      }
+      return (selectType == null) ? "literal" : selectType; //$NON-NLS-1$
+   }
+
    @Override
    public QueryMetadata getQueryMetadata()
    {
@@ -164,6 +406,69 @@ public class QueryTranslator extends QueryResultLoader implements IQueryTranslat
       return mSqlString;
    }
 
+   @Override
+   public List<String> getParameterNames()
+   {
+      return mParameterNames;
+   }
+
+   @Override
+   public List<UnionBranch> getUnionBranches()
+   {
+      return mUnionBranches;
+   }
+
+   /**
+    * Returns the number of SQL queries joined by UNION in the produced SQL string.
+    */
+   public int getUnionWidth()
+   {
+      return mUnionWidth;
+   }
+
+   @Override
+   public boolean isUnionAll()
+   {
+      return mUnionAll;
+   }
+
+   /**
+    * Returns <code>true</code> if the query has GROUP BY or aggregate functions. The
+    * produced SQL query then selects the variables of the query body, and the query
+    * must be evaluated with the aggregation modifier collected by {@link SelectQuery}.
+    */
+   public boolean hasAggregation()
+   {
+      return mAggregation;
+   }
+
+   void setAggregation(boolean aggregation)
+   {
+      mAggregation = aggregation;
+   }
+
+   @Override
+   public List<String> getUriTemplates()
+   {
+      return mUriTemplates;
+   }
+
+   @Override
+   public int[] getUriArities()
+   {
+      return mUriArities;
+   }
+
+   /**
+    * Returns the mappings that each UNION branch was unfolded from, following the order
+    * of the UNION branches. The list is empty if the translator was restored from a
+    * previous translation.
+    */
+   public List<List<IMapping>> getSourceMappings()
+   {
+      return mSourceMappings;
+   }
+
    public IQueryResult evaluate() throws QueryEvaluationException
    {
       return evaluate(new QueryModifiers(), new UserStatementSettings());
@@ -171,9 +476,40 @@ public class QueryTranslator extends QueryResultLoader implements IQueryTranslat
 
    public IQueryResult evaluate(QueryModifiers modifiers, UserStatementSettings userSettings)
          throws QueryEvaluationException
+   {
+      return evaluate(new QueryParameters(), modifiers, userSettings);
+   }
+
+   public IQueryResult evaluate(QueryParameters parameters, QueryModifiers modifiers, UserStatementSettings userSettings)
+         throws QueryEvaluationException
+   {
+      return evaluate(parameters, modifiers, userSettings, getQueryMetadata());
+   }
+
+   @Override
+   public IQueryResult evaluate(QueryParameters parameters, QueryModifiers modifiers, UserStatementSettings userSettings,
+         QueryMetadata metadata) throws QueryEvaluationException
    {
       try {
-         return super.evaluate(modifiers, userSettings);
+         return super.evaluate(parameters, modifiers, userSettings, metadata);
+      }
+      catch (SQLException e) {
+         throw new QueryEvaluationException(e);
+      }
+      catch (SemantikaException e) {
+         throw new QueryEvaluationException(e);
+      }
+   }
+
+   @Override
+   public void evaluate(QueryParameters parameters, QueryModifiers modifiers, UserStatementSettings userSettings,
+         QueryMetadata metadata, IQueryResultHandler handler) throws QueryEvaluationException
+   {
+      try {
+         super.evaluate(parameters, modifiers, userSettings, metadata, handler);
+      }
+      catch (QueryResultHandlerException e) {
+         throw new QueryEvaluationException("Exception occured when handling query results", e); //$NON-NLS-1$
       }
       catch (SQLException e) {
          throw new QueryEvaluationException(e);
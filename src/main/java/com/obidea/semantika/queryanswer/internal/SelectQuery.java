@@ -15,23 +15,47 @@
  */
 package com.obidea.semantika.queryanswer.internal;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.openrdf.query.MalformedQueryException;
 import org.openrdf.query.QueryLanguage;
+import org.openrdf.query.algebra.AggregateOperatorBase;
+import org.openrdf.query.algebra.Avg;
+import org.openrdf.query.algebra.Count;
+import org.openrdf.query.algebra.Extension;
+import org.openrdf.query.algebra.ExtensionElem;
+import org.openrdf.query.algebra.Group;
+import org.openrdf.query.algebra.Max;
+import org.openrdf.query.algebra.Min;
+import org.openrdf.query.algebra.Order;
+import org.openrdf.query.algebra.OrderElem;
+import org.openrdf.query.algebra.Projection;
+import org.openrdf.query.algebra.ProjectionElem;
 import org.openrdf.query.algebra.Slice;
+import org.openrdf.query.algebra.Sum;
 import org.openrdf.query.algebra.TupleExpr;
+import org.openrdf.query.algebra.UnaryTupleOperator;
+import org.openrdf.query.algebra.ValueExpr;
+import org.openrdf.query.algebra.Var;
 import org.openrdf.query.parser.ParsedQuery;
 import org.openrdf.query.parser.QueryParser;
 import org.openrdf.query.parser.QueryParserUtil;
 
+import com.obidea.semantika.database.sql.deparser.Sql99;
 import com.obidea.semantika.queryanswer.SparqlQueryEngine;
 import com.obidea.semantika.queryanswer.exception.QueryAnswerException;
 import com.obidea.semantika.queryanswer.exception.QueryParserException;
 import com.obidea.semantika.queryanswer.result.IQueryResult;
+import com.obidea.semantika.queryanswer.result.IQueryResultCursor;
 import com.obidea.semantika.queryanswer.result.IQueryResultHandler;
+import com.obidea.semantika.queryanswer.result.IValueArray;
 import com.obidea.semantika.queryanswer.result.ListResultHandler;
-import com.obidea.semantika.queryanswer.result.QueryResultHandlerException;
+import com.obidea.semantika.queryanswer.result.writer.IQueryResultWriter;
 
 public class SelectQuery
 {
@@ -39,18 +63,27 @@ public class SelectQuery
 
    private QueryModifiers mQueryModifiers = new QueryModifiers();
    private UserStatementSettings mUserStatementSettings = new UserStatementSettings();
+   private QueryParameters mQueryParameters = new QueryParameters();
 
    private String mSparqlString;
    private SparqlQueryEngine mQueryEngine;
    private QueryMetadata mQueryMetadata;
+   private Set<String> mParameterNames;
 
    public SelectQuery(String sparql, final SparqlQueryEngine engine, final QueryMetadata metadata)
          throws QueryParserException
    {
-      validateQuery(sparql);
+      this(sparql, Collections.<String>emptySet(), engine, metadata);
+   }
+
+   public SelectQuery(String sparql, Set<String> parameterNames, final SparqlQueryEngine engine,
+         final QueryMetadata metadata) throws QueryParserException
+   {
       mSparqlString = sparql;
+      mParameterNames = Collections.unmodifiableSet(new HashSet<String>(parameterNames));
       mQueryEngine = engine;
       mQueryMetadata = metadata;
+      validateQuery(sparql);
    }
 
    private void validateQuery(String sparqlString) throws QueryParserException
@@ -69,7 +102,7 @@ public class SelectQuery
       }
    }
 
-   private void addModifiersIfExist(ParsedQuery query)
+   private void addModifiersIfExist(ParsedQuery query) throws QueryParserException
    {
       TupleExpr expr = query.getTupleExpr();
       if (expr instanceof Slice) {
@@ -77,6 +110,118 @@ public class SelectQuery
          mQueryModifiers.setLimit((int) sliceExpr.getLimit());
          mQueryModifiers.setOffset((int) sliceExpr.getOffset());
       }
+      /*
+       * The projection, the ordering and the aggregation sit below the DISTINCT
+       * operator in the query tree, in this order.
+       */
+      Projection projectionExpr = null;
+      Order orderExpr = null;
+      Extension extensionExpr = null;
+      while (expr instanceof UnaryTupleOperator) {
+         if (expr instanceof Projection && projectionExpr == null) {
+            projectionExpr = (Projection) expr;
+         }
+         else if (expr instanceof Order && orderExpr == null) {
+            orderExpr = (Order) expr;
+         }
+         else if (expr instanceof Extension && extensionExpr == null) {
+            extensionExpr = (Extension) expr;
+         }
+         else if (expr instanceof Group) {
+            addAggregationModifier(projectionExpr, extensionExpr, (Group) expr);
+            break;
+         }
+         expr = ((UnaryTupleOperator) expr).getArg();
+      }
+      if (orderExpr != null) {
+         addOrderModifiers(orderExpr);
+      }
+   }
+
+   /*
+    * The aggregation is applied on top of the SQL query, which selects the group
+    * variables and the variables of the query body. The query projection is changed
+    * to the aggregated result.
+    */
+   private void addAggregationModifier(Projection projectionExpr, Extension extensionExpr, Group groupExpr)
+         throws QueryParserException
+   {
+      QueryAggregation aggregation = new QueryAggregation();
+      for (String name : groupExpr.getGroupBindingNames()) {
+         aggregation.addGroupColumn(name);
+      }
+      for (ProjectionElem projectionElem : projectionExpr.getProjectionElemList().getElements()) {
+         String name = projectionElem.getSourceName();
+         if (groupExpr.getGroupBindingNames().contains(name)) {
+            aggregation.addSelectColumn(name);
+            continue;
+         }
+         ValueExpr operator = getExtension(extensionExpr, name);
+         if (!(operator instanceof AggregateOperatorBase)) {
+            throw new QueryParserException("Variable is not grouped or aggregated: " + name); //$NON-NLS-1$
+         }
+         ValueExpr argument = ((AggregateOperatorBase) operator).getArg();
+         aggregation.addSelectAggregate(name, getAggregateFunction(operator),
+               (argument == null) ? null : ((Var) argument).getName(),
+               ((AggregateOperatorBase) operator).isDistinct());
+      }
+      mQueryMetadata = aggregation.createMetadata(mQueryMetadata, mQueryMetadata);
+      mQueryModifiers.setAggregation(aggregation);
+   }
+
+   private static ValueExpr getExtension(Extension extensionExpr, String name)
+   {
+      if (extensionExpr != null) {
+         for (ExtensionElem extensionElem : extensionExpr.getElements()) {
+            if (extensionElem.getName().equals(name)) {
+               return extensionElem.getExpr();
+            }
+         }
+      }
+      return null;
+   }
+
+   private static String getAggregateFunction(ValueExpr operator) throws QueryParserException
+   {
+      if (operator instanceof Count) {
+         return Sql99.COUNT;
+      }
+      else if (operator instanceof Sum) {
+         return Sql99.SUM;
+      }
+      else if (operator instanceof Min) {
+         return Sql99.MIN;
+      }
+      else if (operator instanceof Max) {
+         return Sql99.MAX;
+      }
+      else if (operator instanceof Avg) {
+         return Sql99.AVG;
+      }
+      throw new QueryParserException("Unsupported aggregate function: " + operator); //$NON-NLS-1$
+   }
+
+   /*
+    * The SPARQL ORDER BY is applied to the SQL query as order columns, which requires
+    * the ordered variables to appear in the projection.
+    */
+   private void addOrderModifiers(Order orderExpr) throws QueryParserException
+   {
+      for (OrderElem orderElem : orderExpr.getElements()) {
+         if (!(orderElem.getExpr() instanceof Var)) {
+            throw new QueryParserException("Unsupported ORDER BY expression: " + orderElem.getExpr()); //$NON-NLS-1$
+         }
+         String column = ((Var) orderElem.getExpr()).getName();
+         if (!mQueryMetadata.getSelectNames().contains(column)) {
+            throw new QueryParserException("ORDER BY variable must appear in the projection: " + column); //$NON-NLS-1$
+         }
+         if (orderElem.isAscending()) {
+            mQueryModifiers.setAscendingOrder(column);
+         }
+         else {
+            mQueryModifiers.setDescendingOrder(column);
+         }
+      }
    }
 
    public QueryMetadata getProjection()
@@ -94,6 +239,33 @@ public class SelectQuery
       return mQueryModifiers;
    }
 
+   public Set<String> getParameterNames()
+   {
+      return mParameterNames;
+   }
+
+   public QueryParameters getParameters()
+   {
+      return mQueryParameters;
+   }
+
+   /**
+    * Binds a value to the query parameter. The value is sent to the database as a
+    * bind variable so the query plan can be reused with different values.
+    *
+    * @throws IllegalArgumentException
+    *            if the name was not declared as a parameter when the query was
+    *            prepared.
+    */
+   public SelectQuery setParameter(String name, Object value)
+   {
+      if (!mParameterNames.contains(name)) {
+         throw new IllegalArgumentException("Unknown query parameter: " + name); //$NON-NLS-1$
+      }
+      mQueryParameters.setValue(name, value);
+      return this;
+   }
+
    public UserStatementSettings getTransactionSettings()
    {
       return mUserStatementSettings;
@@ -123,6 +295,36 @@ public class SelectQuery
       return this;
    }
 
+   /**
+    * Returns only the rows that come after the row that has the given values of the
+    * order columns, i.e., keyset pagination. Unlike {@link #setFirstResult(int)}, the
+    * database does not read and skip the rows of the previous pages, so reading a deep
+    * page costs as much as reading the first page. The values follow the order in
+    * which the order columns were set, and all order columns must have the same
+    * direction. The order columns should identify a row uniquely, otherwise the rows
+    * that share the key of the last row are skipped.
+    */
+   public SelectQuery seekAfter(Object... keyValues)
+   {
+      mQueryModifiers.setSeekValues(keyValues);
+      return this;
+   }
+
+   /**
+    * Returns only the rows that come after the given row, i.e., the last row of the
+    * previous page, using the values of the order columns.
+    *
+    * @see #seekAfter(Object...)
+    */
+   public SelectQuery seekAfter(IValueArray lastRow)
+   {
+      List<Object> keyValues = new ArrayList<Object>();
+      for (String column : mQueryModifiers.getOrderColumns()) {
+         keyValues.add(lastRow.get(column));
+      }
+      return seekAfter(keyValues.toArray());
+   }
+
    public void setFetchSize(int fetchSize)
    {
       mUserStatementSettings.setFetchSize(fetchSize);
@@ -138,24 +340,74 @@ public class SelectQuery
       mUserStatementSettings.setMaxRows(maxRows);
    }
 
+   /**
+    * Sets <code>true</code> to stream the query result from the database cursor. The
+    * returned result holds an open JDBC statement until it is fully read or closed,
+    * therefore the caller must close it when not all rows are read.
+    */
+   public void setStreaming(boolean streaming)
+   {
+      mUserStatementSettings.setStreaming(streaming);
+   }
+
    public IQueryResult evaluate() throws QueryAnswerException
    {
-      return mQueryEngine.evaluate(getQueryString(), getModifiers(), getTransactionSettings());
+      if (mParameterNames.isEmpty()) {
+         return mQueryEngine.evaluate(getQueryString(), getModifiers(), getTransactionSettings());
+      }
+      return mQueryEngine.evaluate(getQueryString(), getParameterNames(), getParameters(), getModifiers(),
+            getTransactionSettings());
    }
 
-   public void evaluate(IQueryResultHandler handler) throws QueryAnswerException
+   /**
+    * Evaluates the query and returns a cursor on the database result. The cursor gives
+    * typed access to the cells of each row without creating value objects, and holds
+    * an open JDBC statement until it is fully read or closed.
+    */
+   public IQueryResultCursor openCursor() throws QueryAnswerException
    {
-      try {
-         IQueryResult result = evaluate();
-         handler.start(result.getSelectNames());
-         while (result.next()) {
-            handler.handleResultFragment(result.getValueArray());
-         }
-         handler.stop();
+      UserStatementSettings settings = new UserStatementSettings(getTransactionSettings());
+      settings.setStreaming(true);
+      if (mParameterNames.isEmpty()) {
+         return (IQueryResultCursor) mQueryEngine.evaluate(getQueryString(), getModifiers(), settings);
       }
-      catch (QueryResultHandlerException e) {
-         throw new QueryEvaluationException("Exception occured when handling query results", e); //$NON-NLS-1$
+      return (IQueryResultCursor) mQueryEngine.evaluate(getQueryString(), getParameterNames(), getParameters(),
+            getModifiers(), settings);
+   }
+
+   /**
+    * Evaluates the query and writes the result with the given writer directly from the
+    * database cursor, so neither the rows nor their value objects are kept in memory.
+    */
+   public void evaluate(IQueryResultWriter writer) throws QueryAnswerException
+   {
+      writer.write(openCursor());
+   }
+
+   /**
+    * Evaluates the query and passes each row to the <code>handler</code> directly from
+    * the database fetch loop, so the rows are never buffered in memory. The handler
+    * can throw <code>QueryResultHandlerStopException</code> to stop receiving rows,
+    * which cancels the running statement.
+    */
+   public void evaluate(IQueryResultHandler handler) throws QueryAnswerException
+   {
+      mQueryEngine.evaluate(getQueryString(), getParameterNames(), getParameters(), getModifiers(),
+            getTransactionSettings(), handler);
+   }
+
+   /**
+    * Evaluates the query in the background. Cancelling the returned future cancels
+    * the running SQL statement. The query should not be modified until the future
+    * completes.
+    */
+   public CompletableFuture<IQueryResult> evaluateAsync()
+   {
+      if (mParameterNames.isEmpty()) {
+         return mQueryEngine.evaluateAsync(getQueryString(), getModifiers(), getTransactionSettings());
       }
+      return mQueryEngine.evaluateAsync(getQueryString(), getParameterNames(), getParameters(), getModifiers(),
+            getTransactionSettings());
    }
 
    public List<Object[]> list() throws QueryAnswerException
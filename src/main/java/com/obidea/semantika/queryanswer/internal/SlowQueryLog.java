@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.queryanswer.internal;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+
+import com.obidea.semantika.metrics.IMetrics;
+import com.obidea.semantika.util.LogUtils;
+
+/**
+ * Writes the query evaluations that take longer than a threshold to a local file.
+ * Each entry has the SPARQL query, the produced SQL query, the time of each stage and
+ * the number of rows. The file is rolled over when it reaches the maximum size, i.e.,
+ * <code>slow.log</code> is renamed to <code>slow.log.1</code>, <code>slow.log.1</code>
+ * to <code>slow.log.2</code> and so on, up to the maximum number of files.
+ */
+public class SlowQueryLog
+{
+   private final File mFile;
+   private final long mThreshold;
+   private final long mMaxSize;
+   private final int mMaxFiles;
+
+   private static final Logger LOG = LogUtils.createLogger("semantika.queryanswer"); //$NON-NLS-1$
+
+   /**
+    * Creates the slow query log.
+    *
+    * @param file
+    *           the log file.
+    * @param thresholdMillis
+    *           the evaluation time in milliseconds above which a query is logged.
+    * @param maxSize
+    *           the size in bytes at which the log file is rolled over.
+    * @param maxFiles
+    *           the number of rolled-over files to keep.
+    */
+   public SlowQueryLog(File file, long thresholdMillis, long maxSize, int maxFiles)
+   {
+      mFile = file;
+      mThreshold = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+      mMaxSize = maxSize;
+      mMaxFiles = maxFiles;
+   }
+
+   public File getFile()
+   {
+      return mFile;
+   }
+
+   /**
+    * Writes the evaluation to the log if its elapsed time is over the threshold.
+    */
+   public void log(String sparql, String sql, QueryTrace trace)
+   {
+      long elapsedTime = trace.getElapsedTime();
+      if (elapsedTime < mThreshold) {
+         return;
+      }
+      String entry = createEntry(sparql, sql, elapsedTime, trace);
+      synchronized (this) {
+         try {
+            rollOver();
+            Writer writer = new OutputStreamWriter(new FileOutputStream(mFile, true), StandardCharsets.UTF_8);
+            try {
+               writer.write(entry);
+            }
+            finally {
+               writer.close();
+            }
+         }
+         catch (IOException e) {
+            LOG.warn("Failed to write slow query log {}: {}", mFile, e.getMessage()); //$NON-NLS-1$
+         }
+      }
+   }
+
+   private static String createEntry(String sparql, String sql, long elapsedTime, QueryTrace trace)
+   {
+      Map<String, Long> counters = trace.getCounters();
+      Long rows = counters.get(IMetrics.EVALUATION_ROWS);
+      
+      StringBuilder sb = new StringBuilder();
+      sb.append("# ").append(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").format(new Date())); //$NON-NLS-1$ //$NON-NLS-2$
+      sb.append(" time=").append(toMillis(elapsedTime)).append("ms"); //$NON-NLS-1$ //$NON-NLS-2$
+      sb.append(" rows=").append((rows == null) ? 0 : rows); //$NON-NLS-1$
+      sb.append("\n"); //$NON-NLS-1$
+      sb.append("# stages:"); //$NON-NLS-1$
+      for (Map.Entry<String, Long> time : trace.getTimes().entrySet()) {
+         sb.append(" ").append(time.getKey()).append("=").append(toMillis(time.getValue())).append("ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+      }
+      sb.append("\n"); //$NON-NLS-1$
+      sb.append("# counters:"); //$NON-NLS-1$
+      for (Map.Entry<String, Long> counter : counters.entrySet()) {
+         sb.append(" ").append(counter.getKey()).append("=").append(counter.getValue()); //$NON-NLS-1$ //$NON-NLS-2$
+      }
+      sb.append("\n"); //$NON-NLS-1$
+      sb.append(sparql.trim()).append("\n"); //$NON-NLS-1$
+      sb.append("--\n"); //$NON-NLS-1$
+      if (sql != null) {
+         sb.append(sql.trim()).append("\n"); //$NON-NLS-1$
+      }
+      sb.append("\n"); //$NON-NLS-1$
+      return sb.toString();
+   }
+
+   private static String toMillis(long nanos)
+   {
+      return String.format(Locale.ROOT, "%.3f", nanos / 1000000.0); //$NON-NLS-1$
+   }
+
+   private void rollOver() throws IOException
+   {
+      if (mFile.length() < mMaxSize) {
+         return;
+      }
+      if (mMaxFiles <= 0) {
+         if (!mFile.delete()) {
+            throw new IOException("Unable to delete " + mFile); //$NON-NLS-1$
+         }
+         return;
+      }
+      File oldest = rolledFile(mMaxFiles);
+      if (oldest.exists() && !oldest.delete()) {
+         throw new IOException("Unable to delete " + oldest); //$NON-NLS-1$
+      }
+      for (int i = mMaxFiles - 1; i >= 1; i--) {
+         File file = rolledFile(i);
+         if (file.exists() && !file.renameTo(rolledFile(i + 1))) {
+            throw new IOException("Unable to rename " + file); //$NON-NLS-1$
+         }
+      }
+      if (!mFile.renameTo(rolledFile(1))) {
+         throw new IOException("Unable to rename " + mFile); //$NON-NLS-1$
+      }
+   }
+
+   private File rolledFile(int index)
+   {
+      return new File(mFile.getPath() + "." + index); //$NON-NLS-1$
+   }
+}
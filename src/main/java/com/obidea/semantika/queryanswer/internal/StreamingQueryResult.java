@@ -0,0 +1,360 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.queryanswer.internal;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+
+import com.obidea.semantika.datatype.DataType;
+import com.obidea.semantika.exception.SemantikaRuntimeException;
+import com.obidea.semantika.metrics.IMetrics;
+import com.obidea.semantika.metrics.NoOpMetrics;
+import com.obidea.semantika.queryanswer.internal.QueryMetadata.Column;
+import com.obidea.semantika.queryanswer.result.AbstractQueryResult;
+import com.obidea.semantika.queryanswer.result.ColumnVector;
+import com.obidea.semantika.queryanswer.result.ILiteral;
+import com.obidea.semantika.queryanswer.result.IQueryResultCursor;
+import com.obidea.semantika.queryanswer.result.IValue;
+import com.obidea.semantika.queryanswer.result.IValueArray;
+import com.obidea.semantika.queryanswer.result.ResultBatch;
+import com.obidea.semantika.queryanswer.result.ResultBatchBuilder;
+import com.obidea.semantika.util.LogUtils;
+
+/**
+ * A query result that reads the rows from the live JDBC result set on each call to
+ * <code>next()</code>, such that the memory usage does not depend on the number of
+ * rows. The JDBC statement and the database connection used by the evaluation stay
+ * open until the last row has been read or until <code>close()</code> is called,
+ * whichever comes first.
+ * <p>
+ * The value array of a row is created only when it is requested, so reading the
+ * rows through the typed getters does not create any value object.
+ */
+public class StreamingQueryResult extends AbstractQueryResult implements IQueryResultCursor
+{
+   private static final Logger LOG = LogUtils.createLogger("semantika.queryanswer"); //$NON-NLS-1$
+
+   private final PreparedStatement mStatement;
+   private final ResultSet mResultSet;
+   private final QueryMetadata mQueryMetadata;
+   private final IQueryEvaluator mQueryEvaluator;
+   private final IMetrics mMetrics;
+
+   private final List<String> mSelectLabels = new ArrayList<String>();
+
+   private IValueArray mValueArray;
+   private boolean mHasRow = false;
+
+   private boolean mIsClosed = false;
+
+   private long mFetchTime = 0;
+   private long mRowCount = 0;
+
+   public StreamingQueryResult(PreparedStatement ps, ResultSet rs, QueryMetadata metadata,
+         IQueryEvaluator queryEvaluator)
+   {
+      this(ps, rs, metadata, queryEvaluator, NoOpMetrics.INSTANCE);
+   }
+
+   /**
+    * Creates the streaming result that records the time spent on fetching the rows and
+    * the number of rows to the given metrics when the result is closed.
+    */
+   public StreamingQueryResult(PreparedStatement ps, ResultSet rs, QueryMetadata metadata,
+         IQueryEvaluator queryEvaluator, IMetrics metrics)
+   {
+      mStatement = ps;
+      mResultSet = rs;
+      mQueryMetadata = metadata;
+      mQueryEvaluator = queryEvaluator;
+      mMetrics = metrics;
+   }
+
+   @Override
+   public List<String> getSelectNames()
+   {
+      return mQueryMetadata.getSelectNames();
+   }
+
+   @Override
+   public IValueArray getValueArray()
+   {
+      if (mValueArray == null && mHasRow) {
+         try {
+            mValueArray = QueryResultLoader.getValueArrayFromResultSet(mResultSet, mQueryMetadata, mSelectLabels);
+         }
+         catch (SQLException e) {
+            throw readFailure(e);
+         }
+      }
+      return mValueArray;
+   }
+
+   /**
+    * Reads the cells of the batch with the typed JDBC getters, following the column
+    * datatypes of the query metadata.
+    */
+   @Override
+   public ResultBatch nextBatch(int maxRows)
+   {
+      List<String> datatypes = new ArrayList<String>(mQueryMetadata.size());
+      for (int i = 1; i <= mQueryMetadata.size(); i++) {
+         datatypes.add(mQueryMetadata.getColumn(i).getDatatype());
+      }
+      ResultBatchBuilder builder = new ResultBatchBuilder(getSelectNames(), datatypes, maxRows);
+      while (!builder.isFull() && next()) {
+         try {
+            for (int i = 0; i < datatypes.size(); i++) {
+               addCell(builder, i);
+            }
+         }
+         catch (SQLException e) {
+            throw readFailure(e);
+         }
+         builder.endRow();
+      }
+      return builder.isEmpty() ? null : builder.build();
+   }
+
+   private void addCell(ResultBatchBuilder builder, int index) throws SQLException
+   {
+      int position = index + 1;
+      int sqlPosition = mQueryMetadata.getColumn(position).getSqlPosition();
+      switch (builder.getEncoding(index)) {
+         case ColumnVector.LONG:
+            long longValue = mResultSet.getLong(sqlPosition);
+            if (mResultSet.wasNull()) {
+               builder.addNull(index);
+            }
+            else {
+               builder.addLong(index, longValue);
+            }
+            break;
+         case ColumnVector.DOUBLE:
+            double doubleValue = mResultSet.getDouble(sqlPosition);
+            if (mResultSet.wasNull()) {
+               builder.addNull(index);
+            }
+            else {
+               builder.addDouble(index, doubleValue);
+            }
+            break;
+         default:
+            builder.addString(index, getString(position));
+      }
+   }
+
+   @Override
+   public int findColumn(String selectName)
+   {
+      int position = mQueryMetadata.getPosition(selectName);
+      if (position == 0) {
+         throw new IllegalArgumentException("Unknown select name: " + selectName); //$NON-NLS-1$
+      }
+      return position;
+   }
+
+   @Override
+   public String getDatatype(int position)
+   {
+      return mQueryMetadata.getColumn(position).getDatatype();
+   }
+
+   /*
+    * Only a plain literal can have a language tag, so the value object is created for
+    * the cells of the plain literal columns alone.
+    */
+   @Override
+   public String getLanguage(int position)
+   {
+      if (!DataType.PLAIN_LITERAL.equals(getDatatype(position))) {
+         return null;
+      }
+      IValue value = getValue(position);
+      if (value instanceof ILiteral) {
+         String language = ((ILiteral) value).getLanguage();
+         return (language == null || language.isEmpty()) ? null : language;
+      }
+      return null;
+   }
+
+   @Override
+   public boolean isNull(int position)
+   {
+      return getString(position) == null;
+   }
+
+   @Override
+   public String getString(int position)
+   {
+      try {
+         Column c = mQueryMetadata.getColumn(position);
+         if (!c.isLiteral()) {
+            return QueryResultLoader.getUriString(mResultSet, c);
+         }
+         return mResultSet.getString(c.getSqlPosition());
+      }
+      catch (SQLException e) {
+         throw readFailure(e);
+      }
+   }
+
+   @Override
+   public long getLong(int position)
+   {
+      checkLiteral(position);
+      try {
+         return mResultSet.getLong(getSqlPosition(position));
+      }
+      catch (SQLException e) {
+         throw readFailure(e);
+      }
+   }
+
+   @Override
+   public double getDouble(int position)
+   {
+      checkLiteral(position);
+      try {
+         return mResultSet.getDouble(getSqlPosition(position));
+      }
+      catch (SQLException e) {
+         throw readFailure(e);
+      }
+   }
+
+   @Override
+   public boolean getBoolean(int position)
+   {
+      checkLiteral(position);
+      try {
+         return mResultSet.getBoolean(getSqlPosition(position));
+      }
+      catch (SQLException e) {
+         throw readFailure(e);
+      }
+   }
+
+   @Override
+   public Timestamp getTimestamp(int position)
+   {
+      checkLiteral(position);
+      try {
+         return mResultSet.getTimestamp(getSqlPosition(position));
+      }
+      catch (SQLException e) {
+         throw readFailure(e);
+      }
+   }
+
+   @Override
+   public IValue getValue(int position)
+   {
+      if (mValueArray != null) {
+         return mValueArray.get(mQueryMetadata.getColumn(position).getLabel());
+      }
+      try {
+         return QueryResultLoader.getValue(mResultSet, mQueryMetadata, position);
+      }
+      catch (SQLException e) {
+         throw readFailure(e);
+      }
+   }
+
+   private int getSqlPosition(int position)
+   {
+      return mQueryMetadata.getColumn(position).getSqlPosition();
+   }
+
+   /*
+    * A URI column holds strings, so only its string value can be read.
+    */
+   private void checkLiteral(int position)
+   {
+      if (!mQueryMetadata.getColumn(position).isLiteral()) {
+         throw new IllegalStateException("Column " + position + " contains URIs"); //$NON-NLS-1$ //$NON-NLS-2$
+      }
+   }
+
+   private SemantikaRuntimeException readFailure(SQLException e)
+   {
+      return new SemantikaRuntimeException("Failed to read the query result", e); //$NON-NLS-1$
+   }
+
+   /**
+    * Moves the cursor to the next row. The result is closed automatically after the
+    * last row.
+    *
+    * @throws SemantikaRuntimeException
+    *            if the database failed to provide the next row. The result is closed
+    *            before the exception is thrown.
+    */
+   @Override
+   public boolean next()
+   {
+      if (mIsClosed) {
+         return false;
+      }
+      long start = System.nanoTime();
+      try {
+         mValueArray = null;
+         mHasRow = mResultSet.next();
+         mFetchTime += System.nanoTime() - start;
+         if (mHasRow) {
+            mRowCount++;
+            return true;
+         }
+      }
+      catch (SQLException e) {
+         mHasRow = false;
+         close();
+         throw new SemantikaRuntimeException("Failed to fetch the next query result", e); //$NON-NLS-1$
+      }
+      close();
+      return false;
+   }
+
+   public boolean isClosed()
+   {
+      return mIsClosed;
+   }
+
+   @Override
+   public void close()
+   {
+      if (mIsClosed) {
+         return;
+      }
+      mIsClosed = true;
+      mHasRow = false;
+      QueryResultLoader.recordFetch(mMetrics, mFetchTime, mRowCount);
+      try {
+         mQueryEvaluator.closeQueryStatement(mStatement, mResultSet);
+      }
+      catch (SQLException e) {
+         LOG.warn("Could not close the JDBC statement of a query result", e); //$NON-NLS-1$
+      }
+      finally {
+         mQueryEvaluator.close();
+      }
+   }
+}
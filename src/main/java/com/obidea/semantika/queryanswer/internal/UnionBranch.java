@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.queryanswer.internal;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.obidea.semantika.database.sql.deparser.Sql99;
+
+/**
+ * A single SQL query of the UNION produced by the query translation, together with
+ * the names of its query parameters following the order of the bind variables. The
+ * branch also keeps the SQL expression behind each select label, which is used to
+ * place the ordering and the keyset pagination on the underlying columns.
+ */
+public final class UnionBranch
+{
+   private final String mSqlString;
+   private final List<String> mParameterNames;
+   private final Map<String, SelectColumn> mSelectColumns;
+   private final boolean mHasWhereClause;
+   private final String mDeferredSqlString;
+
+   public UnionBranch(String sqlString, List<String> parameterNames)
+   {
+      this(sqlString, parameterNames, Collections.<String, SelectColumn>emptyMap(), false);
+   }
+
+   /**
+    * Creates a branch with the SQL expressions of its select items, keyed by the
+    * select label.
+    */
+   public UnionBranch(String sqlString, List<String> parameterNames, Map<String, SelectColumn> selectColumns,
+         boolean hasWhereClause)
+   {
+      this(sqlString, parameterNames, selectColumns, hasWhereClause, null);
+   }
+
+   /**
+    * Creates a branch that also has the SQL string of the deferred URI construction,
+    * i.e., the SQL query that projects the URI template arguments instead of the URI
+    * strings. Both SQL strings use the same query parameters.
+    */
+   public UnionBranch(String sqlString, List<String> parameterNames, Map<String, SelectColumn> selectColumns,
+         boolean hasWhereClause, String deferredSqlString)
+   {
+      mSqlString = sqlString;
+      mParameterNames = Collections.unmodifiableList(new ArrayList<String>(parameterNames));
+      mSelectColumns = Collections.unmodifiableMap(new HashMap<String, SelectColumn>(selectColumns));
+      mHasWhereClause = hasWhereClause;
+      mDeferredSqlString = deferredSqlString;
+   }
+
+   /**
+    * Joins the given branches into a single branch using the SQL UNION operator.
+    */
+   public static UnionBranch union(List<UnionBranch> branches)
+   {
+      return union(branches, false);
+   }
+
+   /**
+    * Joins the given branches into a single branch using UNION ALL if
+    * <code>unionAll</code> is <code>true</code>, or UNION otherwise.
+    */
+   public static UnionBranch union(List<UnionBranch> branches, boolean unionAll)
+   {
+      StringBuilder sb = new StringBuilder();
+      List<String> parameterNames = new ArrayList<String>();
+      boolean needUnion = false;
+      for (UnionBranch branch : branches) {
+         if (needUnion) {
+            sb.append("\n"); //$NON-NLS-1$
+            sb.append(unionAll ? Sql99.UNION_ALL : Sql99.UNION);
+            sb.append("\n"); //$NON-NLS-1$
+         }
+         sb.append(branch.getSqlString());
+         parameterNames.addAll(branch.getParameterNames());
+         needUnion = true;
+      }
+      return new UnionBranch(sb.toString(), parameterNames);
+   }
+
+   public String getSqlString()
+   {
+      return mSqlString;
+   }
+
+   public List<String> getParameterNames()
+   {
+      return mParameterNames;
+   }
+
+   /**
+    * Returns the select item with the given label, or <code>null</code> if the label
+    * is unknown.
+    */
+   public SelectColumn getSelectColumn(String label)
+   {
+      return mSelectColumns.get(label);
+   }
+
+   public Map<String, SelectColumn> getSelectColumns()
+   {
+      return mSelectColumns;
+   }
+
+   public boolean hasWhereClause()
+   {
+      return mHasWhereClause;
+   }
+
+   public boolean hasDeferredSqlString()
+   {
+      return mDeferredSqlString != null;
+   }
+
+   /**
+    * Returns the SQL string of the deferred URI construction, or <code>null</code> if
+    * the branch doesn't have one.
+    */
+   public String getDeferredSqlString()
+   {
+      return mDeferredSqlString;
+   }
+
+   /**
+    * Returns this branch with the SQL string of the deferred URI construction as its
+    * SQL string.
+    */
+   public UnionBranch deferred()
+   {
+      return new UnionBranch(mDeferredSqlString, mParameterNames, mSelectColumns, mHasWhereClause);
+   }
+
+   /**
+    * The SQL expression of a select item. A select item that constructs a URI also
+    * keeps its URI template and the SQL expressions (and their JDBC types) of the
+    * template arguments.
+    */
+   public static final class SelectColumn
+   {
+      private final String mExpression;
+      private final String mUriTemplate;
+      private final List<String> mArgumentExpressions;
+      private final List<Integer> mArgumentTypes;
+
+      public SelectColumn(String expression)
+      {
+         this(expression, null, Collections.<String>emptyList(), Collections.<Integer>emptyList());
+      }
+
+      public SelectColumn(String expression, String uriTemplate, List<String> argumentExpressions,
+            List<Integer> argumentTypes)
+      {
+         mExpression = expression;
+         mUriTemplate = uriTemplate;
+         mArgumentExpressions = Collections.unmodifiableList(new ArrayList<String>(argumentExpressions));
+         mArgumentTypes = Collections.unmodifiableList(new ArrayList<Integer>(argumentTypes));
+      }
+
+      public String getExpression()
+      {
+         return mExpression;
+      }
+
+      public boolean isUri()
+      {
+         return mUriTemplate != null;
+      }
+
+      public String getUriTemplate()
+      {
+         return mUriTemplate;
+      }
+
+      public List<String> getArgumentExpressions()
+      {
+         return mArgumentExpressions;
+      }
+
+      public List<Integer> getArgumentTypes()
+      {
+         return mArgumentTypes;
+      }
+
+      /**
+       * Returns <code>true</code> if sorting the URIs by the template argument gives
+       * the same order as sorting the URI strings. This holds when the template ends
+       * with its only argument and the argument is a character column, because all
+       * the URIs then share the same prefix. A numeric argument does not qualify, e.g.,
+       * <code>.../emp/10</code> sorts before <code>.../emp/9</code> as a string.
+       */
+      public boolean isOrderedByArguments()
+      {
+         return isUri() && mArgumentExpressions.size() == 1
+               && mUriTemplate.matches("[^{}]*\\{\\d+\\}") //$NON-NLS-1$
+               && isCharacterType(mArgumentTypes.get(0));
+      }
+
+      private static boolean isCharacterType(int type)
+      {
+         switch (type) {
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+               return true;
+            default:
+               return false;
+         }
+      }
+   }
+}
@@ -15,11 +15,34 @@
  */
 package com.obidea.semantika.queryanswer.internal;
 
+import com.obidea.semantika.metrics.IMetrics;
+
 public final class UserStatementSettings
 {
    private Integer mQueryTimeout = null;
    private Integer mFetchSize = null;
    private Integer mMaxRows = null;
+   private boolean mStreaming = false;
+   private QueryCancellation mCancellation = null;
+   private IMetrics mMetrics = null;
+
+   public UserStatementSettings()
+   {
+      // NO-OP
+   }
+
+   /**
+    * Creates a copy of the given settings.
+    */
+   public UserStatementSettings(UserStatementSettings settings)
+   {
+      mQueryTimeout = settings.mQueryTimeout;
+      mFetchSize = settings.mFetchSize;
+      mMaxRows = settings.mMaxRows;
+      mStreaming = settings.mStreaming;
+      mCancellation = settings.mCancellation;
+      mMetrics = settings.mMetrics;
+   }
 
    public void setQueryTimeout(Integer timeout)
    {
@@ -50,4 +73,45 @@ public final class UserStatementSettings
    {
       return mMaxRows;
    }
+
+   /**
+    * Sets <code>true</code> if the query result should read the rows directly from the
+    * database cursor instead of loading all the rows into memory first.
+    */
+   public void setStreaming(boolean streaming)
+   {
+      mStreaming = streaming;
+   }
+
+   public boolean isStreaming()
+   {
+      return mStreaming;
+   }
+
+   /**
+    * Sets the handle that can cancel the running statement from another thread.
+    */
+   public void setCancellation(QueryCancellation cancellation)
+   {
+      mCancellation = cancellation;
+   }
+
+   public QueryCancellation getCancellation()
+   {
+      return mCancellation;
+   }
+
+   /**
+    * Sets the metrics that receive the timings of this evaluation instead of the
+    * metrics of the query engine.
+    */
+   public void setMetrics(IMetrics metrics)
+   {
+      mMetrics = metrics;
+   }
+
+   public IMetrics getMetrics()
+   {
+      return mMetrics;
+   }
 }
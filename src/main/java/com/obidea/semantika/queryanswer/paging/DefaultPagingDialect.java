@@ -17,30 +17,97 @@ package com.obidea.semantika.queryanswer.paging;
 
 import java.util.List;
 
+import com.obidea.semantika.database.sql.deparser.Sql99;
+
+/**
+ * Applies the ordering, the limit and the offset directly to the UNION of the SQL
+ * queries, i.e., without wrapping the UNION in a subquery. When there is a limit, each
+ * query of the UNION gets its own limit of <code>offset + limit</code> rows, which is
+ * the most number of rows a single query can contribute to the requested page. The
+ * outer limit then picks the page from these rows.
+ */
 public class DefaultPagingDialect implements IPagingDialect
 {
    @Override
-   public String paging(String sql, int limit, int offset, List<String> ascOrder, List<String> descOrder)
+   public String paging(List<String> unionBranches, boolean unionAll, int limit, int offset, List<String> orderBy)
    {
       StringBuilder pagingQuery = new StringBuilder();
-      return pagingQuery.append(baseSubQuery(sql))
-            .append(getOrderBy(ascOrder, descOrder))
-            .append(getLimit(limit))
-            .append(getOffset(offset))
+      if (unionBranches.size() == 1) {
+         pagingQuery.append(unionBranches.get(0));
+      }
+      else if (limit > 0) {
+         pagingQuery.append(limitedUnion(unionBranches, unionAll, limit + Math.max(offset, 0), orderBy));
+      }
+      else {
+         pagingQuery.append(union(unionBranches, unionAll));
+      }
+      return pagingQuery.append(getOrderBy(orderBy))
+            .append(getLimitOffset(limit, offset))
             .toString();
    }
 
-   protected String baseSubQuery(String sql)
+   protected String union(List<String> unionBranches, boolean unionAll)
    {
       StringBuilder sb = new StringBuilder();
-      sb.append("SELECT PAGING.* FROM ("); //$NON-NLS-1$
-      sb.append("\n"); //$NON-NLS-1$
-      sb.append("   "); //$NON-NLS-1$
-      sb.append(indent(sql));
-      sb.append("\n"); //$NON-NLS-1$
-      sb.append(") AS PAGING"); //$NON-NLS-1$
+      boolean needUnion = false;
+      for (String branch : unionBranches) {
+         if (needUnion) {
+            sb.append("\n"); //$NON-NLS-1$
+            sb.append(getUnionOperator(unionAll));
+            sb.append("\n"); //$NON-NLS-1$
+         }
+         sb.append(branch);
+         needUnion = true;
+      }
       return sb.toString();
    }
+
+   /*
+    * The UNION removes duplicate rows, therefore each limited query must return
+    * distinct rows. Otherwise a query whose first rows are duplicates would contribute
+    * fewer rows to the page than it actually has. UNION ALL keeps the duplicates, so
+    * the queries are limited as they are.
+    */
+   protected String limitedUnion(List<String> unionBranches, boolean unionAll, int branchLimit,
+         List<String> orderBy)
+   {
+      StringBuilder sb = new StringBuilder();
+      boolean needUnion = false;
+      for (String branch : unionBranches) {
+         if (needUnion) {
+            sb.append("\n"); //$NON-NLS-1$
+            sb.append(getUnionOperator(unionAll));
+            sb.append("\n"); //$NON-NLS-1$
+         }
+         sb.append("("); //$NON-NLS-1$
+         sb.append(indent((unionAll ? branch : distinct(branch))
+               + getOrderBy(orderBy)
+               + getLimit(branchLimit)));
+         sb.append(")"); //$NON-NLS-1$
+         needUnion = true;
+      }
+      return sb.toString();
+   }
+
+   protected String getUnionOperator(boolean unionAll)
+   {
+      return unionAll ? Sql99.UNION_ALL : Sql99.UNION;
+   }
+
+   protected String distinct(String sql)
+   {
+      String select = Sql99.SELECT + " "; //$NON-NLS-1$
+      String selectDistinct = select + Sql99.DISTINCT + " "; //$NON-NLS-1$
+      if (sql.startsWith(select) && !sql.startsWith(selectDistinct)) {
+         return selectDistinct + sql.substring(select.length());
+      }
+      return sql;
+   }
+
+   protected String getLimitOffset(int limit, int offset)
+   {
+      return getLimit(limit) + getOffset(offset);
+   }
    
    protected String getLimit(int limit)
    {
@@ -60,27 +127,18 @@ public class DefaultPagingDialect implements IPagingDialect
       return offsetStr;
    }
    
-   protected String getOrderBy(List<String> ascOrder, List<String> descOrder)
+   protected String getOrderBy(List<String> orderBy)
    {
       String orderStr = ""; //$NON-NLS-1$
-      StringBuilder orderBuilder = new StringBuilder();
-      if (!ascOrder.isEmpty() || !descOrder.isEmpty()) {
-         orderBuilder.append("ORDER BY"); //$NON-NLS-1$
+      if (!orderBy.isEmpty()) {
+         StringBuilder orderBuilder = new StringBuilder();
+         orderBuilder.append("ORDER BY "); //$NON-NLS-1$
          boolean needComma = false;
-         for (String item : ascOrder) {
-            if (needComma) {
-               orderBuilder.append(", "); //$NON-NLS-1$
-            }
-            orderBuilder.append(item);
-            orderBuilder.append(" ASC"); //$NON-NLS-1$
-            needComma = true;
-         }
-         for (String item : descOrder) {
+         for (String item : orderBy) {
             if (needComma) {
                orderBuilder.append(", "); //$NON-NLS-1$
             }
             orderBuilder.append(item);
-            orderBuilder.append(" DESC"); //$NON-NLS-1$
             needComma = true;
          }
          orderStr = "\n" + orderBuilder.toString(); //$NON-NLS-1$
@@ -19,5 +19,11 @@ import java.util.List;
 
 public interface IPagingDialect
 {
-   String paging(String sql, int limit, int offset, List<String> ascOrder, List<String> descOrder);
+   /**
+    * Returns the SQL string that applies the ordering, the limit and the offset to the
+    * UNION of the given SQL queries. The <code>orderBy</code> items are the sort
+    * expressions followed by their direction, e.g., <code>name ASC</code>. The queries
+    * are joined by UNION ALL if <code>unionAll</code> is <code>true</code>.
+    */
+   String paging(List<String> unionBranches, boolean unionAll, int limit, int offset, List<String> orderBy);
 }
@@ -17,5 +17,18 @@ package com.obidea.semantika.queryanswer.paging;
 
 public class MySqlPagingDialect extends DefaultPagingDialect
 {
-   // NO-OP
+   /*
+    * MySQL does not accept OFFSET without LIMIT, so the offset-only paging uses the
+    * largest possible limit as suggested by the MySQL reference manual.
+    */
+   private static final String MAX_LIMIT = "18446744073709551615"; //$NON-NLS-1$
+
+   @Override
+   protected String getLimitOffset(int limit, int offset)
+   {
+      if (limit <= 0 && offset > 0) {
+         return "\n" + "LIMIT " + MAX_LIMIT + getOffset(offset); //$NON-NLS-1$ //$NON-NLS-2$
+      }
+      return super.getLimitOffset(limit, offset);
+   }
 }
@@ -15,8 +15,11 @@
  */
 package com.obidea.semantika.queryanswer.paging;
 
+import java.util.Collections;
 import java.util.List;
 
+import com.obidea.semantika.database.sql.deparser.Sql99;
+
 public class SqlPaging
 {
    private IPagingDialect mDialect;
@@ -31,8 +34,63 @@ public class SqlPaging
       mDialect = dialect;
    }
 
-   public String createPaging(String sql, int limit, int offset, List<String> ascOrder, List<String> descOrder)
+   public String createPaging(String sql, int limit, int offset, List<String> orderBy)
+   {
+      return createPaging(Collections.singletonList(sql), false, limit, offset, orderBy);
+   }
+
+   /**
+    * Creates the paging of the UNION of the given SQL queries. The limit is pushed into
+    * each query such that the database does not need to produce the complete UNION.
+    */
+   public String createPaging(List<String> unionBranches, boolean unionAll, int limit, int offset,
+         List<String> orderBy)
+   {
+      return mDialect.paging(unionBranches, unionAll, limit, offset, orderBy);
+   }
+
+   /**
+    * Creates the item of the ORDER BY clause that sorts the given expression.
+    */
+   public String createOrderItem(String expression, boolean descending)
+   {
+      return expression + (descending ? " DESC" : " ASC"); //$NON-NLS-1$ //$NON-NLS-2$
+   }
+
+   /**
+    * Adds the keyset pagination predicate to the given SQL query, i.e.,
+    * <code>(k1, k2) &gt; (?, ?)</code>, or <code>&lt;</code> if the ordering is
+    * descending. The bind variables of the predicate follow the order of the key
+    * expressions and come after the existing bind variables of the query.
+    */
+   public String createSeek(String sql, boolean hasWhereClause, List<String> keyExpressions, boolean descending)
    {
-      return mDialect.paging(sql, limit, offset, ascOrder, descOrder);
+      StringBuilder sb = new StringBuilder(sql.trim());
+      sb.append("\n"); //$NON-NLS-1$
+      sb.append(hasWhereClause ? Sql99.AND : Sql99.WHERE);
+      sb.append(" "); //$NON-NLS-1$
+      if (keyExpressions.size() == 1) {
+         sb.append(keyExpressions.get(0));
+         sb.append(descending ? " < ?" : " > ?"); //$NON-NLS-1$ //$NON-NLS-2$
+      }
+      else {
+         StringBuilder placeholders = new StringBuilder();
+         sb.append("("); //$NON-NLS-1$
+         boolean needComma = false;
+         for (String expression : keyExpressions) {
+            if (needComma) {
+               sb.append(", "); //$NON-NLS-1$
+               placeholders.append(", "); //$NON-NLS-1$
+            }
+            sb.append(expression);
+            placeholders.append("?"); //$NON-NLS-1$
+            needComma = true;
+         }
+         sb.append(")"); //$NON-NLS-1$
+         sb.append(descending ? " < (" : " > ("); //$NON-NLS-1$ //$NON-NLS-2$
+         sb.append(placeholders);
+         sb.append(")"); //$NON-NLS-1$
+      }
+      return sb.toString();
    }
 }
@@ -15,6 +15,11 @@
  */
 package com.obidea.semantika.queryanswer.parser;
 
+import java.util.Collections;
+import java.util.List;
+
+import com.obidea.semantika.expression.base.IQueryExt;
+
 public abstract class AbstractSparqlParser implements ISparqlParser
 {
    private String mName;
@@ -29,4 +34,13 @@ public abstract class AbstractSparqlParser implements ISparqlParser
    {
       return mName;
    }
+
+   /**
+    * Parses the SPARQL string into one query for each UNION branch. The default
+    * implementation returns the single query produced by {@link #parse(String)}.
+    */
+   public List<IQueryExt> parseUnion(String sparqlString) throws SparqlParserException
+   {
+      return Collections.singletonList(parse(sparqlString));
+   }
 }
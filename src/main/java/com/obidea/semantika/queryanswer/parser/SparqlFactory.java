@@ -15,6 +15,8 @@
  */
 package com.obidea.semantika.queryanswer.parser;
 
+import java.util.Set;
+
 import com.obidea.semantika.expression.base.IQueryExt;
 import com.obidea.semantika.expression.base.QuerySet;
 
@@ -25,11 +27,22 @@ public class SparqlFactory
       return create(sparqlString, new SparqlParser());
    }
 
+   /**
+    * Creates the query set from the given SPARQL string where the variables listed in
+    * <code>parameterNames</code> are treated as query parameters, i.e., placeholders for
+    * literal values that are given at the query evaluation.
+    */
+   public static QuerySet<IQueryExt> create(String sparqlString, Set<String> parameterNames) throws SparqlParserException
+   {
+      return create(sparqlString, new SparqlParser(parameterNames));
+   }
+
    public static QuerySet<IQueryExt> create(String sparqlString, AbstractSparqlParser parser) throws SparqlParserException
    {
-      IQueryExt query = parser.parse(sparqlString);
       QuerySet<IQueryExt> querySet = new QuerySet<IQueryExt>();
-      querySet.add(query);
+      for (IQueryExt query : parser.parseUnion(sparqlString)) {
+         querySet.add(query);
+      }
       return querySet;
    }
 }
@@ -15,6 +15,10 @@
  */
 package com.obidea.semantika.queryanswer.parser;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
 import org.openrdf.query.MalformedQueryException;
 import org.openrdf.query.QueryLanguage;
 import org.openrdf.query.parser.ParsedQuery;
@@ -25,20 +29,61 @@ import com.obidea.semantika.expression.base.IQueryExt;
 
 public class SparqlParser extends AbstractSparqlParser
 {
+   private Set<String> mParameterNames;
+
+   private boolean mAggregation;
+
+   private List<String> mGroupVariables = Collections.emptyList();
+
    public SparqlParser()
+   {
+      this(Collections.<String>emptySet());
+   }
+
+   public SparqlParser(Set<String> parameterNames)
    {
       super("Sesame query model parser"); //$NON-NLS-1$
+      mParameterNames = parameterNames;
+   }
+
+   /**
+    * Returns <code>true</code> if the last parsed query has GROUP BY or aggregate
+    * functions.
+    */
+   public boolean hasAggregation()
+   {
+      return mAggregation;
+   }
+
+   /**
+    * Returns the GROUP BY variables of the last parsed query.
+    */
+   public List<String> getGroupVariables()
+   {
+      return mGroupVariables;
    }
 
    @Override
    public IQueryExt parse(String sparqlString) throws SparqlParserException
+   {
+      List<IQueryExt> queries = parseUnion(sparqlString);
+      if (queries.size() > 1) {
+         throw new UnsupportedSparqlExpressionException("UNION"); //$NON-NLS-1$
+      }
+      return queries.get(0);
+   }
+
+   @Override
+   public List<IQueryExt> parseUnion(String sparqlString) throws SparqlParserException
    {
       try {
          QueryParser parser = QueryParserUtil.createParser(QueryLanguage.SPARQL);
          ParsedQuery query = parser.parseQuery(sparqlString, null); // base URI is null
-         SparqlQueryHandler handler = new SparqlQueryHandler();
+         SparqlQueryHandler handler = new SparqlQueryHandler(mParameterNames);
          query.getTupleExpr().visit(handler);
-         return handler.getSparql();
+         mAggregation = handler.hasAggregation();
+         mGroupVariables = handler.getGroupVariables();
+         return handler.getSparqlQueries();
       }
       catch (MalformedQueryException e) {
          throw new SparqlParserException("SPARQL syntax error", e);
@@ -17,10 +17,16 @@ package com.obidea.semantika.queryanswer.parser;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.openrdf.model.Value;
 import org.openrdf.query.algebra.Add;
+import org.openrdf.query.algebra.AggregateOperator;
+import org.openrdf.query.algebra.AggregateOperatorBase;
 import org.openrdf.query.algebra.And;
 import org.openrdf.query.algebra.ArbitraryLengthPath;
 import org.openrdf.query.algebra.Avg;
@@ -102,6 +108,7 @@ import org.openrdf.query.algebra.ValueConstant;
 import org.openrdf.query.algebra.ValueExpr;
 import org.openrdf.query.algebra.Var;
 import org.openrdf.query.algebra.ZeroLengthPath;
+import org.openrdf.query.algebra.helpers.QueryModelVisitorBase;
 
 import com.obidea.semantika.datatype.DataType;
 import com.obidea.semantika.expression.ExpressionObjectFactory;
@@ -117,7 +124,7 @@ import com.obidea.semantika.expression.base.Join;
 import com.obidea.semantika.expression.base.QueryExt;
 import com.obidea.semantika.expression.base.TermUtils;
 import com.obidea.semantika.mapping.base.TripleAtom;
-import com.obidea.semantika.util.Serializer;
+import com.obidea.semantika.util.ObjectCopier;
 
 public class SparqlQueryHandler implements QueryModelVisitor<SparqlParserException>
 {
@@ -129,17 +136,103 @@ public class SparqlQueryHandler implements QueryModelVisitor<SparqlParserExcepti
 
    private List<IVariable> mVarList;
 
-   private IAtom mQueryExpression;
+   /*
+    * The alternatives of the current graph pattern. A graph pattern without UNION has
+    * a single alternative.
+    */
+   private List<QueryBranch> mQueryBranches;
+
+   private Set<String> mParameterNames;
+
+   /*
+    * The projection of an aggregate query, i.e., the group variables and the aggregate
+    * arguments, or null if the query has no aggregation.
+    */
+   private Set<String> mAggregateProjection;
+
+   private List<String> mGroupVariables = Collections.emptyList();
 
    public SparqlQueryHandler()
+   {
+      this(Collections.<String>emptySet());
+   }
+
+   /**
+    * Creates the handler where the variables listed in <code>parameterNames</code> are
+    * translated as query parameters instead of ordinary variables.
+    */
+   public SparqlQueryHandler(Set<String> parameterNames)
    {
       mQueryExt = createEmptyQuery();
+      mParameterNames = parameterNames;
+   }
+
+   /**
+    * Returns <code>true</code> if the query has GROUP BY or aggregate functions, in
+    * which case the translated query selects the variables of the query body and the
+    * aggregation has to be applied on top of it.
+    */
+   public boolean hasAggregation()
+   {
+      return mAggregateProjection != null;
+   }
+
+   /**
+    * Returns the GROUP BY variables of the query, or an empty list if the query has
+    * no GROUP BY clause.
+    */
+   public List<String> getGroupVariables()
+   {
+      return mGroupVariables;
+   }
+
+   public IQueryExt getSparql() throws SparqlParserException
+   {
+      List<IQueryExt> queries = getSparqlQueries();
+      if (queries.size() > 1) {
+         throw new IllegalStateException("The query has more than one UNION branch"); //$NON-NLS-1$
+      }
+      return queries.get(0);
    }
 
-   public IQueryExt getSparql()
+   /**
+    * Returns the translated query, one for each UNION branch. Each query has the same
+    * projection as the input query and the filters that apply to its branch.
+    *
+    * @throws SparqlParserException
+    *            if a projected variable doesn't appear in every UNION branch.
+    */
+   public List<IQueryExt> getSparqlQueries() throws SparqlParserException
    {
-      mQueryExt.addAtom(getQueryBody());
-      return mQueryExt;
+      if (mQueryBranches == null) {
+         throw new SparqlParserException("The query has no graph pattern"); //$NON-NLS-1$
+      }
+      if (mQueryBranches.size() == 1) {
+         QueryBranch branch = mQueryBranches.get(0);
+         mQueryExt.addAtom(branch.getBody());
+         for (IFunction filter : branch.getFilters()) {
+            mQueryExt.setFilter(filter);
+         }
+         return Collections.singletonList(mQueryExt);
+      }
+      List<IQueryExt> queries = new ArrayList<IQueryExt>();
+      for (QueryBranch branch : mQueryBranches) {
+         IQueryExt query = createEmptyQuery();
+         query.setDistinct(mQueryExt.isDistinct());
+         Set<String> branchVariables = branch.getVariableNames();
+         for (ITerm term : mQueryExt.getDistTerms()) {
+            if (term instanceof IVariable && !branchVariables.contains(term.getName())) {
+               throw new UnsupportedSparqlExpressionException("UNION branch without ?" + term.getName()); //$NON-NLS-1$
+            }
+            query.addDistTerm(TermUtils.copy(term));
+         }
+         query.addAtom(branch.getBody());
+         for (IFunction filter : branch.getFilters()) {
+            query.setFilter(filter);
+         }
+         queries.add(query);
+      }
+      return queries;
    }
 
    protected IQueryExt createEmptyQuery()
@@ -172,9 +265,9 @@ public class SparqlQueryHandler implements QueryModelVisitor<SparqlParserExcepti
       return TermUtils.copy(mTerm);
    }
 
-   protected IAtom getQueryBody()
+   protected IAtom getQueryBody(QueryBranch branch)
    {
-      return (IAtom) Serializer.copy(mQueryExpression);
+      return ObjectCopier.copy(branch.getBody());
    }
 
    protected List<IVariable> getVariableList()
@@ -343,6 +436,17 @@ public class SparqlQueryHandler implements QueryModelVisitor<SparqlParserExcepti
    @Override
    public void meet(Extension arg0) throws SparqlParserException
    {
+      if (arg0.getArg() instanceof Group) {
+         /*
+          * The aggregate results are computed on top of the translated query, see
+          * the Group handler.
+          */
+         arg0.getArg().visit(this);
+         return;
+      }
+      if (arg0.getArg() instanceof Filter && isAggregation(((Filter) arg0.getArg()).getArg())) {
+         throw new UnsupportedSparqlExpressionException("HAVING"); //$NON-NLS-1$
+      }
       List<String> unknownVariables = new ArrayList<String>();
       for (ExtensionElem el : arg0.getElements()) {
          unknownVariables.add(el.getName());
@@ -350,6 +454,11 @@ public class SparqlQueryHandler implements QueryModelVisitor<SparqlParserExcepti
       throw new SparqlParserException("Unknown projection variables: " + unknownVariables); //$NON-NLS-1$
    }
 
+   private static boolean isAggregation(TupleExpr expr)
+   {
+      return expr instanceof Group || (expr instanceof Extension && ((Extension) expr).getArg() instanceof Group);
+   }
+
    @Override
    public void meet(ExtensionElem arg0) throws SparqlParserException
    {
@@ -360,11 +469,20 @@ public class SparqlQueryHandler implements QueryModelVisitor<SparqlParserExcepti
    public void meet(Filter arg0) throws SparqlParserException
    {
       TupleExpr expr = arg0.getArg();
+      if (isAggregation(expr)) {
+         throw new UnsupportedSparqlExpressionException("HAVING"); //$NON-NLS-1$
+      }
       if (expr != null) {
          expr.visit(this);
       }
       arg0.getCondition().visit(this);
-      mQueryExt.setFilter(getFunction());
+      if (mQueryBranches == null) {
+         mQueryExt.setFilter(getFunction());
+         return;
+      }
+      for (QueryBranch branch : mQueryBranches) {
+         branch.addFilter(getFunction());
+      }
    }
 
    @Override
@@ -376,7 +494,48 @@ public class SparqlQueryHandler implements QueryModelVisitor<SparqlParserExcepti
    @Override
    public void meet(Group arg0) throws SparqlParserException
    {
-      throw new UnsupportedSparqlExpressionException("GROUP BY"); //$NON-NLS-1$
+      /*
+       * Similar to the ORDER BY, the aggregation is collected as a query modifier when
+       * constructing the SelectQuery object and it is applied on top of the SQL query.
+       * Therefore the query here selects the group variables and all the variables
+       * in the query body instead of the aggregate results.
+       */
+      mGroupVariables = new ArrayList<String>(arg0.getGroupBindingNames());
+      mAggregateProjection = new LinkedHashSet<String>(mGroupVariables);
+      mAggregateProjection.addAll(getBodyVariables(arg0.getArg()));
+      for (GroupElem groupElem : arg0.getGroupElements()) {
+         AggregateOperator operator = groupElem.getOperator();
+         if (!(operator instanceof Count || operator instanceof Sum || operator instanceof Min
+               || operator instanceof Max || operator instanceof Avg)) {
+            throw new UnsupportedSparqlExpressionException("Aggregate algebra: " + operator.getSignature()); //$NON-NLS-1$
+         }
+         ValueExpr argument = ((AggregateOperatorBase) operator).getArg();
+         if (argument != null && !(argument instanceof Var)) {
+            throw new UnsupportedSparqlExpressionException("Aggregate argument: " + argument); //$NON-NLS-1$
+         }
+      }
+      arg0.getArg().visit(this);
+   }
+
+   /*
+    * The aggregates are computed over the solutions of the query body, so the query
+    * selects all the variables in the body. The UNION of the query branches then
+    * removes the duplicate solutions rather than the duplicate argument values.
+    */
+   private Set<String> getBodyVariables(TupleExpr body) throws SparqlParserException
+   {
+      final Set<String> variables = new LinkedHashSet<String>();
+      body.visit(new QueryModelVisitorBase<SparqlParserException>()
+      {
+         @Override
+         public void meet(Var var)
+         {
+            if (!var.hasValue() && !var.isAnonymous() && !mParameterNames.contains(var.getName())) {
+               variables.add(var.getName());
+            }
+         }
+      });
+      return variables;
    }
 
    @Override
@@ -454,13 +613,23 @@ public class SparqlQueryHandler implements QueryModelVisitor<SparqlParserExcepti
    @Override
    public void meet(org.openrdf.query.algebra.Join arg0) throws SparqlParserException
    {
-      Join joinExpression = new Join();
-      joinExpression.setInnerJoin(true);
       arg0.getLeftArg().visit(this);
-      joinExpression.setLeftExpression(getQueryBody());
+      List<QueryBranch> leftBranches = mQueryBranches;
       arg0.getRightArg().visit(this);
-      joinExpression.setRightExpression(getQueryBody());
-      mQueryExpression = joinExpression;
+      List<QueryBranch> rightBranches = mQueryBranches;
+      /*
+       * Join distributes over UNION, i.e., (A UNION B) JOIN C = (A JOIN C) UNION (B JOIN C)
+       */
+      mQueryBranches = new ArrayList<QueryBranch>();
+      for (QueryBranch left : leftBranches) {
+         for (QueryBranch right : rightBranches) {
+            Join joinExpression = new Join();
+            joinExpression.setInnerJoin(true);
+            joinExpression.setLeftExpression(getQueryBody(left));
+            joinExpression.setRightExpression(getQueryBody(right));
+            mQueryBranches.add(new QueryBranch(joinExpression, left, right));
+         }
+      }
    }
 
    @Override
@@ -486,17 +655,40 @@ public class SparqlQueryHandler implements QueryModelVisitor<SparqlParserExcepti
    @Override
    public void meet(LeftJoin arg0) throws SparqlParserException
    {
-      Join joinExpression = new Join();
-      joinExpression.setLeftJoin(true);
       arg0.getLeftArg().visit(this);
-      joinExpression.setLeftExpression(getQueryBody());
+      List<QueryBranch> leftBranches = mQueryBranches;
       arg0.getRightArg().visit(this);
-      joinExpression.setRightExpression(getQueryBody());
+      List<QueryBranch> rightBranches = mQueryBranches;
+      if (rightBranches.size() > 1) {
+         throw new UnsupportedSparqlExpressionException("UNION inside OPTIONAL"); //$NON-NLS-1$
+      }
+      QueryBranch right = rightBranches.get(0);
+      IFunction condition = null;
       if (arg0.hasCondition()) {
          arg0.getCondition().visit(this);
-         joinExpression.setFilter(TermUtils.asFunction(getTerm()));
+         condition = TermUtils.asFunction(mTerm);
+      }
+      /*
+       * The filters inside OPTIONAL only decide whether the right operand matches, so
+       * they become part of the join condition rather than the filters of the query.
+       */
+      for (IFunction filter : right.getFilters()) {
+         condition = (condition == null) ? filter : sExpressionFactory.formAnd(condition, filter);
+      }
+      /*
+       * Left join distributes over a UNION in its left operand.
+       */
+      mQueryBranches = new ArrayList<QueryBranch>();
+      for (QueryBranch left : leftBranches) {
+         Join joinExpression = new Join();
+         joinExpression.setLeftJoin(true);
+         joinExpression.setLeftExpression(getQueryBody(left));
+         joinExpression.setRightExpression(getQueryBody(right));
+         if (condition != null) {
+            joinExpression.setFilter(TermUtils.copy(condition));
+         }
+         mQueryBranches.add(new QueryBranch(joinExpression, left));
       }
-      mQueryExpression = joinExpression;
    }
 
    @Override
@@ -603,19 +795,34 @@ public class SparqlQueryHandler implements QueryModelVisitor<SparqlParserExcepti
    @Override
    public void meet(Order arg0) throws SparqlParserException
    {
-      throw new UnsupportedSparqlExpressionException("Query modifier: ORDER BY"); //$NON-NLS-1$
+      /*
+       * Similar to the Slice handler, the ordering is collected as query modifiers
+       * when constructing the SelectQuery object and pushed down to the SQL query.
+       */
+      for (OrderElem orderElem : arg0.getElements()) {
+         orderElem.visit(this);
+      }
+      arg0.getArg().visit(this);
    }
 
    @Override
    public void meet(OrderElem arg0) throws SparqlParserException
    {
-      // NO-OP
+      if (!(arg0.getExpr() instanceof Var)) {
+         throw new UnsupportedSparqlExpressionException("ORDER BY expression: " + arg0.getExpr()); //$NON-NLS-1$
+      }
    }
 
    @Override
    public void meet(Projection arg0) throws SparqlParserException
    {
       arg0.visitChildren(this);
+      if (mAggregateProjection != null) {
+         for (String name : mAggregateProjection) {
+            mQueryExt.addDistTerm(sExpressionFactory.getVariable(name));
+         }
+         return;
+      }
       for (IVariable var : getVariableList()) {
          mQueryExt.addDistTerm(var);
       }
@@ -711,7 +918,8 @@ public class SparqlQueryHandler implements QueryModelVisitor<SparqlParserExcepti
       arg0.getObjectVar().visit(this);
       ITerm object = getTerm();
       
-      mQueryExpression = new TripleAtom(subject, predicate, object);
+      mQueryBranches = new ArrayList<QueryBranch>();
+      mQueryBranches.add(new QueryBranch(new TripleAtom(subject, predicate, object)));
    }
 
    @Override
@@ -731,7 +939,16 @@ public class SparqlQueryHandler implements QueryModelVisitor<SparqlParserExcepti
    @Override
    public void meet(Union arg0) throws SparqlParserException
    {
-      throw new UnsupportedSparqlExpressionException("UNION"); //$NON-NLS-1$
+      /*
+       * Each UNION branch becomes a separate query. The queries are unfolded separately
+       * and their SQL queries are combined by the query translator.
+       */
+      arg0.getLeftArg().visit(this);
+      List<QueryBranch> leftBranches = mQueryBranches;
+      arg0.getRightArg().visit(this);
+      List<QueryBranch> rightBranches = mQueryBranches;
+      mQueryBranches = new ArrayList<QueryBranch>(leftBranches);
+      mQueryBranches.addAll(rightBranches);
    }
 
    @Override
@@ -754,6 +971,9 @@ public class SparqlQueryHandler implements QueryModelVisitor<SparqlParserExcepti
       if (value != null) {
          visitValue(value);
       }
+      else if (mParameterNames.contains(arg0.getName())) {
+         mTerm = sExpressionFactory.getParameter(arg0.getName());
+      }
       else {
          mTerm = sExpressionFactory.getVariable(arg0.getName());
       }
@@ -798,4 +1018,68 @@ public class SparqlQueryHandler implements QueryModelVisitor<SparqlParserExcepti
          throw new SparqlParserException("Unknown value constant class: " + value.getClass()); //$NON-NLS-1$
       }
    }
+
+   /**
+    * A UNION-free alternative of the graph pattern, i.e., the query body and the filters
+    * that apply to it.
+    */
+   protected static class QueryBranch
+   {
+      private IAtom mBody;
+      private List<IFunction> mFilters = new ArrayList<IFunction>();
+
+      public QueryBranch(IAtom body)
+      {
+         mBody = body;
+      }
+
+      public QueryBranch(IAtom body, QueryBranch left)
+      {
+         mBody = body;
+         mFilters.addAll(left.mFilters);
+      }
+
+      public QueryBranch(IAtom body, QueryBranch left, QueryBranch right)
+      {
+         mBody = body;
+         mFilters.addAll(left.mFilters);
+         mFilters.addAll(right.mFilters);
+      }
+
+      public IAtom getBody()
+      {
+         return mBody;
+      }
+
+      public void addFilter(IFunction filter)
+      {
+         mFilters.add(filter);
+      }
+
+      public List<IFunction> getFilters()
+      {
+         return mFilters;
+      }
+
+      public Set<String> getVariableNames()
+      {
+         Set<String> names = new HashSet<String>();
+         collectVariableNames(mBody, names);
+         return names;
+      }
+
+      private static void collectVariableNames(IAtom atom, Set<String> names)
+      {
+         if (atom instanceof Join) {
+            collectVariableNames(((Join) atom).getLeftExpression(), names);
+            collectVariableNames(((Join) atom).getRightExpression(), names);
+            return;
+         }
+         for (ITerm term : atom.getTerms()) {
+            if (term instanceof IVariable) {
+               names.add(term.getName());
+            }
+         }
+      }
+   }
 }
@@ -50,7 +50,7 @@ import com.obidea.semantika.mapping.base.sql.SqlSubQuery;
 import com.obidea.semantika.mapping.base.sql.SqlTable;
 import com.obidea.semantika.mapping.base.sql.SqlUserQuery;
 import com.obidea.semantika.util.LogUtils;
-import com.obidea.semantika.util.Serializer;
+import com.obidea.semantika.util.ObjectCopier;
 
 public class QueryReducer extends SqlExpressionVisitorAdapter implements IOptimizer
 {
@@ -108,6 +108,7 @@ public class QueryReducer extends SqlExpressionVisitorAdapter implements IOptimi
          toReturn.addSelectItem(selectItem);
       }
       toReturn.setFromExpression(mFromExpression);
+      toReturn.addSourceMappings(mSqlQuery.getSourceMappings());
       for (ISqlExpression filter : mSqlQuery.getWhereExpression()) {
          toReturn.addWhereExpression(filter);
       }
@@ -209,7 +210,7 @@ public class QueryReducer extends SqlExpressionVisitorAdapter implements IOptimi
    {
       expression.accept(this);
       ISqlExpression joinNodeExpression = mFromExpression;
-      return (ISqlExpression) Serializer.copy(joinNodeExpression);
+      return ObjectCopier.copy(joinNodeExpression);
    }
 
    /**
@@ -17,9 +17,12 @@ package com.obidea.semantika.queryanswer.processor;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.slf4j.Logger;
@@ -63,8 +66,8 @@ import com.obidea.semantika.mapping.base.sql.SqlUserQuery;
 import com.obidea.semantika.mapping.base.sql.SqlValue;
 import com.obidea.semantika.util.CollectionUtils;
 import com.obidea.semantika.util.LogUtils;
+import com.obidea.semantika.util.ObjectCopier;
 import com.obidea.semantika.util.RdfVocabulary;
-import com.obidea.semantika.util.Serializer;
 
 /**
  * WARNING: Reading the code below can do harm to your brain and cause a severe concussion! It's
@@ -79,6 +82,7 @@ public class QueryUnfolder extends AtomVisitorAdapter implements IUnfolder
 
    private List<ISqlExpression> mPartialAnswers = new ArrayList<ISqlExpression>();
    private List<TermSubstitutionBinding> mPartialBindings = new ArrayList<TermSubstitutionBinding>();
+   private Map<ISqlExpression, List<IMapping>> mPartialSources = new IdentityHashMap<ISqlExpression, List<IMapping>>();
 
    private Set<IVariable> mQueryVars = new HashSet<IVariable>();
    private List<IVariable> mExcludeVariable = new ArrayList<IVariable>();
@@ -188,6 +192,7 @@ public class QueryUnfolder extends AtomVisitorAdapter implements IUnfolder
           * that has collected Table expression or SubQuery expression.
           */
          sqlQuery.setFromExpression(partialAnswer);
+         sqlQuery.addSourceMappings(getPartialSources(partialAnswer));
          
          /*
           * Construct SQL WHERE
@@ -274,6 +279,7 @@ public class QueryUnfolder extends AtomVisitorAdapter implements IUnfolder
                   rightExpression,
                   joinConditions(mPartialBindings.get(i), CollectionUtils.union(scope(leftExpression), scope(rightExpression))),
                   joinFilters(mPartialBindings.get(i), join.getFilter(), scope(rightExpression)));
+            collectPartialSources(sqlJoin, leftPartialAnswer, rightPartialAnswer);
             collectPartialAnswer(mPartialAnswers, sqlJoin);
          }
          else {
@@ -319,6 +325,7 @@ public class QueryUnfolder extends AtomVisitorAdapter implements IUnfolder
                      rightExpression,
                      joinConditions(mPartialBindings.get(bindingIndex), CollectionUtils.union(scope(leftExpression), scope(rightExpression))),
                      joinFilters(mPartialBindings.get(bindingIndex), join.getFilter(), scope(rightExpression)));
+               collectPartialSources(sqlJoin, leftPartialAnswer, rightPartialAnswer);
                collectPartialAnswer(mPartialAnswers, sqlJoin);
             }
             else {
@@ -413,6 +420,7 @@ public class QueryUnfolder extends AtomVisitorAdapter implements IUnfolder
           * Refresh the column variables in the source query using the specified identifier.
           */
          ISqlExpression partialAnswer = preparePartialAnswer(sourceQuery, identifier);
+         mPartialSources.put(partialAnswer, Collections.singletonList(mapping));
          
          for (TermSubstitutionBinding phi : partialBindings) {
             
@@ -470,6 +478,7 @@ public class QueryUnfolder extends AtomVisitorAdapter implements IUnfolder
       mQueryVars.clear();
       mPartialBindings.clear();
       mPartialAnswers.clear();
+      mPartialSources.clear();
       mExcludeVariable.clear();
    }
 
@@ -631,6 +640,24 @@ public class QueryUnfolder extends AtomVisitorAdapter implements IUnfolder
       partialAnswers.add(partialAnswer);
    }
 
+   /*
+    * The source mappings are tracked by the identity of the partial answers, so a join
+    * is traced back to the mappings of both sides.
+    */
+   private void collectPartialSources(ISqlExpression partialAnswer, ISqlExpression leftPartialAnswer,
+         ISqlExpression rightPartialAnswer)
+   {
+      List<IMapping> sources = new ArrayList<IMapping>(getPartialSources(leftPartialAnswer));
+      sources.addAll(getPartialSources(rightPartialAnswer));
+      mPartialSources.put(partialAnswer, sources);
+   }
+
+   private List<IMapping> getPartialSources(ISqlExpression partialAnswer)
+   {
+      List<IMapping> sources = mPartialSources.get(partialAnswer);
+      return (sources == null) ? Collections.<IMapping>emptyList() : sources;
+   }
+
    private void collectPartialBinding(List<TermSubstitutionBinding> partialBindings, TermSubstitutionBinding partialBinding)
    {
       partialBindings.add(partialBinding);
@@ -799,17 +826,17 @@ public class QueryUnfolder extends AtomVisitorAdapter implements IUnfolder
 
    private static ISqlExpression copy(ISqlExpression expression)
    {
-      return (ISqlExpression) Serializer.copy(expression);
+      return ObjectCopier.copy(expression);
    }
 
    private static TripleAtom copy(TripleAtom expr)
    {
-      return (TripleAtom) Serializer.copy(expr);
+      return ObjectCopier.copy(expr);
    }
 
    private static SqlQuery copy(SqlQuery sqlQuery)
    {
-      return (SqlQuery) Serializer.copy(sqlQuery);
+      return ObjectCopier.copy(sqlQuery);
    }
 
    private static TermSubstitutionBinding copy(TermSubstitutionBinding binding)
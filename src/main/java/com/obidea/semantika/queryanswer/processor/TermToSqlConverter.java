@@ -26,6 +26,7 @@ import com.obidea.semantika.expression.base.ILiteral;
 import com.obidea.semantika.expression.base.ITerm;
 import com.obidea.semantika.expression.base.IUriReference;
 import com.obidea.semantika.expression.base.IVariable;
+import com.obidea.semantika.expression.base.Parameter;
 import com.obidea.semantika.expression.base.TermVisitorAdapter;
 import com.obidea.semantika.knowledgebase.TermSubstitutionBinding;
 import com.obidea.semantika.knowledgebase.UnificationException;
@@ -51,7 +52,7 @@ import com.obidea.semantika.mapping.base.sql.SqlSubtract;
 import com.obidea.semantika.mapping.base.sql.SqlUriConcat;
 import com.obidea.semantika.mapping.base.sql.SqlUriValue;
 import com.obidea.semantika.mapping.base.sql.SqlValue;
-import com.obidea.semantika.util.Serializer;
+import com.obidea.semantika.util.ObjectCopier;
 
 public class TermToSqlConverter extends TermVisitorAdapter // XXX: Fix this, maybe SqlMappingVisitorAdapter
 {
@@ -76,6 +77,9 @@ public class TermToSqlConverter extends TermVisitorAdapter // XXX: Fix this, may
 
    public SqlValue toSqlValue(ILiteral literal)
    {
+      if (literal instanceof Parameter) {
+         return sSqlFactory.createParameterExpression(((Parameter) literal).getParameterName());
+      }
       return sSqlFactory.createValueExpression(literal.getLexicalValue(), literal.getDatatype());
    }
 
@@ -401,6 +405,6 @@ public class TermToSqlConverter extends TermVisitorAdapter // XXX: Fix this, may
 
    private static ISqlExpression copy(ISqlExpression expression)
    {
-      return (ISqlExpression) Serializer.copy(expression);
+      return ObjectCopier.copy(expression);
    }
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.queryanswer.result;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.obidea.semantika.datatype.DataType;
+
+/**
+ * Provides the spliterator, stream and batch views on top of the <code>next()</code>
+ * and <code>getValueArray()</code> cursor methods.
+ */
+public abstract class AbstractQueryResult implements IQueryResult
+{
+   @Override
+   public Spliterator<IValueArray> spliterator()
+   {
+      return Spliterators.spliteratorUnknownSize(new ValueArrayIterator(),
+            Spliterator.ORDERED | Spliterator.NONNULL);
+   }
+
+   @Override
+   public Stream<IValueArray> stream()
+   {
+      return StreamSupport.stream(spliterator(), false).onClose(new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            close();
+         }
+      });
+   }
+
+   /**
+    * Reads the rows of the batch first and then encodes each column following the
+    * datatype of its first bound value.
+    */
+   @Override
+   public ResultBatch nextBatch(int maxRows)
+   {
+      List<IValueArray> rows = new ArrayList<IValueArray>();
+      while (rows.size() < maxRows && next()) {
+         rows.add(getValueArray());
+      }
+      if (rows.isEmpty()) {
+         return null;
+      }
+      List<String> selectNames = getSelectNames();
+      List<String> datatypes = new ArrayList<String>(selectNames.size());
+      for (int i = 0; i < selectNames.size(); i++) {
+         datatypes.add(getDatatype(rows, i));
+      }
+      ResultBatchBuilder builder = new ResultBatchBuilder(selectNames, datatypes, rows.size());
+      for (IValueArray row : rows) {
+         for (int i = 0; i < selectNames.size(); i++) {
+            builder.addValue(i, row.get(i));
+         }
+         builder.endRow();
+      }
+      return builder.build();
+   }
+
+   private static String getDatatype(List<IValueArray> rows, int position)
+   {
+      for (IValueArray row : rows) {
+         IValue value = row.get(position);
+         if (value instanceof ILiteral) {
+            return ((ILiteral) value).getDatatype();
+         }
+         else if (value != null) {
+            return null; // URI
+         }
+      }
+      return DataType.STRING;
+   }
+
+   private class ValueArrayIterator implements Iterator<IValueArray>
+   {
+      private Boolean mHasNext = null;
+
+      @Override
+      public boolean hasNext()
+      {
+         if (mHasNext == null) {
+            mHasNext = AbstractQueryResult.this.next();
+         }
+         return mHasNext;
+      }
+
+      @Override
+      public IValueArray next()
+      {
+         if (!hasNext()) {
+            throw new NoSuchElementException();
+         }
+         mHasNext = null;
+         return getValueArray();
+      }
+
+      @Override
+      public void remove()
+      {
+         throw new UnsupportedOperationException();
+      }
+   }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.queryanswer.result;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.obidea.semantika.datatype.DataType;
+import com.obidea.semantika.util.XmlUtils;
+
+/**
+ * The values of a single column in a result batch. The encoding of the column follows
+ * its datatype:
+ * <ul>
+ * <li>{@link #LONG} keeps the integer literals in a <code>long</code> array.</li>
+ * <li>{@link #DOUBLE} keeps the floating-point literals in a <code>double</code>
+ * array.</li>
+ * <li>{@link #STRING} keeps the other literals as codes to the batch dictionary, so a
+ * repeated lexical value is stored once.</li>
+ * <li>{@link #URI} keeps the namespace of each URI as a code to the batch dictionary,
+ * and its local name separately.</li>
+ * </ul>
+ * The row positions start at 0.
+ */
+public final class ColumnVector
+{
+   public static final int LONG = 0;
+   public static final int DOUBLE = 1;
+   public static final int STRING = 2;
+   public static final int URI = 3;
+
+   private static final int NULL_CODE = -1;
+
+   private final String mDatatype;
+   private final java.net.URI mDatatypeUri;
+   private final int mEncoding;
+
+   private int mSize = 0;
+   private final boolean[] mNulls;
+   private long[] mLongs;
+   private double[] mDoubles;
+   private int[] mCodes;
+   private String[] mLocalNames;
+
+   private final List<String> mDictionary = new ArrayList<String>();
+   private final Map<String, Integer> mDictionaryCodes = new HashMap<String, Integer>();
+
+   /* package */
+   ColumnVector(String datatype, int capacity)
+   {
+      mDatatype = datatype;
+      mDatatypeUri = (datatype != null) ? java.net.URI.create(datatype) : null;
+      mEncoding = getEncoding(datatype);
+      mNulls = new boolean[capacity];
+      switch (mEncoding) {
+         case LONG: mLongs = new long[capacity]; break;
+         case DOUBLE: mDoubles = new double[capacity]; break;
+         case STRING: mCodes = new int[capacity]; break;
+         case URI: mCodes = new int[capacity]; mLocalNames = new String[capacity]; break;
+      }
+   }
+
+   /**
+    * Returns the encoding of a column with the given datatype, where a
+    * <code>null</code> datatype denotes a URI column.
+    */
+   public static int getEncoding(String datatype)
+   {
+      if (datatype == null) {
+         return URI;
+      }
+      else if (datatype.equals(DataType.INTEGER) || datatype.equals(DataType.LONG)
+            || datatype.equals(DataType.INT) || datatype.equals(DataType.SHORT)
+            || datatype.equals(DataType.BYTE) || datatype.equals(DataType.UNSIGNED_INT)
+            || datatype.equals(DataType.UNSIGNED_SHORT) || datatype.equals(DataType.UNSIGNED_BYTE)) {
+         return LONG;
+      }
+      else if (datatype.equals(DataType.DOUBLE) || datatype.equals(DataType.FLOAT)) {
+         return DOUBLE;
+      }
+      return STRING;
+   }
+
+   /* package */
+   void addNull()
+   {
+      mNulls[mSize] = true;
+      if (mCodes != null) {
+         mCodes[mSize] = NULL_CODE;
+      }
+      mSize++;
+   }
+
+   /* package */
+   void addLong(long value)
+   {
+      mLongs[mSize++] = value;
+   }
+
+   /* package */
+   void addDouble(double value)
+   {
+      mDoubles[mSize++] = value;
+   }
+
+   /* package */
+   void addString(String value)
+   {
+      if (value == null) {
+         addNull();
+      }
+      else if (mEncoding == URI) {
+         int index = XmlUtils.getNCNameSuffixIndex(value);
+         mCodes[mSize] = encode(index == -1 ? value : value.substring(0, index));
+         mLocalNames[mSize] = index == -1 ? "" : value.substring(index); //$NON-NLS-1$
+         mSize++;
+      }
+      else if (mEncoding == STRING) {
+         mCodes[mSize++] = encode(value);
+      }
+      else if (mEncoding == LONG) {
+         addLong(Long.parseLong(value));
+      }
+      else {
+         addDouble(Double.parseDouble(value));
+      }
+   }
+
+   private int encode(String value)
+   {
+      Integer code = mDictionaryCodes.get(value);
+      if (code == null) {
+         code = mDictionary.size();
+         mDictionary.add(value);
+         mDictionaryCodes.put(value, code);
+      }
+      return code;
+   }
+
+   /**
+    * Returns the XML datatype of the literal column, or <code>null</code> if the column
+    * contains URIs.
+    */
+   public String getDatatype()
+   {
+      return mDatatype;
+   }
+
+   public int getEncoding()
+   {
+      return mEncoding;
+   }
+
+   public int size()
+   {
+      return mSize;
+   }
+
+   public boolean isNull(int row)
+   {
+      return mNulls[row];
+   }
+
+   /**
+    * Returns the values of a {@link #LONG} column. The array can be longer than the
+    * column size and its value at an unbound row is 0.
+    */
+   public long[] getLongs()
+   {
+      return mLongs;
+   }
+
+   /**
+    * Returns the values of a {@link #DOUBLE} column. The array can be longer than the
+    * column size and its value at an unbound row is 0.
+    */
+   public double[] getDoubles()
+   {
+      return mDoubles;
+   }
+
+   /**
+    * Returns the dictionary codes of a {@link #STRING} or {@link #URI} column. The
+    * array can be longer than the column size and its value at an unbound row is -1.
+    */
+   public int[] getCodes()
+   {
+      return mCodes;
+   }
+
+   /**
+    * Returns the dictionary of the lexical values of a {@link #STRING} column, or of
+    * the namespaces of a {@link #URI} column.
+    */
+   public List<String> getDictionary()
+   {
+      return Collections.unmodifiableList(mDictionary);
+   }
+
+   /**
+    * Returns the local name of the URI at the given row, or <code>null</code> if the
+    * row is unbound.
+    */
+   public String getLocalName(int row)
+   {
+      return mLocalNames[row];
+   }
+
+   /**
+    * Returns the lexical value (or the URI string) at the given row, or
+    * <code>null</code> if the row is unbound.
+    */
+   public String getString(int row)
+   {
+      if (isNull(row)) {
+         return null;
+      }
+      switch (mEncoding) {
+         case LONG: return String.valueOf(mLongs[row]);
+         case DOUBLE: return String.valueOf(mDoubles[row]);
+         case STRING: return mDictionary.get(mCodes[row]);
+         default: return mDictionary.get(mCodes[row]) + mLocalNames[row];
+      }
+   }
+
+   /**
+    * Returns the value at the given row as a URI or literal object, or
+    * <code>null</code> if the row is unbound.
+    */
+   public IValue getValue(int row)
+   {
+      String value = getString(row);
+      if (value == null) {
+         return null;
+      }
+      if (mEncoding == URI) {
+         return new Uri(value);
+      }
+      return new Literal(value, mDatatypeUri);
+   }
+}
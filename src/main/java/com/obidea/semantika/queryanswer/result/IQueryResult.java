@@ -16,12 +16,40 @@
 package com.obidea.semantika.queryanswer.result;
 
 import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Stream;
 
-public interface IQueryResult
+public interface IQueryResult extends AutoCloseable
 {
    List<String> getSelectNames();
 
    IValueArray getValueArray();
 
    boolean next();
+
+   /**
+    * Returns the remaining rows of this result as a spliterator. Iterating the
+    * spliterator moves the cursor of this result.
+    */
+   Spliterator<IValueArray> spliterator();
+
+   /**
+    * Returns the remaining rows of this result as a sequential stream. Closing the
+    * stream closes this result.
+    */
+   Stream<IValueArray> stream();
+
+   /**
+    * Reads up to <code>maxRows</code> of the remaining rows into a columnar batch.
+    * Returns <code>null</code> if there are no more rows.
+    */
+   ResultBatch nextBatch(int maxRows);
+
+   /**
+    * Releases the resources held by this result, e.g., the underlying JDBC statement
+    * when the result is streamed from the database. Calling this method more than
+    * once has no effect.
+    */
+   @Override
+   void close();
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.queryanswer.result;
+
+import java.sql.Timestamp;
+
+/**
+ * A query result that is read row by row from the database cursor and gives typed
+ * access to the cells of the current row. The typed getters read the value directly
+ * from the JDBC result set, so no <code>IValue</code> object is created unless
+ * {@link #getValue(int)} or {@link #getValueArray()} is called.
+ * <p>
+ * The column positions start at 1, following the order of the select names.
+ */
+public interface IQueryResultCursor extends IQueryResult
+{
+   /**
+    * Returns the position of the column with the given select name.
+    *
+    * @throws IllegalArgumentException
+    *            if the result has no such column.
+    */
+   int findColumn(String selectName);
+
+   /**
+    * Returns the XML datatype of the literal column at the given position, or
+    * <code>null</code> if the column contains URIs.
+    */
+   String getDatatype(int position);
+
+   /**
+    * Returns the language tag of the plain literal cell at the given position, or
+    * <code>null</code> if the cell is unbound, has no language tag or is not a plain
+    * literal.
+    */
+   String getLanguage(int position);
+
+   /**
+    * Returns <code>true</code> if the cell at the given position of the current row is
+    * unbound.
+    */
+   boolean isNull(int position);
+
+   /**
+    * Returns the lexical form of the cell, or <code>null</code> if the cell is unbound.
+    * A URI cell returns the URI string.
+    */
+   String getString(int position);
+
+   /**
+    * Returns the cell value of a numeric literal column, or 0 if the cell is unbound.
+    */
+   long getLong(int position);
+
+   /**
+    * Returns the cell value of a numeric literal column, or 0 if the cell is unbound.
+    */
+   double getDouble(int position);
+
+   /**
+    * Returns the cell value of a boolean literal column, or <code>false</code> if the
+    * cell is unbound.
+    */
+   boolean getBoolean(int position);
+
+   /**
+    * Returns the cell value of a date or time literal column, or <code>null</code> if
+    * the cell is unbound.
+    */
+   Timestamp getTimestamp(int position);
+
+   /**
+    * Returns the cell as a URI or literal value, or <code>null</code> if the cell is
+    * unbound.
+    */
+   IValue getValue(int position);
+}
@@ -20,7 +20,7 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
-public class QueryResult implements IQueryResult, Serializable
+public class QueryResult extends AbstractQueryResult implements Serializable
 {
    private static final long serialVersionUID = 629451L;
 
@@ -61,4 +61,10 @@ public class QueryResult implements IQueryResult, Serializable
       }
       return hasNext;
    }
+
+   @Override
+   public void close()
+   {
+      // NO-OP: The result is fully loaded in memory
+   }
 }
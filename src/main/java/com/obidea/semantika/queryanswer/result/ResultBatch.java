@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.queryanswer.result;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A block of rows of a query result stored column by column. The batch is produced by
+ * {@link IQueryResult#nextBatch(int)} for consumers that read many rows at once, e.g.,
+ * to export the complete answer.
+ */
+public final class ResultBatch
+{
+   private final List<String> mSelectNames;
+   private final List<ColumnVector> mColumns;
+   private final int mSize;
+
+   /* package */
+   ResultBatch(List<String> selectNames, List<ColumnVector> columns, int size)
+   {
+      mSelectNames = selectNames;
+      mColumns = columns;
+      mSize = size;
+   }
+
+   public List<String> getSelectNames()
+   {
+      return Collections.unmodifiableList(mSelectNames);
+   }
+
+   /**
+    * Returns the number of rows in this batch.
+    */
+   public int size()
+   {
+      return mSize;
+   }
+
+   /**
+    * Returns the column at the given position. The first column is at position 0.
+    */
+   public ColumnVector getColumn(int position)
+   {
+      return mColumns.get(position);
+   }
+
+   /**
+    * Returns the column with the given select name, or <code>null</code> if there is no
+    * such column.
+    */
+   public ColumnVector getColumn(String selectName)
+   {
+      int idx = mSelectNames.indexOf(selectName);
+      if (idx != -1) {
+         return mColumns.get(idx);
+      }
+      return null;
+   }
+
+   /**
+    * Returns the given row as a value array.
+    */
+   public IValueArray getValueArray(int row)
+   {
+      List<IValue> values = new ArrayList<IValue>(mColumns.size());
+      for (ColumnVector column : mColumns) {
+         values.add(column.getValue(row));
+      }
+      return new ValueArray(mSelectNames, values);
+   }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.queryanswer.result;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds a result batch row by row. Each row must give a value, or a
+ * <code>null</code>, to every column before {@link #endRow()} is called.
+ */
+public class ResultBatchBuilder
+{
+   private final List<String> mSelectNames;
+   private final List<ColumnVector> mColumns;
+   private final int mCapacity;
+
+   private int mSize = 0;
+
+   /**
+    * Creates the builder of a batch that has at most <code>capacity</code> rows. The
+    * column datatypes follow the order of the select names, where a <code>null</code>
+    * datatype denotes a URI column.
+    */
+   public ResultBatchBuilder(List<String> selectNames, List<String> datatypes, int capacity)
+   {
+      mSelectNames = selectNames;
+      mCapacity = capacity;
+      mColumns = new ArrayList<ColumnVector>(datatypes.size());
+      for (String datatype : datatypes) {
+         mColumns.add(new ColumnVector(datatype, capacity));
+      }
+   }
+
+   /**
+    * Returns the encoding of the column at the given position, which tells the value
+    * type the column accepts.
+    */
+   public int getEncoding(int position)
+   {
+      return mColumns.get(position).getEncoding();
+   }
+
+   public void addNull(int position)
+   {
+      mColumns.get(position).addNull();
+   }
+
+   public void addLong(int position, long value)
+   {
+      mColumns.get(position).addLong(value);
+   }
+
+   public void addDouble(int position, double value)
+   {
+      mColumns.get(position).addDouble(value);
+   }
+
+   /**
+    * Adds the lexical value (or the URI string) to the column at the given position.
+    * A numeric column parses the value.
+    */
+   public void addString(int position, String value)
+   {
+      mColumns.get(position).addString(value);
+   }
+
+   public void addValue(int position, IValue value)
+   {
+      addString(position, (value != null) ? value.stringValue() : null);
+   }
+
+   public void endRow()
+   {
+      mSize++;
+   }
+
+   public boolean isFull()
+   {
+      return mSize == mCapacity;
+   }
+
+   public boolean isEmpty()
+   {
+      return mSize == 0;
+   }
+
+   public ResultBatch build()
+   {
+      return new ResultBatch(mSelectNames, mColumns, mSize);
+   }
+}
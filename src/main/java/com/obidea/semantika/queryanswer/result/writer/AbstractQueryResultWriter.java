@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.queryanswer.result.writer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import com.obidea.semantika.datatype.DataType;
+import com.obidea.semantika.queryanswer.result.IQueryResultCursor;
+
+/**
+ * The base class of the result writers. The cells are read with the string getter of
+ * the result cursor, which gives the lexical form of a literal or the URI string
+ * without creating a value object. Whether a column contains URIs or literals, and the
+ * datatype of the literals, is taken once from the column metadata.
+ */
+public abstract class AbstractQueryResultWriter implements IQueryResultWriter
+{
+   protected final OutputStream mOutputStream;
+
+   protected AbstractQueryResultWriter(OutputStream out)
+   {
+      mOutputStream = out;
+   }
+
+   @Override
+   public void write(IQueryResultCursor result) throws QueryResultWriterException
+   {
+      try {
+         List<String> selectNames = result.getSelectNames();
+         String[] datatypes = new String[selectNames.size()];
+         for (int i = 0; i < datatypes.length; i++) {
+            datatypes[i] = result.getDatatype(i + 1);
+         }
+         startResult(selectNames, datatypes);
+         while (result.next()) {
+            writeRow(result);
+         }
+         endResult();
+      }
+      catch (IOException e) {
+         throw new QueryResultWriterException("Failed to write the query result", e); //$NON-NLS-1$
+      }
+      finally {
+         result.close();
+      }
+   }
+
+   /**
+    * Returns <code>true</code> if the datatype denotes a plain literal, which is written
+    * with its language tag, if any, instead of a datatype.
+    */
+   protected static boolean isPlainLiteral(String datatype)
+   {
+      return DataType.PLAIN_LITERAL.equals(datatype);
+   }
+
+   /**
+    * Writes the result header. A <code>null</code> datatype denotes a URI column.
+    */
+   protected abstract void startResult(List<String> selectNames, String[] datatypes) throws IOException;
+
+   /**
+    * Writes the current row of the result.
+    */
+   protected abstract void writeRow(IQueryResultCursor result) throws IOException;
+
+   /**
+    * Writes the result footer and flushes the output stream.
+    */
+   protected abstract void endResult() throws IOException;
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.queryanswer.result.writer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.obidea.semantika.queryanswer.result.ColumnVector;
+import com.obidea.semantika.queryanswer.result.IQueryResultCursor;
+import com.obidea.semantika.util.StringUtils;
+import com.obidea.semantika.util.XmlUtils;
+
+/**
+ * Writes the query result in a compact binary row format. The columns are encoded
+ * following {@link ColumnVector#getEncoding(String)}. All numbers are big-endian, as
+ * written by <code>DataOutputStream</code>.
+ * <pre>
+ * result  := MAGIC columnCount:int column* row* 0:byte
+ * column  := name:string encoding:byte [datatype:string, if the column has literals]
+ * row     := 1:byte nulls:byte[(columnCount + 7) / 8] cell*
+ * </pre>
+ * The <i>i</i>-th bit (least significant first) of the null bitmap is set if the
+ * <i>i</i>-th cell is unbound, and only the bound cells are written:
+ * <ul>
+ * <li>LONG: <code>long</code></li>
+ * <li>DOUBLE: <code>double</code></li>
+ * <li>STRING: <code>string</code></li>
+ * <li>URI: <code>namespaceCode:int [namespace:string] localName:string</code>, where the
+ * namespace is written only the first time it appears, and its code is the number of
+ * the namespaces that appeared before it.</li>
+ * </ul>
+ * A <code>string</code> is an <code>int</code> length followed by the UTF-8 bytes.
+ */
+public class BinaryResultWriter extends AbstractQueryResultWriter
+{
+   public static final String CONTENT_TYPE = "application/x-semantika-results"; //$NON-NLS-1$
+
+   /**
+    * The bytes of "SRB1".
+    */
+   public static final int MAGIC_NUMBER = 0x53524231;
+
+   private static final int ROW = 1;
+   private static final int END = 0;
+
+   private DataOutputStream mOut;
+
+   private int[] mEncodings;
+   private byte[] mNulls;
+
+   private final Map<String, Integer> mNamespaceCodes = new HashMap<String, Integer>();
+
+   public BinaryResultWriter(OutputStream out)
+   {
+      super(out);
+   }
+
+   @Override
+   public String getContentType()
+   {
+      return CONTENT_TYPE;
+   }
+
+   @Override
+   protected void startResult(List<String> selectNames, String[] datatypes) throws IOException
+   {
+      mOut = new DataOutputStream(new BufferedOutputStream(mOutputStream));
+      mEncodings = new int[datatypes.length];
+      mNulls = new byte[(datatypes.length + 7) / 8];
+      mOut.writeInt(MAGIC_NUMBER);
+      mOut.writeInt(selectNames.size());
+      for (int i = 0; i < datatypes.length; i++) {
+         mEncodings[i] = ColumnVector.getEncoding(datatypes[i]);
+         writeString(selectNames.get(i));
+         mOut.writeByte(mEncodings[i]);
+         if (mEncodings[i] != ColumnVector.URI) {
+            writeString(datatypes[i]);
+         }
+      }
+   }
+
+   @Override
+   protected void writeRow(IQueryResultCursor result) throws IOException
+   {
+      mOut.writeByte(ROW);
+      String[] values = new String[mEncodings.length];
+      for (int i = 0; i < mNulls.length; i++) {
+         mNulls[i] = 0;
+      }
+      for (int i = 0; i < mEncodings.length; i++) {
+         boolean isNull;
+         if (mEncodings[i] == ColumnVector.LONG || mEncodings[i] == ColumnVector.DOUBLE) {
+            isNull = result.isNull(i + 1);
+         }
+         else {
+            values[i] = result.getString(i + 1);
+            isNull = (values[i] == null);
+         }
+         if (isNull) {
+            mNulls[i / 8] |= 1 << (i % 8);
+         }
+      }
+      mOut.write(mNulls);
+      for (int i = 0; i < mEncodings.length; i++) {
+         if ((mNulls[i / 8] & (1 << (i % 8))) != 0) {
+            continue;
+         }
+         switch (mEncodings[i]) {
+            case ColumnVector.LONG: mOut.writeLong(result.getLong(i + 1)); break;
+            case ColumnVector.DOUBLE: mOut.writeDouble(result.getDouble(i + 1)); break;
+            case ColumnVector.STRING: writeString(values[i]); break;
+            case ColumnVector.URI: writeUri(values[i]); break;
+         }
+      }
+   }
+
+   @Override
+   protected void endResult() throws IOException
+   {
+      mOut.writeByte(END);
+      mOut.flush();
+   }
+
+   private void writeUri(String uri) throws IOException
+   {
+      int index = XmlUtils.getNCNameSuffixIndex(uri);
+      String namespace = (index == -1) ? uri : uri.substring(0, index);
+      String localName = (index == -1) ? "" : uri.substring(index); //$NON-NLS-1$
+      Integer code = mNamespaceCodes.get(namespace);
+      if (code == null) {
+         code = mNamespaceCodes.size();
+         mNamespaceCodes.put(namespace, code);
+         mOut.writeInt(code);
+         writeString(namespace);
+      }
+      else {
+         mOut.writeInt(code);
+      }
+      writeString(localName);
+   }
+
+   private void writeString(String value) throws IOException
+   {
+      byte[] bytes = StringUtils.getBytesUtf8(value);
+      mOut.writeInt(bytes.length);
+      mOut.write(bytes);
+   }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.queryanswer.result.writer;
+
+import com.obidea.semantika.queryanswer.result.IQueryResultCursor;
+
+/**
+ * Writes a query result in a serialization format to an output stream. The rows are
+ * read from the result cursor and written one by one, so the result is never kept in
+ * memory as a whole.
+ */
+public interface IQueryResultWriter
+{
+   /**
+    * Returns the MIME type of the serialization format.
+    */
+   String getContentType();
+
+   /**
+    * Writes all the remaining rows of the given result and closes the result. The
+    * output stream is flushed but not closed.
+    */
+   void write(IQueryResultCursor result) throws QueryResultWriterException;
+}
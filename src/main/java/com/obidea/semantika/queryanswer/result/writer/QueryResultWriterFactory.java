@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.queryanswer.result.writer;
+
+import java.io.OutputStream;
+
+public final class QueryResultWriterFactory
+{
+   private QueryResultWriterFactory()
+   {
+      // NO-OP
+   }
+
+   /**
+    * Creates the result writer of the given MIME type, or returns <code>null</code> if
+    * the MIME type is not supported.
+    */
+   public static IQueryResultWriter createWriter(String contentType, OutputStream out)
+   {
+      if (SparqlJsonResultWriter.CONTENT_TYPE.equals(contentType)) {
+         return new SparqlJsonResultWriter(out);
+      }
+      else if (SparqlXmlResultWriter.CONTENT_TYPE.equals(contentType)) {
+         return new SparqlXmlResultWriter(out);
+      }
+      else if (SparqlCsvResultWriter.CONTENT_TYPE.equals(contentType)) {
+         return new SparqlCsvResultWriter(out);
+      }
+      else if (SparqlTsvResultWriter.CONTENT_TYPE.equals(contentType)) {
+         return new SparqlTsvResultWriter(out);
+      }
+      else if (BinaryResultWriter.CONTENT_TYPE.equals(contentType)) {
+         return new BinaryResultWriter(out);
+      }
+      return null;
+   }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.queryanswer.result.writer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.obidea.semantika.queryanswer.result.IQueryResultCursor;
+
+/**
+ * Writes the query result in the SPARQL 1.1 Query Results CSV Format. The format
+ * keeps only the lexical forms of the values, so the URIs and the literals cannot be
+ * told apart and the literal datatypes are lost.
+ */
+public class SparqlCsvResultWriter extends AbstractQueryResultWriter
+{
+   public static final String CONTENT_TYPE = "text/csv"; //$NON-NLS-1$
+
+   private static final String LINE_END = "\r\n"; //$NON-NLS-1$
+
+   private Writer mWriter;
+
+   private int mColumnCount;
+
+   public SparqlCsvResultWriter(OutputStream out)
+   {
+      super(out);
+   }
+
+   @Override
+   public String getContentType()
+   {
+      return CONTENT_TYPE;
+   }
+
+   @Override
+   protected void startResult(List<String> selectNames, String[] datatypes) throws IOException
+   {
+      mColumnCount = selectNames.size();
+      mWriter = new BufferedWriter(new OutputStreamWriter(mOutputStream, StandardCharsets.UTF_8));
+      for (int i = 0; i < mColumnCount; i++) {
+         if (i > 0) {
+            mWriter.write(',');
+         }
+         writeField(selectNames.get(i));
+      }
+      mWriter.write(LINE_END);
+   }
+
+   /*
+    * An unbound cell is an empty field.
+    */
+   @Override
+   protected void writeRow(IQueryResultCursor result) throws IOException
+   {
+      for (int i = 0; i < mColumnCount; i++) {
+         if (i > 0) {
+            mWriter.write(',');
+         }
+         String value = result.getString(i + 1);
+         if (value != null) {
+            writeField(value);
+         }
+      }
+      mWriter.write(LINE_END);
+   }
+
+   @Override
+   protected void endResult() throws IOException
+   {
+      mWriter.flush();
+   }
+
+   /*
+    * A field is quoted when it contains a comma, a quote or a line break, and its
+    * quotes are doubled.
+    */
+   private void writeField(String value) throws IOException
+   {
+      boolean needQuote = false;
+      for (int i = 0; i < value.length() && !needQuote; i++) {
+         char c = value.charAt(i);
+         needQuote = (c == ',' || c == '"' || c == '\n' || c == '\r');
+      }
+      if (!needQuote) {
+         mWriter.write(value);
+         return;
+      }
+      mWriter.write('"');
+      int start = 0;
+      for (int i = 0; i < value.length(); i++) {
+         if (value.charAt(i) == '"') {
+            mWriter.write(value, start, i + 1 - start);
+            mWriter.write('"');
+            start = i + 1;
+         }
+      }
+      mWriter.write(value, start, value.length() - start);
+      mWriter.write('"');
+   }
+}
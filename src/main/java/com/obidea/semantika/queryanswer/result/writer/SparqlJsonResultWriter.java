@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.queryanswer.result.writer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.obidea.semantika.queryanswer.result.IQueryResultCursor;
+
+/**
+ * Writes the query result in the SPARQL 1.1 Query Results JSON Format using the
+ * streaming generator of Jackson.
+ */
+public class SparqlJsonResultWriter extends AbstractQueryResultWriter
+{
+   public static final String CONTENT_TYPE = "application/sparql-results+json"; //$NON-NLS-1$
+
+   private static final JsonFactory sJsonFactory = new JsonFactory();
+
+   private JsonGenerator mGenerator;
+
+   private List<String> mSelectNames;
+   private String[] mDatatypes;
+
+   public SparqlJsonResultWriter(OutputStream out)
+   {
+      super(out);
+   }
+
+   @Override
+   public String getContentType()
+   {
+      return CONTENT_TYPE;
+   }
+
+   @Override
+   protected void startResult(List<String> selectNames, String[] datatypes) throws IOException
+   {
+      mSelectNames = selectNames;
+      mDatatypes = datatypes;
+      mGenerator = sJsonFactory.createGenerator(mOutputStream, JsonEncoding.UTF8);
+      mGenerator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      mGenerator.writeStartObject();
+      mGenerator.writeObjectFieldStart("head"); //$NON-NLS-1$
+      mGenerator.writeArrayFieldStart("vars"); //$NON-NLS-1$
+      for (String selectName : selectNames) {
+         mGenerator.writeString(selectName);
+      }
+      mGenerator.writeEndArray();
+      mGenerator.writeEndObject();
+      mGenerator.writeObjectFieldStart("results"); //$NON-NLS-1$
+      mGenerator.writeArrayFieldStart("bindings"); //$NON-NLS-1$
+   }
+
+   /*
+    * The unbound cells are left out of the binding object.
+    */
+   @Override
+   protected void writeRow(IQueryResultCursor result) throws IOException
+   {
+      mGenerator.writeStartObject();
+      for (int i = 0; i < mDatatypes.length; i++) {
+         String value = result.getString(i + 1);
+         if (value == null) {
+            continue;
+         }
+         mGenerator.writeObjectFieldStart(mSelectNames.get(i));
+         if (mDatatypes[i] == null) {
+            mGenerator.writeStringField("type", "uri"); //$NON-NLS-1$ //$NON-NLS-2$
+            mGenerator.writeStringField("value", value); //$NON-NLS-1$
+         }
+         else {
+            mGenerator.writeStringField("type", "literal"); //$NON-NLS-1$ //$NON-NLS-2$
+            mGenerator.writeStringField("value", value); //$NON-NLS-1$
+            if (!isPlainLiteral(mDatatypes[i])) {
+               mGenerator.writeStringField("datatype", mDatatypes[i]); //$NON-NLS-1$
+            }
+            else {
+               String language = result.getLanguage(i + 1);
+               if (language != null) {
+                  mGenerator.writeStringField("xml:lang", language); //$NON-NLS-1$
+               }
+            }
+         }
+         mGenerator.writeEndObject();
+      }
+      mGenerator.writeEndObject();
+   }
+
+   @Override
+   protected void endResult() throws IOException
+   {
+      mGenerator.writeEndArray();
+      mGenerator.writeEndObject();
+      mGenerator.writeEndObject();
+      mGenerator.close();
+   }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.queryanswer.result.writer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.obidea.semantika.datatype.DataType;
+import com.obidea.semantika.queryanswer.result.IQueryResultCursor;
+
+/**
+ * Writes the query result in the SPARQL 1.1 Query Results TSV Format, where the values
+ * are written in the Turtle syntax, i.e., <code>&lt;uri&gt;</code>,
+ * <code>"string"</code>, <code>"string"@lang</code> or
+ * <code>"lexical"^^&lt;datatype&gt;</code>.
+ */
+public class SparqlTsvResultWriter extends AbstractQueryResultWriter
+{
+   public static final String CONTENT_TYPE = "text/tab-separated-values"; //$NON-NLS-1$
+
+   private Writer mWriter;
+
+   private String[] mDatatypes;
+
+   public SparqlTsvResultWriter(OutputStream out)
+   {
+      super(out);
+   }
+
+   @Override
+   public String getContentType()
+   {
+      return CONTENT_TYPE;
+   }
+
+   @Override
+   protected void startResult(List<String> selectNames, String[] datatypes) throws IOException
+   {
+      mDatatypes = datatypes;
+      mWriter = new BufferedWriter(new OutputStreamWriter(mOutputStream, StandardCharsets.UTF_8));
+      for (int i = 0; i < selectNames.size(); i++) {
+         if (i > 0) {
+            mWriter.write('\t');
+         }
+         mWriter.write('?');
+         mWriter.write(selectNames.get(i));
+      }
+      mWriter.write('\n');
+   }
+
+   /*
+    * An unbound cell is an empty field.
+    */
+   @Override
+   protected void writeRow(IQueryResultCursor result) throws IOException
+   {
+      for (int i = 0; i < mDatatypes.length; i++) {
+         if (i > 0) {
+            mWriter.write('\t');
+         }
+         String value = result.getString(i + 1);
+         if (value == null) {
+            continue;
+         }
+         if (mDatatypes[i] == null) {
+            mWriter.write('<');
+            mWriter.write(value);
+            mWriter.write('>');
+         }
+         else {
+            writeLiteral(value, mDatatypes[i], result.getLanguage(i + 1));
+         }
+      }
+      mWriter.write('\n');
+   }
+
+   @Override
+   protected void endResult() throws IOException
+   {
+      mWriter.flush();
+   }
+
+   private void writeLiteral(String value, String datatype, String language) throws IOException
+   {
+      mWriter.write('"');
+      for (int i = 0; i < value.length(); i++) {
+         char c = value.charAt(i);
+         switch (c) {
+            case '\t': mWriter.write("\\t"); break; //$NON-NLS-1$
+            case '\n': mWriter.write("\\n"); break; //$NON-NLS-1$
+            case '\r': mWriter.write("\\r"); break; //$NON-NLS-1$
+            case '"': mWriter.write("\\\""); break; //$NON-NLS-1$
+            case '\\': mWriter.write("\\\\"); break; //$NON-NLS-1$
+            default: mWriter.write(c);
+         }
+      }
+      mWriter.write('"');
+      if (isPlainLiteral(datatype)) {
+         if (language != null) {
+            mWriter.write('@');
+            mWriter.write(language);
+         }
+      }
+      else if (!datatype.equals(DataType.STRING)) {
+         mWriter.write("^^<"); //$NON-NLS-1$
+         mWriter.write(datatype);
+         mWriter.write('>');
+      }
+   }
+}
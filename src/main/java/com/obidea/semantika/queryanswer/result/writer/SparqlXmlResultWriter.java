@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.queryanswer.result.writer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.obidea.semantika.queryanswer.result.IQueryResultCursor;
+
+/**
+ * Writes the query result in the SPARQL Query Results XML Format.
+ */
+public class SparqlXmlResultWriter extends AbstractQueryResultWriter
+{
+   public static final String CONTENT_TYPE = "application/sparql-results+xml"; //$NON-NLS-1$
+
+   private static final String NAMESPACE = "http://www.w3.org/2005/sparql-results#"; //$NON-NLS-1$
+
+   private Writer mWriter;
+
+   private List<String> mSelectNames;
+   private String[] mDatatypes;
+
+   public SparqlXmlResultWriter(OutputStream out)
+   {
+      super(out);
+   }
+
+   @Override
+   public String getContentType()
+   {
+      return CONTENT_TYPE;
+   }
+
+   @Override
+   protected void startResult(List<String> selectNames, String[] datatypes) throws IOException
+   {
+      mSelectNames = selectNames;
+      mDatatypes = datatypes;
+      mWriter = new BufferedWriter(new OutputStreamWriter(mOutputStream, StandardCharsets.UTF_8));
+      mWriter.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"); //$NON-NLS-1$
+      mWriter.write("<sparql xmlns=\"" + NAMESPACE + "\">\n"); //$NON-NLS-1$ //$NON-NLS-2$
+      mWriter.write("<head>\n"); //$NON-NLS-1$
+      for (String selectName : selectNames) {
+         mWriter.write("<variable name=\""); //$NON-NLS-1$
+         writeEscaped(selectName);
+         mWriter.write("\"/>\n"); //$NON-NLS-1$
+      }
+      mWriter.write("</head>\n"); //$NON-NLS-1$
+      mWriter.write("<results>\n"); //$NON-NLS-1$
+   }
+
+   /*
+    * The unbound cells are left out of the result element.
+    */
+   @Override
+   protected void writeRow(IQueryResultCursor result) throws IOException
+   {
+      mWriter.write("<result>"); //$NON-NLS-1$
+      for (int i = 0; i < mDatatypes.length; i++) {
+         String value = result.getString(i + 1);
+         if (value == null) {
+            continue;
+         }
+         mWriter.write("<binding name=\""); //$NON-NLS-1$
+         writeEscaped(mSelectNames.get(i));
+         mWriter.write("\">"); //$NON-NLS-1$
+         if (mDatatypes[i] == null) {
+            mWriter.write("<uri>"); //$NON-NLS-1$
+            writeEscaped(value);
+            mWriter.write("</uri>"); //$NON-NLS-1$
+         }
+         else {
+            mWriter.write("<literal"); //$NON-NLS-1$
+            if (!isPlainLiteral(mDatatypes[i])) {
+               mWriter.write(" datatype=\""); //$NON-NLS-1$
+               writeEscaped(mDatatypes[i]);
+               mWriter.write('"');
+            }
+            else {
+               String language = result.getLanguage(i + 1);
+               if (language != null) {
+                  mWriter.write(" xml:lang=\""); //$NON-NLS-1$
+                  writeEscaped(language);
+                  mWriter.write('"');
+               }
+            }
+            mWriter.write('>');
+            writeEscaped(value);
+            mWriter.write("</literal>"); //$NON-NLS-1$
+         }
+         mWriter.write("</binding>"); //$NON-NLS-1$
+      }
+      mWriter.write("</result>\n"); //$NON-NLS-1$
+   }
+
+   @Override
+   protected void endResult() throws IOException
+   {
+      mWriter.write("</results>\n"); //$NON-NLS-1$
+      mWriter.write("</sparql>\n"); //$NON-NLS-1$
+      mWriter.flush();
+   }
+
+   /*
+    * Escapes the characters that cannot appear as they are in both the element content
+    * and the attribute values.
+    */
+   private void writeEscaped(String text) throws IOException
+   {
+      int start = 0;
+      for (int i = 0; i < text.length(); i++) {
+         String entity;
+         switch (text.charAt(i)) {
+            case '&': entity = "&amp;"; break; //$NON-NLS-1$
+            case '<': entity = "&lt;"; break; //$NON-NLS-1$
+            case '>': entity = "&gt;"; break; //$NON-NLS-1$
+            case '"': entity = "&quot;"; break; //$NON-NLS-1$
+            case '\r': entity = "&#13;"; break; //$NON-NLS-1$
+            default: continue;
+         }
+         mWriter.write(text, start, i - start);
+         mWriter.write(entity);
+         start = i + 1;
+      }
+      mWriter.write(text, start, text.length() - start);
+   }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.util;
+
+/**
+ * An immutable snapshot of the cache counters.
+ */
+public final class CacheStatistics
+{
+   private final long mHitCount;
+   private final long mMissCount;
+   private final long mLoadFailureCount;
+   private final long mTotalLoadTime;
+   private final long mEvictionCount;
+   private final int mSize;
+   private final long mWeight;
+
+   public CacheStatistics(long hitCount, long missCount, long loadFailureCount, long totalLoadTime,
+         long evictionCount, int size, long weight)
+   {
+      mHitCount = hitCount;
+      mMissCount = missCount;
+      mLoadFailureCount = loadFailureCount;
+      mTotalLoadTime = totalLoadTime;
+      mEvictionCount = evictionCount;
+      mSize = size;
+      mWeight = weight;
+   }
+
+   /**
+    * Returns the number of lookups that found a cached (or loading) value.
+    */
+   public long getHitCount()
+   {
+      return mHitCount;
+   }
+
+   /**
+    * Returns the number of lookups that had to load the value.
+    */
+   public long getMissCount()
+   {
+      return mMissCount;
+   }
+
+   /**
+    * Returns the ratio of hits over all lookups, or 1.0 if there was no lookup.
+    */
+   public double getHitRate()
+   {
+      long requestCount = mHitCount + mMissCount;
+      return (requestCount == 0) ? 1.0 : (double) mHitCount / requestCount;
+   }
+
+   /**
+    * Returns the number of loads that threw an exception.
+    */
+   public long getLoadFailureCount()
+   {
+      return mLoadFailureCount;
+   }
+
+   /**
+    * Returns the total time spent on loading values, in nanoseconds.
+    */
+   public long getTotalLoadTime()
+   {
+      return mTotalLoadTime;
+   }
+
+   /**
+    * Returns the average time spent on loading a value, in nanoseconds.
+    */
+   public double getAverageLoadTime()
+   {
+      return (mMissCount == 0) ? 0.0 : (double) mTotalLoadTime / mMissCount;
+   }
+
+   /**
+    * Returns the number of entries removed because the cache exceeded its maximum weight.
+    */
+   public long getEvictionCount()
+   {
+      return mEvictionCount;
+   }
+
+   public int getSize()
+   {
+      return mSize;
+   }
+
+   public long getWeight()
+   {
+      return mWeight;
+   }
+
+   @Override
+   public String toString()
+   {
+      StringBuilder sb = new StringBuilder();
+      sb.append("hits=").append(mHitCount); //$NON-NLS-1$
+      sb.append(", misses=").append(mMissCount); //$NON-NLS-1$
+      sb.append(", loadFailures=").append(mLoadFailureCount); //$NON-NLS-1$
+      sb.append(", totalLoadTime=").append(mTotalLoadTime).append("ns"); //$NON-NLS-1$ //$NON-NLS-2$
+      sb.append(", evictions=").append(mEvictionCount); //$NON-NLS-1$
+      sb.append(", size=").append(mSize); //$NON-NLS-1$
+      sb.append(", weight=").append(mWeight); //$NON-NLS-1$
+      return sb.toString();
+   }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A URI template that is parsed once into a list of segments, i.e., the constant text
+ * and the argument placeholders <code>{1}</code>, <code>{2}</code>, etc., so the
+ * expansion appends the segments to a string builder without any regular expression
+ * or string replacement. The whitespaces in the argument values are replaced with
+ * underscores, like {@link StringUtils#useUnderscore(String)} does.
+ * <p>
+ * The compiled templates are shared through {@link #compile(String)}, since the number
+ * of distinct templates is bounded by the mappings.
+ */
+public final class CompiledUriTemplate
+{
+   private static final ConcurrentMap<String, CompiledUriTemplate> sCompiledTemplates =
+         new ConcurrentHashMap<String, CompiledUriTemplate>();
+
+   private static final String CONSTRUCTION_SEPARATOR = " : \""; //$NON-NLS-1$
+
+   private static final ThreadLocal<StringBuilder> sBuffer = new ThreadLocal<StringBuilder>()
+   {
+      @Override
+      protected StringBuilder initialValue()
+      {
+         return new StringBuilder();
+      }
+   };
+
+   private final String mTemplateString;
+
+   /*
+    * The constant text before each placeholder, the placeholder indexes (starting from
+    * 0) and the constant text after the last placeholder.
+    */
+   private final String[] mTexts;
+   private final int[] mArgumentIndexes;
+   private final String mTail;
+   private final int mArgumentCount;
+
+   private CompiledUriTemplate(String templateString)
+   {
+      mTemplateString = templateString;
+      List<String> texts = new ArrayList<String>();
+      List<Integer> indexes = new ArrayList<Integer>();
+      int start = 0;
+      int pos = 0;
+      while ((pos = templateString.indexOf('{', pos)) != -1) {
+         int end = pos + 1;
+         while (end < templateString.length() && Character.isDigit(templateString.charAt(end))) {
+            end++;
+         }
+         if (end > pos + 1 && end < templateString.length() && templateString.charAt(end) == '}') {
+            texts.add(templateString.substring(start, pos));
+            indexes.add(Integer.parseInt(templateString.substring(pos + 1, end)) - 1);
+            start = end + 1;
+            pos = start;
+         }
+         else {
+            pos++;
+         }
+      }
+      mTexts = texts.toArray(new String[texts.size()]);
+      mArgumentIndexes = new int[indexes.size()];
+      for (int i = 0; i < mArgumentIndexes.length; i++) {
+         mArgumentIndexes[i] = indexes.get(i);
+      }
+      mTail = templateString.substring(start);
+      int argumentCount = 0;
+      for (int index : mArgumentIndexes) {
+         argumentCount = Math.max(argumentCount, index + 1);
+      }
+      mArgumentCount = argumentCount;
+   }
+
+   /**
+    * Returns the compiled form of the given template string.
+    */
+   public static CompiledUriTemplate compile(String templateString)
+   {
+      CompiledUriTemplate template = sCompiledTemplates.get(templateString);
+      if (template == null) {
+         template = new CompiledUriTemplate(templateString);
+         CompiledUriTemplate existing = sCompiledTemplates.putIfAbsent(templateString, template);
+         if (existing != null) {
+            template = existing;
+         }
+      }
+      return template;
+   }
+
+   public String getTemplateString()
+   {
+      return mTemplateString;
+   }
+
+   /**
+    * Returns the number of arguments the template needs, i.e., the highest placeholder
+    * number.
+    */
+   public int getArgumentCount()
+   {
+      return mArgumentCount;
+   }
+
+   /**
+    * Appends the URI string produced by the given argument values to the string
+    * builder. A placeholder without a value is kept as it is.
+    */
+   public void expand(List<String> arguments, StringBuilder sb)
+   {
+      for (int i = 0; i < mTexts.length; i++) {
+         sb.append(mTexts[i]);
+         int index = mArgumentIndexes[i];
+         if (index >= 0 && index < arguments.size()) {
+            appendArgument(arguments.get(index), sb);
+         }
+         else {
+            sb.append('{').append(index + 1).append('}');
+         }
+      }
+      sb.append(mTail);
+   }
+
+   public String expand(List<String> arguments)
+   {
+      StringBuilder sb = getBuffer();
+      expand(arguments, sb);
+      return sb.toString();
+   }
+
+   /**
+    * Returns the URI string of the given URI template construction, i.e.,
+    * <code>&lt;template&gt; : "value1" "value2"</code>, which is the form the SQL query
+    * produces for a URI select item.
+    */
+   public static String expandConstruction(String construction)
+   {
+      int separator = construction.indexOf(CONSTRUCTION_SEPARATOR);
+      if (separator == -1) {
+         return construction;
+      }
+      CompiledUriTemplate template = compile(construction.substring(0, separator));
+      List<String> arguments = new ArrayList<String>(template.mArgumentIndexes.length);
+      int start = separator + CONSTRUCTION_SEPARATOR.length();
+      while (start <= construction.length()) {
+         int end = construction.indexOf('"', start);
+         if (end == -1) {
+            break;
+         }
+         arguments.add(construction.substring(start, end));
+         start = end + 3; // skip the closing quote, the space and the next opening quote
+      }
+      return template.expand(arguments);
+   }
+
+   private static void appendArgument(String value, StringBuilder sb)
+   {
+      boolean inWhitespace = false;
+      for (int i = 0; i < value.length(); i++) {
+         char c = value.charAt(i);
+         if (isWhitespace(c)) {
+            if (!inWhitespace) {
+               sb.append('_');
+               inWhitespace = true;
+            }
+         }
+         else {
+            sb.append(c);
+            inWhitespace = false;
+         }
+      }
+   }
+
+   /*
+    * The same characters as the \s class of the regular expressions.
+    */
+   private static boolean isWhitespace(char c)
+   {
+      return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+   }
+
+   private static StringBuilder getBuffer()
+   {
+      StringBuilder sb = sBuffer.get();
+      sb.setLength(0);
+      return sb;
+   }
+
+   @Override
+   public String toString()
+   {
+      return mTemplateString;
+   }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.util;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.obidea.semantika.database.base.IDatabaseObject;
+import com.obidea.semantika.exception.SemantikaRuntimeException;
+import com.obidea.semantika.expression.base.FunctionSymbol;
+import com.obidea.semantika.expression.base.Predicate;
+import com.obidea.semantika.mapping.MappingType;
+
+/**
+ * Creates deep copies of the expression, SQL and mapping objects by walking their
+ * fields directly, without encoding the objects into a byte stream.
+ * <p>
+ * Each copy is created by the no-arg constructor of its class and then receives the
+ * non-transient fields of the original, so the copied classes must declare such a
+ * constructor (it may be private). Transient fields keep the value given by that
+ * constructor. Objects that are referenced more than once are copied once. The
+ * immutable values (e.g., strings, numbers, URIs and enums), the predicates, the
+ * function symbols, the mapping types and the database metadata objects are shared
+ * with the original instead of being duplicated.
+ */
+public final class ObjectCopier
+{
+   private static final Map<Class<?>, ClassLayout> sClassLayouts = new ConcurrentHashMap<Class<?>, ClassLayout>();
+
+   private static final Set<Class<?>> sImmutableTypes = new HashSet<Class<?>>(Arrays.<Class<?>>asList(
+         String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class,
+         Float.class, Double.class, BigInteger.class, BigDecimal.class, URI.class, Class.class,
+         Collections.emptyList().getClass(), Collections.emptySet().getClass(), Collections.emptyMap().getClass()));
+
+   private static final Class<?> ARRAYS_LIST = Arrays.asList().getClass();
+   private static final Class<?> SINGLETON_LIST = Collections.singletonList(null).getClass();
+   private static final Class<?> SINGLETON_SET = Collections.singleton(null).getClass();
+   private static final Class<?> UNMODIFIABLE_LIST = Collections.unmodifiableList(new LinkedList<Object>()).getClass();
+   private static final Class<?> UNMODIFIABLE_RANDOM_ACCESS_LIST = Collections.unmodifiableList(new ArrayList<Object>()).getClass();
+   private static final Class<?> UNMODIFIABLE_SET = Collections.unmodifiableSet(new HashSet<Object>()).getClass();
+   private static final Class<?> UNMODIFIABLE_MAP = Collections.unmodifiableMap(new HashMap<Object, Object>()).getClass();
+   private static final Class<?> UNMODIFIABLE_COLLECTION = Collections.unmodifiableCollection(new ArrayList<Object>()).getClass();
+
+   private final Map<Object, Object> mCopies = new IdentityHashMap<Object, Object>();
+
+   private ObjectCopier()
+   {
+      // NO-OP
+   }
+
+   /**
+    * Returns a deep copy of the given object.
+    */
+   @SuppressWarnings("unchecked")
+   public static <T> T copy(T target)
+   {
+      return (T) new ObjectCopier().copyObject(target);
+   }
+
+   private Object copyObject(Object source)
+   {
+      if (source == null) {
+         return null;
+      }
+      Class<?> type = source.getClass();
+      if (isShared(type, source)) {
+         return source;
+      }
+      Object copy = mCopies.get(source);
+      if (copy != null) {
+         return copy;
+      }
+      if (type.isArray()) {
+         return copyArray(source, type);
+      }
+      if (isPlatformType(type)) {
+         return copyPlatformObject(source, type);
+      }
+      ClassLayout layout = getClassLayout(type);
+      copy = layout.newInstance();
+      mCopies.put(source, copy);
+      layout.copyFields(source, copy, this);
+      return copy;
+   }
+
+   private static boolean isShared(Class<?> type, Object source)
+   {
+      return sImmutableTypes.contains(type) || type.isEnum() || source instanceof Enum
+            || source instanceof Predicate || source instanceof FunctionSymbol || source instanceof MappingType
+            || source instanceof IDatabaseObject;
+   }
+
+   private static boolean isPlatformType(Class<?> type)
+   {
+      String name = type.getName();
+      return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+   }
+
+   private Object copyArray(Object source, Class<?> type)
+   {
+      int length = Array.getLength(source);
+      Class<?> componentType = type.getComponentType();
+      if (componentType.isPrimitive()) {
+         Object copy = Array.newInstance(componentType, length);
+         System.arraycopy(source, 0, copy, 0, length);
+         mCopies.put(source, copy);
+         return copy;
+      }
+      Object[] sourceArray = (Object[]) source;
+      Object[] copy = (Object[]) Array.newInstance(componentType, length);
+      mCopies.put(source, copy);
+      for (int i = 0; i < length; i++) {
+         copy[i] = copyObject(sourceArray[i]);
+      }
+      return copy;
+   }
+
+   /*
+    * The collections of the Java platform are rebuilt through their public API. Any
+    * other platform type fails the copy, because its fields are not accessible.
+    */
+   @SuppressWarnings("unchecked")
+   private Object copyPlatformObject(Object source, Class<?> type)
+   {
+      if (type == ArrayList.class) {
+         return copyElements((Collection<Object>) source, new ArrayList<Object>(((Collection<?>) source).size()));
+      }
+      if (type == LinkedList.class) {
+         return copyElements((Collection<Object>) source, new LinkedList<Object>());
+      }
+      if (type == HashSet.class) {
+         return copyElements((Collection<Object>) source, new HashSet<Object>());
+      }
+      if (type == LinkedHashSet.class) {
+         return copyElements((Collection<Object>) source, new LinkedHashSet<Object>());
+      }
+      if (type == HashMap.class) {
+         return copyEntries((Map<Object, Object>) source, new HashMap<Object, Object>());
+      }
+      if (type == LinkedHashMap.class) {
+         return copyEntries((Map<Object, Object>) source, new LinkedHashMap<Object, Object>());
+      }
+      if (type == ARRAYS_LIST) {
+         return register(source, Arrays.asList((Object[]) copyObject(((List<?>) source).toArray())));
+      }
+      if (type == SINGLETON_LIST) {
+         return register(source, Collections.singletonList(copyObject(((List<?>) source).get(0))));
+      }
+      if (type == SINGLETON_SET) {
+         return register(source, Collections.singleton(copyObject(((Set<?>) source).iterator().next())));
+      }
+      if (type == UNMODIFIABLE_LIST || type == UNMODIFIABLE_RANDOM_ACCESS_LIST) {
+         List<Object> elements = copyElements((Collection<Object>) source, new ArrayList<Object>());
+         return register(source, Collections.unmodifiableList(elements));
+      }
+      if (type == UNMODIFIABLE_SET) {
+         Set<Object> elements = copyElements((Collection<Object>) source, new LinkedHashSet<Object>());
+         return register(source, Collections.unmodifiableSet(elements));
+      }
+      if (type == UNMODIFIABLE_MAP) {
+         Map<Object, Object> entries = copyEntries((Map<Object, Object>) source, new LinkedHashMap<Object, Object>());
+         return register(source, Collections.unmodifiableMap(entries));
+      }
+      if (type == UNMODIFIABLE_COLLECTION) {
+         List<Object> elements = copyElements((Collection<Object>) source, new ArrayList<Object>());
+         return register(source, Collections.unmodifiableCollection(elements));
+      }
+      throw new SemantikaRuntimeException("Unsupported type during object copy: " + type.getName()); //$NON-NLS-1$
+   }
+
+   private <C extends Collection<Object>> C copyElements(Collection<Object> source, C copy)
+   {
+      mCopies.put(source, copy);
+      for (Object element : source) {
+         copy.add(copyObject(element));
+      }
+      return copy;
+   }
+
+   private <M extends Map<Object, Object>> M copyEntries(Map<Object, Object> source, M copy)
+   {
+      mCopies.put(source, copy);
+      for (Map.Entry<Object, Object> entry : source.entrySet()) {
+         copy.put(copyObject(entry.getKey()), copyObject(entry.getValue()));
+      }
+      return copy;
+   }
+
+   private Object register(Object source, Object copy)
+   {
+      mCopies.put(source, copy);
+      return copy;
+   }
+
+   private static ClassLayout getClassLayout(Class<?> type)
+   {
+      ClassLayout layout = sClassLayouts.get(type);
+      if (layout == null) {
+         layout = new ClassLayout(type);
+         sClassLayouts.put(type, layout);
+      }
+      return layout;
+   }
+
+   /**
+    * The constructor and the fields to copy of a class, which are looked up once.
+    */
+   private static class ClassLayout
+   {
+      private final Constructor<?> mConstructor;
+      private final Field[] mFields;
+
+      public ClassLayout(Class<?> type)
+      {
+         List<Field> fields = new ArrayList<Field>();
+         Class<?> current = type;
+         while (current != Object.class) {
+            for (Field field : current.getDeclaredFields()) {
+               int modifiers = field.getModifiers();
+               if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+                  continue;
+               }
+               field.setAccessible(true);
+               fields.add(field);
+            }
+            current = current.getSuperclass();
+         }
+         mFields = fields.toArray(new Field[fields.size()]);
+         mConstructor = createConstructor(type);
+      }
+
+      private static Constructor<?> createConstructor(Class<?> type)
+      {
+         try {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor;
+         }
+         catch (NoSuchMethodException e) {
+            throw new SemantikaRuntimeException("No default constructor to copy " + type.getName(), e); //$NON-NLS-1$
+         }
+      }
+
+      public Object newInstance()
+      {
+         try {
+            return mConstructor.newInstance();
+         }
+         catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new SemantikaRuntimeException("Error during object copy: " + mConstructor.getDeclaringClass(), e); //$NON-NLS-1$
+         }
+      }
+
+      public void copyFields(Object source, Object copy, ObjectCopier copier)
+      {
+         try {
+            for (Field field : mFields) {
+               if (field.getType().isPrimitive()) {
+                  field.set(copy, field.get(source));
+               }
+               else {
+                  field.set(copy, copier.copyObject(field.get(source)));
+               }
+            }
+         }
+         catch (IllegalAccessException e) {
+            throw new SemantikaRuntimeException("Error during object copy: " + source.getClass(), e); //$NON-NLS-1$
+         }
+      }
+   }
+}
@@ -23,6 +23,16 @@ import java.util.regex.Pattern;
 public final class TemplateStringHelper
 {
    private static final Pattern uriTemplateResult = Pattern.compile("([^\\s]*) :|\"([^\"]*)\""); //$NON-NLS-1$
+   private static final Pattern templatePlaceholder = Pattern.compile("\\{\\d+\\}"); //$NON-NLS-1$
+
+   /**
+    * Returns <code>true</code> if the given string is a URI template construction, i.e.,
+    * <code>&lt;template&gt; : "value1" "value2"</code>, rather than a URI string.
+    */
+   public static boolean isTemplateConstruction(String input)
+   {
+      return input.indexOf(" : \"") != -1; //$NON-NLS-1$
+   }
 
    public static String getTemplateString(String input)
    {
@@ -46,22 +56,67 @@ public final class TemplateStringHelper
       return arguments;
    }
 
+   /**
+    * Returns the URI string of the given URI template construction. The template is
+    * expanded by its compiled form, see {@link CompiledUriTemplate}.
+    */
    public static String buildUri(String input)
    {
-      String templateString = getTemplateString(input);
-      List<String> arguments = getTemplateArguments(input);
-      
-      String uriString = templateString; // the URI string is based on the template
-      for (int i = 0; i < arguments.size(); i++) {
-         String value = arguments.get(i);
-         String str = StringUtils.useUnderscore(value);
-         uriString = uriString.replace(holder(i+1), str);
+      return CompiledUriTemplate.expandConstruction(input);
+   }
+
+   /**
+    * Returns the URI template construction, i.e., <code>&lt;template&gt; : "value1"
+    * "value2"</code>, that produces the given URI string using the given template.
+    * Returns <code>null</code> if the URI string does not follow the template.
+    * Note that the whitespaces in the original values cannot be recovered since
+    * {@link #buildUri(String)} replaces them with underscores.
+    */
+   public static String createTemplateConstruction(String templateString, String uriString)
+   {
+      List<String> arguments = getTemplateArguments(templateString, uriString);
+      if (arguments == null) {
+         return null;
+      }
+      StringBuilder sb = new StringBuilder(templateString);
+      sb.append(" : \""); //$NON-NLS-1$
+      boolean needSeparator = false;
+      for (String argument : arguments) {
+         if (needSeparator) {
+            sb.append("\" \""); //$NON-NLS-1$
+         }
+         sb.append(argument);
+         needSeparator = true;
       }
-      return uriString;
+      sb.append("\""); //$NON-NLS-1$
+      return sb.toString();
    }
 
-   private static String holder(int index)
+   /**
+    * Returns the values that fill the placeholders of the given template to produce
+    * the given URI string, or <code>null</code> if the URI string does not follow the
+    * template.
+    */
+   public static List<String> getTemplateArguments(String templateString, String uriString)
    {
-      return String.format("{%d}", index); //$NON-NLS-1$
+      StringBuilder regex = new StringBuilder("^"); //$NON-NLS-1$
+      Matcher m = templatePlaceholder.matcher(templateString);
+      int start = 0;
+      while (m.find()) {
+         regex.append(Pattern.quote(templateString.substring(start, m.start())));
+         regex.append("(.*?)"); //$NON-NLS-1$
+         start = m.end();
+      }
+      regex.append(Pattern.quote(templateString.substring(start)));
+      regex.append("$"); //$NON-NLS-1$
+      Matcher uriMatcher = Pattern.compile(regex.toString()).matcher(uriString);
+      if (!uriMatcher.matches()) {
+         return null;
+      }
+      List<String> arguments = new ArrayList<String>();
+      for (int i = 1; i <= uriMatcher.groupCount(); i++) {
+         arguments.add(uriMatcher.group(i));
+      }
+      return arguments;
    }
 }
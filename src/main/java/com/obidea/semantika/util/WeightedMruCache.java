@@ -0,0 +1,372 @@
+/*
+ * Copyright (c) 2013-2015 Josef Hardi <josef.hardi@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.obidea.semantika.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A concurrent cache that computes each value at most once per key and bounds its
+ * in-memory size by the total weight of the stored values rather than by the number
+ * of entries. When the total weight exceeds the maximum weight, the "Least Recently
+ * Used" (LRU) entries are removed first.
+ *
+ * Lookups do not block each other. Threads asking for a key that is being loaded
+ * wait for that single load to complete instead of computing the value again. The
+ * recency order is kept in an access-ordered list, so an eviction removes the oldest
+ * entries without sorting the cache. A hit that finds the list in use by another
+ * thread skips updating the order, which makes the order approximate under heavy
+ * contention.
+ *
+ * Optionally, the values expire after a fixed time since they were loaded. An
+ * expired value is treated as absent and its weight is released on the next lookup.
+ */
+public class WeightedMruCache<K, V>
+{
+   public static final long DEFAULT_MAX_WEIGHT = 4 * 1024 * 1024;
+
+   private final long mMaxWeight;
+
+   private final IWeigher<V> mWeigher;
+
+   private final long mExpireAfterNanos;
+
+   private final ConcurrentMap<K, Entry<V>> mCache = new ConcurrentHashMap<K, Entry<V>>();
+
+   private final AtomicLong mTotalWeight = new AtomicLong();
+
+   private final AtomicLong mHitCount = new AtomicLong();
+   private final AtomicLong mMissCount = new AtomicLong();
+   private final AtomicLong mLoadFailureCount = new AtomicLong();
+   private final AtomicLong mTotalLoadTime = new AtomicLong();
+   private final AtomicLong mEvictionCount = new AtomicLong();
+
+   /**
+    * The loaded entries from the least to the most recently used, guarded by
+    * <code>mEvictionLock</code>.
+    */
+   private final LinkedHashMap<K, Entry<V>> mAccessOrder = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true);
+
+   private final ReentrantLock mEvictionLock = new ReentrantLock();
+
+   /**
+    * Computes the weight of a cached value. The weight is an estimate of the memory
+    * footprint of the value and it must not change once the value is cached.
+    */
+   public interface IWeigher<V>
+   {
+      long weigh(V value);
+   }
+
+   public WeightedMruCache(IWeigher<V> weigher)
+   {
+      this(DEFAULT_MAX_WEIGHT, weigher);
+   }
+
+   public WeightedMruCache(long maxWeight, IWeigher<V> weigher)
+   {
+      this(maxWeight, -1, weigher);
+   }
+
+   /**
+    * Creates a cache whose values expire <code>expireAfterMillis</code> milliseconds
+    * after they were loaded. A non-positive value means the values never expire.
+    */
+   public WeightedMruCache(long maxWeight, long expireAfterMillis, IWeigher<V> weigher)
+   {
+      mMaxWeight = (maxWeight > 0) ? maxWeight : DEFAULT_MAX_WEIGHT;
+      mExpireAfterNanos = (expireAfterMillis > 0) ? TimeUnit.MILLISECONDS.toNanos(expireAfterMillis) : -1;
+      mWeigher = weigher;
+   }
+
+   /**
+    * Returns the value associated with the <code>key</code>, or computes it using the
+    * <code>loader</code> if the value is not cached yet. Concurrent calls with the same
+    * key share a single invocation of the loader.
+    *
+    * @throws ExecutionException
+    *            if the loader failed to compute the value. The failed entry is not
+    *            cached so that the next call can retry.
+    */
+   public V get(K key, Callable<V> loader) throws ExecutionException
+   {
+      Entry<V> entry = getEntry(key);
+      if (entry == null) {
+         Entry<V> newEntry = new Entry<V>(new FutureTask<V>(loader));
+         entry = mCache.putIfAbsent(key, newEntry);
+         if (entry == null) {
+            mMissCount.incrementAndGet();
+            return load(key, newEntry);
+         }
+      }
+      mHitCount.incrementAndGet();
+      recordAccess(key);
+      return waitFor(entry);
+   }
+
+   /**
+    * Returns the cached value of the <code>key</code> or <code>null</code> if the value
+    * is not present or it is still being loaded.
+    */
+   public V getIfPresent(K key)
+   {
+      Entry<V> entry = getEntry(key);
+      if (entry == null || !entry.isLoaded()) {
+         mMissCount.incrementAndGet();
+         return null;
+      }
+      recordAccess(key);
+      try {
+         V value = entry.mTask.get();
+         mHitCount.incrementAndGet();
+         return value;
+      }
+      catch (Exception e) {
+         mMissCount.incrementAndGet();
+         return null;
+      }
+   }
+
+   /**
+    * Stores the <code>value</code> of the <code>key</code>, replacing the value that is
+    * currently cached, if any.
+    */
+   public void put(K key, final V value)
+   {
+      Entry<V> entry = new Entry<V>(new FutureTask<V>(new Callable<V>()
+      {
+         @Override
+         public V call()
+         {
+            return value;
+         }
+      }));
+      entry.mTask.run();
+      Entry<V> oldEntry = mCache.put(key, entry);
+      if (oldEntry != null) {
+         discount(key, oldEntry);
+      }
+      commit(key, entry, value);
+   }
+
+   /*
+    * Returns the entry of the key, or null if the entry is absent or has expired.
+    */
+   private Entry<V> getEntry(K key)
+   {
+      Entry<V> entry = mCache.get(key);
+      if (entry != null && isExpired(entry)) {
+         if (mCache.remove(key, entry)) {
+            discount(key, entry);
+         }
+         return null;
+      }
+      return entry;
+   }
+
+   private boolean isExpired(Entry<V> entry)
+   {
+      return mExpireAfterNanos > 0 && entry.isLoaded() && System.nanoTime() - entry.mLoadTime > mExpireAfterNanos;
+   }
+
+   private V load(K key, Entry<V> entry) throws ExecutionException
+   {
+      long start = System.nanoTime();
+      entry.mTask.run();
+      mTotalLoadTime.addAndGet(System.nanoTime() - start);
+      try {
+         V value = entry.mTask.get();
+         commit(key, entry, value);
+         return value;
+      }
+      catch (ExecutionException e) {
+         mLoadFailureCount.incrementAndGet();
+         mCache.remove(key, entry);
+         throw e;
+      }
+      catch (InterruptedException e) {
+         // Should never happen because the task has completed
+         Thread.currentThread().interrupt();
+         mCache.remove(key, entry);
+         throw new ExecutionException(e);
+      }
+   }
+
+   private void commit(K key, Entry<V> entry, V value)
+   {
+      entry.mWeight = mWeigher.weigh(value);
+      entry.mLoadTime = System.nanoTime();
+      entry.mLoaded = true;
+      entry.mCounted.set(true);
+      mTotalWeight.addAndGet(entry.mWeight);
+      mEvictionLock.lock();
+      try {
+         if (mCache.get(key) == entry) {
+            mAccessOrder.put(key, entry);
+         }
+         else {
+            /*
+             * The entry was removed while it was being loaded, release its weight.
+             */
+            discount(entry);
+         }
+         evictIfNeeded();
+      }
+      finally {
+         mEvictionLock.unlock();
+      }
+   }
+
+   /*
+    * Moves the key to the most recently used end of the access order, unless another
+    * thread holds the eviction lock.
+    */
+   private void recordAccess(K key)
+   {
+      if (mEvictionLock.tryLock()) {
+         try {
+            mAccessOrder.get(key);
+         }
+         finally {
+            mEvictionLock.unlock();
+         }
+      }
+   }
+
+   private V waitFor(Entry<V> entry) throws ExecutionException
+   {
+      try {
+         return entry.mTask.get();
+      }
+      catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new ExecutionException(e);
+      }
+   }
+
+   /*
+    * Removes the least recently used entries until the total weight fits the maximum.
+    * The caller must hold the eviction lock.
+    */
+   private void evictIfNeeded()
+   {
+      Iterator<Map.Entry<K, Entry<V>>> iter = mAccessOrder.entrySet().iterator();
+      while (mTotalWeight.get() > mMaxWeight && iter.hasNext()) {
+         Map.Entry<K, Entry<V>> eldest = iter.next();
+         iter.remove();
+         if (mCache.remove(eldest.getKey(), eldest.getValue())) {
+            discount(eldest.getValue());
+            mEvictionCount.incrementAndGet();
+         }
+      }
+   }
+
+   /**
+    * Removes the value associated with the <code>key</code>, if any.
+    */
+   public void remove(K key)
+   {
+      Entry<V> entry = mCache.remove(key);
+      if (entry != null) {
+         discount(key, entry);
+      }
+   }
+
+   /*
+    * Releases the weight of an entry that was removed from the cache and drops it
+    * from the access order.
+    */
+   private void discount(K key, Entry<V> entry)
+   {
+      discount(entry);
+      mEvictionLock.lock();
+      try {
+         if (mAccessOrder.get(key) == entry) {
+            mAccessOrder.remove(key);
+         }
+      }
+      finally {
+         mEvictionLock.unlock();
+      }
+   }
+
+   private void discount(Entry<V> entry)
+   {
+      if (entry.mCounted.compareAndSet(true, false)) {
+         mTotalWeight.addAndGet(-entry.mWeight);
+      }
+   }
+
+   /**
+    * Removes all the cached values. The statistics counters are not reset.
+    */
+   public void clear()
+   {
+      for (K key : mCache.keySet()) {
+         remove(key);
+      }
+   }
+
+   public int size()
+   {
+      return mCache.size();
+   }
+
+   public long weight()
+   {
+      return mTotalWeight.get();
+   }
+
+   public long getMaxWeight()
+   {
+      return mMaxWeight;
+   }
+
+   public CacheStatistics getStatistics()
+   {
+      return new CacheStatistics(mHitCount.get(), mMissCount.get(), mLoadFailureCount.get(),
+            mTotalLoadTime.get(), mEvictionCount.get(), size(), weight());
+   }
+
+   private static class Entry<V>
+   {
+      final FutureTask<V> mTask;
+      volatile long mWeight;
+      volatile long mLoadTime;
+      volatile boolean mLoaded = false;
+      final AtomicBoolean mCounted = new AtomicBoolean(false);
+
+      Entry(FutureTask<V> task)
+      {
+         mTask = task;
+      }
+
+      boolean isLoaded()
+      {
+         return mLoaded;
+      }
+   }
+}